@@ -0,0 +1,229 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.io.filereader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests the {@link ParallelFileTableReader} against reading the file sequentially.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelFileTableReaderTest {
+    private ExecutionContext m_exec;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec =
+            new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+                SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Reads a file with column headers, quotes, comments, empty lines and mixed line endings in many small ranges.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadInRanges() throws Exception {
+        StringBuilder contents = new StringBuilder("skipped line\nid,name,value\n");
+        for (int i = 0; i < 500; i++) {
+            contents.append(i % 7 == 0 ? "" : "r" + (i % 50)).append(",\"name, ").append(i).append("\",")
+                .append(i * 0.5).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 11 == 0) {
+                contents.append("# a comment\n\n");
+            }
+        }
+        FileReaderNodeSettings settings = createSettings(contents.toString(), true, 1);
+        assertSameAsSequential(settings, -1);
+        assertSameAsSequential(settings, 123);
+    }
+
+    /**
+     * Reads a file without row headers in many small ranges.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testGeneratedRowIDs() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            contents.append(i).append(",\"value ").append(i).append("\"\n");
+        }
+        assertSameAsSequential(createSettings(contents.toString(), false, 0), -1);
+    }
+
+    /**
+     * Checks that a format error in the middle of the file is reported as when reading sequentially.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testFormatError() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        StringBuilder invalidContents = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            contents.append("r").append(i).append(',').append(i).append('\n');
+            invalidContents.append("r").append(i).append(',').append(i).append(i == 321 ? ",too many\n" : "\n");
+        }
+        // analyze the valid file, read the invalid one
+        FileReaderNodeSettings settings = createSettings(contents.toString(), true, 0);
+        settings.setDataFileLocationAndUpdateTableName(createTempFile(invalidContents.toString()).toURI().toURL());
+        FileTable table = new FileTable(settings.createDataTableSpec(), settings, null);
+        String expected = null;
+        try {
+            m_exec.createBufferedDataTable(table, m_exec);
+            fail("Expected a format error");
+        } catch (FileReaderException e) {
+            expected = e.getMessage();
+        }
+        try {
+            createReader(table).read(m_exec);
+            fail("Expected a format error");
+        } catch (FileReaderException e) {
+            assertEquals("Unexpected error message", expected, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that files whose line feeds may be quoted are read sequentially.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testApplicability() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            contents.append("r").append(i).append(',').append(i).append('\n');
+        }
+        FileReaderNodeSettings settings = createSettings(contents.toString(), true, 0);
+        assertTrue(createReader(new FileTable(settings.createDataTableSpec(), settings, null)).isApplicable());
+        settings.allowLFinQuotes(true);
+        assertFalse(createReader(new FileTable(settings.createDataTableSpec(), settings, null)).isApplicable());
+    }
+
+    private void assertSameAsSequential(final FileReaderNodeSettings settings, final long maxRows)
+        throws Exception {
+        settings.setMaximumNumberOfRowsToRead(maxRows);
+        FileTable table = new FileTable(settings.createDataTableSpec(), settings, null);
+        BufferedDataTable expected = m_exec.createBufferedDataTable(table, m_exec);
+        ParallelFileTableReader reader = createReader(table);
+        assertTrue("File not read in parallel", reader.isApplicable());
+        BufferedDataTable actual = reader.read(m_exec);
+        assertEquals("Unexpected number of rows", expected.size(), actual.size());
+        Iterator<DataRow> it = actual.iterator();
+        for (DataRow expectedRow : expected) {
+            DataRow actualRow = it.next();
+            assertEquals("Unexpected row ID", expectedRow.getKey(), actualRow.getKey());
+            assertEquals("Unexpected number of cells", expectedRow.getNumCells(), actualRow.getNumCells());
+            for (int i = 0; i < expectedRow.getNumCells(); i++) {
+                assertEquals("Unexpected cell in row " + expectedRow.getKey(), expectedRow.getCell(i),
+                    actualRow.getCell(i));
+            }
+        }
+    }
+
+    private static ParallelFileTableReader createReader(final FileTable table) {
+        ParallelFileTableReader reader = new ParallelFileTableReader(table);
+        reader.setRangeSize(64);
+        reader.setParallelism(4);
+        return reader;
+    }
+
+    private static File createTempFile(final String contents) throws IOException {
+        File tempFile = File.createTempFile("knime_parallelfilereader_test_", ".csv");
+        tempFile.deleteOnExit();
+        try (FileWriter out = new FileWriter(tempFile)) {
+            out.write(contents);
+        }
+        return tempFile;
+    }
+
+    private static FileReaderNodeSettings createSettings(final String contents, final boolean hasRowHeaders,
+        final int skipFirstLines) throws IOException {
+        FileReaderNodeSettings settings = new FileReaderNodeSettings();
+        settings.setDataFileLocationAndUpdateTableName(createTempFile(contents).toURI().toURL());
+        settings.setSkipFirstLines(skipFirstLines);
+        settings.addDelimiterPattern(",", false, false, false);
+        settings.setDelimiterUserSet(true);
+        settings.addRowDelimiter("\n", true);
+        settings.addQuotePattern("\"", "\"");
+        settings.setQuoteUserSet(true);
+        settings.addSingleLineCommentPattern("#", false, false);
+        settings.setCommentUserSet(true);
+        settings.setFileHasRowHeaders(hasRowHeaders);
+        settings.setFileHasRowHeadersUserSet(true);
+        settings.setWhiteSpaceUserSet(true);
+        return FileAnalyzer.analyze(settings, null);
+    }
+}
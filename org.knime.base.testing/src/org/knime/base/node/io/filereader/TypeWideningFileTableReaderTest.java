@@ -0,0 +1,189 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.io.filereader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests the {@link TypeWideningFileTableReader}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TypeWideningFileTableReaderTest {
+    private ExecutionContext m_exec;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec =
+            new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+                SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Reads a file whose integer columns get values of wider types after the analyzed lines.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWidenColumnTypes() throws Exception {
+        StringBuilder sample = new StringBuilder("id,a,b,c,d\n");
+        StringBuilder contents = new StringBuilder("id,a,b,c,d\n");
+        for (int i = 0; i < 100; i++) {
+            String line = "r" + i + "," + i + "," + i + "," + i + "," + i + "\n";
+            contents.append(line);
+            if (i < 10) {
+                sample.append(line);
+            }
+        }
+        contents.append("r100,2.5,x,12345678901,7\n");
+        contents.append("r101,3,y,4,8\n");
+        FileReaderNodeSettings settings = createSettings(sample.toString(), contents.toString());
+        assertEquals(IntCell.TYPE, settings.createDataTableSpec().getColumnSpec(0).getType());
+
+        BufferedDataTable table = new TypeWideningFileTableReader(
+            new FileTable(settings.createDataTableSpec(), settings, null)).read(m_exec);
+        DataTableSpec spec = table.getDataTableSpec();
+        assertEquals(DoubleCell.TYPE, spec.getColumnSpec(0).getType());
+        assertEquals(StringCell.TYPE, spec.getColumnSpec(1).getType());
+        assertEquals(LongCell.TYPE, spec.getColumnSpec(2).getType());
+        assertEquals(IntCell.TYPE, spec.getColumnSpec(3).getType());
+        assertEquals(102, table.size());
+
+        Iterator<DataRow> it = table.iterator();
+        for (int i = 0; i < 100; i++) {
+            DataRow row = it.next();
+            assertEquals("r" + i, row.getKey().getString());
+            assertEquals(new DoubleCell(i), row.getCell(0));
+            assertEquals(new StringCell(Integer.toString(i)), row.getCell(1));
+            assertEquals(new LongCell(i), row.getCell(2));
+            assertEquals(new IntCell(i), row.getCell(3));
+        }
+        DataRow row = it.next();
+        assertEquals(new DoubleCell(2.5), row.getCell(0));
+        assertEquals(new StringCell("x"), row.getCell(1));
+        assertEquals(new LongCell(12345678901L), row.getCell(2));
+        row = it.next();
+        assertEquals(new DoubleCell(3), row.getCell(0));
+        assertEquals(new StringCell("y"), row.getCell(1));
+        assertEquals(new LongCell(4), row.getCell(2));
+    }
+
+    /**
+     * Checks that numbers widened to strings keep their representation in the file.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWidenNonCanonicalNumbersToString() throws Exception {
+        String sample = "id,a,b\nr0,007,1\nr1,+8,2\n";
+        String contents = sample + "r2,x,3\n";
+        FileReaderNodeSettings settings = createSettings(sample, contents);
+
+        BufferedDataTable table = new TypeWideningFileTableReader(
+            new FileTable(settings.createDataTableSpec(), settings, null)).read(m_exec);
+        assertEquals(StringCell.TYPE, table.getDataTableSpec().getColumnSpec(0).getType());
+        Iterator<DataRow> it = table.iterator();
+        assertEquals(new StringCell("007"), it.next().getCell(0));
+        assertEquals(new StringCell("+8"), it.next().getCell(0));
+        assertEquals(new StringCell("x"), it.next().getCell(0));
+    }
+
+    private static URL writeTempFile(final String contents) throws IOException {
+        File tempFile = File.createTempFile("knime_typewidening_test_", ".csv");
+        tempFile.deleteOnExit();
+        try (FileWriter out = new FileWriter(tempFile)) {
+            out.write(contents);
+        }
+        return tempFile.toURI().toURL();
+    }
+
+    /* analyzes the sample, reads the contents */
+    private static FileReaderNodeSettings createSettings(final String sample, final String contents)
+        throws IOException {
+        FileReaderNodeSettings settings = new FileReaderNodeSettings();
+        settings.setDataFileLocationAndUpdateTableName(writeTempFile(sample));
+        settings.addDelimiterPattern(",", false, false, false);
+        settings.setDelimiterUserSet(true);
+        settings.addRowDelimiter("\n", true);
+        settings.setFileHasRowHeaders(true);
+        settings.setFileHasRowHeadersUserSet(true);
+        settings.setFileHasColumnHeaders(true);
+        settings.setFileHasColumnHeadersUserSet(true);
+        FileReaderNodeSettings result = FileAnalyzer.analyze(settings, null);
+        result.setDataFileLocationAndUpdateTableName(writeTempFile(contents));
+        return result;
+    }
+}
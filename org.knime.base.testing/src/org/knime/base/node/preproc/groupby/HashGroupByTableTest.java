@@ -0,0 +1,218 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.preproc.groupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.data.aggregation.ColumnAggregator;
+import org.knime.base.data.aggregation.GlobalSettings;
+import org.knime.base.data.aggregation.OperatorColumnSettings;
+import org.knime.base.data.aggregation.general.CountOperator;
+import org.knime.base.data.aggregation.general.MaxOperator;
+import org.knime.base.data.aggregation.numerical.SumOperator;
+import org.knime.base.node.preproc.sorter.SorterNodeFactory;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.util.memory.MemoryAlertSystem.MemoryActionIndicator;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Junit4 Test for {@link HashGroupByTable}. The result is compared with the one of the {@link BigGroupByTable}, with
+ * and without spilling partitions to disk.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class HashGroupByTableTest {
+    private static ExecutionContext EXEC_CONTEXT;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        EXEC_CONTEXT = new ExecutionContext(
+           new DefaultNodeProgressMonitor(), new Node(new SorterNodeFactory()),
+                    SingleNodeContainer.MemoryPolicy.CacheSmallInMemory,
+                    new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        EXEC_CONTEXT = null;
+    }
+
+    /**
+     * Tests that aggregating all groups in memory yields the same table as the {@link BigGroupByTable}.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testInMemory() throws Exception {
+        final BufferedDataTable table = createTable(5000, 300, 1);
+        final HashGroupByTable hashTable = createHashTable(table, () -> false);
+        assertEquals("Unexpected spilled rows", 0, hashTable.getSpilledRowCount());
+        assertSameResult(createBigTable(table), hashTable);
+    }
+
+    /**
+     * Tests that the result is unchanged if partitions are spilled repeatedly while the input is read.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSpill() throws Exception {
+        final BufferedDataTable table = createTable(5000, 300, 2);
+        final int[] calls = new int[1];
+        final HashGroupByTable hashTable = createHashTable(table, () -> ++calls[0] % 700 == 0);
+        assertTrue("No rows spilled", hashTable.getSpilledRowCount() > 0);
+        assertSameResult(createBigTable(table), hashTable);
+    }
+
+    /**
+     * Tests that the result is unchanged if all partitions are spilled.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSpillAll() throws Exception {
+        final BufferedDataTable table = createTable(2000, 50, 3);
+        final HashGroupByTable hashTable = createHashTable(table, () -> true);
+        assertEquals("Not all rows spilled", table.size(), hashTable.getSpilledRowCount());
+        assertSameResult(createBigTable(table), hashTable);
+    }
+
+    private static void assertSameResult(final GroupByTable expected, final GroupByTable actual) {
+        final BufferedDataTable expectedTable = expected.getBufferedTable();
+        final BufferedDataTable actualTable = actual.getBufferedTable();
+        assertEquals("Unexpected spec", expectedTable.getDataTableSpec(), actualTable.getDataTableSpec());
+        assertEquals("Unexpected group count", expectedTable.size(), actualTable.size());
+        final Iterator<DataRow> actualRows = actualTable.iterator();
+        for (final DataRow expectedRow : expectedTable) {
+            final DataRow actualRow = actualRows.next();
+            assertEquals("Unexpected row key", expectedRow.getKey(), actualRow.getKey());
+            for (int i = 0; i < expectedRow.getNumCells(); i++) {
+                assertEquals("Unexpected cell in row " + expectedRow.getKey(), expectedRow.getCell(i),
+                    actualRow.getCell(i));
+            }
+        }
+        assertEquals("Unexpected hilite mapping", expected.getHiliteMapping(), actual.getHiliteMapping());
+    }
+
+    private static BufferedDataTable createTable(final int rowCount, final int groupCount, final long seed) {
+        final DataTableSpec spec = new DataTableSpec(
+            new DataColumnSpecCreator("group", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("subgroup", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("value", DoubleCell.TYPE).createSpec());
+        final Random random = new Random(seed);
+        final BufferedDataContainer dc = EXEC_CONTEXT.createDataContainer(spec);
+        for (int i = 0; i < rowCount; i++) {
+            final int group = random.nextInt(groupCount);
+            final DataCell groupCell = group == 0 ? DataType.getMissingCell() : new StringCell("Group " + group);
+            final DataCell valueCell =
+                random.nextInt(10) == 0 ? DataType.getMissingCell() : new DoubleCell(random.nextInt(100));
+            dc.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), groupCell,
+                new IntCell(random.nextInt(3)), valueCell));
+        }
+        dc.close();
+        return dc.getTable();
+    }
+
+    private static ColumnAggregator[] createAggregators(final DataTableSpec spec) {
+        final GlobalSettings settings = GlobalSettings.DEFAULT;
+        return new ColumnAggregator[]{
+            new ColumnAggregator(spec.getColumnSpec("value"),
+                new SumOperator(settings, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            new ColumnAggregator(spec.getColumnSpec("value"),
+                new MaxOperator(settings, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            new ColumnAggregator(spec.getColumnSpec("value"),
+                new CountOperator(settings, OperatorColumnSettings.DEFAULT_INCL_MISSING))};
+    }
+
+    private static final List<String> GROUP_COLS = Arrays.asList("group", "subgroup");
+
+    private static BigGroupByTable createBigTable(final BufferedDataTable table) throws CanceledExecutionException {
+        return new BigGroupByTable(EXEC_CONTEXT, table, GROUP_COLS, createAggregators(table.getDataTableSpec()),
+            GlobalSettings.DEFAULT, true, ColumnNamePolicy.AGGREGATION_METHOD_COLUMN_NAME, false);
+    }
+
+    private static HashGroupByTable createHashTable(final BufferedDataTable table,
+        final MemoryActionIndicator indicator) throws CanceledExecutionException {
+        return new HashGroupByTable(EXEC_CONTEXT, table, GROUP_COLS, createAggregators(table.getDataTableSpec()),
+            GlobalSettings.DEFAULT, true, ColumnNamePolicy.AGGREGATION_METHOD_COLUMN_NAME, false) {
+            @Override
+            MemoryActionIndicator createMemoryActionIndicator() {
+                return indicator;
+            }
+        };
+    }
+}
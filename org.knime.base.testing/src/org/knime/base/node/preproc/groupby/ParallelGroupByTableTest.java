@@ -0,0 +1,238 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.preproc.groupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.data.aggregation.AggregationOperator;
+import org.knime.base.data.aggregation.ColumnAggregator;
+import org.knime.base.data.aggregation.GlobalSettings;
+import org.knime.base.data.aggregation.OperatorColumnSettings;
+import org.knime.base.data.aggregation.general.ConcatenateOperator;
+import org.knime.base.data.aggregation.general.CountOperator;
+import org.knime.base.data.aggregation.general.FirstOperator;
+import org.knime.base.data.aggregation.general.LastOperator;
+import org.knime.base.data.aggregation.general.MaxOperator;
+import org.knime.base.data.aggregation.general.MinOperator;
+import org.knime.base.data.aggregation.numerical.MeanOperator;
+import org.knime.base.data.aggregation.numerical.SumOperator;
+import org.knime.base.node.preproc.sorter.SorterNodeFactory;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Junit4 Test for {@link ParallelGroupByTable}. The result is compared with the one of the
+ * {@link MemoryGroupByTable}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelGroupByTableTest {
+    private static ExecutionContext EXEC_CONTEXT;
+
+    private static final List<String> GROUP_COLS = Arrays.asList("group");
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        EXEC_CONTEXT = new ExecutionContext(
+           new DefaultNodeProgressMonitor(), new Node(new SorterNodeFactory()),
+                    SingleNodeContainer.MemoryPolicy.CacheSmallInMemory,
+                    new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        EXEC_CONTEXT = null;
+    }
+
+    /**
+     * Tests that merging the partial results of chunks yields the same table as the sequential aggregation.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final BufferedDataTable table = createTable(5000, 200, 1);
+        final DataTableSpec spec = table.getDataTableSpec();
+        final ColumnAggregator[] aggregators = new ColumnAggregator[]{
+            createAggregator(spec, new SumOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            createAggregator(spec,
+                new MeanOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            createAggregator(spec, new MinOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            createAggregator(spec, new MaxOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            createAggregator(spec,
+                new CountOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_INCL_MISSING)),
+            createAggregator(spec,
+                new FirstOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_INCL_MISSING)),
+            createAggregator(spec,
+                new LastOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_INCL_MISSING))};
+        final ParallelGroupByTable parallelTable = createParallelTable(table, aggregators);
+        assertTrue("Table not aggregated in parallel", parallelTable.isAggregatedInParallel());
+        assertSameResult(createMemoryTable(table, aggregators), parallelTable);
+    }
+
+    /**
+     * Tests that the table is aggregated sequentially if an operator does not support merging.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testFallback() throws Exception {
+        final BufferedDataTable table = createTable(2000, 50, 2);
+        final DataTableSpec spec = table.getDataTableSpec();
+        final ColumnAggregator[] aggregators = new ColumnAggregator[]{
+            createAggregator(spec, new SumOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_EXCL_MISSING)),
+            createAggregator(spec,
+                new ConcatenateOperator(GlobalSettings.DEFAULT, OperatorColumnSettings.DEFAULT_EXCL_MISSING))};
+        final ParallelGroupByTable parallelTable = createParallelTable(table, aggregators);
+        assertFalse("Table aggregated in parallel", parallelTable.isAggregatedInParallel());
+        assertSameResult(createMemoryTable(table, aggregators), parallelTable);
+    }
+
+    private static void assertSameResult(final GroupByTable expected, final GroupByTable actual) {
+        final BufferedDataTable expectedTable = expected.getBufferedTable();
+        final BufferedDataTable actualTable = actual.getBufferedTable();
+        assertEquals("Unexpected spec", expectedTable.getDataTableSpec(), actualTable.getDataTableSpec());
+        assertEquals("Unexpected group count", expectedTable.size(), actualTable.size());
+        final Iterator<DataRow> actualRows = actualTable.iterator();
+        for (final DataRow expectedRow : expectedTable) {
+            final DataRow actualRow = actualRows.next();
+            assertEquals("Unexpected row key", expectedRow.getKey(), actualRow.getKey());
+            for (int i = 0; i < expectedRow.getNumCells(); i++) {
+                final DataCell expectedCell = expectedRow.getCell(i);
+                final DataCell actualCell = actualRow.getCell(i);
+                if (expectedCell instanceof DoubleCell && actualCell instanceof DoubleCell) {
+                    //partial sums are added in a different order
+                    assertEquals("Unexpected value in row " + expectedRow.getKey(),
+                        ((DoubleValue)expectedCell).getDoubleValue(), ((DoubleValue)actualCell).getDoubleValue(),
+                        1e-9);
+                } else {
+                    assertEquals("Unexpected cell in row " + expectedRow.getKey(), expectedCell, actualCell);
+                }
+            }
+        }
+        assertEquals("Unexpected hilite mapping", expected.getHiliteMapping(), actual.getHiliteMapping());
+    }
+
+    private static BufferedDataTable createTable(final int rowCount, final int groupCount, final long seed) {
+        final DataTableSpec spec = new DataTableSpec(
+            new DataColumnSpecCreator("group", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("value", DoubleCell.TYPE).createSpec());
+        final Random random = new Random(seed);
+        final BufferedDataContainer dc = EXEC_CONTEXT.createDataContainer(spec);
+        for (int i = 0; i < rowCount; i++) {
+            //skewed group sizes such that some groups occur in a few chunks only
+            final int group = (int)(groupCount * Math.pow(random.nextDouble(), 3));
+            final DataCell groupCell = group == 0 ? DataType.getMissingCell() : new StringCell("Group " + group);
+            final DataCell valueCell =
+                random.nextInt(10) == 0 ? DataType.getMissingCell() : new DoubleCell(random.nextInt(100));
+            dc.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), groupCell, valueCell));
+        }
+        dc.close();
+        return dc.getTable();
+    }
+
+    private static ColumnAggregator createAggregator(final DataTableSpec spec,
+        final AggregationOperator operator) {
+        final DataColumnSpec colSpec = spec.getColumnSpec("value");
+        return new ColumnAggregator(colSpec, operator, operator.inclMissingCells());
+    }
+
+    private static MemoryGroupByTable createMemoryTable(final BufferedDataTable table,
+        final ColumnAggregator[] aggregators) throws CanceledExecutionException {
+        return new MemoryGroupByTable(EXEC_CONTEXT, table, GROUP_COLS, aggregators, GlobalSettings.DEFAULT, true,
+            ColumnNamePolicy.AGGREGATION_METHOD_COLUMN_NAME, false);
+    }
+
+    private static ParallelGroupByTable createParallelTable(final BufferedDataTable table,
+        final ColumnAggregator[] aggregators) throws CanceledExecutionException {
+        return new ParallelGroupByTable(EXEC_CONTEXT, table, GROUP_COLS, aggregators, GlobalSettings.DEFAULT, true,
+            ColumnNamePolicy.AGGREGATION_METHOD_COLUMN_NAME, false) {
+            @Override
+            int getParallelism() {
+                return 4;
+            }
+
+            @Override
+            int getChunkSize() {
+                return 97;
+            }
+        };
+    }
+}
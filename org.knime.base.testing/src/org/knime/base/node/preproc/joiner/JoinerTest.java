@@ -74,6 +74,8 @@
 import org.knime.core.node.NodeFactory;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.port.PortType;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.DataTableRowInput;
 import org.knime.core.node.workflow.SingleNodeContainer;
 import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
 
@@ -405,6 +407,88 @@ public void testSortPartitionsFullOuterJoin() throws Exception {
     }
 
 
+    /**
+     * Checks whether a full outer join works as expected when the right table is the smaller one and hence the build
+     * side, and spilled partitions have to be partitioned again because memory is still low.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSpillPartitionsRecursivelyRightBuildSide() throws Exception {
+        Joiner2Settings settingsRef = createReferenceSettings("Data");
+        settingsRef.setJoinMode(JoinMode.FullOuterJoin);
+
+        Joiner2Settings settingsTest = createReferenceSettings("Data");
+        settingsTest.setJoinMode(JoinMode.FullOuterJoin);
+
+        BufferedDataTable leftTable = m_exec.createBufferedDataTable(new TestData(500, 1), m_exec);
+        BufferedDataTable rightTable = m_exec.createBufferedDataTable(new TestData(150, 1), m_exec);
+
+        // run joiner with reference settings
+        Joiner joinerRef = new Joiner(leftTable.getDataTableSpec(), rightTable.getDataTableSpec(), settingsRef);
+        BufferedDataTable reference = joinerRef.computeJoinTable(leftTable, rightTable, m_exec);
+
+        // run joiner with test settings
+        Joiner joinerTest = new Joiner(leftTable.getDataTableSpec(), rightTable.getDataTableSpec(), settingsTest);
+        joinerTest.setRowsAddedBeforeOOM(5);
+        joinerTest.setNumBitsInitial(2);
+        BufferedDataTable test = joinerTest.computeJoinTable(leftTable, rightTable, m_exec);
+        compareTables(reference, test);
+    }
+
+
+    /**
+     * Checks whether a full outer join of a streamed left table gives the same result as the join of the tables.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testStreamLeftTableFullOuterJoin() throws Exception {
+        Joiner2Settings settings = createReferenceSettings("Data");
+        settings.setJoinMode(JoinMode.FullOuterJoin);
+
+        BufferedDataTable leftTable = m_exec.createBufferedDataTable(new TestData(300, 1), m_exec);
+        BufferedDataTable rightTable = m_exec.createBufferedDataTable(new TestData(200, 2), m_exec);
+
+        // run joiner on the tables
+        Joiner joinerRef = new Joiner(leftTable.getDataTableSpec(), rightTable.getDataTableSpec(), settings);
+        BufferedDataTable reference = joinerRef.computeJoinTable(leftTable, rightTable, m_exec);
+
+        // run joiner on the streamed left table
+        Joiner joinerTest = new Joiner(leftTable.getDataTableSpec(), rightTable.getDataTableSpec(), settings);
+        BufferedDataTableRowOutput output =
+            new BufferedDataTableRowOutput(m_exec.createDataContainer(reference.getDataTableSpec()));
+        joinerTest.computeJoinTable(new DataTableRowInput(leftTable), rightTable, output, m_exec);
+        compareTables(reference, output.getDataTable());
+    }
+
+    /**
+     * Checks whether a left outer join of a streamed left table works as expected when the right table does not fit
+     * into memory.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testStreamLeftTableLowMemory() throws Exception {
+        Joiner2Settings settings = createReferenceSettings("Data");
+        settings.setJoinMode(JoinMode.LeftOuterJoin);
+
+        BufferedDataTable leftTable = m_exec.createBufferedDataTable(new TestData(300, 1), m_exec);
+        BufferedDataTable rightTable = m_exec.createBufferedDataTable(new TestData(200, 2), m_exec);
+
+        // run joiner on the tables
+        Joiner joinerRef = new Joiner(leftTable.getDataTableSpec(), rightTable.getDataTableSpec(), settings);
+        BufferedDataTable reference = joinerRef.computeJoinTable(leftTable, rightTable, m_exec);
+
+        // run joiner on the streamed left table
+        Joiner joinerTest = new Joiner(leftTable.getDataTableSpec(), rightTable.getDataTableSpec(), settings);
+        joinerTest.setRowsAddedBeforeOOM(50);
+        BufferedDataTableRowOutput output =
+            new BufferedDataTableRowOutput(m_exec.createDataContainer(reference.getDataTableSpec()));
+        joinerTest.computeJoinTable(new DataTableRowInput(leftTable), rightTable, output, m_exec);
+        compareTables(reference, output.getDataTable());
+    }
+
     private Joiner2Settings createReferenceSettings(final String col) {
         Joiner2Settings settingsRef = new Joiner2Settings();
         String[] joinColumns = new String[]{col};
@@ -0,0 +1,250 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math.random.RandomData;
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.RootDataMemberships;
+import org.knime.base.node.mine.treeensemble2.learner.NumericSplitCandidate;
+import org.knime.base.node.mine.treeensemble2.learner.SplitCandidate;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.SplitCriterion;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Tests the histogram based split search of {@link TreeBinnedNumericColumnData}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TreeBinnedNumericColumnDataTest {
+
+    private static TreeEnsembleLearnerConfiguration createConfig(final boolean isRegression, final int nrBins)
+        throws InvalidSettingsException {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(isRegression);
+        config.setColumnSamplingMode(ColumnSamplingMode.None);
+        if (!isRegression) {
+            config.setSplitCriterion(SplitCriterion.Gini);
+        }
+        config.setNrModels(1);
+        config.setDataSelectionWithReplacement(false);
+        config.setUseDifferentAttributesAtEachNode(false);
+        config.setDataFractionPerTree(1.0);
+        config.setNumericBinCount(nrBins);
+        return config;
+    }
+
+    private static TreeOrdinaryNumericColumnData createColumn(final TreeEnsembleLearnerConfiguration config,
+        final double[] data) {
+        TreeOrdinaryNumericColumnData column =
+            TreeNumericColumnDataTest.createNumericColumnData(config, data, "test-col", 0);
+        column.getMetaData().setAttributeIndex(0);
+        return column;
+    }
+
+    private static DataMemberships createRootMemberships(final TreeData data) {
+        double[] weights = new double[data.getNrRows()];
+        Arrays.fill(weights, 1.0);
+        return new RootDataMemberships(weights, data, new DefaultDataIndexManager(data));
+    }
+
+    /**
+     * Columns with fewer distinct values than bins must produce the same splits as the exact search.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testClassificationWithFewDistinctValuesIsExact() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(false, 255);
+        final double[] data = TreeNumericColumnDataTest.asDataArray("60,70,75,85, 90, 95, 100,120,125,220");
+        final String[] target = "No,No,No,Yes,Yes,Yes,No, No, No, No".split(", *");
+        TreeOrdinaryNumericColumnData columnData = createColumn(config, data);
+        assertThat(columnData, instanceOf(TreeBinnedNumericColumnData.class));
+        assertEquals(10, ((TreeBinnedNumericColumnData)columnData).getNrBins());
+        TreeTargetNominalColumnData targetData = TestDataGenerator.createNominalTargetColumn(target);
+        TreeData treeData = new TreeData(new TreeAttributeColumnData[]{columnData}, targetData, TreeType.Ordinary);
+        DataMemberships rootMem = createRootMemberships(treeData);
+        RandomData rd = config.createRandomData();
+        SplitCandidate split = columnData.calcBestSplitClassification(rootMem,
+            targetData.getDistribution(rootMem, config), targetData, rd);
+        assertNotNull(split);
+        assertEquals(0.12, split.getGainValue(), 0.00001);
+        TreeNodeNumericCondition[] conditions = ((NumericSplitCandidate)split).getChildConditions();
+        assertEquals((95.0 + 100.0) / 2.0, conditions[0].getSplitValue(), 0.0);
+
+        DataMemberships childMem =
+            rootMem.createChildMemberships(columnData.updateChildMemberships(conditions[0], rootMem));
+        SplitCandidate childSplit = columnData.calcBestSplitClassification(childMem,
+            targetData.getDistribution(childMem, config), targetData, rd);
+        assertNotNull(childSplit);
+        assertEquals(0.5, childSplit.getGainValue(), 0.00001);
+        assertEquals((75.0 + 85.0) / 2.0,
+            ((NumericSplitCandidate)childSplit).getChildConditions()[0].getSplitValue(), 0.0);
+    }
+
+    /**
+     * Same data as in {@link TreeNumericColumnDataTest#testCalcBestSplitRegression()}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRegressionWithFewDistinctValuesIsExact() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(true, 255);
+        TreeTargetNumericColumnData target =
+            TestDataGenerator.createNumericTargetColumn("1,5,4,4.3,6.5,6.5,4,3,3,4");
+        TreeOrdinaryNumericColumnData attribute =
+            createColumn(config, TreeNumericColumnDataTest.asDataArray("1,2,3,4,5,6,7,8,9,10"));
+        TreeData data = new TreeData(new TreeAttributeColumnData[]{attribute}, target, TreeType.Ordinary);
+        DataMemberships rootMem = createRootMemberships(data);
+        SplitCandidate split = attribute.calcBestSplitRegression(rootMem, target.getPriors(rootMem, config), target,
+            config.createRandomData());
+        assertEquals(10.885444, split.getGainValue(), 1e-5);
+        assertEquals(1.5, ((NumericSplitCandidate)split).getChildConditions()[0].getSplitValue(), 0.0);
+    }
+
+    /**
+     * Tests that many distinct values are quantised into the configured number of bins and that a split on a bin
+     * boundary is found.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQuantisation() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(false, 10);
+        final double[] data = new double[1000];
+        final String[] target = new String[data.length];
+        for (int i = 0; i < data.length; i++) {
+            // reverse order to make sure the bins are not assigned in row order
+            data[i] = data.length - i - 1;
+            target[i] = data[i] < 500 ? "A" : "B";
+        }
+        TreeBinnedNumericColumnData columnData = (TreeBinnedNumericColumnData)createColumn(config, data);
+        assertEquals(10, columnData.getNrBins());
+        TreeTargetNominalColumnData targetData = TestDataGenerator.createNominalTargetColumn(target);
+        TreeData treeData = new TreeData(new TreeAttributeColumnData[]{columnData}, targetData, TreeType.Ordinary);
+        DataMemberships rootMem = createRootMemberships(treeData);
+        SplitCandidate split = columnData.calcBestSplitClassification(rootMem,
+            targetData.getDistribution(rootMem, config), targetData, config.createRandomData());
+        assertEquals(499.5, ((NumericSplitCandidate)split).getChildConditions()[0].getSplitValue(), 0.0);
+        assertEquals(0.5, split.getGainValue(), 1e-8);
+    }
+
+    /**
+     * Tests that the histogram of a child derived from its parent and sibling equals the one accumulated from the data
+     * (including missing values).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHistogramSubtraction() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(true, 4);
+        TreeTargetNumericColumnData target =
+            TestDataGenerator.createNumericTargetColumn("1,5,4,4.3,6.5,6.5,4,3,3,4,2,7");
+        TreeBinnedNumericColumnData attribute = (TreeBinnedNumericColumnData)createColumn(config,
+            TreeNumericColumnDataTest.asDataArray("3,1,4,1,5,9,2,6,5,NaN,8,NaN"));
+        TreeData data = new TreeData(new TreeAttributeColumnData[]{attribute}, target, TreeType.Ordinary);
+        DataMemberships rootMem = createRootMemberships(data);
+        BitSet left = new BitSet();
+        left.set(0, 5);
+        left.set(9);
+        BitSet right = new BitSet();
+        right.set(0, 12);
+        right.andNot(left);
+        DataMemberships leftMem = rootMem.createChildMemberships(left);
+        DataMemberships rightMem = rootMem.createChildMemberships(right);
+
+        NumericBinHistogram parent = attribute.createHistogram(rootMem, target);
+        NumericBinHistogram derived = parent.subtract(attribute.createHistogram(leftMem, target));
+        assertArrayEquals(attribute.createHistogram(rightMem, target).getStats(), derived.getStats(), 1e-10);
+        SplitCandidate direct = attribute.calcBestSplitRegression(rightMem, target.getPriors(rightMem, config),
+            target, config.createRandomData());
+        SplitCandidate fromDerived = attribute.calcBestSplitRegression(rightMem, derived,
+            target.getPriors(rightMem, config), target, config.createRandomData());
+        assertEquals(direct.getGainValue(), fromDerived.getGainValue(), 1e-10);
+    }
+
+    /**
+     * Tests that accumulating a histogram in row blocks (sequentially and on a fork-join pool) yields the same
+     * statistics as the single pass accumulation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHistogramInBlocks() throws Exception {
+        TreeEnsembleLearnerConfiguration config = createConfig(true, 4);
+        TreeTargetNumericColumnData target =
+            TestDataGenerator.createNumericTargetColumn("1,5,4,4.3,6.5,6.5,4,3,3,4,2,7");
+        TreeBinnedNumericColumnData attribute = (TreeBinnedNumericColumnData)createColumn(config,
+            TreeNumericColumnDataTest.asDataArray("3,1,4,1,5,9,2,6,5,NaN,8,NaN"));
+        TreeData data = new TreeData(new TreeAttributeColumnData[]{attribute}, target, TreeType.Ordinary);
+        DataMemberships rootMem = createRootMemberships(data);
+
+        double[] expected = attribute.createHistogram(rootMem, target).getStats();
+        double[] sequential = attribute.createHistogram(rootMem, target, 5).getStats();
+        assertArrayEquals(expected, sequential, 1e-10);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] parallel = pool.submit(() -> attribute.createHistogram(rootMem, target, 5)).get().getStats();
+            assertArrayEquals("Result must not depend on the threads", sequential, parallel, 0.0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
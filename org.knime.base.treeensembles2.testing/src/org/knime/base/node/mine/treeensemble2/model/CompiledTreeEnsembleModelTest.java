@@ -0,0 +1,213 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition.NumericOperator;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests {@link CompiledTreeEnsembleModel}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompiledTreeEnsembleModelTest {
+
+    private static final DataTableSpec LEARN_SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("num", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("nom", StringCell.TYPE).createSpec());
+
+    private final TreeNumericColumnMetaData m_numMeta;
+
+    private final TreeNominalColumnMetaData m_nomMeta;
+
+    private final TreeTargetNumericColumnMetaData m_targetMeta = new TreeTargetNumericColumnMetaData("target");
+
+    /**
+     * Creates the attribute meta data shared by all tests.
+     */
+    public CompiledTreeEnsembleModelTest() {
+        final TestDataGenerator dataGen = new TestDataGenerator(new TreeEnsembleLearnerConfiguration(true));
+        m_numMeta = dataGen.createNumericAttributeColumn("1,2,3,4", "num", 0).getMetaData();
+        m_nomMeta = dataGen.createNominalAttributeColumn("A,B,C,D", "nom", 1).getMetaData();
+    }
+
+    /**
+     * Compares the nodes found by the compiled model with
+     * {@link AbstractTreeModel#findMatchingNode(org.knime.base.node.mine.treeensemble2.data.PredictorRecord)}
+     * for rows with regular, missing, NaN and unknown values.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFindLeaf() throws Exception {
+        final TreeEnsembleModel model = createModel(TreeType.Ordinary);
+        final Optional<CompiledTreeEnsembleModel> optional = CompiledTreeEnsembleModel.compile(model, LEARN_SPEC);
+        assertTrue("Model could not be compiled.", optional.isPresent());
+        final CompiledTreeEnsembleModel compiled = optional.get();
+        assertEquals(model.getNrModels(), compiled.getNrModels());
+        assertEquals(2, compiled.getNrAttributes());
+
+        final DataRow[] rows = new DataRow[]{row(0, 1.0, "A"), row(1, 2.5, "B"), row(2, 2.6, "C"),
+            row(3, 7.0, "D"), row(4, Double.NaN, "A"), row(5, 1.0, "E"), row(6, null, null), row(7, -3.0, "C")};
+        final double[][] columns = new double[compiled.getNrAttributes()][rows.length];
+        for (int r = 0; r < rows.length; r++) {
+            compiled.extractFeatures(rows[r], columns, r);
+        }
+        for (int i = 0; i < model.getNrModels(); i++) {
+            final TreeModelRegression tree = model.getTreeModelRegression(i);
+            final int[] leaves = new int[rows.length];
+            compiled.findLeaves(i, columns, rows.length, leaves);
+            for (int r = 0; r < rows.length; r++) {
+                final TreeNodeRegression expected =
+                    tree.findMatchingNode(model.createPredictorRecord(rows[r], LEARN_SPEC));
+                final int leaf = compiled.findLeaf(i, compiled.createFeatureVector(rows[r]));
+                assertSame("Wrong node for row " + r + " in tree " + i, expected, compiled.getNode(leaf));
+                assertEquals("Wrong mean for row " + r + " in tree " + i, expected.getMean(), compiled.getMean(leaf),
+                    0.0);
+                assertEquals("Batch and single row scoring differ for row " + r, leaf, leaves[r]);
+            }
+        }
+    }
+
+    /**
+     * Tests that non-ordinary models are not compiled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCompileUnsupported() throws Exception {
+        assertFalse(CompiledTreeEnsembleModel.compile(createModel(TreeType.BitVector), LEARN_SPEC).isPresent());
+        final DataTableSpec otherSpec =
+            new DataTableSpec(new DataColumnSpecCreator("num", DoubleCell.TYPE).createSpec());
+        assertFalse(CompiledTreeEnsembleModel.compile(createModel(TreeType.Ordinary), otherSpec).isPresent());
+    }
+
+    private TreeEnsembleModel createModel(final TreeType type) {
+        final TreeMetaData metaData = TreeMetaData.createTreeMetaData(
+            new TreeAttributeColumnMetaData[]{m_numMeta, m_nomMeta}, m_targetMeta);
+        // tree 1: numeric split, left child split again on a nominal set
+        final TreeNodeRegression inSet = leaf(1.0, new TreeNodeNominalBinaryCondition(m_nomMeta,
+            mask("A", "C"), true, false));
+        final TreeNodeRegression notInSet = leaf(2.0, new TreeNodeNominalBinaryCondition(m_nomMeta,
+            mask("A", "C"), false, true));
+        final TreeNodeRegression left = node(3.0, new TreeNodeNumericCondition(m_numMeta, 2.5,
+            NumericOperator.LessThanOrEqual, true), inSet, notInSet);
+        final TreeNodeRegression right = leaf(4.0, new TreeNodeNumericCondition(m_numMeta, 2.5,
+            NumericOperator.LargerThan, false));
+        final TreeNodeRegression root1 = node(5.0, TreeNodeTrueCondition.INSTANCE, left, right);
+        // tree 2: nominal multiway split, missing values go to the last child
+        final TreeNodeRegression root2 = node(6.0, TreeNodeTrueCondition.INSTANCE,
+            leaf(7.0, new TreeNodeNominalCondition(m_nomMeta, index("A"), false)),
+            leaf(8.0, new TreeNodeNominalCondition(m_nomMeta, index("B"), false)),
+            leaf(9.0, new TreeNodeNominalBinaryCondition(m_nomMeta, mask("C", "D"), true, true)));
+        // tree 3: single leaf
+        final TreeNodeRegression root3 = node(10.0, TreeNodeTrueCondition.INSTANCE);
+        final AbstractTreeModel<?>[] trees = new AbstractTreeModel[]{new TreeModelRegression(root1),
+            new TreeModelRegression(root2), new TreeModelRegression(root3)};
+        return new TreeEnsembleModel(metaData, trees, type, false);
+    }
+
+    private TreeNodeRegression leaf(final double mean, final TreeNodeCondition condition) {
+        return node(mean, condition);
+    }
+
+    private TreeNodeRegression node(final double mean, final TreeNodeCondition condition,
+        final TreeNodeRegression... children) {
+        final TreeNodeRegression node = new TreeNodeRegression(m_targetMeta, TreeNodeSignature.ROOT_SIGNATURE, mean,
+            mean, 0.0, children);
+        node.setTreeNodeCondition(condition);
+        return node;
+    }
+
+    private int index(final String value) {
+        for (NominalValueRepresentation rep : m_nomMeta.getValues()) {
+            if (rep.getNominalValue().equals(value)) {
+                return rep.getAssignedInteger();
+            }
+        }
+        throw new IllegalArgumentException("Unknown value " + value);
+    }
+
+    private BigInteger mask(final String... values) {
+        BigInteger mask = BigInteger.ZERO;
+        for (String value : values) {
+            mask = mask.setBit(index(value));
+        }
+        return mask;
+    }
+
+    private static DataRow row(final long key, final Double num, final String nom) {
+        final DataCell numCell = num == null ? DataType.getMissingCell() : new DoubleCell(num);
+        final DataCell nomCell = nom == null ? DataType.getMissingCell() : new StringCell(nom);
+        return new DefaultRow(RowKey.createRowKey(key), numCell, nomCell);
+    }
+
+}
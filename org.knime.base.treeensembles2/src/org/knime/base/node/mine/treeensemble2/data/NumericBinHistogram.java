@@ -0,0 +1,117 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+/**
+ * Per tree node histogram of a {@link TreeBinnedNumericColumnData}. For each bin (and an additional bin for the missing
+ * values) it holds a fixed number of target statistics, i.e. the weight per target class for classification or the
+ * weight and the weighted target sum for regression. Because all statistics are additive, the histogram of a child
+ * node can be derived from the histogram of its parent and its sibling by {@link #subtract(NumericBinHistogram)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class NumericBinHistogram {
+
+    private final int m_nrBins;
+
+    private final int m_nrStats;
+
+    private final double[] m_stats;
+
+    NumericBinHistogram(final int nrBins, final int nrStats) {
+        m_nrBins = nrBins;
+        m_nrStats = nrStats;
+        // last bin holds the missing values
+        m_stats = new double[(nrBins + 1) * nrStats];
+    }
+
+    private NumericBinHistogram(final NumericBinHistogram template, final double[] stats) {
+        m_nrBins = template.m_nrBins;
+        m_nrStats = template.m_nrStats;
+        m_stats = stats;
+    }
+
+    /** @return the number of (non-missing) bins */
+    int getNrBins() {
+        return m_nrBins;
+    }
+
+    /** @return the number of statistics held per bin */
+    int getNrStats() {
+        return m_nrStats;
+    }
+
+    /** @return the index of the missing value bin, i.e. {@link #getNrBins()} */
+    int getMissingBin() {
+        return m_nrBins;
+    }
+
+    /** @return the backing array, statistic <i>s</i> of bin <i>b</i> is at <code>b * getNrStats() + s</code> */
+    double[] getStats() {
+        return m_stats;
+    }
+
+    /**
+     * Creates the histogram of the sibling of a child node.
+     *
+     * @param child the histogram of one child of the node represented by this histogram
+     * @return a new histogram containing this histogram minus <b>child</b>
+     * @throws IllegalArgumentException if the histograms don't have the same layout
+     */
+    public NumericBinHistogram subtract(final NumericBinHistogram child) {
+        if (child.m_nrBins != m_nrBins || child.m_nrStats != m_nrStats) {
+            throw new IllegalArgumentException("Histograms have different layouts");
+        }
+        final double[] parentStats = m_stats;
+        final double[] childStats = child.m_stats;
+        final double[] stats = new double[parentStats.length];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = parentStats[i] - childStats[i];
+        }
+        return new NumericBinHistogram(this, stats);
+    }
+
+}
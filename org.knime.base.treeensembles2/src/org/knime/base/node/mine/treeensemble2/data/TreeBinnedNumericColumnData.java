@@ -0,0 +1,559 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+import org.knime.base.node.mine.treeensemble2.learner.IImpurity;
+import org.knime.base.node.mine.treeensemble2.learner.NumericSplitCandidate;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.MissingValueHandling;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Numeric column whose values are additionally quantised into at most
+ * {@link TreeEnsembleLearnerConfiguration#MAX_NUMERIC_BIN_COUNT} bins of (roughly) equal frequency. The bin of each
+ * row is stored as a single byte so that the split search only needs to accumulate a {@link NumericBinHistogram} over
+ * the rows of a tree node (in row order, no sorted traversal) and then scans the bin boundaries.
+ *
+ * <p>
+ * Split values are derived from the smallest and largest value within the bins left and right of the boundary, hence
+ * the partitioning of the rows done by {@link #updateChildMemberships(org.knime.base.node.mine.treeensemble2.model.TreeNodeCondition, DataMemberships)
+ * updateChildMemberships} is the same as the one evaluated during the search. If the column contains no more distinct
+ * values than bins, each value gets its own bin and the search is exact.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class TreeBinnedNumericColumnData extends TreeOrdinaryNumericColumnData {
+
+    private static final int MISSING_CODE = 0xFF;
+
+    /** bin code for each row, indexed by the row index in the column ({@link #MISSING_CODE} for missing values). */
+    private final byte[] m_binCodes;
+
+    private final float[] m_binLowerValues;
+
+    private final float[] m_binUpperValues;
+
+    TreeBinnedNumericColumnData(final TreeNumericColumnMetaData metaData,
+        final TreeEnsembleLearnerConfiguration configuration, final float[] sortedData,
+        final int[] orginalIndexInColumnList, final boolean containsMissingValues, final int indexFirstMissing,
+        final int maxNrBins) {
+        super(metaData, configuration, sortedData, orginalIndexInColumnList, containsMissingValues, indexFirstMissing);
+        if (maxNrBins < 2 || maxNrBins > TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT) {
+            throw new IllegalArgumentException("Invalid number of bins: " + maxNrBins);
+        }
+        m_binCodes = new byte[sortedData.length];
+        final int[] binStarts = calcBinStarts(sortedData, indexFirstMissing, maxNrBins);
+        final int nrBins = binStarts.length;
+        m_binLowerValues = new float[nrBins];
+        m_binUpperValues = new float[nrBins];
+        for (int b = 0; b < nrBins; b++) {
+            final int start = binStarts[b];
+            final int end = b + 1 < nrBins ? binStarts[b + 1] : indexFirstMissing;
+            m_binLowerValues[b] = sortedData[start];
+            m_binUpperValues[b] = sortedData[end - 1];
+            for (int i = start; i < end; i++) {
+                m_binCodes[orginalIndexInColumnList[i]] = (byte)b;
+            }
+        }
+        for (int i = indexFirstMissing; i < sortedData.length; i++) {
+            m_binCodes[orginalIndexInColumnList[i]] = (byte)MISSING_CODE;
+        }
+    }
+
+    /**
+     * Determines the first position (in the sorted data) of each bin. Equal values always end up in the same bin, the
+     * remaining values are distributed evenly on the remaining bins.
+     */
+    private static int[] calcBinStarts(final float[] sortedData, final int lengthNonMissing, final int maxNrBins) {
+        int nrDistinct = 0;
+        for (int i = 0; i < lengthNonMissing; i++) {
+            if (i == 0 || sortedData[i] > sortedData[i - 1]) {
+                nrDistinct++;
+            }
+        }
+        final int[] starts = new int[Math.min(nrDistinct, maxNrBins)];
+        int nrBins = 0;
+        int start = 0;
+        while (start < lengthNonMissing) {
+            starts[nrBins++] = start;
+            int end;
+            if (nrDistinct <= maxNrBins) {
+                end = start + 1;
+            } else {
+                final int remainingBins = maxNrBins - nrBins + 1;
+                end = start + Math.max(1, (lengthNonMissing - start) / remainingBins);
+            }
+            while (end < lengthNonMissing && sortedData[end] <= sortedData[end - 1]) {
+                end++;
+            }
+            start = end;
+        }
+        assert nrBins <= starts.length;
+        return nrBins == starts.length ? starts : Arrays.copyOf(starts, nrBins);
+    }
+
+    /** @return the number of bins (not counting missing values) */
+    public int getNrBins() {
+        return m_binLowerValues.length;
+    }
+
+    private int getBin(final int indexInColumn) {
+        final int code = m_binCodes[indexInColumn] & 0xFF;
+        return code == MISSING_CODE ? m_binLowerValues.length : code;
+    }
+
+    /**
+     * Accumulates the weight of each target class per bin for the rows in <b>dataMemberships</b>.
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the nominal target
+     * @return a new histogram
+     */
+    public NumericBinHistogram createHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNominalColumnData targetColumn) {
+        final int nrClasses = targetColumn.getMetaData().getValues().length;
+        final NumericBinHistogram histogram = new NumericBinHistogram(getNrBins(), nrClasses);
+        final double[] stats = histogram.getStats();
+        final int[] originalIndices = dataMemberships.getOriginalIndices();
+        final double[] weights = dataMemberships.getRowWeights();
+        for (int i = 0; i < originalIndices.length; i++) {
+            final int row = originalIndices[i];
+            stats[getBin(row) * nrClasses + targetColumn.getValueFor(row)] += weights[i];
+        }
+        return histogram;
+    }
+
+    /**
+     * Accumulates the weight and the weighted target sum per bin for the rows in <b>dataMemberships</b>.
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the numeric target
+     * @return a new histogram
+     */
+    public NumericBinHistogram createHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNumericColumnData targetColumn) {
+        final NumericBinHistogram histogram = new NumericBinHistogram(getNrBins(), 2);
+        final int[] originalIndices = dataMemberships.getOriginalIndices();
+        final double[] weights = dataMemberships.getRowWeights();
+        accumulate(histogram.getStats(), originalIndices, weights, 0, originalIndices.length, targetColumn);
+        return histogram;
+    }
+
+    /**
+     * Same as {@link #createHistogram(DataMemberships, TreeTargetNumericColumnData)} but accumulates the rows in
+     * blocks of <b>blockSize</b> rows, which are submitted as separate tasks to the {@link ThreadPool} of the calling
+     * thread if it is a KNIME worker. The partial histograms are summed up in block order, hence the result only
+     * depends on <b>blockSize</b> but not on the number of threads.
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the numeric target
+     * @param blockSize the number of rows per block
+     * @return a new histogram
+     */
+    public NumericBinHistogram createHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNumericColumnData targetColumn, final int blockSize) {
+        final int[] originalIndices = dataMemberships.getOriginalIndices();
+        final int nrBlocks = (originalIndices.length + blockSize - 1) / blockSize;
+        if (nrBlocks <= 1) {
+            return createHistogram(dataMemberships, targetColumn);
+        }
+        final double[] weights = dataMemberships.getRowWeights();
+        final NumericBinHistogram histogram = new NumericBinHistogram(getNrBins(), 2);
+        final double[][] blockStats = new double[nrBlocks][];
+        final List<Runnable> tasks = new ArrayList<>(nrBlocks);
+        for (int b = 0; b < nrBlocks; b++) {
+            final int block = b;
+            tasks.add(() -> {
+                final double[] stats = new double[histogram.getStats().length];
+                accumulate(stats, originalIndices, weights, block * blockSize,
+                    Math.min(originalIndices.length, (block + 1) * blockSize), targetColumn);
+                blockStats[block] = stats;
+            });
+        }
+        runAll(tasks);
+        final double[] stats = histogram.getStats();
+        for (double[] partialStats : blockStats) {
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] += partialStats[i];
+            }
+        }
+        return histogram;
+    }
+
+    /** Runs the tasks concurrently in the pool of the current worker thread or one after the other otherwise. */
+    private static void runAll(final List<Runnable> tasks) {
+        final ThreadPool pool = ThreadPool.currentPool();
+        if (pool == null) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        final List<Future<?>> futures = new ArrayList<>(tasks.size());
+        try {
+            // the calling worker only waits for the tasks, its thread slot is given to them meanwhile
+            pool.runInvisible(() -> {
+                for (Runnable task : tasks) {
+                    futures.add(pool.enqueue(task));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                return null;
+            });
+        } catch (ExecutionException e) {
+            Throwable cause = e;
+            while ((cause instanceof ExecutionException) && (cause.getCause() != null)) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Histogram computation failed: " + cause.getMessage(), cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void accumulate(final double[] stats, final int[] originalIndices, final double[] weights,
+        final int from, final int to, final TreeTargetNumericColumnData targetColumn) {
+        for (int i = from; i < to; i++) {
+            final int row = originalIndices[i];
+            final int offset = getBin(row) * 2;
+            final double weight = weights[i];
+            stats[offset] += weight;
+            stats[offset + 1] += weight * targetColumn.getValueFor(row);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NumericSplitCandidate calcBestSplitClassification(final DataMemberships dataMemberships,
+        final ClassificationPriors targetPriors, final TreeTargetNominalColumnData targetColumn, final RandomData rd) {
+        return calcBestSplitClassification(dataMemberships, createHistogram(dataMemberships, targetColumn),
+            targetPriors, targetColumn, rd);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NumericSplitCandidate calcBestSplitRegression(final DataMemberships dataMemberships,
+        final RegressionPriors targetPriors, final TreeTargetNumericColumnData targetColumn, final RandomData rd) {
+        return calcBestSplitRegression(dataMemberships, createHistogram(dataMemberships, targetColumn), targetPriors,
+            targetColumn, rd);
+    }
+
+    /**
+     * Finds the best split for a nominal target using a histogram previously created for <b>dataMemberships</b> (either
+     * directly or by subtraction).
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param histogram the histogram of the rows in <b>dataMemberships</b>
+     * @param targetPriors the target distribution in the current tree node
+     * @param targetColumn the nominal target
+     * @param rd used for breaking ties
+     * @return the best split or null if there is no split with positive gain
+     */
+    public NumericSplitCandidate calcBestSplitClassification(final DataMemberships dataMemberships,
+        final NumericBinHistogram histogram, final ClassificationPriors targetPriors,
+        final TreeTargetNominalColumnData targetColumn, final RandomData rd) {
+        final TreeEnsembleLearnerConfiguration config = getConfiguration();
+        final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
+        final int minChildNodeSize = config.getMinChildSize();
+        final boolean useXGBoostMissingValueHandling = config.getMissingValueHandling() == MissingValueHandling.XGBoost;
+        final IImpurity impurityCriterion = targetPriors.getImpurityCriterion();
+        final int targetCounts = histogram.getNrStats();
+        final double[] stats = histogram.getStats();
+        final int nrBins = histogram.getNrBins();
+
+        final double[] missingTargetCounts = new double[targetCounts];
+        double missingWeight = 0.0;
+        System.arraycopy(stats, histogram.getMissingBin() * targetCounts, missingTargetCounts, 0, targetCounts);
+        for (int c = 0; c < targetCounts; c++) {
+            missingWeight += missingTargetCounts[c];
+        }
+        final boolean branchContainsMissingValues = missingWeight >= EPSILON;
+
+        final double totalSumWeight = targetPriors.getNrRecords();
+        final double[] targetCountsLeftOfSplit = new double[targetCounts];
+        final double[] targetCountsRightOfSplit = targetPriors.getDistribution().clone();
+        if (branchContainsMissingValues) {
+            for (int c = 0; c < targetCounts; c++) {
+                targetCountsRightOfSplit[c] -= missingTargetCounts[c];
+            }
+        }
+        double sumWeightsLeftOfSplit = 0.0;
+        double sumWeightsRightOfSplit = totalSumWeight - (branchContainsMissingValues ? missingWeight : 0.0);
+        if (sumWeightsRightOfSplit < EPSILON) {
+            // all values in branch are missing
+            return null;
+        }
+        final double priorImpurity = useXGBoostMissingValueHandling || !branchContainsMissingValues
+            ? targetPriors.getPriorImpurity()
+            : impurityCriterion.getPartitionImpurity(
+                TreeNominalColumnData.subtractMissingClassCounts(targetPriors.getDistribution(), missingTargetCounts),
+                sumWeightsRightOfSplit);
+
+        double bestSplit = Double.NEGATIVE_INFINITY;
+        double bestGain = Double.NEGATIVE_INFINITY;
+        double bestGainValueForSplit = Double.NEGATIVE_INFINITY;
+        boolean missingsGoLeft = true;
+        final double[] partitionImpurities = new double[2];
+        final double[] partitionWeights = new double[2];
+        final double[] countsPlusMissing = new double[targetCounts];
+
+        int lastNonEmptyBin = -1;
+        for (int b = 0; b < nrBins; b++) {
+            final int offset = b * targetCounts;
+            double binWeight = 0.0;
+            for (int c = 0; c < targetCounts; c++) {
+                binWeight += stats[offset + c];
+            }
+            if (binWeight < EPSILON) {
+                continue;
+            }
+            if (lastNonEmptyBin >= 0 && sumWeightsLeftOfSplit >= minChildNodeSize
+                && sumWeightsRightOfSplit >= minChildNodeSize) {
+                double postSplitImpurity;
+                boolean tempMissingsGoLeft = false;
+                if (branchContainsMissingValues && useXGBoostMissingValueHandling) {
+                    // send all missing values left
+                    for (int c = 0; c < targetCounts; c++) {
+                        countsPlusMissing[c] = targetCountsLeftOfSplit[c] + missingTargetCounts[c];
+                    }
+                    partitionImpurities[0] = impurityCriterion.getPartitionImpurity(countsPlusMissing,
+                        sumWeightsLeftOfSplit + missingWeight);
+                    partitionImpurities[1] =
+                        impurityCriterion.getPartitionImpurity(targetCountsRightOfSplit, sumWeightsRightOfSplit);
+                    partitionWeights[0] = sumWeightsLeftOfSplit + missingWeight;
+                    partitionWeights[1] = sumWeightsRightOfSplit;
+                    final double impurityMissingsLeft =
+                        impurityCriterion.getPostSplitImpurity(partitionImpurities, partitionWeights, totalSumWeight);
+                    // send all missing values right
+                    for (int c = 0; c < targetCounts; c++) {
+                        countsPlusMissing[c] = targetCountsRightOfSplit[c] + missingTargetCounts[c];
+                    }
+                    partitionImpurities[0] =
+                        impurityCriterion.getPartitionImpurity(targetCountsLeftOfSplit, sumWeightsLeftOfSplit);
+                    partitionImpurities[1] = impurityCriterion.getPartitionImpurity(countsPlusMissing,
+                        sumWeightsRightOfSplit + missingWeight);
+                    partitionWeights[0] = sumWeightsLeftOfSplit;
+                    partitionWeights[1] = sumWeightsRightOfSplit + missingWeight;
+                    final double impurityMissingsRight =
+                        impurityCriterion.getPostSplitImpurity(partitionImpurities, partitionWeights, totalSumWeight);
+                    if (impurityMissingsLeft < impurityMissingsRight) {
+                        postSplitImpurity = impurityMissingsLeft;
+                        partitionWeights[0] = sumWeightsLeftOfSplit + missingWeight;
+                        partitionWeights[1] = sumWeightsRightOfSplit;
+                        tempMissingsGoLeft = true;
+                    } else {
+                        postSplitImpurity = impurityMissingsRight;
+                    }
+                } else {
+                    partitionImpurities[0] =
+                        impurityCriterion.getPartitionImpurity(targetCountsLeftOfSplit, sumWeightsLeftOfSplit);
+                    partitionImpurities[1] =
+                        impurityCriterion.getPartitionImpurity(targetCountsRightOfSplit, sumWeightsRightOfSplit);
+                    partitionWeights[0] = sumWeightsLeftOfSplit;
+                    partitionWeights[1] = sumWeightsRightOfSplit;
+                    postSplitImpurity =
+                        impurityCriterion.getPostSplitImpurity(partitionImpurities, partitionWeights, totalSumWeight);
+                }
+                if (postSplitImpurity < priorImpurity) {
+                    // absolute gain (IG) is used for the split search, see TreeNumericColumnData
+                    final double gain = priorImpurity - postSplitImpurity;
+                    final boolean randomTieBreaker = gain == bestGain ? rd.nextInt(0, 1) == 1 : false;
+                    if (gain > bestGain || randomTieBreaker) {
+                        bestGainValueForSplit = impurityCriterion.getGain(priorImpurity, postSplitImpurity,
+                            partitionWeights, totalSumWeight);
+                        bestGain = gain;
+                        bestSplit = getSplitValue(lastNonEmptyBin, b, useAverageSplitPoints);
+                        missingsGoLeft = branchContainsMissingValues ? tempMissingsGoLeft
+                            : sumWeightsLeftOfSplit > sumWeightsRightOfSplit;
+                    }
+                }
+            }
+            for (int c = 0; c < targetCounts; c++) {
+                final double w = stats[offset + c];
+                targetCountsLeftOfSplit[c] += w;
+                targetCountsRightOfSplit[c] -= w;
+            }
+            sumWeightsLeftOfSplit += binWeight;
+            sumWeightsRightOfSplit -= binWeight;
+            lastNonEmptyBin = b;
+        }
+
+        if (bestGainValueForSplit < 0.0) {
+            return null;
+        }
+        return createSplitCandidate(dataMemberships, bestSplit, bestGainValueForSplit, useXGBoostMissingValueHandling,
+            branchContainsMissingValues, missingsGoLeft);
+    }
+
+    /**
+     * Finds the best split for a numeric target using a histogram previously created for <b>dataMemberships</b> (either
+     * directly or by subtraction).
+     *
+     * @param dataMemberships the rows of the current tree node
+     * @param histogram the histogram of the rows in <b>dataMemberships</b>
+     * @param targetPriors the target statistics in the current tree node
+     * @param targetColumn the numeric target
+     * @param rd used for breaking ties
+     * @return the best split or null if there is no split that reduces the squared error
+     */
+    public NumericSplitCandidate calcBestSplitRegression(final DataMemberships dataMemberships,
+        final NumericBinHistogram histogram, final RegressionPriors targetPriors,
+        final TreeTargetNumericColumnData targetColumn, final RandomData rd) {
+        final TreeEnsembleLearnerConfiguration config = getConfiguration();
+        final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
+        final int minChildNodeSize = config.getMinChildSize();
+        final boolean useXGBoostMissingValueHandling = config.getMissingValueHandling() == MissingValueHandling.XGBoost;
+        final double[] stats = histogram.getStats();
+        final int nrBins = histogram.getNrBins();
+
+        final int missingOffset = histogram.getMissingBin() * 2;
+        final boolean branchContainsMissingValues = stats[missingOffset] >= EPSILON;
+        final double missingWeight = branchContainsMissingValues ? stats[missingOffset] : 0.0;
+        final double missingY = branchContainsMissingValues ? stats[missingOffset + 1] : 0.0;
+
+        final double ySumTotal = targetPriors.getYSum() - missingY;
+        final double nrRecordsTotal = targetPriors.getNrRecords() - missingWeight;
+        if (nrRecordsTotal < EPSILON) {
+            // all values in the current branch are missing
+            return null;
+        }
+        final double criterionTotal = useXGBoostMissingValueHandling
+            ? (ySumTotal + missingY) * (ySumTotal + missingY) / (nrRecordsTotal + missingWeight)
+            : ySumTotal * ySumTotal / nrRecordsTotal;
+
+        double ySumLeft = 0.0;
+        double nrRecordsLeft = 0.0;
+        double ySumRight = ySumTotal;
+        double nrRecordsRight = nrRecordsTotal;
+
+        double bestSplit = Double.NEGATIVE_INFINITY;
+        double bestImprovement = 0.0;
+        boolean missingsGoLeft = true;
+
+        int lastNonEmptyBin = -1;
+        for (int b = 0; b < nrBins; b++) {
+            final double binWeight = stats[2 * b];
+            if (binWeight < EPSILON) {
+                continue;
+            }
+            if (lastNonEmptyBin >= 0 && nrRecordsLeft >= minChildNodeSize && nrRecordsRight >= minChildNodeSize) {
+                boolean tempMissingsGoLeft = true;
+                double childrenSquaredSum;
+                if (branchContainsMissingValues && useXGBoostMissingValueHandling) {
+                    final double missingsLeft =
+                        ((ySumLeft + missingY) * (ySumLeft + missingY) / (nrRecordsLeft + missingWeight))
+                            + (ySumRight * ySumRight / nrRecordsRight);
+                    final double missingsRight = (ySumLeft * ySumLeft / nrRecordsLeft)
+                        + ((ySumRight + missingY) * (ySumRight + missingY) / (nrRecordsRight + missingWeight));
+                    tempMissingsGoLeft = missingsLeft >= missingsRight;
+                    childrenSquaredSum = tempMissingsGoLeft ? missingsLeft : missingsRight;
+                } else {
+                    childrenSquaredSum =
+                        (ySumLeft * ySumLeft / nrRecordsLeft) + (ySumRight * ySumRight / nrRecordsRight);
+                }
+                final double criterion = childrenSquaredSum - criterionTotal;
+                final boolean randomTieBreaker = criterion == bestImprovement ? rd.nextInt(0, 1) == 1 : false;
+                if (criterion > bestImprovement || randomTieBreaker) {
+                    bestImprovement = criterion;
+                    bestSplit = getSplitValue(lastNonEmptyBin, b, useAverageSplitPoints);
+                    missingsGoLeft =
+                        branchContainsMissingValues ? tempMissingsGoLeft : nrRecordsLeft >= nrRecordsRight;
+                }
+            }
+            final double binY = stats[2 * b + 1];
+            ySumLeft += binY;
+            ySumRight -= binY;
+            nrRecordsLeft += binWeight;
+            nrRecordsRight -= binWeight;
+            lastNonEmptyBin = b;
+        }
+
+        if (bestImprovement > 0.0) {
+            return createSplitCandidate(dataMemberships, bestSplit, bestImprovement, useXGBoostMissingValueHandling,
+                branchContainsMissingValues, missingsGoLeft);
+        }
+        return null;
+    }
+
+    private double getSplitValue(final int leftBin, final int rightBin, final boolean useAverageSplitPoints) {
+        final double left = m_binUpperValues[leftBin];
+        if (useAverageSplitPoints) {
+            final double right = m_binLowerValues[rightBin];
+            return left + 0.5 * (right - left);
+        }
+        return left;
+    }
+
+    private NumericSplitCandidate createSplitCandidate(final DataMemberships dataMemberships, final double splitValue,
+        final double gain, final boolean useXGBoostMissingValueHandling, final boolean branchContainsMissingValues,
+        final boolean missingsGoLeft) {
+        if (useXGBoostMissingValueHandling) {
+            return new NumericSplitCandidate(this, splitValue, gain, new BitSet(),
+                missingsGoLeft ? NumericSplitCandidate.MISSINGS_GO_LEFT : NumericSplitCandidate.MISSINGS_GO_RIGHT);
+        }
+        final BitSet missedRows = branchContainsMissingValues
+            ? getMissedRows(dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex())) : new BitSet();
+        return new NumericSplitCandidate(this, splitValue, gain, missedRows, NumericSplitCandidate.NO_MISSINGS);
+    }
+
+}
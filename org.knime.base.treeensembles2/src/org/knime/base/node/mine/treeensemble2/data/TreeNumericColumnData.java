@@ -96,7 +96,7 @@ public TreeNumericColumnMetaData getMetaData() {
      */
     public abstract int getLengthNonMissing();
 
-    private BitSet getMissedRows(final ColumnMemberships columnMemberships) {
+    BitSet getMissedRows(final ColumnMemberships columnMemberships) {
         final BitSet missedRows = new BitSet();
         if (columnMemberships.nextIndexFrom(getLengthNonMissing())) {
             do {
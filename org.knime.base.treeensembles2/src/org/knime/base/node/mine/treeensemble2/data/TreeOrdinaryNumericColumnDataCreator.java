@@ -119,6 +119,10 @@ public TreeOrdinaryNumericColumnData createColumnData(final int attributeIndex,
         final TreeNumericColumnMetaData metaData = new TreeNumericColumnMetaData(n);
         final boolean containsMissingValues = m_numMissing > 0 ? true : false;
         final int numNonMissing = length - m_numMissing;
+        if (configuration.isUseNumericBinning()) {
+            return new TreeBinnedNumericColumnData(metaData, configuration, sortedData, sortIndex,
+                containsMissingValues, numNonMissing, configuration.getNumericBinCount());
+        }
         return new TreeOrdinaryNumericColumnData(metaData, configuration, sortedData, sortIndex, containsMissingValues,
             numNonMissing);
     }
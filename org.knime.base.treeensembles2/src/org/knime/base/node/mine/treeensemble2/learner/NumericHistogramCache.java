@@ -0,0 +1,188 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.knime.base.node.mine.treeensemble2.data.NumericBinHistogram;
+import org.knime.base.node.mine.treeensemble2.data.TreeBinnedNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+
+/**
+ * Holds the {@link NumericBinHistogram histograms} of the binned numeric columns for the tree nodes on the current
+ * path of a (depth first) tree induction. If a node is split into two children that partition its rows, only the
+ * histogram of the smaller child is accumulated from the data, the histogram of the larger one is derived by
+ * subtracting it from the parent histogram.
+ *
+ * <p>
+ * Each tree learner uses its own instance. The histograms of different columns of the same node may be requested
+ * concurrently (parallel split search).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NumericHistogramCache {
+
+    private final Map<DataMemberships, Map<Integer, NumericBinHistogram>> m_histograms = new IdentityHashMap<>();
+
+    /** maps the larger child of a binary split to its parent and its (smaller) sibling. */
+    private final Map<DataMemberships, DataMemberships[]> m_derivations = new IdentityHashMap<>();
+
+    /** if positive, histograms of numeric targets are accumulated in row blocks of this size. */
+    private final int m_rowBlockSize;
+
+    /**
+     * @param rowBlockSize if positive, histograms for numeric targets are accumulated in blocks of this many rows (see
+     *            {@link TreeBinnedNumericColumnData#createHistogram(DataMemberships, TreeTargetNumericColumnData, int)})
+     */
+    NumericHistogramCache(final int rowBlockSize) {
+        m_rowBlockSize = rowBlockSize;
+    }
+
+    /** Creates a cache that accumulates histograms in a single pass. */
+    NumericHistogramCache() {
+        this(0);
+    }
+
+    /**
+     * @param column the binned column
+     * @param dataMemberships the rows of the tree node
+     * @param targetColumn the nominal target
+     * @return the (possibly cached or derived) histogram of <b>column</b> for the tree node
+     */
+    NumericBinHistogram getHistogram(final TreeBinnedNumericColumnData column, final DataMemberships dataMemberships,
+        final TreeTargetNominalColumnData targetColumn) {
+        return getHistogram(column, dataMemberships, m -> column.createHistogram(m, targetColumn));
+    }
+
+    /**
+     * @param column the binned column
+     * @param dataMemberships the rows of the tree node
+     * @param targetColumn the numeric target
+     * @return the (possibly cached or derived) histogram of <b>column</b> for the tree node
+     */
+    NumericBinHistogram getHistogram(final TreeBinnedNumericColumnData column, final DataMemberships dataMemberships,
+        final TreeTargetNumericColumnData targetColumn) {
+        if (m_rowBlockSize > 0) {
+            return getHistogram(column, dataMemberships, m -> column.createHistogram(m, targetColumn, m_rowBlockSize));
+        }
+        return getHistogram(column, dataMemberships, m -> column.createHistogram(m, targetColumn));
+    }
+
+    private NumericBinHistogram getHistogram(final TreeBinnedNumericColumnData column,
+        final DataMemberships dataMemberships, final Function<DataMemberships, NumericBinHistogram> creator) {
+        final Integer attributeIndex = column.getMetaData().getAttributeIndex();
+        NumericBinHistogram histogram = lookup(dataMemberships, attributeIndex);
+        if (histogram != null) {
+            return histogram;
+        }
+        final DataMemberships[] derivation = getDerivation(dataMemberships);
+        if (derivation != null) {
+            // the parent might not have evaluated this column (column sampling at each node)
+            final NumericBinHistogram parentHistogram = lookup(derivation[0], attributeIndex);
+            if (parentHistogram != null) {
+                histogram = parentHistogram.subtract(getHistogram(column, derivation[1], creator));
+            }
+        }
+        if (histogram == null) {
+            // created outside of the lock, this is the expensive part
+            histogram = creator.apply(dataMemberships);
+        }
+        store(dataMemberships, attributeIndex, histogram);
+        return histogram;
+    }
+
+    private synchronized NumericBinHistogram lookup(final DataMemberships dataMemberships,
+        final Integer attributeIndex) {
+        final Map<Integer, NumericBinHistogram> nodeHistograms = m_histograms.get(dataMemberships);
+        return nodeHistograms == null ? null : nodeHistograms.get(attributeIndex);
+    }
+
+    private synchronized DataMemberships[] getDerivation(final DataMemberships dataMemberships) {
+        return m_derivations.get(dataMemberships);
+    }
+
+    private synchronized void store(final DataMemberships dataMemberships, final Integer attributeIndex,
+        final NumericBinHistogram histogram) {
+        m_histograms.computeIfAbsent(dataMemberships, m -> new HashMap<>()).put(attributeIndex, histogram);
+    }
+
+    /**
+     * Called once the children of a node are determined and before they are processed.
+     *
+     * @param parent the rows of the node that is split
+     * @param children the rows of its children
+     */
+    synchronized void registerChildren(final DataMemberships parent, final DataMemberships[] children) {
+        if (children.length != 2) {
+            return;
+        }
+        final int count0 = children[0].getRowCount();
+        final int count1 = children[1].getRowCount();
+        if (count0 + count1 != parent.getRowCount()) {
+            // children don't partition the parent (e.g. rows with missing values are not passed on)
+            return;
+        }
+        final int larger = count0 >= count1 ? 0 : 1;
+        m_derivations.put(children[larger], new DataMemberships[]{parent, children[1 - larger]});
+    }
+
+    /**
+     * Called once all children of a node are processed, drops the histograms of the children.
+     *
+     * @param children the rows of the children
+     */
+    synchronized void release(final DataMemberships[] children) {
+        for (DataMemberships child : children) {
+            m_histograms.remove(child);
+            m_derivations.remove(child);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.learner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Evaluates the split candidates of the attribute columns of a tree node concurrently on the KNIME
+ * {@link ThreadPool}, so the number of threads is limited by the KNIME thread preferences. Used by gradient boosting
+ * where the trees have to be learned one after the other. The results are returned in column order and the callers
+ * make sure that the tasks don't share any random state, so the learned trees don't depend on the number of threads
+ * or on the scheduling.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ParallelSplitSearch {
+
+    /**
+     * Nodes with more rows than this accumulate the histograms of binned numeric columns in blocks of this size, see
+     * {@link org.knime.base.node.mine.treeensemble2.data.TreeBinnedNumericColumnData#createHistogram(
+     * org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships,
+     * org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData, int)}.
+     */
+    static final int ROW_BLOCK_SIZE = 1 << 14;
+
+    private ParallelSplitSearch() {
+        // utility class
+    }
+
+    /**
+     * Runs <b>evaluator</b> for the indices <code>0</code> to <code>count - 1</code> concurrently and waits for all
+     * of them to finish. The evaluations are submitted to the pool of the calling thread, or to the global KNIME pool
+     * if the caller is not a KNIME worker.
+     *
+     * @param count the number of evaluations (usually the number of columns)
+     * @param evaluator evaluates the split of a single column, must be thread-safe
+     * @return the results in index order (entries may be null)
+     */
+    static <T> List<T> evaluate(final int count, final IntFunction<T> evaluator) {
+        final ThreadPool currentPool = ThreadPool.currentPool();
+        final ThreadPool pool = currentPool != null ? currentPool : KNIMEConstants.GLOBAL_THREAD_POOL;
+        final List<Future<T>> futures = new ArrayList<>(count);
+        final Callable<List<T>> evaluateAll = () -> {
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                futures.add(pool.enqueue(() -> evaluator.apply(index)));
+            }
+            final List<T> results = new ArrayList<>(count);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        };
+        try {
+            if (currentPool != null) {
+                // the calling worker only waits for the evaluations, its thread slot is given to them meanwhile
+                return pool.runInvisible(evaluateAll);
+            } else {
+                return evaluateAll.call();
+            }
+        } catch (Exception e) {
+            Throwable cause = e;
+            while ((cause instanceof ExecutionException) && (cause.getCause() != null)) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Split search failed: " + cause.getMessage(), cause);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+}
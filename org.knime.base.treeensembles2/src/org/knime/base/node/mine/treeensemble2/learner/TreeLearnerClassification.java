@@ -54,6 +54,7 @@
 import org.apache.commons.math.random.RandomData;
 import org.knime.base.node.mine.treeensemble2.data.ClassificationPriors;
 import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeBinnedNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNominalColumnData;
@@ -78,6 +79,9 @@
  */
 final class TreeLearnerClassification extends AbstractTreeLearner {
 
+    /** non-null if numeric attributes are binned. */
+    private final NumericHistogramCache m_histogramCache;
+
     /**
      * @param config
      * @param data
@@ -89,6 +93,7 @@ final class TreeLearnerClassification extends AbstractTreeLearner {
         if (config.isRegression()) {
             throw new IllegalStateException("Can't learn classification model on numeric target");
         }
+        m_histogramCache = config.isUseNumericBinning() ? new NumericHistogramCache() : null;
     }
 
     @Override
@@ -113,6 +118,9 @@ private TreeModelClassification learnSingleTreeRecursive(final ExecutionMonitor
         TreeNodeClassification rootNode = null;
         rootNode = buildTreeNode(exec, 0, rootDataMemberships, rootColumnSample, rootSignature, targetPriors,
             forbiddenColumnSet);
+        if (m_histogramCache != null) {
+            m_histogramCache.release(new DataMemberships[]{rootDataMemberships});
+        }
         assert forbiddenColumnSet.cardinality() == 0;
         rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
         return new TreeModelClassification(rootNode);
@@ -142,8 +150,15 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
             childConditions = surrogateSplit.getChildConditions();
             BitSet[] childMarkers = surrogateSplit.getChildMarkers();
             childNodes = new TreeNodeClassification[2];
+            final DataMemberships[] childMembershipsArray = new DataMemberships[2];
             for (int i = 0; i < 2; i++) {
-                DataMemberships childMemberships = dataMemberships.createChildMemberships(childMarkers[i]);
+                childMembershipsArray[i] = dataMemberships.createChildMemberships(childMarkers[i]);
+            }
+            if (m_histogramCache != null) {
+                m_histogramCache.registerChildren(dataMemberships, childMembershipsArray);
+            }
+            for (int i = 0; i < 2; i++) {
+                DataMemberships childMemberships = childMembershipsArray[i];
                 ClassificationPriors childTargetPriors = targetColumn.getDistribution(childMemberships, config);
                 TreeNodeSignature childSignature =
                     getSignatureFactory().getChildSignatureFor(treeNodeSignature, (byte)i);
@@ -152,6 +167,9 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
                     childSignature, childTargetPriors, forbiddenColumnSet);
                 childNodes[i].setTreeNodeCondition(childConditions[i]);
             }
+            if (m_histogramCache != null) {
+                m_histogramCache.release(childMembershipsArray);
+            }
         } else {
             // handle non surrogate case
             SplitCandidate bestSplit = findBestSplitClassification(currentDepth, dataMemberships, columnSample,
@@ -171,12 +189,18 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
                     "Too many children when splitting " + "attribute " + bestSplit.getColumnData()
                         + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
             }
+            final DataMemberships[] childMembershipsArray = new DataMemberships[childConditions.length];
+            for (int i = 0; i < childConditions.length; i++) {
+                childMembershipsArray[i] = dataMemberships
+                    .createChildMemberships(splitColumn.updateChildMemberships(childConditions[i], dataMemberships));
+            }
+            if (m_histogramCache != null) {
+                m_histogramCache.registerChildren(dataMemberships, childMembershipsArray);
+            }
             // Build child nodes
             for (int i = 0; i < childConditions.length; i++) {
-                DataMemberships childMemberships = null;
                 TreeNodeCondition cond = childConditions[i];
-                childMemberships =
-                    dataMemberships.createChildMemberships(splitColumn.updateChildMemberships(cond, dataMemberships));
+                DataMemberships childMemberships = childMembershipsArray[i];
                 ClassificationPriors childTargetPriors = targetColumn.getDistribution(childMemberships, config);
                 TreeNodeSignature childSignature = treeNodeSignature.createChildSignature((byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
@@ -184,6 +208,9 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
                     childSignature, childTargetPriors, forbiddenColumnSet);
                 childNodes[i].setTreeNodeCondition(cond);
             }
+            if (m_histogramCache != null) {
+                m_histogramCache.release(childMembershipsArray);
+            }
         }
         if (markAttributeAsForbidden) {
             forbiddenColumnSet.set(attributeIndex, false);
@@ -229,7 +256,7 @@ private SplitCandidate[] findBestSplitsClassification(final int currentDepth, fi
             final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
             // TODO discuss whether this option makes sense with surrogates
             return new SplitCandidate[]{
-                rootColumn.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd)};
+                calcBestSplitClassification(rootColumn, dataMemberships, targetPriors, targetColumn, rd)};
         }
         double bestGainValue = 0.0;
         final Comparator<SplitCandidate> comp = new Comparator<SplitCandidate>() {
@@ -247,7 +274,7 @@ public int compare(final SplitCandidate o1, final SplitCandidate o2) {
                 continue;
             }
             SplitCandidate currentColSplit =
-                col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+                calcBestSplitClassification(col, dataMemberships, targetPriors, targetColumn, rd);
             if (currentColSplit != null) {
                 candidates.add(currentColSplit);
             }
@@ -259,6 +286,18 @@ public int compare(final SplitCandidate o1, final SplitCandidate o2) {
         return candidates.toArray(new SplitCandidate[candidates.size()]);
     }
 
+    private SplitCandidate calcBestSplitClassification(final TreeAttributeColumnData col,
+        final DataMemberships dataMemberships, final ClassificationPriors targetPriors,
+        final TreeTargetNominalColumnData targetColumn, final RandomData rd) {
+        if (m_histogramCache != null && col instanceof TreeBinnedNumericColumnData) {
+            final TreeBinnedNumericColumnData binnedCol = (TreeBinnedNumericColumnData)col;
+            return binnedCol.calcBestSplitClassification(dataMemberships,
+                m_histogramCache.getHistogram(binnedCol, dataMemberships, targetColumn), targetPriors, targetColumn,
+                rd);
+        }
+        return col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+    }
+
     private SplitCandidate findBestSplitClassification(final int currentDepth, final DataMemberships dataMemberships,
         final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
         final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet) {
@@ -285,7 +324,7 @@ private SplitCandidate findBestSplitClassification(final int currentDepth, final
         if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
             final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
             // TODO discuss whether this option makes sense with surrogates
-            return rootColumn.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+            return calcBestSplitClassification(rootColumn, dataMemberships, targetPriors, targetColumn, rd);
         }
         double bestGainValue = 0.0;
         for (TreeAttributeColumnData col : columnSample) {
@@ -293,7 +332,7 @@ private SplitCandidate findBestSplitClassification(final int currentDepth, final
                 continue;
             }
             final SplitCandidate currentColSplit =
-                col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+                calcBestSplitClassification(col, dataMemberships, targetPriors, targetColumn, rd);
             if (currentColSplit != null) {
                 final double currentGain = currentColSplit.getGainValue();
                 final boolean tiebreaker = currentGain == bestGainValue ? (rd.nextInt(0, 1) == 0) : false;
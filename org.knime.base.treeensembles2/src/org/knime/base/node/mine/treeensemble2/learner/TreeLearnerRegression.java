@@ -55,6 +55,7 @@
 import org.apache.commons.math.random.RandomData;
 import org.knime.base.node.mine.treeensemble2.data.RegressionPriors;
 import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeBinnedNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
@@ -82,6 +83,12 @@ public class TreeLearnerRegression extends AbstractTreeLearner {
 
     private List<TreeNodeRegression> m_leafs;
 
+    /** non-null if numeric attributes are binned. */
+    private final NumericHistogramCache m_histogramCache;
+
+    /** whether the columns of a node are evaluated concurrently (gradient boosting only). */
+    private final boolean m_parallelSplitSearch;
+
     /**
      * Constructor for TreeLearnerRegression
      *
@@ -98,6 +105,14 @@ public TreeLearnerRegression(final TreeEnsembleLearnerConfiguration config, fina
         if (!(data.getTargetColumn() instanceof TreeTargetNumericColumnData)) {
             throw new IllegalStateException("Can't learn regression model on categorical target");
         }
+        m_parallelSplitSearch = config instanceof GradientBoostingLearnerConfiguration
+            && ((GradientBoostingLearnerConfiguration)config).isParallelSplitSearch();
+        if (config.isUseNumericBinning()) {
+            m_histogramCache = m_parallelSplitSearch ? new NumericHistogramCache(ParallelSplitSearch.ROW_BLOCK_SIZE)
+                : new NumericHistogramCache();
+        } else {
+            m_histogramCache = null;
+        }
     }
 
     private TreeTargetNumericColumnData getTargetData() {
@@ -124,6 +139,9 @@ public TreeModelRegression learnSingleTree(final ExecutionMonitor exec, final Ra
         final ColumnSample rootColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(rootSignature);
         TreeNodeRegression rootNode = buildTreeNode(exec, 0, rootDataMemberships, rootColumnSample, getSignatureFactory().getRootSignature(),
             targetPriors, forbiddenColumnSet);
+        if (m_histogramCache != null) {
+            m_histogramCache.release(new DataMemberships[]{rootDataMemberships});
+        }
         assert forbiddenColumnSet.cardinality() == 0;
         rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
         if (isGradientBoosting) {
@@ -156,7 +174,9 @@ private SplitCandidate findBestSplitRegression(final int currentDepth, final Dat
         SplitCandidate splitCandidate = null;
         if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
             final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
-            return rootColumn.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+            return calcBestSplitRegression(rootColumn, dataMemberships, targetPriors, targetColumn, rd);
+        } else if (m_parallelSplitSearch) {
+            return findBestSplitRegressionParallel(dataMemberships, columnSample, targetPriors, forbiddenColumnSet);
         } else {
             double bestGainValue = 0.0;
             for (TreeAttributeColumnData col : columnSample) {
@@ -164,7 +184,7 @@ private SplitCandidate findBestSplitRegression(final int currentDepth, final Dat
                     continue;
                 }
                 SplitCandidate currentColSplit =
-                    col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+                    calcBestSplitRegression(col, dataMemberships, targetPriors, targetColumn, rd);
                 if (currentColSplit != null) {
                     double gainValue = currentColSplit.getGainValue();
                     if (gainValue > bestGainValue) {
@@ -177,6 +197,50 @@ private SplitCandidate findBestSplitRegression(final int currentDepth, final Dat
         }
     }
 
+    /**
+     * Evaluates the columns concurrently. Each column gets its own random data object (used for tie breaking) whose
+     * seed is drawn in column order, and the best candidate is chosen in column order, so the result neither depends
+     * on the number of threads nor on the scheduling.
+     */
+    private SplitCandidate findBestSplitRegressionParallel(final DataMemberships dataMemberships,
+        final ColumnSample columnSample, final RegressionPriors targetPriors, final BitSet forbiddenColumnSet) {
+        final RandomData rd = getRandomData();
+        final TreeTargetNumericColumnData targetColumn = getTargetData();
+        final List<TreeAttributeColumnData> columns = new ArrayList<TreeAttributeColumnData>(columnSample.getNumCols());
+        final List<RandomData> columnRandomData = new ArrayList<RandomData>(columnSample.getNumCols());
+        for (TreeAttributeColumnData col : columnSample) {
+            if (!forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
+                columns.add(col);
+                columnRandomData.add(
+                    TreeEnsembleLearnerConfiguration.createRandomData(rd.nextLong(Long.MIN_VALUE, Long.MAX_VALUE)));
+            }
+        }
+        final List<SplitCandidate> columnSplits = ParallelSplitSearch.evaluate(columns.size(),
+            i -> calcBestSplitRegression(columns.get(i), dataMemberships, targetPriors, targetColumn,
+                columnRandomData.get(i)));
+        double bestGainValue = 0.0;
+        SplitCandidate splitCandidate = null;
+        for (SplitCandidate currentColSplit : columnSplits) {
+            if (currentColSplit != null && currentColSplit.getGainValue() > bestGainValue) {
+                bestGainValue = currentColSplit.getGainValue();
+                splitCandidate = currentColSplit;
+            }
+        }
+        return splitCandidate;
+    }
+
+    private SplitCandidate calcBestSplitRegression(final TreeAttributeColumnData col,
+        final DataMemberships dataMemberships, final RegressionPriors targetPriors,
+        final TreeTargetNumericColumnData targetColumn, final RandomData rd) {
+        if (m_histogramCache != null && col instanceof TreeBinnedNumericColumnData) {
+            final TreeBinnedNumericColumnData binnedCol = (TreeBinnedNumericColumnData)col;
+            return binnedCol.calcBestSplitRegression(dataMemberships,
+                m_histogramCache.getHistogram(binnedCol, dataMemberships, targetColumn), targetPriors, targetColumn,
+                rd);
+        }
+        return col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+    }
+
     private SplitCandidate[] findBestSplitsRegression(final int currentDepth, final DataMemberships dataMemberships, final ColumnSample columnSample,
         final RegressionPriors targetPriors,
         final BitSet forbiddenColumnSet) {
@@ -202,7 +266,7 @@ private SplitCandidate[] findBestSplitsRegression(final int currentDepth, final
         if (currentDepth == 0 && config.getHardCodedRootColumn() != null) {
             final TreeAttributeColumnData rootColumn = data.getColumn(config.getHardCodedRootColumn());
             return new SplitCandidate[]{
-                rootColumn.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd)};
+                calcBestSplitRegression(rootColumn, dataMemberships, targetPriors, targetColumn, rd)};
         } else {
             splitCandidates = new ArrayList<SplitCandidate>(columnSample.getNumCols());
             for (TreeAttributeColumnData col : columnSample) {
@@ -210,7 +274,7 @@ private SplitCandidate[] findBestSplitsRegression(final int currentDepth, final
                     continue;
                 }
                 SplitCandidate currentColSplit =
-                    col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+                    calcBestSplitRegression(col, dataMemberships, targetPriors, targetColumn, rd);
                 if (currentColSplit != null) {
                     splitCandidates.add(currentColSplit);
                 }
@@ -258,8 +322,15 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
             BitSet[] childMarkers = surrogateSplit.getChildMarkers();
             assert childMarkers[0].cardinality() + childMarkers[1].cardinality() == dataMemberships.getRowCount(): "Sum of rows in children does not add up to number of rows in parent.";
             childNodes = new TreeNodeRegression[2];
+            final DataMemberships[] childMembershipsArray = new DataMemberships[2];
             for (int i = 0; i < 2; i++) {
-                DataMemberships childMemberships = dataMemberships.createChildMemberships(childMarkers[i]);
+                childMembershipsArray[i] = dataMemberships.createChildMemberships(childMarkers[i]);
+            }
+            if (m_histogramCache != null) {
+                m_histogramCache.registerChildren(dataMemberships, childMembershipsArray);
+            }
+            for (int i = 0; i < 2; i++) {
+                DataMemberships childMemberships = childMembershipsArray[i];
                 TreeNodeSignature childSignature = getSignatureFactory().getChildSignatureFor(treeNodeSignature, (byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
                 RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
@@ -267,6 +338,9 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                     childTargetPriors, forbiddenColumnSet);
                 childNodes[i].setTreeNodeCondition(childConditions[i]);
             }
+            if (m_histogramCache != null) {
+                m_histogramCache.release(childMembershipsArray);
+            }
         } else {
             SplitCandidate bestSplit = candidate;
             TreeAttributeColumnData splitColumn = bestSplit.getColumnData();
@@ -280,10 +354,17 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                         + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
             }
             childNodes = new TreeNodeRegression[childConditions.length];
+            final DataMemberships[] childMembershipsArray = new DataMemberships[childConditions.length];
+            for (int i = 0; i < childConditions.length; i++) {
+                childMembershipsArray[i] = dataMemberships
+                    .createChildMemberships(splitColumn.updateChildMemberships(childConditions[i], dataMemberships));
+            }
+            if (m_histogramCache != null) {
+                m_histogramCache.registerChildren(dataMemberships, childMembershipsArray);
+            }
             for (int i = 0; i < childConditions.length; i++) {
                 TreeNodeCondition cond = childConditions[i];
-                DataMemberships childMemberships =
-                    dataMemberships.createChildMemberships(splitColumn.updateChildMemberships(cond, dataMemberships));
+                DataMemberships childMemberships = childMembershipsArray[i];
                 RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
                 TreeNodeSignature childSignature = treeNodeSignature.createChildSignature((byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
@@ -291,6 +372,9 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                     childTargetPriors, forbiddenColumnSet);
                 childNodes[i].setTreeNodeCondition(cond);
             }
+            if (m_histogramCache != null) {
+                m_histogramCache.release(childMembershipsArray);
+            }
             if (markAttributeAsForbidden) {
                 forbiddenColumnSet.set(attributeIndex, false);
             }
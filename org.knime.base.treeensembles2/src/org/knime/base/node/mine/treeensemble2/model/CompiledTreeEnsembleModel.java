@@ -0,0 +1,450 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.NominalValue;
+
+/**
+ * Flat, array based representation of a {@link TreeEnsembleModel} that is used for scoring. The nodes of all trees
+ * are laid out breadth first in primitive arrays (the children of a node are stored contiguously) and the split
+ * conditions are reduced to an operator code, an attribute index and a threshold or value mask. Rows are converted
+ * once into a <code>double[]</code> feature vector (missing values and unknown nominal values are represented as
+ * {@link Double#NaN}, nominal values by their assigned integer) so that scoring does neither need a
+ * {@link org.knime.base.node.mine.treeensemble2.data.PredictorRecord} nor any virtual condition calls.
+ *
+ * <p>
+ * Only ensembles of type {@link TreeType#Ordinary} whose nodes use numeric, nominal and nominal binary conditions can
+ * be compiled, see {@link #compile(TreeEnsembleModel, DataTableSpec)}. The result of {@link #findLeaf(int, double[])}
+ * is identical to {@link AbstractTreeModel#findMatchingNode(org.knime.base.node.mine.treeensemble2.data.PredictorRecord)}
+ * for the corresponding record.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class CompiledTreeEnsembleModel {
+
+    private static final byte OP_TRUE = 0;
+
+    private static final byte OP_LESS_OR_EQUAL = 1;
+
+    private static final byte OP_LARGER = 2;
+
+    private static final byte OP_LESS_OR_EQUAL_OR_MISSING = 3;
+
+    private static final byte OP_LARGER_OR_MISSING = 4;
+
+    private static final byte OP_NOMINAL_EQUALS = 5;
+
+    private static final byte OP_NOMINAL_IN_SET = 6;
+
+    private static final byte OP_NOMINAL_NOT_IN_SET = 7;
+
+    private final int[] m_treeRoots;
+
+    private final int[] m_firstChild;
+
+    private final int[] m_nrChildren;
+
+    private final byte[] m_operator;
+
+    private final int[] m_attribute;
+
+    private final double[] m_threshold;
+
+    private final boolean[] m_acceptsMissings;
+
+    private final long[][] m_valueMasks;
+
+    private final AbstractTreeNode[] m_nodes;
+
+    /** Node means for regression trees, null for classification trees. */
+    private final double[] m_means;
+
+    /** Per learn column the lookup from nominal value to assigned integer, null for numeric columns. */
+    private final Map<String, Integer>[] m_nominalValueIndices;
+
+    @SuppressWarnings("unchecked")
+    private CompiledTreeEnsembleModel(final List<AbstractTreeNode> nodes, final int[] treeRoots,
+        final int nrAttributes) {
+        final int nrNodes = nodes.size();
+        m_treeRoots = treeRoots;
+        m_firstChild = new int[nrNodes];
+        m_nrChildren = new int[nrNodes];
+        m_operator = new byte[nrNodes];
+        m_attribute = new int[nrNodes];
+        m_threshold = new double[nrNodes];
+        m_acceptsMissings = new boolean[nrNodes];
+        m_valueMasks = new long[nrNodes][];
+        m_nodes = nodes.toArray(new AbstractTreeNode[nrNodes]);
+        m_means = nrNodes > 0 && m_nodes[0] instanceof TreeNodeRegression ? new double[nrNodes] : null;
+        m_nominalValueIndices = new Map[nrAttributes];
+    }
+
+    /**
+     * Compiles the given model. Returns an empty optional if the model can't be represented in the flat layout, i.e.
+     * if it is not of type {@link TreeType#Ordinary} or contains conditions other than numeric, nominal and nominal
+     * binary conditions (e.g. surrogate splits). Callers should fall back to the record based scoring in that case.
+     *
+     * @param model the model to compile
+     * @param learnSpec the learn attribute spec as returned by
+     *            {@link TreeEnsembleModelPortObjectSpec#getLearnTableSpec()}
+     * @return the compiled model or an empty optional if the model can't be compiled
+     */
+    public static Optional<CompiledTreeEnsembleModel> compile(final TreeEnsembleModel model,
+        final DataTableSpec learnSpec) {
+        if (model.getType() != TreeType.Ordinary || model.getNrModels() == 0) {
+            return Optional.empty();
+        }
+        final TreeMetaData metaData = model.getMetaData();
+        final int nrAttributes = learnSpec.getNumColumns();
+        if (metaData.getNrAttributes() != nrAttributes) {
+            return Optional.empty();
+        }
+        final int nrModels = model.getNrModels();
+        final int[] treeRoots = new int[nrModels];
+        final List<AbstractTreeNode> nodes = new ArrayList<>();
+        for (int i = 0; i < nrModels; i++) {
+            treeRoots[i] = nodes.size();
+            nodes.add(model.getTreeModel(i).getRootNode());
+        }
+        // breadth first, children are appended to the end so that siblings are stored next to each other
+        final List<int[]> childRanges = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            final AbstractTreeNode node = nodes.get(i);
+            final int nrChildren = node.getNrChildren();
+            childRanges.add(new int[]{nodes.size(), nrChildren});
+            for (int c = 0; c < nrChildren; c++) {
+                nodes.add(node.getChild(c));
+            }
+        }
+
+        final CompiledTreeEnsembleModel compiled = new CompiledTreeEnsembleModel(nodes, treeRoots, nrAttributes);
+        for (int i = 0; i < nrAttributes; i++) {
+            final DataType colType = learnSpec.getColumnSpec(i).getType();
+            final TreeAttributeColumnMetaData attMetaData = metaData.getAttributeMetaData(i);
+            if (colType.isCompatible(NominalValue.class)) {
+                if (!(attMetaData instanceof TreeNominalColumnMetaData)) {
+                    return Optional.empty();
+                }
+                final NominalValueRepresentation[] values = ((TreeNominalColumnMetaData)attMetaData).getValues();
+                final Map<String, Integer> valueIndices = new HashMap<>((int)(values.length / 0.75 + 1));
+                for (NominalValueRepresentation value : values) {
+                    valueIndices.putIfAbsent(value.getNominalValue(), value.getAssignedInteger());
+                }
+                compiled.m_nominalValueIndices[i] = valueIndices;
+            } else if (!colType.isCompatible(DoubleValue.class)) {
+                return Optional.empty();
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            final int[] childRange = childRanges.get(i);
+            compiled.m_firstChild[i] = childRange[0];
+            compiled.m_nrChildren[i] = childRange[1];
+            if (compiled.m_means != null) {
+                compiled.m_means[i] = ((TreeNodeRegression)compiled.m_nodes[i]).getMean();
+            }
+            if (!compiled.compileCondition(i, learnSpec)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(compiled);
+    }
+
+    private boolean compileCondition(final int node, final DataTableSpec learnSpec) {
+        final TreeNodeCondition condition = m_nodes[node].getCondition();
+        if (condition == null || condition instanceof TreeNodeTrueCondition) {
+            // root nodes have no (or a trivially true) condition, it is never tested
+            m_operator[node] = OP_TRUE;
+            return true;
+        }
+        if (!(condition instanceof TreeNodeColumnCondition)) {
+            // surrogate conditions look at several columns
+            return false;
+        }
+        final TreeNodeColumnCondition columnCondition = (TreeNodeColumnCondition)condition;
+        final int attribute = learnSpec.findColumnIndex(columnCondition.getColumnMetaData().getAttributeName());
+        if (attribute < 0) {
+            return false;
+        }
+        m_attribute[node] = attribute;
+        m_acceptsMissings[node] = columnCondition.acceptsMissings();
+        final boolean isNominal = m_nominalValueIndices[attribute] != null;
+        if (condition instanceof TreeNodeNumericCondition) {
+            if (isNominal) {
+                return false;
+            }
+            final TreeNodeNumericCondition numCondition = (TreeNodeNumericCondition)condition;
+            m_threshold[node] = numCondition.getSplitValue();
+            switch (numCondition.getNumericOperator()) {
+                case LessThanOrEqual:
+                    m_operator[node] = OP_LESS_OR_EQUAL;
+                    return true;
+                case LargerThan:
+                    m_operator[node] = OP_LARGER;
+                    return true;
+                case LessThanOrEqualOrMissing:
+                    m_operator[node] = OP_LESS_OR_EQUAL_OR_MISSING;
+                    return true;
+                case LargerThanOrMissing:
+                    m_operator[node] = OP_LARGER_OR_MISSING;
+                    return true;
+                default:
+                    return false;
+            }
+        } else if (condition instanceof TreeNodeNominalCondition) {
+            if (!isNominal) {
+                return false;
+            }
+            m_operator[node] = OP_NOMINAL_EQUALS;
+            m_threshold[node] = ((TreeNodeNominalCondition)condition).getValueIndex();
+            return true;
+        } else if (condition instanceof TreeNodeNominalBinaryCondition) {
+            if (!isNominal) {
+                return false;
+            }
+            final TreeNodeNominalBinaryCondition binCondition = (TreeNodeNominalBinaryCondition)condition;
+            m_operator[node] = binCondition.getSetLogic() == TreeNodeNominalBinaryCondition.SetLogic.IS_IN
+                ? OP_NOMINAL_IN_SET : OP_NOMINAL_NOT_IN_SET;
+            m_valueMasks[node] = toLongArray(binCondition.getValuesMask());
+            return true;
+        }
+        return false;
+    }
+
+    private static long[] toLongArray(final BigInteger mask) {
+        final long[] words = new long[(mask.bitLength() + 63) >>> 6];
+        for (int bit = mask.getLowestSetBit(), end = mask.bitLength(); bit >= 0 && bit < end; bit++) {
+            if (mask.testBit(bit)) {
+                words[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return the number of trees in the ensemble
+     */
+    public int getNrModels() {
+        return m_treeRoots.length;
+    }
+
+    /**
+     * @return the number of learn attributes, i.e. the length of a feature vector
+     */
+    public int getNrAttributes() {
+        return m_nominalValueIndices.length;
+    }
+
+    /**
+     * Creates the feature vector for a row.
+     *
+     * @param filterRow the row containing the learn columns only (in the order of the learn spec)
+     * @return a new feature vector
+     */
+    public double[] createFeatureVector(final DataRow filterRow) {
+        final double[] features = new double[m_nominalValueIndices.length];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = getFeature(filterRow.getCell(i), i);
+        }
+        return features;
+    }
+
+    /**
+     * Writes the features of a row into column major storage, used for batch scoring with
+     * {@link #findLeaves(int, double[][], int, int[])}.
+     *
+     * @param filterRow the row containing the learn columns only (in the order of the learn spec)
+     * @param columns the feature columns, <code>columns[attribute][row]</code>
+     * @param row the row index in <b>columns</b>
+     */
+    public void extractFeatures(final DataRow filterRow, final double[][] columns, final int row) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][row] = getFeature(filterRow.getCell(i), i);
+        }
+    }
+
+    private double getFeature(final DataCell cell, final int attribute) {
+        if (cell.isMissing()) {
+            return Double.NaN;
+        }
+        final Map<String, Integer> valueIndices = m_nominalValueIndices[attribute];
+        if (valueIndices != null) {
+            final Integer index = valueIndices.get(cell.toString());
+            // unknown values are treated as missing values
+            return index == null ? Double.NaN : index.intValue();
+        }
+        // NaN is treated as missing value (AP-7169)
+        return ((DoubleValue)cell).getDoubleValue();
+    }
+
+    /**
+     * Finds the node a row ends up in. This is usually a leaf but may also be an inner node in case none of the
+     * children accepts the row.
+     *
+     * @param model the index of the tree
+     * @param features the feature vector of the row, see {@link #createFeatureVector(DataRow)}
+     * @return the node index, see {@link #getNode(int)} and {@link #getMean(int)}
+     */
+    public int findLeaf(final int model, final double[] features) {
+        int node = m_treeRoots[model];
+        int nrChildren;
+        while ((nrChildren = m_nrChildren[node]) > 0) {
+            final int firstChild = m_firstChild[node];
+            int next = -1;
+            for (int c = firstChild, end = firstChild + nrChildren; c < end; c++) {
+                if (matches(c, features[m_attribute[c]])) {
+                    next = c;
+                    break;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * Batch version of {@link #findLeaf(int, double[])} that runs a chunk of rows through one tree.
+     *
+     * @param model the index of the tree
+     * @param columns the feature columns, <code>columns[attribute][row]</code>
+     * @param nrRows the number of rows in the chunk
+     * @param leaves output array receiving the node index of each row
+     */
+    public void findLeaves(final int model, final double[][] columns, final int nrRows, final int[] leaves) {
+        final int root = m_treeRoots[model];
+        for (int r = 0; r < nrRows; r++) {
+            int node = root;
+            int nrChildren;
+            while ((nrChildren = m_nrChildren[node]) > 0) {
+                final int firstChild = m_firstChild[node];
+                int next = -1;
+                for (int c = firstChild, end = firstChild + nrChildren; c < end; c++) {
+                    if (matches(c, columns[m_attribute[c]][r])) {
+                        next = c;
+                        break;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                node = next;
+            }
+            leaves[r] = node;
+        }
+    }
+
+    private boolean matches(final int node, final double value) {
+        final byte operator = m_operator[node];
+        if (operator == OP_TRUE) {
+            return true;
+        }
+        if (Double.isNaN(value)) {
+            return m_acceptsMissings[node];
+        }
+        switch (operator) {
+            case OP_LESS_OR_EQUAL:
+            case OP_LESS_OR_EQUAL_OR_MISSING:
+                return value <= m_threshold[node];
+            case OP_LARGER:
+            case OP_LARGER_OR_MISSING:
+                return value > m_threshold[node];
+            case OP_NOMINAL_EQUALS:
+                return value == m_threshold[node];
+            case OP_NOMINAL_IN_SET:
+                return isInMask(m_valueMasks[node], (int)value);
+            case OP_NOMINAL_NOT_IN_SET:
+                return !isInMask(m_valueMasks[node], (int)value);
+            default:
+                throw new IllegalStateException("Unknown operator code: " + operator);
+        }
+    }
+
+    private static boolean isInMask(final long[] mask, final int index) {
+        final int word = index >>> 6;
+        return index >= 0 && word < mask.length && (mask[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param node a node index as returned by {@link #findLeaf(int, double[])}
+     * @return the tree node object (e.g. to access class distributions)
+     */
+    public AbstractTreeNode getNode(final int node) {
+        return m_nodes[node];
+    }
+
+    /**
+     * @param node a node index as returned by {@link #findLeaf(int, double[])}
+     * @return the mean of the regression node
+     * @throws IllegalStateException if the ensemble does not consist of regression trees
+     */
+    public double getMean(final int node) {
+        if (m_means == null) {
+            throw new IllegalStateException("Not a regression model");
+        }
+        return m_means[node];
+    }
+
+}
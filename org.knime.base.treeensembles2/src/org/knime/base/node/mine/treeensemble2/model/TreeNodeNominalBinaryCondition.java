@@ -194,6 +194,13 @@ public String[] getValues() {
         return values;
     }
 
+    /**
+     * @return the mask of value indices, interpreted via {@link #getSetLogic()}
+     */
+    BigInteger getValuesMask() {
+        return m_valuesMask;
+    }
+
     /**
      * @return the setLogic
      */
@@ -66,6 +66,8 @@ public class GradientBoostingLearnerConfiguration extends TreeEnsembleLearnerCon
 
     private static final String KEY_ALPHA_FRACTION = "alphaFraction";
 
+    private static final String KEY_PARALLEL_SPLIT_SEARCH = "parallelSplitSearch";
+
     /**
      * Default learning rate (0.1)
      */
@@ -76,10 +78,19 @@ public class GradientBoostingLearnerConfiguration extends TreeEnsembleLearnerCon
      */
     public static final double DEF_ALPHA_FRACTION = 0.95;
 
+    /**
+     * Default for the parallel split search (true), settings created prior 3.7 use false.
+     *
+     * @since 3.7
+     */
+    public static final boolean DEF_PARALLEL_SPLIT_SEARCH = true;
+
     private double m_learningRate = DEF_LEARNINGRATE;
 
     private double m_alphaFraction = DEF_ALPHA_FRACTION;
 
+    private boolean m_parallelSplitSearch = DEF_PARALLEL_SPLIT_SEARCH;
+
     /**
      * @param isRegression
      */
@@ -127,6 +138,23 @@ public void setAlpha(final double alphaFraction) {
         m_alphaFraction = alphaFraction;
     }
 
+    /**
+     * @return true if the split candidates of a tree node are evaluated concurrently. The resulting trees are
+     *         deterministic (given the seed) but differ from the ones learned with a sequential search.
+     * @since 3.7
+     */
+    public boolean isParallelSplitSearch() {
+        return m_parallelSplitSearch;
+    }
+
+    /**
+     * @param parallelSplitSearch whether to evaluate the split candidates of a tree node concurrently
+     * @since 3.7
+     */
+    public void setParallelSplitSearch(final boolean parallelSplitSearch) {
+        m_parallelSplitSearch = parallelSplitSearch;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -135,6 +163,7 @@ public void save(final NodeSettingsWO settings) {
         super.save(settings);
         settings.addDouble(KEY_LEARNINGRATE, m_learningRate);
         settings.addDouble(KEY_ALPHA_FRACTION, m_alphaFraction);
+        settings.addBoolean(KEY_PARALLEL_SPLIT_SEARCH, m_parallelSplitSearch);
     }
 
     /**
@@ -166,6 +195,9 @@ public void loadInDialog(final NodeSettingsRO settings, final DataTableSpec inSp
         m_learningRate = settings.getDouble(KEY_LEARNINGRATE, DEF_LEARNINGRATE);
 
         m_alphaFraction = settings.getDouble(KEY_ALPHA_FRACTION, DEF_ALPHA_FRACTION);
+
+        // added in 3.7, old workflows keep the sequential search (and hence their models)
+        m_parallelSplitSearch = settings.getBoolean(KEY_PARALLEL_SPLIT_SEARCH, false);
     }
 
     /**
@@ -176,6 +208,8 @@ public void loadInModel(final NodeSettingsRO settings) throws InvalidSettingsExc
         super.loadInModel(settings);
         m_learningRate = settings.getDouble(KEY_LEARNINGRATE);
         m_alphaFraction = settings.getDouble(KEY_ALPHA_FRACTION);
+        // added in 3.7, old workflows keep the sequential search (and hence their models)
+        m_parallelSplitSearch = settings.getBoolean(KEY_PARALLEL_SPLIT_SEARCH, false);
     }
 
 }
@@ -117,6 +117,12 @@ public class AdvancedOptionsPanel extends JPanel {
 
     private final JCheckBox m_useBinaryNominalSplitsChecker;
 
+    private final JCheckBox m_numericBinningChecker;
+
+    private final JSpinner m_numericBinCountSpinner;
+
+    private final JCheckBox m_parallelSplitSearchChecker;
+
     private final JSpinner m_alphaFractionSpinner;
 
     private final JComboBox<MissingValueHandling> m_missingValueHandlingComboBox;
@@ -219,6 +225,17 @@ public void actionPerformed(final ActionEvent e) {
 
         m_useAverageSplitPointsChecker = new JCheckBox("Use mid point splits (only for numeric attributes)");
         m_useBinaryNominalSplitsChecker = new JCheckBox("Use binary splits for nominal columns");
+        m_numericBinCountSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT, 2, TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT, 1));
+        m_numericBinningChecker = new JCheckBox("Bin numeric attributes (number of bins)");
+        m_numericBinningChecker.addItemListener(new ItemListener() {
+            @Override
+            public void itemStateChanged(final ItemEvent e) {
+                m_numericBinCountSpinner.setEnabled(m_numericBinningChecker.isSelected());
+            }
+        });
+        m_numericBinCountSpinner.setEnabled(false);
+        m_parallelSplitSearchChecker = new JCheckBox("Evaluate attributes in parallel");
         m_missingValueHandlingComboBox = new JComboBox<MissingValueHandling>(MissingValueHandling.values());
 
         initPanel();
@@ -259,6 +276,16 @@ private void initPanel() {
         add(m_useBinaryNominalSplitsChecker, gbc);
         gbc.gridwidth = 1;
 
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        add(m_numericBinningChecker, gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        add(m_numericBinCountSpinner, gbc);
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+
         gbc.gridy += 1;
         gbc.gridwidth = 2;
         add(new JLabel("Missing value handling"), gbc);
@@ -389,12 +416,24 @@ private void initPanel() {
         gbc.gridwidth = 2;
         gbc.weightx = 1.0;
         add(ViewUtils.getInFlowLayout(FlowLayout.LEFT, m_seedTextField, m_newSeedButton), gbc);
+
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 3;
+        add(m_parallelSplitSearchChecker, gbc);
     }
 
     public void loadSettings(final GradientBoostingLearnerConfiguration cfg) {
         m_alphaFractionSpinner.setValue(cfg.getAlpha());
         m_useAverageSplitPointsChecker.setSelected(cfg.isUseAverageSplitPoints());
+        m_parallelSplitSearchChecker.setSelected(cfg.isParallelSplitSearch());
         m_useBinaryNominalSplitsChecker.setSelected(cfg.isUseBinaryNominalSplits());
+        if (cfg.isUseNumericBinning() != m_numericBinningChecker.isSelected()) {
+            m_numericBinningChecker.doClick();
+        }
+        m_numericBinCountSpinner.setValue(cfg.isUseNumericBinning() ? cfg.getNumericBinCount()
+            : TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT);
         m_missingValueHandlingComboBox.setSelectedItem(cfg.getMissingValueHandling());
 
         double dataFrac = cfg.getDataFractionPerTree();
@@ -450,7 +489,10 @@ public void loadSettings(final GradientBoostingLearnerConfiguration cfg) {
     public void saveSettings(final GradientBoostingLearnerConfiguration cfg) throws InvalidSettingsException {
         cfg.setAlpha((Double)m_alphaFractionSpinner.getValue());
         cfg.setUseAverageSplitPoints(m_useAverageSplitPointsChecker.isSelected());
+        cfg.setParallelSplitSearch(m_parallelSplitSearchChecker.isSelected());
         cfg.setUseBinaryNominalSplits(m_useBinaryNominalSplitsChecker.isSelected());
+        cfg.setNumericBinCount(m_numericBinningChecker.isSelected() ? (Integer)m_numericBinCountSpinner.getValue()
+            : TreeEnsembleLearnerConfiguration.NUMERIC_BINNING_DISABLED);
         final MissingValueHandling missValHandling = (MissingValueHandling)m_missingValueHandlingComboBox.getSelectedItem();
         if (missValHandling == MissingValueHandling.Surrogate && !m_useBinaryNominalSplitsChecker.isSelected()) {
             throw new InvalidSettingsException("Surrogate missing value handling can only be used if binary nominal splits are enabled.");
@@ -115,6 +115,8 @@ public class TreeEnsembleLearnerConfiguration {
 
     private static final String KEY_USE_BINARY_NOMINAL_SPLITS = "useBinaryNominalSplits";
 
+    private static final String KEY_NUMERIC_BIN_COUNT = "numericBinCount";
+
     private static final String KEY_SPLIT_CRITERION = "splitCriterion";
 
     private static final String KEY_MISSING_VALUE_HANDLING = "missingValueHandling";
@@ -241,6 +243,21 @@ public enum ColumnSamplingMode {
     /** indicates minimum leaf size parameter is not defined. */
     public static final int MIN_CHILD_SIZE_UNDEFINED = -1;
 
+    /**
+     * indicates that numeric attributes are not binned, i.e. splits are searched on the exact sorted values.
+     *
+     * @since 3.7
+     */
+    public static final int NUMERIC_BINNING_DISABLED = 0;
+
+    /**
+     * Maximum number of bins a numeric attribute can be quantised to (the bin codes are stored as bytes, one code is
+     * reserved for missing values).
+     *
+     * @since 3.7
+     */
+    public static final int MAX_NUMERIC_BIN_COUNT = 255;
+
     static final int DEF_MAX_LEVEL = MAX_LEVEL_INFINITE;
 
     static final RowSamplingMode DEF_ROW_SAMPLING_MODE = RowSamplingMode.Random;
@@ -280,6 +297,13 @@ public enum ColumnSamplingMode {
      */
     public static final boolean DEF_BINARY_NOMINAL_SPLITS = true;
 
+    /**
+     * Default for the number of bins numeric attributes are quantised to (exact split search).
+     *
+     * @since 3.7
+     */
+    public static final int DEF_NUMERIC_BIN_COUNT = NUMERIC_BINNING_DISABLED;
+
     /**
      * Default for saving the target distribution in each node
      */
@@ -316,6 +340,8 @@ public enum ColumnSamplingMode {
 
     private boolean m_useBinaryNominalSplits = DEF_BINARY_NOMINAL_SPLITS;
 
+    private int m_numericBinCount = DEF_NUMERIC_BIN_COUNT;
+
     private SplitCriterion m_splitCriterion;
 
     private MissingValueHandling m_missingValueHandling = DEF_MISSING_VALUE_HANDLING;
@@ -689,6 +715,38 @@ public void setUseBinaryNominalSplits(final boolean useBinaryNominalSplits) {
         m_useBinaryNominalSplits = useBinaryNominalSplits;
     }
 
+    /**
+     * @return the number of bins numeric attributes are quantised to for the split search or
+     *         {@link #NUMERIC_BINNING_DISABLED} if splits are searched on the exact values
+     * @since 3.7
+     */
+    public int getNumericBinCount() {
+        return m_numericBinCount;
+    }
+
+    /**
+     * @return true if numeric attributes are quantised into bins, see {@link #getNumericBinCount()}
+     * @since 3.7
+     */
+    public boolean isUseNumericBinning() {
+        return m_numericBinCount != NUMERIC_BINNING_DISABLED;
+    }
+
+    /**
+     * @param numericBinCount the number of bins (2 to {@value #MAX_NUMERIC_BIN_COUNT}) numeric attributes are quantised
+     *            to or {@link #NUMERIC_BINNING_DISABLED}.
+     * @throws InvalidSettingsException If out of bounds
+     * @since 3.7
+     */
+    public void setNumericBinCount(final int numericBinCount) throws InvalidSettingsException {
+        if (numericBinCount != NUMERIC_BINNING_DISABLED
+            && (numericBinCount < 2 || numericBinCount > MAX_NUMERIC_BIN_COUNT)) {
+            throw new InvalidSettingsException("Invalid number of numeric bins: " + numericBinCount
+                + " (must be between 2 and " + MAX_NUMERIC_BIN_COUNT + ")");
+        }
+        m_numericBinCount = numericBinCount;
+    }
+
     /**
      * @return the name of the fingerprint column to learn from (each bit position is an binary attribute) or null if to
      *         learn from a set of columns.
@@ -815,6 +873,7 @@ public void save(final NodeSettingsWO settings) {
         settings.addString(KEY_MISSING_VALUE_HANDLING, m_missingValueHandling.name());
         settings.addBoolean(KEY_USE_AVERAGE_SPLIT_POINTS, m_useAverageSplitPoints);
         settings.addBoolean(KEY_USE_BINARY_NOMINAL_SPLITS, m_useBinaryNominalSplits);
+        settings.addInt(KEY_NUMERIC_BIN_COUNT, m_numericBinCount);
         settings.addString(KEY_FINGERPRINT_COLUMN, m_fingerprintColumn);
         //        m_columnFilterConfig = new DataColumnSpecFilterConfiguration(KEY_COLUMN_FILTER_CONFIG);
         m_columnFilterConfig.saveConfiguration(settings);
@@ -890,6 +949,8 @@ public void loadInModel(final NodeSettingsRO settings) throws InvalidSettingsExc
         }
         setUseAverageSplitPoints(settings.getBoolean(KEY_USE_AVERAGE_SPLIT_POINTS));
         setUseBinaryNominalSplits(settings.getBoolean(KEY_USE_BINARY_NOMINAL_SPLITS, false));
+        // added in 3.7
+        setNumericBinCount(settings.getInt(KEY_NUMERIC_BIN_COUNT, NUMERIC_BINNING_DISABLED));
         setFingerprintColumn(settings.getString(KEY_FINGERPRINT_COLUMN));
         m_columnFilterConfig.loadConfigurationInModel(settings);
         //        setIncludeAllColumns(settings.getBoolean(KEY_INCLUDE_ALL_COLUMNS));
@@ -1074,6 +1135,11 @@ public void loadInDialog(final NodeSettingsRO settings, final DataTableSpec inSp
         m_splitCriterion = splitCriterion;
         m_useAverageSplitPoints = settings.getBoolean(KEY_USE_AVERAGE_SPLIT_POINTS, DEF_AVERAGE_SPLIT_POINTS);
         m_useBinaryNominalSplits = settings.getBoolean(KEY_USE_BINARY_NOMINAL_SPLITS, DEF_BINARY_NOMINAL_SPLITS);
+        try {
+            setNumericBinCount(settings.getInt(KEY_NUMERIC_BIN_COUNT, DEF_NUMERIC_BIN_COUNT));
+        } catch (InvalidSettingsException e) {
+            m_numericBinCount = DEF_NUMERIC_BIN_COUNT;
+        }
 
         String missingValueHandlingS =
             settings.getString(KEY_MISSING_VALUE_HANDLING, DEF_MISSING_VALUE_HANDLING.name());
@@ -89,6 +89,10 @@ public final class TreeOptionsPanel extends JPanel {
 
     private final JCheckBox m_useBinaryNominalSplitsChecker;
 
+    private final JCheckBox m_numericBinningChecker;
+
+    private final JSpinner m_numericBinCountSpinner;
+
     private final JCheckBox m_maxLevelChecker;
 
     private final JSpinner m_maxLevelSpinner;
@@ -123,6 +127,16 @@ public void stateChanged(final ChangeEvent e) {
         m_splitCriterionsBox = new JComboBox(SplitCriterion.values());
         m_useAverageSplitPointsChecker = new JCheckBox("Use mid point splits (only for numeric attributes)");
         m_useBinaryNominalSplitsChecker = new JCheckBox("Use binary splits for nominal columns.");
+        m_numericBinCountSpinner = new JSpinner(new SpinnerNumberModel(
+            TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT, 2, TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT, 1));
+        m_numericBinningChecker = new JCheckBox("Bin numeric attributes (number of bins)");
+        m_numericBinningChecker.addItemListener(new ItemListener() {
+            @Override
+            public void itemStateChanged(final ItemEvent e) {
+                m_numericBinCountSpinner.setEnabled(m_numericBinningChecker.isSelected());
+            }
+        });
+        m_numericBinCountSpinner.setEnabled(false);
         m_maxLevelSpinner = new JSpinner(new SpinnerNumberModel(3, 1, Integer.MAX_VALUE, 1));
         m_maxLevelChecker = new JCheckBox("Limit number of levels (tree depth)");
         m_maxLevelChecker.addItemListener(new ItemListener() {
@@ -199,6 +213,14 @@ private void initPanel() {
         add(m_useBinaryNominalSplitsChecker, gbc);
         gbc.gridwidth = 1;
 
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        gbc.weightx = 0.0;
+        add(m_numericBinningChecker, gbc);
+        gbc.gridx += 1;
+        gbc.weightx = 1.0;
+        add(m_numericBinCountSpinner, gbc);
+
         gbc.gridy += 1;
         gbc.gridx = 0;
         gbc.weightx = 0.0;
@@ -261,6 +283,11 @@ public void loadSettingsFrom(final DataTableSpec inSpec, final TreeEnsembleLearn
         m_splitCriterionsBox.setSelectedItem(cfg.getSplitCriterion());
         m_useAverageSplitPointsChecker.setSelected(cfg.isUseAverageSplitPoints());
         m_useBinaryNominalSplitsChecker.setSelected(cfg.isUseBinaryNominalSplits());
+        if (cfg.isUseNumericBinning() != m_numericBinningChecker.isSelected()) {
+            m_numericBinningChecker.doClick();
+        }
+        m_numericBinCountSpinner.setValue(cfg.isUseNumericBinning() ? cfg.getNumericBinCount()
+            : TreeEnsembleLearnerConfiguration.MAX_NUMERIC_BIN_COUNT);
         int maxLevel = cfg.getMaxLevels();
         if ((maxLevel != TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE) != m_maxLevelChecker.isSelected()) {
             m_maxLevelChecker.doClick();
@@ -336,6 +363,8 @@ public void saveSettings(final TreeEnsembleLearnerConfiguration cfg) throws Inva
         cfg.setSplitCriterion((SplitCriterion)m_splitCriterionsBox.getSelectedItem());
         cfg.setUseAverageSplitPoints(m_useAverageSplitPointsChecker.isSelected());
         cfg.setUseBinaryNominalSplits(m_useBinaryNominalSplitsChecker.isSelected());
+        cfg.setNumericBinCount(m_numericBinningChecker.isSelected() ? (Integer)m_numericBinCountSpinner.getValue()
+            : TreeEnsembleLearnerConfiguration.NUMERIC_BINNING_DISABLED);
         int maxLevel =
             m_maxLevelChecker.isSelected() ? (Integer)m_maxLevelSpinner.getValue()
                 : TreeEnsembleLearnerConfiguration.MAX_LEVEL_INFINITE;
@@ -9,6 +9,7 @@
 import org.knime.base.data.filter.column.FilterColumnRow;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
@@ -33,6 +34,9 @@
 
     private final int[] m_filterIndices;
 
+    /** Flat representation of m_model used for scoring, null if the model can't be compiled. */
+    private final CompiledTreeEnsembleModel m_compiledModel;
+
     /**
      * @param model
      * @param modelSpec
@@ -44,6 +48,7 @@ public AbstractRandomForestPredictor(final TreeEnsembleModel model, final TreeEn
         m_model = model;
         m_filterIndices = modelSpec.calculateFilterIndices(predictSpec);
         m_learnSpec = modelSpec.getLearnTableSpec();
+        m_compiledModel = model == null ? null : CompiledTreeEnsembleModel.compile(model, m_learnSpec).orElse(null);
     }
 
     /**
@@ -67,9 +72,31 @@ public AbstractRandomForestPredictor(final TreeEnsembleModel model, final TreeEn
     @Override
     public P predict(final DataRow row) {
         FilterColumnRow filterRow = new FilterColumnRow(row, m_filterIndices);
+        if (m_compiledModel != null) {
+            return predictFeatures(m_compiledModel.createFeatureVector(filterRow), row.getKey());
+        }
         return predictRecord(m_model.createPredictorRecord(filterRow, m_learnSpec), row.getKey());
     }
 
+    /**
+     * @return the compiled model used by {@link #predictFeatures(double[], RowKey)}, null if the model could not be
+     *         compiled (in which case {@link #predictRecord(PredictorRecord, RowKey)} is used)
+     * @since 3.7
+     */
+    protected final CompiledTreeEnsembleModel getCompiledModel() {
+        return m_compiledModel;
+    }
+
+    /**
+     * Predicts a row on the {@link #getCompiledModel() compiled model}.
+     *
+     * @param features the feature vector of the row, see {@link CompiledTreeEnsembleModel#createFeatureVector(DataRow)}
+     * @param key the row key to access out of bag information
+     * @return the prediction
+     * @since 3.7
+     */
+    protected abstract P predictFeatures(double[] features, RowKey key);
+
     /**
      * @param record the record to predict
      * @param key the row key to access out of bag information
@@ -105,13 +132,32 @@ protected final boolean hasOutOfBagFilter() {
      *         for this model
      */
     protected final boolean isRowPartOfTrainingData(final RowKey key, final int modelIndex) {
+        return isRowPartOfTrainingData(getLearnIndex(key), modelIndex);
+    }
+
+    /**
+     * @param key
+     * @return the index of the row with rowkey <b>key</b> in the training data or -1 if it was not part of it
+     * @since 3.7
+     */
+    protected final int getLearnIndex(final RowKey key) {
         assert m_modelLearnRowSamples != null : "no out of bag filter set";
         Integer indexInteger = m_rowKeyToLearnIndex.get(key);
-        if (indexInteger == null) {
-            return false;
-        }
-        int index = indexInteger;
-        return m_modelLearnRowSamples[modelIndex].getCountFor(index) > 0;
+        return indexInteger == null ? -1 : indexInteger;
+    }
+
+    /**
+     * Variant of {@link #isRowPartOfTrainingData(RowKey, int)} that avoids the row key lookup for each model.
+     *
+     * @param learnIndex the index as returned by {@link #getLearnIndex(RowKey)}
+     * @param modelIndex
+     * @return true if the row with index <b>learnIndex</b> in model with index <b>modelIndex</b> is part of the
+     *         training data for this model
+     * @since 3.7
+     */
+    protected final boolean isRowPartOfTrainingData(final int learnIndex, final int modelIndex) {
+        assert m_modelLearnRowSamples != null : "no out of bag filter set";
+        return learnIndex >= 0 && m_modelLearnRowSamples[modelIndex].getCountFor(learnIndex) > 0;
     }
 
 }
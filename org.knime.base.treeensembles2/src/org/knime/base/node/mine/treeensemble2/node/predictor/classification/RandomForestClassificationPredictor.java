@@ -5,6 +5,7 @@
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.model.TreeModelClassification;
@@ -63,6 +64,14 @@ protected RandomForestClassificationPrediction predictRecord(final PredictorReco
         return new RFClassificationPrediction(record, key, hasOutOfBagFilter());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RandomForestClassificationPrediction predictFeatures(final double[] features, final RowKey key) {
+        return new RFClassificationPrediction(getCompiledModel(), features, key, hasOutOfBagFilter());
+    }
+
     private class RFClassificationPrediction implements RandomForestClassificationPrediction {
 
         private final Voting m_voting;
@@ -81,6 +90,22 @@ private class RFClassificationPrediction implements RandomForestClassificationPr
             }
         }
 
+        RFClassificationPrediction(final CompiledTreeEnsembleModel compiledModel, final double[] features,
+            final RowKey key, final boolean hasOutOfBagFilter) {
+            m_voting = m_votingFactory.createVoting();
+            final int learnIndex = hasOutOfBagFilter ? getLearnIndex(key) : -1;
+            final int nrModels = compiledModel.getNrModels();
+            for (int i = 0; i < nrModels; i++) {
+                if (hasOutOfBagFilter && isRowPartOfTrainingData(learnIndex, i)) {
+                    // ignore, row was used to train the model
+                } else {
+                    TreeNodeClassification match =
+                        (TreeNodeClassification)compiledModel.getNode(compiledModel.findLeaf(i, features));
+                    m_voting.addVote(match);
+                }
+            }
+        }
+
         /* (non-Javadoc)
          * @see org.knime.base.node.mine.treeensemble2.node.predictor.ClassificationPrediction#getClassPrediction()
          */
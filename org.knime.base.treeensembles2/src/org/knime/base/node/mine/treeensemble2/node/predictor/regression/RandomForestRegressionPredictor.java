@@ -7,6 +7,7 @@
 import org.apache.commons.math.stat.descriptive.moment.Variance;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
@@ -58,6 +59,14 @@ protected RandomForestRegressionPrediction predictRecord(final PredictorRecord r
         return new RFRegressionPrediction(record, key, hasOutOfBagFilter());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RandomForestRegressionPrediction predictFeatures(final double[] features, final RowKey key) {
+        return new RFRegressionPrediction(getCompiledModel(), features, key, hasOutOfBagFilter());
+    }
+
     private class RFRegressionPrediction implements RandomForestRegressionPrediction {
 
         private final double m_mean;
@@ -89,6 +98,26 @@ private class RFRegressionPrediction implements RandomForestRegressionPrediction
             m_mean = mean.getResult();
         }
 
+        RFRegressionPrediction(final CompiledTreeEnsembleModel compiledModel, final double[] features,
+            final RowKey key, final boolean hasOutOfBagFilter) {
+            Mean mean = new Mean();
+            Variance variance = new Variance();
+            final int learnIndex = hasOutOfBagFilter ? getLearnIndex(key) : -1;
+            final int nrModels = compiledModel.getNrModels();
+            for (int i = 0; i < nrModels; i++) {
+                if (hasOutOfBagFilter && isRowPartOfTrainingData(learnIndex, i)) {
+                    // ignore, row was used to train the model
+                } else {
+                    double nodeMean = compiledModel.getMean(compiledModel.findLeaf(i, features));
+                    mean.increment(nodeMean);
+                    variance.increment(nodeMean);
+                }
+            }
+            m_modelCount = (int)mean.getN();
+            m_variance = variance.getResult();
+            m_mean = mean.getResult();
+        }
+
         /* (non-Javadoc)
          * @see org.knime.base.node.mine.treeensemble2.node.predictor.RegressionPrediction#getPrediction()
          */
@@ -449,6 +449,72 @@ public final void reset() {
      */
     protected abstract void resetInternal();
 
+    /**
+     * Returns <code>true</code> if the partial state of another instance of this operator can be merged into this
+     * operator using {@link #merge(AggregationOperator)}. This allows the rows of a group to be split into several
+     * ranges that are aggregated independently, e.g. in parallel. The default implementation returns
+     * <code>false</code>, operators that support merging have to override this method and
+     * {@link #mergeInternal(AggregationOperator)}. Since subclasses of a merging operator might compute a different
+     * state, such operators usually only return <code>true</code> for their own class, so that subclasses have to
+     * enable merging explicitly.
+     *
+     * @return <code>true</code> if this operator supports the merging of partial states
+     * @see #merge(AggregationOperator)
+     * @since 3.7
+     */
+    public boolean supportsMerge() {
+        return false;
+    }
+
+    /**
+     * Merges the partial state of the given operator into this operator. The given operator has to be of the same
+     * class and created with the same settings as this operator. It must have computed the rows that follow the rows
+     * computed by this operator since the order matters for some operators e.g. first and last.
+     *
+     * @param other the operator whose partial state should be merged into this operator
+     * @throws UnsupportedOperationException if this operator does not support merging
+     * @throws IllegalArgumentException if the given operator is not of the same class as this operator
+     * @see #supportsMerge()
+     * @since 3.7
+     */
+    public final void merge(final AggregationOperator other) {
+        if (other == null) {
+            throw new NullPointerException("operator must not be null");
+        }
+        if (!supportsMerge()) {
+            throw new UnsupportedOperationException(
+                "Operator '" + getOperatorData().getLabel() + "' does not support merging");
+        }
+        if (other.getClass() != getClass()) {
+            throw new IllegalArgumentException("Operator of class " + other.getClass().getName()
+                + " can not be merged into " + getClass().getName());
+        }
+        if (m_skipped) {
+            return;
+        }
+        if (other.m_skipped) {
+            m_skipped = true;
+            m_skipMsg = other.m_skipMsg;
+            return;
+        }
+        m_missingValuesCount += other.m_missingValuesCount;
+        m_skipped = mergeInternal(other);
+    }
+
+    /**
+     * Merges the operator specific partial state of the given operator into this operator. This method is only called
+     * if {@link #supportsMerge()} returns <code>true</code> and neither of the two operators is skipped.
+     *
+     * @param other the operator to merge, which is of the same class as this operator and has computed the rows
+     * that follow the rows computed by this operator
+     * @return <code>true</code> if this column should be skipped in further calculations
+     * @since 3.7
+     */
+    protected boolean mergeInternal(final AggregationOperator other) {
+        throw new UnsupportedOperationException(
+            "Operator '" + getOperatorData().getLabel() + "' does not support merging");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -122,6 +122,25 @@ protected DataCell getResultInternal() {
         return new IntCell(m_counter);
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == CountOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        m_counter += ((CountOperator)other).m_counter;
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -123,6 +123,27 @@ protected DataCell getResultInternal() {
         return m_firstCell;
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == FirstOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        if (m_firstCell == null) {
+            m_firstCell = ((FirstOperator)other).m_firstCell;
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -122,6 +122,28 @@ protected DataCell getResultInternal() {
         return m_lastCell;
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == LastOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        final DataCell otherLast = ((LastOperator)other).m_lastCell;
+        if (otherLast != null) {
+            m_lastCell = otherLast;
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -139,6 +139,29 @@ protected DataCell getResultInternal() {
         return m_maxVal;
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == MaxOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        final DataCell otherMax = ((MaxOperator)other).m_maxVal;
+        //keep the own value if both are equal as done in computeInternal
+        if (otherMax != null && (m_maxVal == null || m_comparator.compare(otherMax, m_maxVal) > 0)) {
+            m_maxVal = otherMax;
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -138,6 +138,29 @@ protected DataCell getResultInternal() {
         return m_minVal;
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == MinOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        final DataCell otherMin = ((MinOperator)other).m_minVal;
+        //keep the own value if both are equal as done in computeInternal
+        if (otherMin != null && (m_minVal == null || m_comparator.compare(otherMin, m_minVal) < 0)) {
+            m_minVal = otherMin;
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
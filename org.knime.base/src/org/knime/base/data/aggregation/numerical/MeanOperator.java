@@ -127,6 +127,31 @@ protected DataCell getResultInternal() {
         return new DoubleCell(m_mean);
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == MeanOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        final MeanOperator meanOperator = (MeanOperator)other;
+        if (meanOperator.m_count == 0) {
+            return false;
+        }
+        final double count = (double)m_count + meanOperator.m_count;
+        m_mean = m_mean * (m_count / count) + meanOperator.m_mean * (meanOperator.m_count / count);
+        m_count += meanOperator.m_count;
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -128,6 +128,27 @@ protected DataCell getResultInternal() {
         return new DoubleCell(m_product);
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == ProductOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        final ProductOperator productOperator = (ProductOperator)other;
+        m_valid |= productOperator.m_valid;
+        m_product *= productOperator.m_product;
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -167,6 +167,27 @@ protected DataCell getResultInternal() {
         return new DoubleCell(m_sum);
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public boolean supportsMerge() {
+        return getClass() == SumOperator.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    protected boolean mergeInternal(final AggregationOperator other) {
+        final SumOperator sumOperator = (SumOperator)other;
+        m_valid |= sumOperator.m_valid;
+        m_sum += sumOperator.m_sum;
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -78,6 +78,7 @@ public final class CSVReaderConfig {
     private int m_skipFirstLinesCount;
     private String m_charSet;
     private Duration m_connectTimeout;
+    private boolean m_widenColumnTypes;
 
 
     /**
@@ -96,6 +97,7 @@ public CSVReaderConfig() {
         m_limitAnalysisCount = -1;
         m_skipFirstLinesCount = -1;
         m_charSet = null; // uses default encoding
+        m_widenColumnTypes = false;
     }
 
     /** Load settings, used in dialog (no errors).
@@ -119,6 +121,7 @@ public void loadSettingsInDialog(final NodeSettingsRO settings) {
             m_connectTimeout = null; // use default value
         }
         m_limitAnalysisCount = settings.getInt("limitAnalysisCount", m_limitAnalysisCount);
+        m_widenColumnTypes = settings.getBoolean("widenColumnTypes", m_widenColumnTypes);
     }
 
     /** Load in model, fail if settings are invalid.
@@ -148,6 +151,8 @@ public void loadSettingsInModel(final NodeSettingsRO settings)
             m_connectTimeout = null; // use default value
         }
         m_limitAnalysisCount = settings.getInt("limitAnalysisCount", m_limitAnalysisCount);
+        // added in 3.7
+        m_widenColumnTypes = settings.getBoolean("widenColumnTypes", false);
     }
 
     /** Save configuration to argument.
@@ -171,6 +176,7 @@ public void saveSettingsTo(final NodeSettingsWO settings) {
             settings.addInt("connectTimeoutInSeconds", (int) (m_connectTimeout.toMillis() / 1000));
         }
         settings.addInt("limitAnalysisCount", m_limitAnalysisCount);
+        settings.addBoolean("widenColumnTypes", m_widenColumnTypes);
     }
 
     /** @return the location */
@@ -304,4 +310,17 @@ public int getLimitAnalysisCount() {
     void setLimitAnalysisCount(final int value) {
         m_limitAnalysisCount = value;
     }
+
+    /**
+     * @return true if the column types are guessed from the first lines only and widened while reading the file
+     * @since 3.7
+     */
+    public boolean isWidenColumnTypes() {
+        return m_widenColumnTypes;
+    }
+
+    /** @param value true if column types are widened while reading the file */
+    void setWidenColumnTypes(final boolean value) {
+        m_widenColumnTypes = value;
+    }
 }
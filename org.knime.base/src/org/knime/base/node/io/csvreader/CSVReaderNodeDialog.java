@@ -104,6 +104,7 @@ public final class CSVReaderNodeDialog extends NodeDialogPane {
     private final JSpinner m_skipFirstLinesSpinner;
     private final JCheckBox m_limitAnalysisChecker;
     private final JSpinner m_limitAnalysisSpinner;
+    private final JCheckBox m_widenColumnTypesChecker;
     private final CharsetNamePanel m_encodingPanel;
 
 
@@ -150,6 +151,9 @@ public void itemStateChanged(final ItemEvent e) {
             }
         });
         m_limitAnalysisChecker.doClick();
+        m_widenColumnTypesChecker = new JCheckBox("Widen column types while reading");
+        m_widenColumnTypesChecker.setToolTipText("Guesses the column types from the first lines only and widens "
+            + "them if later values don't fit");
 
         addTab("Settings", initLayout());
 
@@ -184,6 +188,9 @@ private JPanel getLimitRowsPanel() {
         optionsPanel.add(getInFlowLayout(m_limitAnalysisChecker), gbc);
         gbc.gridx += 1;
         optionsPanel.add(getInFlowLayout(m_limitAnalysisSpinner), gbc);
+        gbc.gridy += 1;
+        gbc.gridx = 0;
+        optionsPanel.add(getInFlowLayout(m_widenColumnTypesChecker), gbc);
 
         //empty panel to eat up extra space
         gbc.gridy += 1;
@@ -303,6 +310,7 @@ protected void loadSettingsFrom(final NodeSettingsRO settings,
             m_limitAnalysisChecker.setSelected(false);
             m_limitAnalysisSpinner.setValue(50);
         }
+        m_widenColumnTypesChecker.setSelected(config.isWidenColumnTypes());
         m_encodingPanel.loadSettings(getEncodingSettings(config));
     }
 
@@ -332,6 +340,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings)
         config.setLimitRowsCount(limitRows);
         int limitAnalysis = (Integer)(m_limitAnalysisChecker.isSelected() ? m_limitAnalysisSpinner.getValue() : -1);
         config.setLimitAnalysisCount(limitAnalysis);
+        config.setWidenColumnTypes(m_widenColumnTypesChecker.isSelected());
         FileReaderNodeSettings s = new FileReaderNodeSettings();
         m_encodingPanel.overrideSettings(s);
         config.setCharSetName(s.getCharsetName());
@@ -55,6 +55,8 @@
 import org.knime.base.node.io.filereader.FileReaderExecutionMonitor;
 import org.knime.base.node.io.filereader.FileReaderNodeSettings;
 import org.knime.base.node.io.filereader.FileTable;
+import org.knime.base.node.io.filereader.ParallelFileTableReader;
+import org.knime.base.node.io.filereader.TypeWideningFileTableReader;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -82,6 +84,9 @@
 // extended in wide data plug-in
 public class CSVReaderNodeModel extends NodeModel {
 
+    /** The number of lines analyzed to guess the column types if they are widened while reading. */
+    private static final int WIDENING_ANALYSIS_LINES = 1000;
+
     private CSVReaderConfig m_config;
 
     /** No input, one output. */
@@ -127,6 +132,15 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
 
         FileTable fTable = createFileTable(exec);
         try {
+            if (m_config.isWidenColumnTypes()) {
+                // the types were guessed from the first lines, widen them while reading
+                return new BufferedDataTable[] {new TypeWideningFileTableReader(fTable).read(exec)};
+            }
+            // large local files are split into ranges that are read in parallel
+            ParallelFileTableReader parallelReader = new ParallelFileTableReader(fTable);
+            if (parallelReader.isApplicable()) {
+                return new BufferedDataTable[] {parallelReader.read(exec)};
+            }
             BufferedDataTable table = exec.createBufferedDataTable(fTable, exec.createSubExecutionContext(0.0));
             return new BufferedDataTable[] {table};
         } finally {
@@ -189,7 +203,11 @@ protected FileTable createFileTable(final ExecutionContext exec) throws Exceptio
 
         settings.setConnectTimeout(m_config.getConnectTimeout());
 
-        final int limitAnalysisCount = m_config.getLimitAnalysisCount();
+        int limitAnalysisCount = m_config.getLimitAnalysisCount();
+        if (limitAnalysisCount < 0 && m_config.isWidenColumnTypes()) {
+            // the column types are widened while reading, a sample is enough
+            limitAnalysisCount = WIDENING_ANALYSIS_LINES;
+        }
         final ExecutionMonitor analyseExec = exec.createSubProgress(0.5);
         final ExecutionContext readExec = exec.createSubExecutionContext(0.5);
         exec.setMessage("Analyzing file");
@@ -71,6 +71,7 @@
 import org.knime.core.node.port.database.DatabaseConnectionPortObjectSpec;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.reader.DBReadPartitioning;
 import org.knime.core.node.port.database.reader.DBReader;
 import org.knime.core.node.streamable.StreamableOperatorInternals;
 import org.knime.core.node.workflow.CredentialsProvider;
@@ -85,6 +86,9 @@ class DBReaderNodeModel extends NodeModel implements FlowVariableProvider {
 
     private DataTableSpec m_lastSpec = null;
 
+    /** The partitioning of the query or <code>null</code> if it is read with a single connection. */
+    private DBReadPartitioning m_partitioning = null;
+
     /* Flag that is true if the node is just about to be executed in streaming mode.
      * It is set true in the computeFinalOutputSpecs-method to guarantee that the
      * configure-method returns a non-null data table spec
@@ -144,6 +148,10 @@ protected PortObject[] execute(final PortObject[] inData,
     protected BufferedDataTable getResultTable(final ExecutionContext exec, final PortObject[] inData, final DBReader load)
         throws CanceledExecutionException, SQLException, InvalidSettingsException {
         CredentialsProvider cp = getCredentialsProvider();
+        if (m_partitioning != null) {
+            // partitions are numbered consecutively, the database row ids restart in every partition
+            return load.createTable(exec, cp, false, m_partitioning);
+        }
         final BufferedDataTable result = load.createTable(exec, cp);
         return result;
     }
@@ -377,6 +385,7 @@ protected void validateSettings(final NodeSettingsRO settings)
 
         DatabaseQueryConnectionSettings s = new DatabaseQueryConnectionSettings();
         s.validateConnection(settings, getCredentialsProvider());
+        DBReadPartitioning.load(settings);
     }
 
     /**
@@ -386,6 +395,7 @@ protected void validateSettings(final NodeSettingsRO settings)
     protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
         boolean settingsChanged = m_settings.loadValidatedConnection(settings, getCredentialsProvider());
+        m_partitioning = DBReadPartitioning.load(settings);
 
         if (settingsChanged || (m_settings.getQuery() == null) || m_settings.getQuery().isEmpty()) {
             setLastSpec(null);
@@ -398,6 +408,7 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
     @Override
     protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_settings.saveConnection(settings);
+        DBReadPartitioning.save(m_partitioning, settings);
     }
 
     /**
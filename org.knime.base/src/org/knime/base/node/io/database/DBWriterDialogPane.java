@@ -57,7 +57,9 @@
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -93,6 +95,8 @@ final class DBWriterDialogPane extends NodeDialogPane {
 
     private final JTextField m_batchSize;
 
+    private final JSpinner m_nrConnections = new JSpinner(new SpinnerNumberModel(1, 1, 64, 1));
+
     /**
      * Creates new dialog.
      */
@@ -151,6 +155,9 @@ public void stateChanged(final ChangeEvent e) {
         m_batchSize = new JTextField();
         m_batchSize.setPreferredSize(new Dimension(100, 20));
         batchSizePanel.add(m_batchSize);
+        batchSizePanel.add(new JLabel("Parallel Connections: "));
+        m_nrConnections.setToolTipText("Number of connections that write batches in parallel");
+        batchSizePanel.add(m_nrConnections);
         super.addTab("Advanced", batchSizePanel);
     }
 
@@ -186,6 +193,8 @@ protected void loadSettingsFrom(final NodeSettingsRO settings,
         final int batchSize = settings.getInt(DBWriterNodeModel.KEY_BATCH_SIZE,
                                               DatabaseConnectionSettings.BATCH_WRITE_SIZE);
         m_batchSize.setText(Integer.toString(batchSize));
+        // added in 3.7
+        m_nrConnections.setValue(settings.getInt(DBWriterNodeModel.KEY_NR_CONNECTIONS, 1));
 
         if ((specs.length > 1) && (specs[1] instanceof DatabaseConnectionPortObjectSpec)) {
             m_loginPane.setVisible(false);
@@ -224,5 +233,6 @@ protected void saveSettingsTo(final NodeSettingsWO settings)
             throw new InvalidSettingsException("Can't parse batch size \"" + strBatchSite
                                                + "\", reason: " + nfe.getMessage(), nfe);
         }
+        settings.addInt(DBWriterNodeModel.KEY_NR_CONNECTIONS, (Integer)m_nrConnections.getValue());
     }
 }
@@ -103,6 +103,10 @@ final class DBWriterNodeModel extends NodeModel {
     static final String KEY_BATCH_SIZE = "batch_size";
     private int m_batchSize = DatabaseConnectionSettings.BATCH_WRITE_SIZE;
 
+    /** Config key for the number of connections that write in parallel. */
+    static final String KEY_NR_CONNECTIONS = "parallel_connections";
+    private int m_nrConnections = 1;
+
     /** Config key for the append data. */
     static final String KEY_APPEND_DATA = "append_data";
     private boolean m_append = true;
@@ -166,6 +170,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         }
         // save batch size
         settings.addInt(KEY_BATCH_SIZE, m_batchSize);
+        settings.addInt(KEY_NR_CONNECTIONS, m_nrConnections);
     }
 
     /**
@@ -202,6 +207,11 @@ private void loadSettings(
         if (batchSize <= 0) {
             throw new InvalidSettingsException("Batch size must be greater than 0, is " + batchSize);
         }
+        // added in 3.7
+        final int nrConnections = settings.getInt(KEY_NR_CONNECTIONS, 1);
+        if (nrConnections <= 0) {
+            throw new InvalidSettingsException("Number of connections must be greater than 0, is " + nrConnections);
+        }
         // write settings or skip it
         if (write) {
             m_tableName = table;
@@ -219,6 +229,7 @@ private void loadSettings(
             }
             // load batch size
             m_batchSize = batchSize;
+            m_nrConnections = nrConnections;
         }
         //introduced in KNIME 2.11 default behavior before was inserting null
         m_insertNullForMissingCols = settings.getBoolean(KEY_INSERT_NULL_FOR_MISSING_COLS, true);
@@ -248,7 +259,8 @@ protected PortObject[] execute(final PortObject[] inData,
         DataTableRowInput rowInput = new DataTableRowInput(inputTable);
         // write entire data
         final String error = writer.writeData(m_tableName, rowInput, inputTable.size(),
-            m_append, exec, m_types, getCredentialsProvider(), m_batchSize, m_insertNullForMissingCols, m_failOnError);
+            m_append, exec, m_types, getCredentialsProvider(), m_batchSize, m_insertNullForMissingCols, m_failOnError,
+            m_nrConnections);
         // set error message generated during writing rows
         if (error != null) {
             super.setWarningMessage(error);
@@ -291,7 +303,8 @@ public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final
                 // write entire data
                 m_errorMessage =
                     writer.writeData(m_tableName, (RowInput) inputs[0], -1,
-                        m_append, exec, m_types, getCredentialsProvider(), m_batchSize, m_insertNullForMissingCols);
+                        m_append, exec, m_types, getCredentialsProvider(), m_batchSize, m_insertNullForMissingCols,
+                        m_failOnError, m_nrConnections);
             }
 
         };
@@ -47,6 +47,7 @@
  */
 package org.knime.base.node.io.database.connection.util;
 
+import java.awt.FlowLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
@@ -54,7 +55,10 @@
 
 import javax.swing.BorderFactory;
 import javax.swing.JCheckBox;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.knime.core.node.InvalidSettingsException;
@@ -95,6 +99,35 @@
      */
     protected final JCheckBox m_retrieveMetadataInConfigure = new JCheckBox("Retrieve metadata in configure");
 
+    /**
+     * Spinner for the number of pooled connections that are kept open even if they are idle.
+     * @since 3.7
+     */
+    protected final JSpinner m_poolMinSize = new JSpinner(new SpinnerNumberModel(1, 0, 64, 1));
+
+    /**
+     * Spinner for the maximum number of connections that are used in parallel.
+     * @since 3.7
+     */
+    protected final JSpinner m_poolMaxSize = new JSpinner(new SpinnerNumberModel(1, 1, 64, 1));
+
+    /**
+     * Spinner for the time in seconds after which idle pooled connections are closed.
+     * @since 3.7
+     */
+    protected final JSpinner m_poolIdleTimeout = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 60));
+
+    /**
+     * Spinner for the time in seconds to wait for a free pooled connection.
+     * @since 3.7
+     */
+    protected final JSpinner m_poolWaitTimeout = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 10));
+
+    /**
+     * Checkbox for whether idle pooled connections are validated before they are used.
+     * @since 3.7
+     */
+    protected final JCheckBox m_poolValidateOnBorrow = new JCheckBox("Validate pooled connections before use");
 
     /**
      * Gridbag constraints object used for layouting the panel.
@@ -126,10 +159,42 @@ public DBMiscPanel(final T settings, final boolean showAllowSpaces) {
         add(m_validateConnection, m_c);
         m_c.gridy++;
         add(m_retrieveMetadataInConfigure, m_c);
+        m_c.gridy++;
+        add(createPoolPanel(), m_c);
 
         setBorder(BorderFactory.createTitledBorder("Misc"));
     }
 
+    private JPanel createPoolPanel() {
+        final JPanel sizePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        m_poolMinSize.setToolTipText("Number of connections that are kept open even if they are idle");
+        m_poolMaxSize.setToolTipText("Maximum number of connections that are used in parallel");
+        sizePanel.add(new JLabel("Connection pool size min: "));
+        sizePanel.add(m_poolMinSize);
+        sizePanel.add(new JLabel(" max: "));
+        sizePanel.add(m_poolMaxSize);
+        final JPanel timeoutPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        m_poolIdleTimeout.setToolTipText("Idle connections are closed after this time, 0 keeps them open");
+        m_poolWaitTimeout.setToolTipText("Maximum time to wait for a free connection, 0 waits indefinitely");
+        timeoutPanel.add(new JLabel("Idle timeout (s): "));
+        timeoutPanel.add(m_poolIdleTimeout);
+        timeoutPanel.add(new JLabel(" Wait timeout (s): "));
+        timeoutPanel.add(m_poolWaitTimeout);
+        final JPanel poolPanel = new JPanel(new GridBagLayout());
+        final GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = 0;
+        c.anchor = GridBagConstraints.WEST;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.weightx = 1;
+        poolPanel.add(sizePanel, c);
+        c.gridy++;
+        poolPanel.add(timeoutPanel, c);
+        c.gridy++;
+        poolPanel.add(m_poolValidateOnBorrow, c);
+        return poolPanel;
+    }
+
     /**
      * Loads the settings into the dialog components.
      *
@@ -140,6 +205,11 @@ public void loadSettings(final PortObjectSpec[] specs) throws NotConfigurableExc
         m_allowSpacesInColumnNames.setSelected(m_settings.getAllowSpacesInColumnNames());
         m_validateConnection.setSelected(m_settings.getValidateConnection());
         m_retrieveMetadataInConfigure.setSelected(m_settings.getRetrieveMetadataInConfigure());
+        m_poolMinSize.setValue(m_settings.getPoolMinSize());
+        m_poolMaxSize.setValue(m_settings.getPoolMaxSize());
+        m_poolIdleTimeout.setValue(m_settings.getPoolIdleTimeout());
+        m_poolWaitTimeout.setValue(m_settings.getPoolWaitTimeout());
+        m_poolValidateOnBorrow.setSelected(m_settings.getPoolValidateOnBorrow());
     }
 
     /**
@@ -152,6 +222,17 @@ public void saveSettings(final CredentialsProvider credentialProvider) throws In
         m_settings.setAllowSpacesInColumnNames(m_allowSpacesInColumnNames.isSelected());
         m_settings.setValidateConnection(m_validateConnection.isSelected());
         m_settings.setRetrieveMetadataInConfigure(m_retrieveMetadataInConfigure.isSelected());
+        final int poolMinSize = (Integer)m_poolMinSize.getValue();
+        final int poolMaxSize = (Integer)m_poolMaxSize.getValue();
+        if (poolMinSize > poolMaxSize) {
+            throw new InvalidSettingsException("Minimum connection pool size (" + poolMinSize
+                + ") must not be greater than the maximum pool size (" + poolMaxSize + ")");
+        }
+        m_settings.setPoolMinSize(poolMinSize);
+        m_settings.setPoolMaxSize(poolMaxSize);
+        m_settings.setPoolIdleTimeout((Integer)m_poolIdleTimeout.getValue());
+        m_settings.setPoolWaitTimeout((Integer)m_poolWaitTimeout.getValue());
+        m_settings.setPoolValidateOnBorrow(m_poolValidateOnBorrow.isSelected());
 
         if (m_settings.getValidateConnection()) {
             try {
@@ -47,6 +47,7 @@
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
@@ -55,16 +56,22 @@
 import java.util.Map;
 
 import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JEditorPane;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
 import javax.swing.JSplitPane;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingWorker;
 import javax.swing.text.JTextComponent;
 
@@ -80,6 +87,7 @@
 import org.knime.core.node.port.database.DatabaseConnectionPortObjectSpec;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.reader.DBReadPartitioning;
 import org.knime.core.node.port.database.reader.DBReader;
 import org.knime.core.node.util.FlowVariableListCellRenderer;
 import org.knime.core.node.workflow.FlowVariable;
@@ -105,6 +113,19 @@ public class DBReaderDialogPane extends NodeDialogPane {
     private final JCheckBox m_configureBox = new JCheckBox(
             "Run SQL query only during execute, skips configure");
 
+    private static final String PARTITION_NONE = "None";
+
+    private static final String PARTITION_BY_COLUMN = "Value ranges of column";
+
+    private static final String PARTITION_BY_ROW_COUNT = "Row windows";
+
+    private final JComboBox<String> m_partitionMode =
+        new JComboBox<>(new String[]{PARTITION_NONE, PARTITION_BY_COLUMN, PARTITION_BY_ROW_COUNT});
+
+    private final JTextField m_partitionColumn = new JTextField(12);
+
+    private final JSpinner m_nrPartitions = new JSpinner(new SpinnerNumberModel(4, 2, 64, 1));
+
     private static final NodeLogger LOGGER =
             NodeLogger.getLogger(DBReaderDialogPane.class);
 
@@ -188,11 +209,17 @@ protected void doneWithContext() {
 
         JPanel configurePanel = new JPanel(new BorderLayout());
         configurePanel.add(scrollPane, BorderLayout.CENTER);
+        final JPanel optionsPanel = new JPanel();
+        optionsPanel.setLayout(new BoxLayout(optionsPanel, BoxLayout.Y_AXIS));
         if (runWithoutConfigure()) {
             m_configureBox.setToolTipText(
                     "Returns an empty spec during configure.");
-            configurePanel.add(m_configureBox, BorderLayout.SOUTH);
+            optionsPanel.add(m_configureBox);
         }
+        if (showPartitioning()) {
+            optionsPanel.add(createPartitionPanel());
+        }
+        configurePanel.add(optionsPanel, BorderLayout.SOUTH);
         JPanel allPanel = new JPanel(new BorderLayout());
 
         allPanel.add(m_connectionPane, BorderLayout.NORTH);
@@ -249,6 +276,37 @@ protected boolean runWithoutConfigure() {
         return false;
     }
 
+    /**
+     * @return false (default), or true if the options to read the query in parallel partitions should be visible.
+     * @since 3.7
+     */
+    protected boolean showPartitioning() {
+        return false;
+    }
+
+    private JPanel createPartitionPanel() {
+        final JPanel partitionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        partitionPanel.setBorder(BorderFactory.createTitledBorder(" Parallel Reading "));
+        m_partitionMode.setToolTipText("Splits the query into partitions that are read over separate connections");
+        m_partitionColumn.setToolTipText("Numeric or date column of the query result whose value range is split");
+        m_nrPartitions.setToolTipText("Number of partitions that are read in parallel");
+        m_partitionMode.addActionListener(e -> updatePartitionComponents());
+        partitionPanel.add(new JLabel("Partitioning: "));
+        partitionPanel.add(m_partitionMode);
+        partitionPanel.add(new JLabel("Column: "));
+        partitionPanel.add(m_partitionColumn);
+        partitionPanel.add(new JLabel("Partitions: "));
+        partitionPanel.add(m_nrPartitions);
+        updatePartitionComponents();
+        return partitionPanel;
+    }
+
+    private void updatePartitionComponents() {
+        final Object mode = m_partitionMode.getSelectedItem();
+        m_partitionColumn.setEnabled(PARTITION_BY_COLUMN.equals(mode));
+        m_nrPartitions.setEnabled(!PARTITION_NONE.equals(mode));
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void loadSettingsFrom(final NodeSettingsRO settings,
@@ -281,6 +339,23 @@ protected void loadSettingsFrom(final NodeSettingsRO settings,
         if (runWithoutConfigure()) {
             m_configureBox.setSelected(!s.getValidateQuery());
         }
+        if (showPartitioning()) {
+            DBReadPartitioning partitioning;
+            try {
+                partitioning = DBReadPartitioning.load(settings);
+            } catch (InvalidSettingsException ex) {
+                partitioning = null;
+            }
+            if (partitioning == null) {
+                m_partitionMode.setSelectedItem(PARTITION_NONE);
+            } else {
+                m_partitionMode.setSelectedItem(partitioning.getMode() == DBReadPartitioning.Mode.COLUMN_RANGE
+                    ? PARTITION_BY_COLUMN : PARTITION_BY_ROW_COUNT);
+                m_partitionColumn.setText(partitioning.getColumn() == null ? "" : partitioning.getColumn());
+                m_nrPartitions.setValue(Math.max(2, partitioning.getNrPartitions()));
+            }
+            updatePartitionComponents();
+        }
 
         m_upstreamConnectionSettings = null;
         for (PortObjectSpec pos : specs) {
@@ -335,12 +410,30 @@ protected void saveSettingsTo(final NodeSettingsWO settings)
             s.setValidateQuery(!m_configureBox.isSelected());
         }
         s.saveConnection(settings);
+        if (showPartitioning()) {
+            DBReadPartitioning.save(getPartitioning(), settings);
+        }
 
         if (m_showConnectionPanel) {
             m_connectionPane.saveSettingsTo(settings, getCredentialsProvider());
         }
     }
 
+    private DBReadPartitioning getPartitioning() throws InvalidSettingsException {
+        final Object mode = m_partitionMode.getSelectedItem();
+        final int nrPartitions = (Integer)m_nrPartitions.getValue();
+        if (PARTITION_BY_COLUMN.equals(mode)) {
+            final String column = m_partitionColumn.getText().trim();
+            if (column.isEmpty()) {
+                throw new InvalidSettingsException("No partition column specified");
+            }
+            return DBReadPartitioning.byColumn(column, nrPartitions);
+        } else if (PARTITION_BY_ROW_COUNT.equals(mode)) {
+            return DBReadPartitioning.byRowCount(nrPartitions);
+        }
+        return null;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void onClose() {
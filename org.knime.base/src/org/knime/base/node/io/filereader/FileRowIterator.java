@@ -45,21 +45,26 @@
 package org.knime.base.node.io.filereader;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
 
 import org.knime.base.node.util.BufferedFileReader;
 import org.knime.core.data.DataCell;
-import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.util.MutableInteger;
 import org.knime.core.util.tokenizer.Tokenizer;
 import org.knime.core.util.tokenizer.TokenizerException;
+import org.knime.core.util.tokenizer.TokenizerSettings;
 
 /**
  * Row iterator for the {@link FileTable}.
@@ -119,6 +124,25 @@ class FileRowIterator extends CloseableRowIterator {
     /* counts the progress reports */
     private long m_lastReport;
 
+    // if true the row headers are returned as read (not uniquified) - see the range constructor
+    private final boolean m_rawRowHeaders;
+
+    // true if the header of the last row created was missing in the file
+    private boolean m_lastRowHeaderMissing;
+
+    // the types column types are widened to, in this order
+    private static final DataType[] WIDENING_TYPES =
+        {IntCell.TYPE, LongCell.TYPE, DoubleCell.TYPE, StringCell.TYPE};
+
+    // the current types of the columns, if widened while reading - null otherwise
+    private DataType[] m_columnTypes;
+
+    // the number of column type widenings so far
+    private int m_widenings;
+
+    // columns with values whose string representation differs from the value read
+    private BitSet m_nonCanonicalColumns;
+
     /**
      * The RowIterator for the FileTable.
      *
@@ -137,6 +161,41 @@ class FileRowIterator extends CloseableRowIterator {
     FileRowIterator(final FileReaderSettings frSettings,
             final DataTableSpec tableSpec, final boolean[] skipColumns,
             final ExecutionContext exec) throws IOException {
+        this(frSettings, tableSpec, skipColumns, null, true, false, exec);
+    }
+
+    /**
+     * A RowIterator for a part of the data file, used to read the file in
+     * parallel (see {@link ParallelFileTableReader}). The source must start at
+     * the beginning of a row. The iterator doesn't limit the number of rows
+     * returned, and it doesn't uniquify row headers read from the file - the
+     * caller knows the row numbers in the entire file and creates the final
+     * row IDs. If the file has no row headers the returned rows carry the
+     * generated ones, numbered from the start of the source.
+     *
+     * @param frSettings object containing the wheres and hows to read the data
+     * @param tableSpec the spec defining the structure of the rows to create
+     * @param skipColumns array with the element set to true if the
+     *            corresponding column should be skipped
+     * @param source the reader of the part of the file to read
+     * @param fileStart true if the source starts at the beginning of the
+     *            file. Only then the first lines and the column headers are
+     *            skipped, if the settings say so.
+     * @throws IOException if the column headers couldn't be read
+     * @see #lastRowHeaderWasMissing()
+     */
+    FileRowIterator(final FileReaderSettings frSettings,
+            final DataTableSpec tableSpec, final boolean[] skipColumns,
+            final BufferedFileReader source, final boolean fileStart)
+            throws IOException {
+        this(frSettings, tableSpec, skipColumns, source, fileStart, true, null);
+    }
+
+    private FileRowIterator(final FileReaderSettings frSettings,
+            final DataTableSpec tableSpec, final boolean[] skipColumns,
+            final BufferedFileReader source, final boolean fileStart,
+            final boolean rawRowHeaders, final ExecutionContext exec)
+            throws IOException {
 
         if (skipColumns.length < tableSpec.getNumColumns()) {
             throw new IllegalArgumentException("The number of columns can't"
@@ -160,11 +219,19 @@ class FileRowIterator extends CloseableRowIterator {
         m_exec = exec;
         m_lastReport = 0;
 
-        m_source = m_frSettings.createNewInputReader();
+        m_source = source != null ? source : m_frSettings.createNewInputReader();
         m_tokenizer = new Tokenizer(m_source);
 
         // set the tokenizer related settings in the tokenizer
         m_tokenizer.setSettings(frSettings);
+        if (!fileStart) {
+            // the first lines are at the beginning of the file only
+            TokenizerSettings rangeSettings = m_tokenizer.getSettings();
+            rangeSettings.setSkipFirstLines(0);
+            m_tokenizer.setSettings(rangeSettings);
+        }
+        m_rawRowHeaders = rawRowHeaders;
+        m_lastRowHeaderMissing = false;
 
         // cell factory used to create the cells of each row
         m_cellFactory = new DataCellFactory();
@@ -172,7 +239,7 @@ class FileRowIterator extends CloseableRowIterator {
         m_cellFactory.setThousandsSeparator(frSettings.getThousandsSeparator());
 
         m_rowNumber = 1;
-        if (m_frSettings.getMaximumNumberOfRowsToRead() < 0) {
+        if (rawRowHeaders || m_frSettings.getMaximumNumberOfRowsToRead() < 0) {
             m_maxNumOfRows = Long.MAX_VALUE;
         } else {
             m_maxNumOfRows = m_frSettings.getMaximumNumberOfRowsToRead();
@@ -186,25 +253,14 @@ class FileRowIterator extends CloseableRowIterator {
         // set the row prefix here (so we don't have to go through this for each
         // row separately). If this prefix is set it will be used - otherwise
         // it's safe to assume the file contains row headers!
-        if (frSettings.getFileHasRowHeaders()) {
-            // settings tell us to use the first column as row headers. We will.
-            m_rowHeaderPrefix = null;
-        } else {
-            // Won't get them from the file. Get the user settings or the
-            // default from the settings structure
-            if (frSettings.getRowHeaderPrefix() != null) {
-                m_rowHeaderPrefix = frSettings.getRowHeaderPrefix();
-            } else {
-                m_rowHeaderPrefix = FileReaderSettings.DEF_ROWPREFIX;
-            }
-        }
+        m_rowHeaderPrefix = getRowHeaderPrefix(frSettings);
 
         m_rowIDhash = new HashMap<String, Number>();
 
         // if the column headers are stored in the data file, we must read
         // them (the first line) and discard them (if they are actually used
         // from the file they should have been stored in the table spec).
-        if (frSettings.getFileHasColumnHeaders()) {
+        if (frSettings.getFileHasColumnHeaders() && fileStart) {
             if (hasNext()) { // call this first to eat up empty lines
                 String token = m_tokenizer.nextToken();
                 while (!frSettings.isRowDelimiter(token, m_tokenizer.lastTokenWasQuoted())) {
@@ -215,6 +271,84 @@ class FileRowIterator extends CloseableRowIterator {
 
     } // FileRowIterator(FileTableSpec)
 
+    /**
+     * Returns the prefix of the generated row headers, or null if the row
+     * headers are read from the file.
+     *
+     * @param frSettings the settings of the file
+     * @return the resolved row header prefix, or null if the file contains
+     *         row headers
+     */
+    static String getRowHeaderPrefix(final FileReaderSettings frSettings) {
+        if (frSettings.getFileHasRowHeaders()) {
+            // settings tell us to use the first column as row headers. We will.
+            return null;
+        }
+        // Won't get them from the file. Get the user settings or the
+        // default from the settings structure
+        if (frSettings.getRowHeaderPrefix() != null) {
+            return frSettings.getRowHeaderPrefix();
+        }
+        return FileReaderSettings.DEF_ROWPREFIX;
+    }
+
+    /**
+     * Enables widening column types while reading. If a value can't be read
+     * as the type of its column, the column type is widened to the first of
+     * integer, long, double and string that can hold it, and the value is
+     * returned as a cell of the wider type. Other column types are not
+     * widened. Call before reading the first row.
+     *
+     * @see #getNumberOfWidenings()
+     * @see #getColumnType(int)
+     */
+    void enableTypeWidening() {
+        m_columnTypes = new DataType[m_tableSpec.getNumColumns()];
+        for (int c = 0; c < m_columnTypes.length; c++) {
+            m_columnTypes[c] = m_tableSpec.getColumnSpec(c).getType();
+        }
+        m_nonCanonicalColumns = new BitSet();
+    }
+
+    /**
+     * @return the number of column type widenings so far, changes whenever a
+     *         column type is widened
+     */
+    int getNumberOfWidenings() {
+        return m_widenings;
+    }
+
+    /**
+     * @param col the index of the column in the table spec
+     * @return the current type of the column, which is wider than the type in
+     *         the table spec if the column was widened
+     */
+    DataType getColumnType(final int col) {
+        return m_columnTypes == null ? m_tableSpec.getColumnSpec(col).getType() : m_columnTypes[col];
+    }
+
+    /**
+     * Tells if a numeric cell of the column was created from a string that
+     * differs from the string representation of the cell, e.g. "1.50". Cells
+     * of such a column can't be converted into the string cells the read
+     * values would give.
+     *
+     * @param col the index of the column in the table spec
+     * @return true if the column contains a cell whose string differs from
+     *         the value in the file - only tracked if widening is enabled
+     */
+    boolean hasNonCanonicalValues(final int col) {
+        return m_nonCanonicalColumns != null && m_nonCanonicalColumns.get(col);
+    }
+
+    /**
+     * @return true if the row header of the row returned last was empty in
+     *         the file and a header was made up for it
+     */
+    boolean lastRowHeaderWasMissing() {
+        return m_lastRowHeaderMissing;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -375,11 +509,10 @@ public DataRow next() {
                 isMissingCell = false;
             }
             if (!m_skipColumns[readCols]) {
-                DataColumnSpec cSpec = m_tableSpec.getColumnSpec(createdCols);
                 // now get that new cell
                 // (it throws an exception at us if it couldn't)
-                row[createdCols] = createNewDataCellOfType(cSpec.getType(), token, isMissingCell,
-                    m_frSettings.getFormatParameterForColumn(readCols).orElse(null), rowHeader, row);
+                row[createdCols] = createNewDataCellOfType(getColumnType(createdCols), token, isMissingCell,
+                    m_frSettings.getFormatParameterForColumn(readCols).orElse(null), rowHeader, row, createdCols);
                 createdCols++;
             }
             readCols++;
@@ -497,7 +630,7 @@ public DataRow next() {
     private DataCell createNewDataCellOfType(final DataType type,
             final String data, final boolean createMissingCell,
             final String formatParameter,
-            final String rowHeader, final DataCell[] row) {
+            final String rowHeader, final DataCell[] row, final int col) {
 
         if (createMissingCell) {
             return DataType.getMissingCell();
@@ -508,17 +641,36 @@ private DataCell createNewDataCellOfType(final DataType type,
 
         if (result != null) {
 
+            if (m_columnTypes != null && !result.isMissing() && !m_nonCanonicalColumns.get(col)
+                && getWideningIndex(type) >= 0 && !type.equals(StringCell.TYPE) && !data.equals(result.toString())) {
+                m_nonCanonicalColumns.set(col);
+            }
             return result;
 
         }
 
+        if (m_columnTypes != null) {
+            // try the wider types
+            int typeIdx = getWideningIndex(type);
+            if (typeIdx >= 0) {
+                for (int t = typeIdx + 1; t < WIDENING_TYPES.length; t++) {
+                    DataCell widened = m_cellFactory.createDataCellOfType(WIDENING_TYPES[t], data);
+                    if (widened != null) {
+                        m_columnTypes[col] = WIDENING_TYPES[t];
+                        m_widenings++;
+                        if (t < WIDENING_TYPES.length - 1 && !data.equals(widened.toString())) {
+                            m_nonCanonicalColumns.set(col);
+                        }
+                        return widened;
+                    }
+                }
+            }
+        }
+
         // something went wrong during cell creation.
 
         // figure out which column we were trying to read
-        int errCol = 0;
-        while (errCol < row.length && row[errCol] != null) {
-            errCol++;
-        }
+        int errCol = col;
         // create an error message
         String errorMsg = m_cellFactory.getErrorMessage();
         errorMsg +=
@@ -533,6 +685,16 @@ private DataCell createNewDataCellOfType(final DataType type,
 
     } // createNewDataCellOfType(Class,String,boolean)
 
+    /* the index of the type in the widening types, or -1 */
+    private static int getWideningIndex(final DataType type) {
+        for (int t = 0; t < WIDENING_TYPES.length; t++) {
+            if (WIDENING_TYPES[t].equals(type)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
     /*
      * Creates a StringCell containing the row header. If the filereader
      * settings tell us that there is one in the file - it will be read. The
@@ -571,16 +733,17 @@ private String createRowHeader(final int rowNumber) {
         if (m_rowHeaderPrefix == null) {
             assert fileHeader != null;
             String newRowHeader;
-            if (fileHeader.equals("") && !m_tokenizer.lastTokenWasQuoted()) {
+            m_lastRowHeaderMissing = fileHeader.equals("") && !m_tokenizer.lastTokenWasQuoted();
+            if (m_lastRowHeaderMissing) {
                 // seems we got a missing row delimiter. Let's build one.
                 newRowHeader = DataType.getMissingCell().toString() + rowNumber;
             } else {
                 newRowHeader = fileHeader;
             }
 
-            if (m_frSettings.uniquifyRowIDs()) {
+            if (m_frSettings.uniquifyRowIDs() && !m_rawRowHeaders) {
                 // see if it's unique - and if not make it unique.
-                newRowHeader = uniquifyRowHeader(newRowHeader);
+                newRowHeader = uniquifyRowHeader(newRowHeader, m_rowIDhash);
             }
 
             return newRowHeader;
@@ -598,9 +761,10 @@ private String createRowHeader(final int rowNumber) {
      * unique row header, which could be the same than the one passed in (and
      * adds any rowheader returned to the hash set).
      */
-    private String uniquifyRowHeader(final String newRowHeader) {
+    static String uniquifyRowHeader(final String newRowHeader,
+            final HashMap<String, Number> rowIDhash) {
 
-        Number oldSuffix = m_rowIDhash.put(newRowHeader, NOSUFFIX);
+        Number oldSuffix = rowIDhash.put(newRowHeader, NOSUFFIX);
 
         if (oldSuffix == null) {
             // haven't seen the rowID so far.
@@ -620,17 +784,17 @@ private String uniquifyRowHeader(final String newRowHeader) {
             if (oldSuffix.equals(NOSUFFIX)) {
                 // until now the NOSUFFIX placeholder was in the hash
                 assert idx - 1 == NOSUFFIX.intValue();
-                m_rowIDhash.put(result, new MutableInteger(idx));
+                rowIDhash.put(result, new MutableInteger(idx));
             } else {
                 assert oldSuffix instanceof MutableInteger;
                 ((MutableInteger)oldSuffix).inc();
                 assert idx == oldSuffix.intValue();
                 // put back the old (incr.) suffix (overridden with NOSUFFIX).
-                m_rowIDhash.put(result, oldSuffix);
+                rowIDhash.put(result, oldSuffix);
             }
 
             result = result + "_" + idx;
-            oldSuffix = m_rowIDhash.put(result, NOSUFFIX);
+            oldSuffix = rowIDhash.put(result, NOSUFFIX);
 
         }
 
@@ -222,6 +222,28 @@ public DataTableSpec getDataTableSpec() {
         return m_tableSpec;
     }
 
+    /**
+     * @return the settings the table reads the file with
+     */
+    FileReaderSettings getFileReaderSettings() {
+        return m_frSettings;
+    }
+
+    /**
+     * @return the flags of the columns in the file that are not in the table
+     */
+    boolean[] getSkipColumns() {
+        return m_skipColums;
+    }
+
+    /**
+     * @return the execution context the iterators report their progress to,
+     *         may be null
+     */
+    ExecutionContext getExecutionContext() {
+        return m_exec;
+    }
+
     /**
      * Method to check consistency and completeness of the current settings. It
      * will return a {@link SettingsStatus} object which contains info, warning
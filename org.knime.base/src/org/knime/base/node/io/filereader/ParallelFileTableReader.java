@@ -0,0 +1,554 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.io.filereader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.knime.base.node.util.BufferedFileReader;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.util.FileUtil;
+import org.knime.core.util.ThreadPool;
+import org.knime.core.util.ThreadUtils;
+import org.knime.core.util.tokenizer.Comment;
+import org.knime.core.util.tokenizer.Delimiter;
+import org.knime.core.util.tokenizer.Quote;
+
+/**
+ * Reads the rows of a {@link FileTable} from an uncompressed local file in
+ * parallel. The file is split into byte ranges of roughly equal size, each
+ * range boundary is moved forward to the beginning of the next row, and the
+ * ranges are tokenized and converted into cells by separate tasks. The rows
+ * are added to the result table in the order of the file and get the same row
+ * IDs as if the file was read sequentially.
+ * <p>
+ * The beginning of a row can only be found in the middle of the file if each
+ * line feed ends a row, i.e. if line feeds can't be quoted, escaped, continued
+ * or commented out (see {@link #isApplicable()}). If a range can't be read, for
+ * instance because of a format error, the file is read sequentially from the
+ * first row of that range on - errors are reported as if the file was read
+ * sequentially.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class ParallelFileTableReader {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(ParallelFileTableReader.class);
+
+    /** The default size of the ranges the file is split into, 4 MB. */
+    static final int DEFAULT_RANGE_SIZE = 1 << 22;
+
+    private static final byte LF = '\n';
+
+    private static final byte CR = '\r';
+
+    private final FileTable m_table;
+
+    private final FileReaderSettings m_settings;
+
+    private final File m_file;
+
+    private int m_rangeSize = DEFAULT_RANGE_SIZE;
+
+    private int m_parallelism = KNIMEConstants.GLOBAL_THREAD_POOL.getMaxThreads();
+
+    /* the number of rows added to the result so far */
+    private long m_rowCount;
+
+    /* the row IDs read from the file so far, used to make them unique */
+    private HashMap<String, Number> m_rowIDhash;
+
+    /**
+     * Creates a new reader for the rows of the specified table.
+     *
+     * @param table the table to read
+     */
+    public ParallelFileTableReader(final FileTable table) {
+        m_table = table;
+        m_settings = table.getFileReaderSettings();
+        m_file = getLocalFile(m_settings);
+    }
+
+    /**
+     * @param rangeSize the size of the ranges the file is split into, only
+     *            used in tests
+     */
+    void setRangeSize(final int rangeSize) {
+        m_rangeSize = rangeSize;
+    }
+
+    /**
+     * @param parallelism the maximum number of ranges read at the same time,
+     *            only used in tests
+     */
+    void setParallelism(final int parallelism) {
+        m_parallelism = parallelism;
+    }
+
+    /**
+     * Tests if the table can be read in parallel. That is the case if the data
+     * file is an uncompressed local file that spans at least two ranges, if
+     * the charset encodes line feeds and carriage returns as single ASCII
+     * bytes, and if each line feed ends a row: line feeds must not be allowed
+     * in quotes, quotes must not have escape characters, there must be no line
+     * continuation character, all comments must end at the line end, and no
+     * other delimiter may end a row.
+     *
+     * @return true if the table can be read in parallel
+     */
+    public boolean isApplicable() {
+        if (m_file == null || m_parallelism < 2 || m_file.length() < 2L * m_rangeSize) {
+            return false;
+        }
+        try {
+            return hasSingleByteLineBreaks(m_settings.getCharsetName()) && lineFeedsEndRows(m_settings)
+                && !isCompressed(m_file);
+        } catch (IOException | IllegalArgumentException e) {
+            // can't tell - read it sequentially
+            LOGGER.debug("Reading '" + m_file + "' sequentially: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads all rows of the table into a new buffered data table. Call only if
+     * {@link #isApplicable()} returned true.
+     *
+     * @param exec the execution context to create the table with
+     * @return the rows of the table
+     * @throws CanceledExecutionException if the execution was canceled
+     * @throws IOException if the file couldn't be read
+     */
+    public BufferedDataTable read(final ExecutionContext exec) throws CanceledExecutionException, IOException {
+        final long fileSize = m_file.length();
+        final int parallelism = m_parallelism;
+        final ExecutionMonitor progress = m_table.getExecutionContext() != null ? m_table.getExecutionContext() : exec;
+        final BufferedDataContainer cont = exec.createDataContainer(m_table.getDataTableSpec());
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(parallelism);
+        final Deque<Future<Range>> futures = new ArrayDeque<>();
+        m_rowCount = 0;
+        m_rowIDhash = new HashMap<String, Number>();
+        final Callable<Void> reader = () -> {
+            try (FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ)) {
+                boolean done = false;
+                long start = 0;
+                long end = findRowStart(channel, Math.max(m_rangeSize, findFirstRowEnd(channel, fileSize)), fileSize);
+                while (start < fileSize && !done) {
+                    exec.checkCanceled();
+                    futures.add(pool.enqueue(ThreadUtils.callableWithContext(createRangeTask(start, end))));
+                    start = end;
+                    end = findRowStart(channel, start + m_rangeSize, fileSize);
+                    //add finished ranges in order to limit the number of rows in memory
+                    while (futures.size() >= 2 * parallelism && !done) {
+                        done = !addRows(futures.poll().get(), cont, progress, fileSize);
+                    }
+                }
+                while (!futures.isEmpty() && !done) {
+                    exec.checkCanceled();
+                    done = !addRows(futures.poll().get(), cont, progress, fileSize);
+                }
+            }
+            return null;
+        };
+        try {
+            if (ThreadPool.currentPool() != null) {
+                //the reading thread only waits for the tasks most of the time
+                pool.runInvisible(reader);
+            } else {
+                reader.call();
+            }
+        } catch (final CanceledExecutionException | IOException e) {
+            throw e;
+        } catch (final Exception e) {
+            Throwable cause = e;
+            while ((cause instanceof ExecutionException) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CanceledExecutionException) {
+                throw (CanceledExecutionException)cause;
+            } else if (cause instanceof InterruptedException) {
+                throw new CanceledExecutionException("Reading canceled");
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            for (final Future<Range> future : futures) {
+                future.cancel(true);
+            }
+            m_rowIDhash = null;
+        }
+        cont.close();
+        return cont.getTable();
+    }
+
+    /*
+     * Adds the rows of the range to the container, with their final row IDs.
+     * Returns false if no more rows must be added - because the maximum number
+     * of rows is reached, or because the range failed and the rest of the file
+     * was read sequentially.
+     */
+    private boolean addRows(final Range range, final BufferedDataContainer cont, final ExecutionMonitor progress,
+        final long fileSize) throws CanceledExecutionException, IOException {
+        if (range.m_failure != null) {
+            LOGGER.debug("Reading the rows of '" + m_file + "' sequentially from row " + m_rowCount
+                + " on, the range ending at byte " + range.m_end + " failed: " + range.m_failure.getMessage());
+            addRowsSequentially(cont, progress);
+            return false;
+        }
+        final long maxRows = m_settings.getMaximumNumberOfRowsToRead();
+        for (int i = 0; i < range.m_rows.size(); i++) {
+            if (maxRows >= 0 && m_rowCount >= maxRows) {
+                return false;
+            }
+            final DataRow row = range.m_rows.get(i);
+            cont.addRowToTable(new DefaultRow(createRowKey(row, range.m_missingRowHeaders.get(i)), row));
+            m_rowCount++;
+        }
+        progress.setProgress(range.m_end / (double)fileSize);
+        return true;
+    }
+
+    /*
+     * Creates the row ID the sequential iterator creates for the next row
+     * (see FileRowIterator#createRowHeader).
+     */
+    private RowKey createRowKey(final DataRow row, final boolean rowHeaderMissing) {
+        final String prefix = FileRowIterator.getRowHeaderPrefix(m_settings);
+        if (prefix != null) {
+            return new RowKey(prefix + m_rowCount);
+        }
+        String rowHeader =
+            rowHeaderMissing ? DataType.getMissingCell().toString() + m_rowCount : row.getKey().getString();
+        if (m_settings.uniquifyRowIDs()) {
+            rowHeader = FileRowIterator.uniquifyRowHeader(rowHeader, m_rowIDhash);
+        }
+        return new RowKey(rowHeader);
+    }
+
+    /*
+     * Reads the file sequentially, skipping the rows already added to the
+     * container. Reproduces the exceptions of a sequential read.
+     */
+    private void addRowsSequentially(final BufferedDataContainer cont, final ExecutionMonitor progress)
+        throws CanceledExecutionException, IOException {
+        final FileRowIterator iterator = new FileRowIterator(m_settings, m_table.getDataTableSpec(),
+            m_table.getSkipColumns(), m_table.getExecutionContext());
+        try {
+            for (long i = 0; i < m_rowCount && iterator.hasNext(); i++) {
+                progress.checkCanceled();
+                iterator.next();
+            }
+            while (iterator.hasNext()) {
+                progress.checkCanceled();
+                cont.addRowToTable(iterator.next());
+            }
+        } finally {
+            iterator.dispose();
+        }
+    }
+
+    private Callable<Range> createRangeTask(final long start, final long end) {
+        return () -> {
+            final Range range = new Range(end);
+            try (BufferedFileReader source = BufferedFileReader
+                .createNewReader(new RangeInputStream(m_file, start, end), m_settings.getCharsetName())) {
+                final FileRowIterator iterator = new FileRowIterator(m_settings, m_table.getDataTableSpec(),
+                    m_table.getSkipColumns(), source, start == 0);
+                while (iterator.hasNext()) {
+                    final DataRow row = iterator.next();
+                    if (iterator.lastRowHeaderWasMissing()) {
+                        range.m_missingRowHeaders.set(range.m_rows.size());
+                    }
+                    range.m_rows.add(row);
+                }
+            } catch (final IOException | RuntimeException e) {
+                // the rows of this range are read again sequentially
+                range.m_failure = e;
+            }
+            return range;
+        };
+    }
+
+    /*
+     * Returns the end of the first row that can be read in parallel, i.e. the
+     * position after the lines to skip, the empty lines and the column header
+     * line. The position may be behind the actual end - the first range starts
+     * at the beginning of the file anyway.
+     */
+    private long findFirstRowEnd(final FileChannel channel, final long fileSize) throws IOException {
+        long linesToSkip = m_settings.getSkipFirstLines();
+        if (m_settings.getFileHasColumnHeaders()) {
+            linesToSkip++;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position = 0;
+        boolean lineIsEmpty = true;
+        long skippedLines = 0;
+        while (skippedLines < linesToSkip && position < fileSize) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && skippedLines < linesToSkip; i++) {
+                final byte b = buffer.get(i);
+                if (b == LF) {
+                    // empty lines before the column headers don't count
+                    if (!lineIsEmpty || skippedLines < m_settings.getSkipFirstLines()) {
+                        skippedLines++;
+                    }
+                    lineIsEmpty = true;
+                } else if (b != CR) {
+                    lineIsEmpty = false;
+                }
+                position++;
+            }
+        }
+        return position;
+    }
+
+    /*
+     * Returns the first position at or after 'from' that follows a line feed
+     * and holds neither a line feed nor a carriage return, or the file size if
+     * there is no such position. Line breaks are never split, as the tokenizer
+     * combines consecutive row delimiters.
+     */
+    private static long findRowStart(final FileChannel channel, final long from, final long fileSize)
+        throws IOException {
+        if (from >= fileSize) {
+            return fileSize;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position = from - 1;
+        boolean afterLF = false;
+        while (position < fileSize) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if (afterLF && b != LF && b != CR) {
+                    return position + i;
+                }
+                afterLF = b == LF;
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    private static File getLocalFile(final FileReaderSettings settings) {
+        if (settings.getDataFileLocation() == null) {
+            return null;
+        }
+        try {
+            final File file = FileUtil.getFileFromURL(settings.getDataFileLocation());
+            return file != null && file.isFile() ? file : null;
+        } catch (IllegalArgumentException e) {
+            // not a local file
+            return null;
+        }
+    }
+
+    /* true if the file starts with the magic number of a gzip or zip file */
+    private static boolean isCompressed(final File file) throws IOException {
+        final byte[] magic = new byte[4];
+        int read = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int r;
+            while (read < magic.length && (r = in.read(magic, read, magic.length - read)) >= 0) {
+                read += r;
+            }
+        }
+        final boolean gzip = read >= 2 && magic[0] == (byte)0x1f && magic[1] == (byte)0x8b;
+        final boolean zip = read >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4;
+        return gzip || zip;
+    }
+
+    /*
+     * true if the charset encodes LF and CR as the single ASCII bytes. Only
+     * then a line feed can be found in the bytes of the file.
+     */
+    private static boolean hasSingleByteLineBreaks(final String charsetName) {
+        final Charset charset = charsetName == null ? Charset.defaultCharset() : Charset.forName(charsetName);
+        return Arrays.equals("\n".getBytes(charset), new byte[]{LF})
+            && Arrays.equals("\r".getBytes(charset), new byte[]{CR});
+    }
+
+    /* true if each line feed in the file ends a row */
+    private static boolean lineFeedsEndRows(final FileReaderSettings settings) {
+        if (settings.allowLFinQuotes() || settings.getCombineMultipleDelimiters()
+            || settings.getLineContinuationCharacter() != null || !settings.isRowDelimiter("\n", false)) {
+            return false;
+        }
+        for (String ws : settings.getAllWhiteSpaces()) {
+            if (containsLineBreak(ws)) {
+                return false;
+            }
+        }
+        for (Delimiter delim : settings.getAllDelimiters()) {
+            final String pattern = delim.getDelimiter();
+            if (!pattern.equals("\n") && (containsLineBreak(pattern) || settings.isRowDelimiter(pattern, false))) {
+                return false;
+            }
+        }
+        for (Quote quote : settings.getAllQuotes()) {
+            if (quote.hasEscapeChar() || containsLineBreak(quote.getLeft()) || containsLineBreak(quote.getRight())) {
+                return false;
+            }
+        }
+        for (Comment comment : settings.getAllComments()) {
+            if (!comment.getEnd().equals("\n") || containsLineBreak(comment.getBegin())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsLineBreak(final String pattern) {
+        return pattern.indexOf('\n') >= 0 || pattern.indexOf('\r') >= 0;
+    }
+
+    /** The rows read from one range of the file. */
+    private static final class Range {
+
+        private final long m_end;
+
+        private final List<DataRow> m_rows = new ArrayList<>();
+
+        private final BitSet m_missingRowHeaders = new BitSet();
+
+        private Exception m_failure;
+
+        Range(final long end) {
+            m_end = end;
+        }
+    }
+
+    /** Reads the bytes of a file between a start and an end position. */
+    private static final class RangeInputStream extends InputStream {
+
+        private final FileInputStream m_in;
+
+        private long m_remaining;
+
+        RangeInputStream(final File file, final long start, final long end) throws IOException {
+            m_in = new FileInputStream(file);
+            try {
+                m_in.getChannel().position(start);
+            } catch (IOException e) {
+                m_in.close();
+                throw e;
+            }
+            m_remaining = end - start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (m_remaining <= 0) {
+                return -1;
+            }
+            final int b = m_in.read();
+            if (b >= 0) {
+                m_remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (m_remaining <= 0) {
+                return -1;
+            }
+            final int read = m_in.read(b, off, (int)Math.min(len, m_remaining));
+            if (read > 0) {
+                m_remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            m_in.close();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.io.filereader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.LongValue;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Reads the rows of a {@link FileTable} in one pass and widens the column
+ * types while reading. The column types of the table spec are a guess (usually
+ * from analyzing the first lines of the file). If a value doesn't fit the type
+ * of its column, the column type is widened along integer, long, double and
+ * string. Rows are written into a new segment whenever a column is widened.
+ * At the end the cells of the earlier segments are upgraded to the final
+ * column types.
+ * <p>
+ * Numeric cells are upgraded without loss. Numeric cells can only be upgraded
+ * to strings if they were read from their canonical string representation,
+ * e.g. "12" but not "012" or "1.50". If that's not the case for a column widened
+ * to string, the file is read once more with the final column types.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class TypeWideningFileTableReader {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(TypeWideningFileTableReader.class);
+
+    private final FileTable m_table;
+
+    /**
+     * Creates a new reader for the rows of the specified table.
+     *
+     * @param table the table to read, whose spec holds the guessed column
+     *            types
+     */
+    public TypeWideningFileTableReader(final FileTable table) {
+        m_table = table;
+    }
+
+    /**
+     * Reads all rows of the table into a new buffered data table. The spec of
+     * the result contains the widened column types.
+     *
+     * @param exec the execution context to create the table with
+     * @return the rows of the table
+     * @throws CanceledExecutionException if the execution was canceled
+     * @throws IOException if the file couldn't be opened
+     */
+    public BufferedDataTable read(final ExecutionContext exec) throws CanceledExecutionException, IOException {
+        final DataTableSpec spec = m_table.getDataTableSpec();
+        final List<BufferedDataTable> segments = new ArrayList<>();
+        final FileRowIterator iterator = new FileRowIterator(m_table.getFileReaderSettings(), spec,
+            m_table.getSkipColumns(), m_table.getExecutionContext());
+        iterator.enableTypeWidening();
+        DataTableSpec segmentSpec = spec;
+        boolean reread = false;
+        try {
+            BufferedDataContainer cont = exec.createDataContainer(segmentSpec);
+            int widenings = 0;
+            while (iterator.hasNext()) {
+                exec.checkCanceled();
+                final DataRow row = iterator.next();
+                if (iterator.getNumberOfWidenings() != widenings) {
+                    // start a new segment with the wider types
+                    widenings = iterator.getNumberOfWidenings();
+                    cont.close();
+                    segments.add(cont.getTable());
+                    segmentSpec = createWidenedSpec(spec, iterator);
+                    cont = exec.createDataContainer(segmentSpec);
+                }
+                cont.addRowToTable(row);
+            }
+            cont.close();
+            segments.add(cont.getTable());
+            for (int c = 0; c < spec.getNumColumns(); c++) {
+                reread |= iterator.hasNonCanonicalValues(c)
+                    && segmentSpec.getColumnSpec(c).getType().equals(StringCell.TYPE)
+                    && !spec.getColumnSpec(c).getType().equals(StringCell.TYPE);
+            }
+        } finally {
+            iterator.dispose();
+        }
+        if (segments.size() == 1) {
+            return segments.get(0);
+        }
+        if (reread) {
+            for (BufferedDataTable segment : segments) {
+                exec.clearTable(segment);
+            }
+            LOGGER.debug("Reading '" + m_table.getFileReaderSettings().getDataFileLocation()
+                + "' again, numbers widened to strings must be read as strings");
+            exec.setMessage("Reading file with widened column types");
+            final FileTable widenedTable = new FileTable(segmentSpec, m_table.getFileReaderSettings(),
+                m_table.getSkipColumns(), m_table.getExecutionContext());
+            try {
+                return exec.createBufferedDataTable(widenedTable, exec);
+            } finally {
+                widenedTable.dispose();
+            }
+        }
+        return upgradeSegments(segments, segmentSpec, exec);
+    }
+
+    /* copies the rows of all segments into one table, upgrading the cells of the widened columns */
+    private static BufferedDataTable upgradeSegments(final List<BufferedDataTable> segments,
+        final DataTableSpec resultSpec, final ExecutionContext exec) throws CanceledExecutionException {
+        exec.setMessage("Widening column types");
+        final BufferedDataContainer cont = exec.createDataContainer(resultSpec);
+        final int numCols = resultSpec.getNumColumns();
+        for (final BufferedDataTable segment : segments) {
+            final DataTableSpec segmentSpec = segment.getDataTableSpec();
+            final boolean[] widened = new boolean[numCols];
+            boolean anyWidened = false;
+            for (int c = 0; c < numCols; c++) {
+                widened[c] = !segmentSpec.getColumnSpec(c).getType().equals(resultSpec.getColumnSpec(c).getType());
+                anyWidened |= widened[c];
+            }
+            for (final DataRow row : segment) {
+                exec.checkCanceled();
+                if (!anyWidened) {
+                    cont.addRowToTable(row);
+                    continue;
+                }
+                final DataCell[] cells = new DataCell[numCols];
+                for (int c = 0; c < numCols; c++) {
+                    final DataCell cell = row.getCell(c);
+                    cells[c] = widened[c] ? upgradeCell(cell, resultSpec.getColumnSpec(c).getType()) : cell;
+                }
+                cont.addRowToTable(new DefaultRow(row.getKey(), cells));
+            }
+            exec.clearTable(segment);
+        }
+        cont.close();
+        return cont.getTable();
+    }
+
+    private static DataCell upgradeCell(final DataCell cell, final DataType type) {
+        if (cell.isMissing()) {
+            return cell;
+        }
+        if (type.equals(LongCell.TYPE)) {
+            return new LongCell(((LongValue)cell).getLongValue());
+        }
+        if (type.equals(DoubleCell.TYPE)) {
+            return new DoubleCell(((DoubleValue)cell).getDoubleValue());
+        }
+        assert type.equals(StringCell.TYPE);
+        return new StringCell(cell.toString());
+    }
+
+    /* the spec with the current column types of the iterator */
+    private static DataTableSpec createWidenedSpec(final DataTableSpec spec, final FileRowIterator iterator) {
+        final DataColumnSpec[] colSpecs = new DataColumnSpec[spec.getNumColumns()];
+        for (int c = 0; c < colSpecs.length; c++) {
+            final DataColumnSpec colSpec = spec.getColumnSpec(c);
+            final DataType type = iterator.getColumnType(c);
+            if (type.equals(colSpec.getType())) {
+                colSpecs[c] = colSpec;
+            } else {
+                final DataColumnSpecCreator creator = new DataColumnSpecCreator(colSpec);
+                creator.setType(type);
+                creator.setDomain(null);
+                colSpecs[c] = creator.createSpec();
+            }
+        }
+        return new DataTableSpec(spec.getName(), colSpecs);
+    }
+}
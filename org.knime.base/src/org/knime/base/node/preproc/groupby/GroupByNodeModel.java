@@ -678,10 +678,10 @@ protected final GroupByTable createGroupByTable(final ExecutionContext exec, fin
         }
         final GroupByTable resultTable;
         if (inMemory || groupByCols.isEmpty()) {
-            resultTable = new MemoryGroupByTable(exec, table, groupByCols, aggregators.toArray(new ColumnAggregator[0]),
-                globalSettings, enableHilite, colNamePolicy, retainOrder);
+            resultTable = new ParallelGroupByTable(exec, table, groupByCols,
+                aggregators.toArray(new ColumnAggregator[0]), globalSettings, enableHilite, colNamePolicy, retainOrder);
         } else {
-            resultTable = new BigGroupByTable(exec, table, groupByCols, aggregators.toArray(new ColumnAggregator[0]),
+            resultTable = new HashGroupByTable(exec, table, groupByCols, aggregators.toArray(new ColumnAggregator[0]),
                     globalSettings, enableHilite, colNamePolicy, retainOrder);
         }
         if (m_enableHilite.getBooleanValue()) {
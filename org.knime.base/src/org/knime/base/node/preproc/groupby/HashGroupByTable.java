@@ -0,0 +1,518 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+
+package org.knime.base.node.preproc.groupby;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.commons.lang.mutable.MutableLong;
+import org.knime.base.data.aggregation.AggregationOperator;
+import org.knime.base.data.aggregation.ColumnAggregator;
+import org.knime.base.data.aggregation.GlobalSettings;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataValueComparator;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.data.util.memory.MemoryAlertSystem.MemoryActionIndicator;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.util.Pair;
+
+/**
+ * A data table that groups a given input table by the given columns using a hybrid hash aggregation. The rows are
+ * aggregated in a single pass into a hash table keyed by {@link GroupKey}. The groups are distributed to a fixed number
+ * of hash partitions; if the {@link MemoryAlertSystem} signals memory pressure, the partitions with the most groups are
+ * dropped from memory and the rows of these partitions are spilled to disk. Only the spilled rows are sorted and
+ * aggregated chunk wise (as done by the {@link BigGroupByTable}) once the input has been read.
+ *
+ * <p>
+ * The result is identical to the one of the {@link BigGroupByTable}, i.e. the groups are sorted by the group columns.
+ * If all groups fit into memory the input table is read once and not sorted at all.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public class HashGroupByTable extends GroupByTable {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(HashGroupByTable.class);
+
+    /** Number of hash partitions the groups are distributed to, must be a power of 2. */
+    static final int PARTITION_COUNT = 64;
+
+    // the fields are initialized in createGroupByTable which is called by the super constructor,
+    // field initializers would overwrite the values afterwards
+    private Map<GroupKey, ColumnAggregator[]> m_groups;
+
+    private Map<GroupKey, Set<RowKey>> m_rowKeys;
+
+    private Map<String, MutableLong> m_missingValuesMap;
+
+    private int[] m_aggrColIdx;
+
+    private long m_spilledRowCount;
+
+    /**Constructor for class HashGroupByTable.
+     * @param exec the <code>ExecutionContext</code>
+     * @param inDataTable the table to aggregate
+     * @param groupByCols the name of all columns to group by
+     * @param colAggregators the aggregation columns with the aggregation method
+     * to use in the order the columns should be appear in the result table
+     * numerical columns
+     * @param globalSettings the global settings
+     * @param enableHilite <code>true</code> if a row key map should be
+     * maintained to enable hiliting
+     * @param colNamePolicy the {@link ColumnNamePolicy} for the
+     * aggregation columns
+     * @param retainOrder returns the row of the table in the same order as the
+     * input table if set to <code>true</code>
+     * @throws CanceledExecutionException if the user has canceled the execution
+     */
+    public HashGroupByTable(final ExecutionContext exec,
+            final BufferedDataTable inDataTable,
+            final List<String> groupByCols,
+            final ColumnAggregator[] colAggregators,
+            final GlobalSettings globalSettings, final boolean enableHilite,
+            final ColumnNamePolicy colNamePolicy, final boolean retainOrder)
+    throws CanceledExecutionException {
+        super(exec, inDataTable, groupByCols, colAggregators, globalSettings,
+                enableHilite, colNamePolicy, retainOrder);
+    }
+
+    /**
+     * Returns a map where for each column (by its name), which has missing values, the number of them is given
+     * @return the missingValuesMap
+     */
+    public Map<String, Long> getMissingValuesMap() {
+        Map<String, Long> resMap = new HashMap<>();
+        if (m_missingValuesMap != null) {
+            for (Entry<String, MutableLong> entry : m_missingValuesMap.entrySet()) {
+                long count = entry.getValue().longValue();
+                if (count > 0) {
+                    resMap.put(entry.getKey(), count);
+                }
+            }
+        }
+        return resMap;
+    }
+
+    /**
+     * @return the number of rows that were spilled to disk because of memory pressure, 0 if all groups were
+     * aggregated in memory
+     */
+    public long getSpilledRowCount() {
+        return m_spilledRowCount;
+    }
+
+    /**
+     * Creates the indicator that is asked before each row whether partitions need to be spilled. Overridden in tests.
+     *
+     * @return a new indicator
+     */
+    MemoryActionIndicator createMemoryActionIndicator() {
+        return MemoryAlertSystem.getInstance().newIndicator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BufferedDataTable createGroupByTable(final ExecutionContext exec,
+            final BufferedDataTable table, final DataTableSpec resultSpec,
+            final int[] groupColIdx) throws CanceledExecutionException {
+        m_groups = new LinkedHashMap<>();
+        m_rowKeys = isEnableHilite() ? new HashMap<>() : null;
+        m_spilledRowCount = 0;
+        initMissingValuesMap();
+        final DataTableSpec spec = table.getDataTableSpec();
+        final ColumnAggregator[] colAggregators = getColAggregators();
+        m_aggrColIdx = new int[colAggregators.length];
+        for (int i = 0; i < colAggregators.length; i++) {
+            m_aggrColIdx[i] = spec.findColumnIndex(colAggregators[i].getOriginalColName());
+        }
+        final DataValueComparator[] comparators = new DataValueComparator[groupColIdx.length];
+        for (int i = 0; i < groupColIdx.length; i++) {
+            comparators[i] = spec.getColumnSpec(groupColIdx[i]).getType().getComparator();
+        }
+
+        //the row index at which a partition was spilled, -1 if it is still aggregated in memory
+        final long[] spillStart = new long[PARTITION_COUNT];
+        Arrays.fill(spillStart, -1);
+        BufferedDataContainer spillContainer = null;
+        final MemoryActionIndicator memIndicator = createMemoryActionIndicator();
+        final ExecutionMonitor hashExec = exec.createSubProgress(0.6);
+        final double rowCount = table.size();
+        long rowIndex = 0;
+        exec.setMessage("Aggregating rows");
+        for (final DataRow row : table) {
+            hashExec.checkCanceled();
+            hashExec.setProgress(rowIndex / rowCount);
+            final GroupKey groupKey = createGroupKey(row, groupColIdx);
+            final int partition = getPartition(groupKey);
+            if (spillStart[partition] < 0 && memIndicator.lowMemoryActionRequired()) {
+                spillPartitions(spillStart, rowIndex);
+            }
+            if (spillStart[partition] < 0) {
+                aggregate(groupKey, row);
+            } else {
+                if (spillContainer == null) {
+                    spillContainer = exec.createDataContainer(spec);
+                }
+                spillContainer.addRowToTable(row);
+                m_spilledRowCount++;
+            }
+            rowIndex++;
+        }
+
+        if (spillContainer == null) {
+            //everything fit into memory: sort the groups and create the result table
+            final ExecutionContext resultExec = exec.createSubExecutionContext(0.4);
+            final List<Entry<GroupKey, ColumnAggregator[]>> groups = new ArrayList<>(m_groups.entrySet());
+            m_groups = null;
+            Collections.sort(groups, createGroupComparator(comparators));
+            final BufferedDataContainer dc = resultExec.createDataContainer(resultSpec);
+            long groupCounter = 0;
+            for (final Entry<GroupKey, ColumnAggregator[]> group : groups) {
+                resultExec.checkCanceled();
+                resultExec.setProgress(groupCounter / (double)groups.size());
+                final RowKey rowKey = RowKey.createRowKey(groupCounter++);
+                addResultRow(dc, rowKey, group.getKey().getGroupVals(), group.getValue());
+                if (isEnableHilite()) {
+                    addHiliteMapping(rowKey, m_rowKeys.get(group.getKey()));
+                }
+            }
+            dc.close();
+            return dc.getTable();
+        }
+        spillContainer.close();
+        return createResultWithSpilledPartitions(exec, table, spillContainer.getTable(), spillStart, resultSpec,
+            groupColIdx, comparators);
+    }
+
+    /**
+     * Creates the result table if partitions were spilled. The groups still in memory and the sorted and aggregated
+     * spilled rows are written to a temporary table, which is then sorted by the group columns.
+     */
+    private BufferedDataTable createResultWithSpilledPartitions(final ExecutionContext exec,
+        final BufferedDataTable table, final BufferedDataTable spilledRows, final long[] spillStart,
+        final DataTableSpec resultSpec, final int[] groupColIdx, final DataValueComparator[] comparators)
+        throws CanceledExecutionException {
+        final BufferedDataContainer tempDc = exec.createDataContainer(resultSpec);
+        final Map<RowKey, Set<RowKey>> tempHiliteMapping = isEnableHilite() ? new HashMap<>() : null;
+        long groupCounter = 0;
+        for (final Entry<GroupKey, ColumnAggregator[]> group : m_groups.entrySet()) {
+            final RowKey rowKey = RowKey.createRowKey(groupCounter++);
+            addResultRow(tempDc, rowKey, group.getKey().getGroupVals(), group.getValue());
+            if (tempHiliteMapping != null) {
+                tempHiliteMapping.put(rowKey, m_rowKeys.get(group.getKey()));
+            }
+        }
+        m_groups = null;
+        m_rowKeys = null;
+
+        //the rows of the spilled partitions that were aggregated (and then dropped) before the partition was spilled
+        long prefixEnd = 0;
+        for (final long start : spillStart) {
+            prefixEnd = Math.max(prefixEnd, start);
+        }
+        exec.setMessage("Reading rows of spilled partitions");
+        final ExecutionMonitor prefixExec = exec.createSubProgress(0.1);
+        final BufferedDataContainer prefixContainer = exec.createDataContainer(table.getDataTableSpec());
+        long rowIndex = 0;
+        for (final Iterator<DataRow> it = table.iterator(); rowIndex < prefixEnd && it.hasNext(); rowIndex++) {
+            prefixExec.checkCanceled();
+            prefixExec.setProgress(rowIndex / (double)prefixEnd);
+            final DataRow row = it.next();
+            final long start = spillStart[getPartition(createGroupKey(row, groupColIdx))];
+            if (rowIndex < start) {
+                prefixContainer.addRowToTable(row);
+            }
+        }
+        prefixContainer.close();
+        final BufferedDataTable prefixRows = prefixContainer.getTable();
+        m_spilledRowCount += prefixRows.size();
+        LOGGER.debugWithFormat("Aggregating %d spilled rows of %d", m_spilledRowCount, table.size());
+
+        //all rows of a group that were read before the partition was spilled precede the ones read afterwards
+        final BufferedDataTable spillTable = exec.createConcatenateTable(exec.createSubProgress(0.0),
+            Optional.empty(), false, prefixRows, spilledRows);
+        exec.setMessage("Sorting spilled rows");
+        final BufferedDataTable sortedSpillTable =
+            sortTable(exec.createSubExecutionContext(0.15), spillTable, getGroupCols());
+        exec.setMessage("Aggregating spilled rows");
+        final ExecutionMonitor sortedExec = exec.createSubProgress(0.1);
+        final double spillRowCount = sortedSpillTable.size();
+        long spillRowIndex = 0;
+        final Map<GroupKey, Pair<ColumnAggregator[], Set<RowKey>>> chunkMembers = new LinkedHashMap<>(3);
+        DataCell[] previousGroup = null;
+        for (final DataRow row : sortedSpillTable) {
+            sortedExec.checkCanceled();
+            sortedExec.setProgress(spillRowIndex++ / spillRowCount);
+            final GroupKey groupKey = createGroupKey(row, groupColIdx);
+            //rows that return 0 for all pairwise comparisons of their group cells form a chunk,
+            //see BigGroupByTable for details
+            if (previousGroup != null && !sameChunk(comparators, previousGroup, groupKey.getGroupVals())) {
+                for (final Entry<GroupKey, Pair<ColumnAggregator[], Set<RowKey>>> e : chunkMembers.entrySet()) {
+                    final RowKey rowKey = RowKey.createRowKey(groupCounter++);
+                    addResultRow(tempDc, rowKey, e.getKey().getGroupVals(), e.getValue().getFirst());
+                    if (tempHiliteMapping != null) {
+                        tempHiliteMapping.put(rowKey, e.getValue().getSecond());
+                    }
+                }
+                chunkMembers.clear();
+            }
+            previousGroup = groupKey.getGroupVals();
+            Pair<ColumnAggregator[], Set<RowKey>> member = chunkMembers.get(groupKey);
+            if (member == null) {
+                final Set<RowKey> rowKeys = isEnableHilite() ? new HashSet<>() : Collections.emptySet();
+                member = new Pair<>(cloneColumnAggregators(), rowKeys);
+                chunkMembers.put(groupKey, member);
+            }
+            computeRow(member.getFirst(), row);
+            if (isEnableHilite()) {
+                member.getSecond().add(row.getKey());
+            }
+        }
+        for (final Entry<GroupKey, Pair<ColumnAggregator[], Set<RowKey>>> e : chunkMembers.entrySet()) {
+            final RowKey rowKey = RowKey.createRowKey(groupCounter++);
+            addResultRow(tempDc, rowKey, e.getKey().getGroupVals(), e.getValue().getFirst());
+            if (tempHiliteMapping != null) {
+                tempHiliteMapping.put(rowKey, e.getValue().getSecond());
+            }
+        }
+        tempDc.close();
+        exec.clearTable(prefixRows);
+        exec.clearTable(spilledRows);
+        exec.clearTable(sortedSpillTable);
+
+        //sort all groups by the group columns and assign the final row keys
+        exec.setMessage("Sorting groups");
+        final BufferedDataTable tempTable = tempDc.getTable();
+        final BufferedDataTable sortedGroups =
+            sortTable(exec.createSubExecutionContext(0.03), tempTable, getGroupCols());
+        final ExecutionContext resultExec = exec.createSubExecutionContext(0.02);
+        final BufferedDataContainer dc = resultExec.createDataContainer(resultSpec);
+        final double groupCount = sortedGroups.size();
+        long resultCounter = 0;
+        for (final DataRow row : sortedGroups) {
+            resultExec.checkCanceled();
+            resultExec.setProgress(resultCounter / groupCount);
+            final RowKey rowKey = RowKey.createRowKey(resultCounter++);
+            dc.addRowToTable(new DefaultRow(rowKey, row));
+            if (tempHiliteMapping != null) {
+                addHiliteMapping(rowKey, tempHiliteMapping.get(row.getKey()));
+            }
+        }
+        dc.close();
+        if (sortedGroups != tempTable) {
+            exec.clearTable(sortedGroups);
+        }
+        exec.clearTable(tempTable);
+        return dc.getTable();
+    }
+
+    /**
+     * Drops the active partitions that hold the most groups from memory (half of the non-empty partitions, at least
+     * one). Rows of these partitions are spilled from now on.
+     */
+    private void spillPartitions(final long[] spillStart, final long rowIndex) {
+        final int[] groupCounts = new int[PARTITION_COUNT];
+        for (final GroupKey groupKey : m_groups.keySet()) {
+            groupCounts[getPartition(groupKey)]++;
+        }
+        final List<Integer> candidates = new ArrayList<>();
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+            if (spillStart[p] < 0 && groupCounts[p] > 0) {
+                candidates.add(p);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        candidates.sort((p1, p2) -> Integer.compare(groupCounts[p2], groupCounts[p1]));
+        final Set<Integer> spilled = new HashSet<>(candidates.subList(0, Math.max(1, candidates.size() / 2)));
+        for (final int p : spilled) {
+            spillStart[p] = rowIndex;
+        }
+        for (final Iterator<GroupKey> it = m_groups.keySet().iterator(); it.hasNext();) {
+            final GroupKey groupKey = it.next();
+            if (spilled.contains(getPartition(groupKey))) {
+                it.remove();
+                if (m_rowKeys != null) {
+                    m_rowKeys.remove(groupKey);
+                }
+            }
+        }
+        LOGGER.debug("Memory is low, spilling partitions " + spilled + " at row " + rowIndex + ", " + m_groups.size()
+            + " groups remain in memory");
+    }
+
+    private void aggregate(final GroupKey groupKey, final DataRow row) {
+        ColumnAggregator[] aggregators = m_groups.get(groupKey);
+        if (aggregators == null) {
+            aggregators = cloneColumnAggregators();
+            m_groups.put(groupKey, aggregators);
+        }
+        computeRow(aggregators, row);
+        if (m_rowKeys != null) {
+            Set<RowKey> keySet = m_rowKeys.get(groupKey);
+            if (keySet == null) {
+                keySet = new HashSet<>();
+                m_rowKeys.put(groupKey, keySet);
+            }
+            keySet.add(row.getKey());
+        }
+    }
+
+    private void computeRow(final ColumnAggregator[] aggregators, final DataRow row) {
+        for (int i = 0, length = aggregators.length; i < length; i++) {
+            aggregators[i].getOperator(getGlobalSettings()).compute(row, m_aggrColIdx[i]);
+        }
+    }
+
+    /**
+     * Adds the result row of a group to the given container, also records skipped groups and missing values.
+     */
+    private void addResultRow(final BufferedDataContainer dc, final RowKey rowKey, final DataCell[] groupVals,
+        final ColumnAggregator[] colAggregators) {
+        final DataCell[] rowVals = new DataCell[groupVals.length + colAggregators.length];
+        //add the group values first
+        int valIdx = 0;
+        for (final DataCell groupCell : groupVals) {
+            rowVals[valIdx++] = groupCell;
+        }
+        //add the aggregation values
+        for (final ColumnAggregator colAggr : colAggregators) {
+            final AggregationOperator operator = colAggr.getOperator(getGlobalSettings());
+            rowVals[valIdx++] = operator.getResult();
+            if (operator.isSkipped()) {
+                //add skipped groups and the column that causes the
+                //skipping into the skipped groups map
+                addSkippedGroup(colAggr.getOriginalColName(), operator.getSkipMessage(), groupVals);
+            }
+            m_missingValuesMap.get(colAggr.getOriginalColName()).add(operator.getMissingValuesCount());
+        }
+        dc.addRowToTable(new DefaultRow(rowKey, rowVals));
+    }
+
+    private static GroupKey createGroupKey(final DataRow row, final int[] groupColIdx) {
+        final DataCell[] groupVals = new DataCell[groupColIdx.length];
+        for (int i = 0, length = groupColIdx.length; i < length; i++) {
+            groupVals[i] = row.getCell(groupColIdx[i]);
+        }
+        return new GroupKey(groupVals);
+    }
+
+    private static int getPartition(final GroupKey groupKey) {
+        final int h = groupKey.hashCode();
+        //spread the higher bits as the hash codes of many cells differ in the higher bits only
+        return (h ^ (h >>> 16) ^ (h >>> 8)) & (PARTITION_COUNT - 1);
+    }
+
+    /**
+     * @return a comparator that orders groups in the same way as sorting the input table by the group columns
+     */
+    private static Comparator<Entry<GroupKey, ColumnAggregator[]>> createGroupComparator(
+        final DataValueComparator[] comparators) {
+        return (e1, e2) -> {
+            final DataCell[] g1 = e1.getKey().getGroupVals();
+            final DataCell[] g2 = e2.getKey().getGroupVals();
+            for (int i = 0; i < comparators.length; i++) {
+                final int result = comparators[i].compare(g1[i], g2[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static boolean sameChunk(final DataValueComparator[] comparators, final DataCell[] previousGroup,
+        final DataCell[] currentGroup) {
+        for (int i = 0, length = comparators.length; i < length; i++) {
+            if (comparators[i].compare(previousGroup[i], currentGroup[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a copy of the column aggregators
+     */
+    private ColumnAggregator[] cloneColumnAggregators() {
+        final ColumnAggregator[] origAggregators = getColAggregators();
+        final ColumnAggregator[] aggregators = new ColumnAggregator[origAggregators.length];
+        for (int i = 0, length = origAggregators.length; i < length; i++) {
+            aggregators[i] = origAggregators[i].clone();
+        }
+        return aggregators;
+    }
+
+    private void initMissingValuesMap() {
+        m_missingValuesMap = new HashMap<>();
+        for (final ColumnAggregator ca : getColAggregators()) {
+            m_missingValuesMap.put(ca.getOriginalColName(), new MutableLong(0L));
+        }
+    }
+}
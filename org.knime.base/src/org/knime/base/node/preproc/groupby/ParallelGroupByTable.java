@@ -0,0 +1,403 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.preproc.groupby;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.knime.base.data.aggregation.AggregationOperator;
+import org.knime.base.data.aggregation.ColumnAggregator;
+import org.knime.base.data.aggregation.GlobalSettings;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+import org.knime.core.util.ThreadUtils;
+
+/**
+ * A data table that groups a given input table by the given columns in memory and aggregates ranges of the input
+ * table in parallel. The input table is split into chunks of consecutive rows, each chunk is aggregated by a worker
+ * thread into a partial result and the partial results are merged in the order of the chunks using
+ * {@link AggregationOperator#merge(AggregationOperator)}.
+ *
+ * <p>
+ * The rows are aggregated in parallel only if all operators support merging (see
+ * {@link AggregationOperator#supportsMerge()}); otherwise the table is aggregated sequentially like the
+ * {@link MemoryGroupByTable}. In both cases the groups are returned in the order of their first occurrence in the
+ * input table. Since floating point numbers are summed up in a different order, results of e.g. the sum or mean might
+ * differ from the sequential aggregation in the last digits.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public class ParallelGroupByTable extends GroupByTable {
+
+    /** The number of consecutive rows that are aggregated by a single task. */
+    static final int CHUNK_SIZE = 1 << 14;
+
+    // the fields are initialized in createGroupByTable which is called by the super constructor,
+    // field initializers would overwrite the values afterwards
+    private Map<GroupKey, ColumnAggregator[]> m_vals;
+
+    private Map<GroupKey, Set<RowKey>> m_rowKeys;
+
+    private int[] m_aggrColIdx;
+
+    private boolean m_aggregatedInParallel;
+
+    /**Constructor for class ParallelGroupByTable.
+     * @param exec the <code>ExecutionContext</code>
+     * @param inDataTable the table to aggregate
+     * @param groupByCols the name of all columns to group by
+     * @param colAggregators the aggregation columns with the aggregation method
+     * to use in the order the columns should be appear in the result table
+     * numerical columns
+     * @param globalSettings the global settings
+     * @param enableHilite <code>true</code> if a row key map should be
+     * maintained to enable hiliting
+     * @param colNamePolicy the {@link ColumnNamePolicy} for the
+     * aggregation columns
+     * @param retainOrder <code>true</code> if the original row order should be
+     * retained
+     * @throws CanceledExecutionException if the user has canceled the execution
+     */
+    public ParallelGroupByTable(final ExecutionContext exec,
+            final BufferedDataTable inDataTable, final List<String> groupByCols,
+            final ColumnAggregator[] colAggregators,
+            final GlobalSettings globalSettings,
+            final boolean enableHilite, final ColumnNamePolicy colNamePolicy,
+            final boolean retainOrder)
+            throws CanceledExecutionException {
+        //retainOrder is always false since it is automatically maintained
+        //in this class by the chosen Map implementation
+        super(exec, inDataTable, groupByCols, colAggregators, globalSettings,
+                enableHilite, colNamePolicy, false);
+    }
+
+    /**
+     * @return <code>true</code> if the input table was aggregated in parallel, <code>false</code> if it was
+     * aggregated sequentially e.g. because not all operators support merging
+     */
+    public boolean isAggregatedInParallel() {
+        return m_aggregatedInParallel;
+    }
+
+    /**
+     * @return the maximum number of chunks that are aggregated concurrently. Overridden in tests.
+     */
+    int getParallelism() {
+        return KNIMEConstants.GLOBAL_THREAD_POOL.getMaxThreads();
+    }
+
+    /**
+     * @return the number of consecutive rows that are aggregated by a single task. Overridden in tests.
+     */
+    int getChunkSize() {
+        return CHUNK_SIZE;
+    }
+
+    /**
+     * @return <code>true</code> if all operators support merging of partial states
+     */
+    private boolean supportsMerge() {
+        for (final ColumnAggregator colAggr : getColAggregators()) {
+            if (!colAggr.clone().getOperator(getGlobalSettings()).supportsMerge()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BufferedDataTable createGroupByTable(final ExecutionContext exec,
+            final BufferedDataTable dataTable, final DataTableSpec resultSpec,
+            final int[] groupColIdx) throws CanceledExecutionException {
+        final DataTableSpec spec = dataTable.getDataTableSpec();
+        final ColumnAggregator[] colAggregators = getColAggregators();
+        m_aggrColIdx = new int[colAggregators.length];
+        for (int i = 0; i < colAggregators.length; i++) {
+            m_aggrColIdx[i] = spec.findColumnIndex(colAggregators[i].getOriginalColName());
+        }
+        final int parallelism = getParallelism();
+        m_aggregatedInParallel = parallelism > 1 && dataTable.size() > getChunkSize() && supportsMerge();
+        final ExecutionMonitor groupExec = exec.createSubProgress(0.7);
+        final PartialResult result;
+        if (m_aggregatedInParallel) {
+            result = aggregateInParallel(groupExec, dataTable, groupColIdx, parallelism);
+        } else {
+            result = new PartialResult();
+            final long rowCount = dataTable.size();
+            long rowCounter = 0;
+            for (final DataRow row : dataTable) {
+                groupExec.checkCanceled();
+                groupExec.setProgress(rowCounter++ / (double)rowCount,
+                    "Analyzing row " + rowCounter + " of " + rowCount);
+                result.addRow(row, groupColIdx);
+            }
+        }
+        m_vals = result.m_vals;
+        m_rowKeys = result.m_rowKeys;
+        return createResultTable(exec.createSubExecutionContext(0.3), resultSpec);
+    }
+
+    /**
+     * Reads the input table in chunks of consecutive rows, aggregates each chunk in a separate task and merges the
+     * partial results in the order of the chunks. At most twice the parallelism chunks are held in memory.
+     */
+    private PartialResult aggregateInParallel(final ExecutionMonitor exec, final BufferedDataTable dataTable,
+        final int[] groupColIdx, final int parallelism) throws CanceledExecutionException {
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(parallelism);
+        final Deque<Future<PartialResult>> futures = new ArrayDeque<>();
+        final PartialResult result = new PartialResult();
+        final Callable<Void> reader = () -> {
+            final int chunkSize = getChunkSize();
+            final long rowCount = dataTable.size();
+            long rowCounter = 0;
+            List<DataRow> chunk = new ArrayList<>(chunkSize);
+            for (final DataRow row : dataTable) {
+                exec.checkCanceled();
+                chunk.add(row);
+                rowCounter++;
+                if (chunk.size() == chunkSize) {
+                    futures.add(pool.enqueue(ThreadUtils.callableWithContext(createChunkTask(chunk, groupColIdx))));
+                    chunk = new ArrayList<>(chunkSize);
+                    //merge finished chunks in order to limit the number of rows and partial results in memory
+                    while (futures.size() >= 2 * parallelism) {
+                        result.merge(futures.poll().get());
+                    }
+                    exec.setProgress(rowCounter / (double)rowCount,
+                        "Analyzing row " + rowCounter + " of " + rowCount);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                futures.add(pool.enqueue(ThreadUtils.callableWithContext(createChunkTask(chunk, groupColIdx))));
+            }
+            while (!futures.isEmpty()) {
+                exec.checkCanceled();
+                result.merge(futures.poll().get());
+            }
+            return null;
+        };
+        try {
+            if (ThreadPool.currentPool() != null) {
+                //the reading thread only waits for the tasks most of the time
+                pool.runInvisible(reader);
+            } else {
+                reader.call();
+            }
+        } catch (final CanceledExecutionException e) {
+            throw e;
+        } catch (final Exception e) {
+            Throwable cause = e;
+            while ((cause instanceof ExecutionException) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CanceledExecutionException) {
+                throw (CanceledExecutionException)cause;
+            } else if (cause instanceof InterruptedException) {
+                throw new CanceledExecutionException("Aggregation canceled");
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            for (final Future<PartialResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    private Callable<PartialResult> createChunkTask(final List<DataRow> chunk, final int[] groupColIdx) {
+        return () -> {
+            final PartialResult partialResult = new PartialResult();
+            for (final DataRow row : chunk) {
+                partialResult.addRow(row, groupColIdx);
+            }
+            return partialResult;
+        };
+    }
+
+    private BufferedDataTable createResultTable(final ExecutionContext exec,
+            final DataTableSpec resultSpec) throws CanceledExecutionException {
+        final BufferedDataContainer dc = exec.createDataContainer(resultSpec);
+        int groupCounter = 0;
+        final int size = m_vals.size();
+        for (final Entry<GroupKey, ColumnAggregator[]> entry
+                : m_vals.entrySet()) {
+            exec.checkCanceled();
+            exec.setProgress(groupCounter / (double)size,
+                    "Writing group " + groupCounter + " of " + size);
+            final GroupKey groupVals = entry.getKey();
+            final ColumnAggregator[] colAggregators = entry.getValue();
+            final RowKey rowKey = RowKey.createRowKey(groupCounter++);
+            final DataCell[] rowVals =
+                new DataCell[groupVals.size() + colAggregators.length];
+            //add the group values first
+            int valIdx = 0;
+            for (final DataCell groupCell : groupVals.getGroupVals()) {
+                rowVals[valIdx++] = groupCell;
+            }
+            //add the aggregation values
+            for (final ColumnAggregator colAggr : colAggregators) {
+                final AggregationOperator operator =
+                    colAggr.getOperator(getGlobalSettings());
+                rowVals[valIdx++] = operator.getResult();
+                if (operator.isSkipped()) {
+                    //add skipped groups and the column that causes the skipping
+                    //into the skipped groups map
+                    addSkippedGroup(colAggr.getOriginalColName(),
+                            operator.getSkipMessage(),
+                            groupVals.getGroupVals());
+                }
+                //reset the operator for the next group
+                operator.reset();
+            }
+            final DataRow newRow = new DefaultRow(rowKey, rowVals);
+            dc.addRowToTable(newRow);
+            //add hilite mappings if enabled
+            if (isEnableHilite()) {
+                final Set<RowKey> oldKeys = m_rowKeys.get(groupVals);
+                addHiliteMapping(rowKey, oldKeys);
+            }
+        }
+        dc.close();
+        m_vals = null;
+        m_rowKeys = null;
+        return dc.getTable();
+    }
+
+    /**
+     * The groups of a range of consecutive rows in the order of their first occurrence.
+     */
+    private final class PartialResult {
+
+        private final Map<GroupKey, ColumnAggregator[]> m_vals = new LinkedHashMap<>();
+
+        private final Map<GroupKey, Set<RowKey>> m_rowKeys = isEnableHilite() ? new HashMap<>() : null;
+
+        void addRow(final DataRow row, final int[] groupColIdx) {
+            final DataCell[] currentGroup = new DataCell[groupColIdx.length];
+            //fetch the current group column values
+            for (int i = 0, length = groupColIdx.length; i < length; i++) {
+                currentGroup[i] = row.getCell(groupColIdx[i]);
+            }
+            final GroupKey groupKey = new GroupKey(currentGroup);
+            ColumnAggregator[] aggregators = m_vals.get(groupKey);
+            if (aggregators == null) {
+                final ColumnAggregator[] origAggregators = getColAggregators();
+                aggregators = new ColumnAggregator[origAggregators.length];
+                for (int i = 0, length = origAggregators.length; i < length; i++) {
+                    aggregators[i] = origAggregators[i].clone();
+                }
+                m_vals.put(groupKey, aggregators);
+            }
+            for (int i = 0, length = aggregators.length; i < length; i++) {
+                aggregators[i].getOperator(getGlobalSettings()).compute(row, m_aggrColIdx[i]);
+            }
+            if (m_rowKeys != null) {
+                Set<RowKey> keySet = m_rowKeys.get(groupKey);
+                if (keySet == null) {
+                    keySet = new HashSet<>();
+                    m_rowKeys.put(groupKey, keySet);
+                }
+                keySet.add(row.getKey());
+            }
+        }
+
+        /**
+         * Merges the partial result of the rows that follow the rows of this result into this result.
+         */
+        void merge(final PartialResult next) {
+            for (final Entry<GroupKey, ColumnAggregator[]> entry : next.m_vals.entrySet()) {
+                final ColumnAggregator[] aggregators = m_vals.get(entry.getKey());
+                if (aggregators == null) {
+                    //new groups are appended which retains the order of their first occurrence
+                    m_vals.put(entry.getKey(), entry.getValue());
+                } else {
+                    final ColumnAggregator[] nextAggregators = entry.getValue();
+                    for (int i = 0, length = aggregators.length; i < length; i++) {
+                        aggregators[i].getOperator(getGlobalSettings())
+                            .merge(nextAggregators[i].getOperator(getGlobalSettings()));
+                    }
+                }
+            }
+            if (m_rowKeys != null) {
+                for (final Entry<GroupKey, Set<RowKey>> entry : next.m_rowKeys.entrySet()) {
+                    final Set<RowKey> keySet = m_rowKeys.get(entry.getKey());
+                    if (keySet == null) {
+                        m_rowKeys.put(entry.getKey(), entry.getValue());
+                    } else {
+                        keySet.addAll(entry.getValue());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,535 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.preproc.joiner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.knime.base.node.preproc.joiner.InputRow.Settings.InDataPort;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.append.AppendedColumnRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.data.util.memory.MemoryAlertSystem.MemoryActionIndicator;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Computes the matches and outer rows of a join with a hybrid hash join. The smaller of the two input tables (by row
+ * count) is the build side, which is hashed into a number of partitions. If memory gets low while the build side is
+ * read, partitions are evicted from memory and their rows are written to disk. The probe side is then read exactly
+ * once: rows of partitions in memory are joined immediately, rows of evicted partitions are written to disk as well.
+ * Each pair of spilled partitions is finally joined exactly once, recursively partitioned by further bits of the hash
+ * code if it does not fit into memory either.
+ *
+ * <p>
+ * Spilled rows carry their index in the input table in an additional last column, which is used to create the
+ * {@link OutputRow}s. The result does not depend on the chosen build side or on the partitions that were spilled.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HybridHashJoin {
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(HybridHashJoin.class);
+
+    private final InputRow.Settings m_inputDataRowSettings;
+
+    private final OutputRow.Settings m_outputDataRowSettings;
+
+    private final boolean m_retainLeft;
+
+    private final boolean m_retainRight;
+
+    private final boolean m_matchAny;
+
+    private final int m_numBitsInitial;
+
+    private final int m_numBitsMaximal;
+
+    private final int m_rowsAddedBeforeForcedOOM;
+
+    private final MemoryActionIndicator m_memIndicator;
+
+    private boolean m_buildLeft;
+
+    private BitSet m_leftMatched;
+
+    private BitSet m_rightMatched;
+
+    private JoinContainer m_outputContainer;
+
+    private long m_rowsAdded;
+
+    private int m_spilledPartitions;
+
+    private double m_processedRows;
+
+    private double m_expectedRows;
+
+    /**
+     * @param inputDataRowSettings the settings to create the join tuples of the input rows
+     * @param outputDataRowSettings the settings to create the output rows
+     * @param retainLeft <code>true</code> if left rows without match should be retained
+     * @param retainRight <code>true</code> if right rows without match should be retained
+     * @param matchAny <code>true</code> if rows match if any of the join columns match
+     * @param numBitsInitial the number of hash code bits used to partition the input tables
+     * @param numBitsMaximal the maximal number of hash code bits used to partition spilled partitions
+     * @param rowsAddedBeforeForcedOOM simulates a low memory condition after that many rows were hashed, 0 to disable
+     */
+    HybridHashJoin(final InputRow.Settings inputDataRowSettings, final OutputRow.Settings outputDataRowSettings,
+        final boolean retainLeft, final boolean retainRight, final boolean matchAny, final int numBitsInitial,
+        final int numBitsMaximal, final int rowsAddedBeforeForcedOOM) {
+        m_inputDataRowSettings = inputDataRowSettings;
+        m_outputDataRowSettings = outputDataRowSettings;
+        m_retainLeft = retainLeft;
+        m_retainRight = retainRight;
+        m_matchAny = matchAny;
+        m_numBitsMaximal = Math.min(Integer.SIZE, Math.max(0, numBitsMaximal));
+        m_numBitsInitial = Math.min(m_numBitsMaximal, Math.max(0, numBitsInitial));
+        m_rowsAddedBeforeForcedOOM = rowsAddedBeforeForcedOOM;
+        m_memIndicator = MemoryAlertSystem.getInstance().newIndicator();
+    }
+
+    /**
+     * @return <code>true</code> if the left table was used as build side in the last join
+     */
+    boolean isBuildLeft() {
+        return m_buildLeft;
+    }
+
+    /**
+     * @return the number of partition pairs that were spilled to disk in the last join
+     */
+    int getSpilledPartitions() {
+        return m_spilledPartitions;
+    }
+
+    /**
+     * Joins the two tables and adds the matches and outer rows to the given container.
+     *
+     * @param leftTable the left input table
+     * @param rightTable the right input table
+     * @param outputContainer the container to add the matches and outer rows to
+     * @param exec the execution context used to report progress and to create the spill tables
+     * @param progressDiff the fraction of the progress of the execution context to use
+     * @throws CanceledExecutionException when execution is canceled
+     */
+    void join(final BufferedDataTable leftTable, final BufferedDataTable rightTable,
+        final JoinContainer outputContainer, final ExecutionContext exec, final double progressDiff)
+        throws CanceledExecutionException {
+        m_outputContainer = outputContainer;
+        m_rowsAdded = 0;
+        m_spilledPartitions = 0;
+        m_processedRows = 0;
+        m_expectedRows = Math.max(1, leftTable.size() + rightTable.size());
+        m_buildLeft = leftTable.size() <= rightTable.size();
+        m_leftMatched = new BitSet();
+        m_rightMatched = new BitSet();
+        LOGGER.debug("Using the " + (m_buildLeft ? "left" : "right") + " table with "
+            + (m_buildLeft ? leftTable.size() : rightTable.size()) + " rows as build side");
+        final BufferedDataTable buildTable = m_buildLeft ? leftTable : rightTable;
+        final BufferedDataTable probeTable = m_buildLeft ? rightTable : leftTable;
+        joinPartition(buildTable, probeTable, false, 0, 0, m_numBitsInitial, exec, progressDiff);
+
+        if (m_retainLeft) {
+            // add left outer joins, the left columns are filled in later by the index
+            final int leftRowCount = (int)leftTable.size();
+            for (int index = m_leftMatched.nextClearBit(0); index < leftRowCount;
+                    index = m_leftMatched.nextClearBit(index + 1)) {
+                final DataRow outRow = OutputRow.createDataRow(m_outputContainer.getRowCount(), index, -1,
+                    m_outputDataRowSettings);
+                m_outputContainer.addLeftOuter(outRow, exec);
+            }
+        }
+        if (m_retainRight && m_matchAny) {
+            // a right row might match in any partition of its join tuples, the rows without match
+            // are therefore collected at the end
+            final long rightRowCount = rightTable.size();
+            if (m_rightMatched.cardinality() < rightRowCount) {
+                exec.setMessage("Collect unmatched rows");
+                int index = 0;
+                for (final DataRow row : rightTable) {
+                    exec.checkCanceled();
+                    if (!m_rightMatched.get(index)) {
+                        addRightOuter(index, row, exec);
+                    }
+                    index++;
+                }
+            }
+        }
+        m_leftMatched = null;
+        m_rightMatched = null;
+    }
+
+    /**
+     * Joins the rows of the build and the probe table whose join tuples have the given prefix in their lowest hash
+     * code bits.
+     *
+     * @param buildTable the build side rows
+     * @param probeTable the probe side rows, might be <code>null</code> if a spilled partition has no probe rows
+     * @param indexed <code>true</code> if the tables are spill tables whose last column holds the row index
+     * @param prefixBits the number of hash code bits that are fixed by the given prefix
+     * @param prefix the prefix of the hash codes of the join tuples to consider
+     * @param numBits the number of hash code bits after the prefix used to partition the rows
+     */
+    private void joinPartition(final BufferedDataTable buildTable, final BufferedDataTable probeTable,
+        final boolean indexed, final int prefixBits, final int prefix, final int numBits,
+        final ExecutionContext exec, final double progressDiff) throws CanceledExecutionException {
+        final int numPartitions = 1 << numBits;
+        final int partitionMask = numPartitions - 1;
+        final int prefixMask = prefixBits >= Integer.SIZE ? -1 : (1 << prefixBits) - 1;
+        // partitions can only be spilled if they can be split into smaller partitions afterwards
+        final boolean canSpill = prefixBits + numBits < m_numBitsMaximal;
+        final InDataPort buildPort = m_buildLeft ? InDataPort.Left : InDataPort.Right;
+        final InDataPort probePort = m_buildLeft ? InDataPort.Right : InDataPort.Left;
+
+        @SuppressWarnings("unchecked")
+        final Map<JoinTuple, Set<Integer>>[] buildTuples = new Map[numPartitions];
+        // the build rows are only needed if the right table is the build side (for the output rows)
+        @SuppressWarnings("unchecked")
+        final Map<Integer, DataRow>[] buildRows = m_buildLeft ? null : new Map[numPartitions];
+        // the position in the build table from which on a partition is spilled, -1 if it is in memory
+        final long[] spillStart = new long[numPartitions];
+        Arrays.fill(spillStart, -1);
+        final BufferedDataContainer[] buildSpill = new BufferedDataContainer[numPartitions];
+        final BufferedDataContainer[] probeSpill = new BufferedDataContainer[numPartitions];
+        final DataTableSpec buildSpillSpec = createSpillSpec(buildTable.getDataTableSpec(), indexed);
+
+        exec.setMessage("Hash " + (m_buildLeft ? "left" : "right") + " table (" + numPartitions + " partitions, "
+            + m_spilledPartitions + " spilled)");
+        long position = 0;
+        long maxSpillStart = -1;
+        for (final DataRow row : buildTable) {
+            exec.checkCanceled();
+            reportProgress(exec, progressDiff);
+            final int index = getIndex(row, indexed, position);
+            final InputRow inputRow = new InputRow(row, index, buildPort, m_inputDataRowSettings);
+            final JoinTuple[] tuples = inputRow.getJoinTuples();
+            for (int t = 0; t < tuples.length; t++) {
+                final int hash = hash(tuples[t]);
+                if ((hash & prefixMask) != prefix) {
+                    continue;
+                }
+                final int partition = (hash >>> prefixBits) & partitionMask;
+                if (spillStart[partition] >= 0) {
+                    if (!isWritten(tuples, t, prefixBits, partitionMask)) {
+                        buildSpill[partition].addRowToTable(createSpillRow(row, indexed, index));
+                        m_expectedRows++;
+                    }
+                } else {
+                    addBuildRow(buildTuples, buildRows, partition, tuples[t], index, row);
+                }
+            }
+            position++;
+            if (canSpill && isMemoryLow()) {
+                final List<Integer> evicted = evictPartitions(buildTuples, buildRows, spillStart, position);
+                for (final int partition : evicted) {
+                    buildSpill[partition] = exec.createDataContainer(buildSpillSpec);
+                }
+                if (!evicted.isEmpty()) {
+                    maxSpillStart = position;
+                    LOGGER.debug("Memory is low, spilled partitions " + evicted + " of " + numPartitions
+                        + " at row " + position + " of the build side");
+                }
+            }
+        }
+
+        if (maxSpillStart > 0) {
+            // the rows of the spilled partitions that were read before the partition was spilled
+            position = 0;
+            for (final DataRow row : buildTable) {
+                if (position >= maxSpillStart) {
+                    break;
+                }
+                exec.checkCanceled();
+                final int index = getIndex(row, indexed, position);
+                final JoinTuple[] tuples =
+                    new InputRow(row, index, buildPort, m_inputDataRowSettings).getJoinTuples();
+                for (int t = 0; t < tuples.length; t++) {
+                    final int hash = hash(tuples[t]);
+                    if ((hash & prefixMask) != prefix) {
+                        continue;
+                    }
+                    final int partition = (hash >>> prefixBits) & partitionMask;
+                    if (position < spillStart[partition] && !isWritten(tuples, t, prefixBits, partitionMask)) {
+                        buildSpill[partition].addRowToTable(createSpillRow(row, indexed, index));
+                        m_expectedRows++;
+                    }
+                }
+                position++;
+            }
+        }
+
+        if (probeTable != null) {
+            exec.setMessage("Join with " + (m_buildLeft ? "right" : "left") + " table (" + numPartitions
+                + " partitions, " + m_spilledPartitions + " spilled)");
+            final DataTableSpec probeSpillSpec = createSpillSpec(probeTable.getDataTableSpec(), indexed);
+            position = 0;
+            for (final DataRow row : probeTable) {
+                exec.checkCanceled();
+                reportProgress(exec, progressDiff);
+                final int index = getIndex(row, indexed, position++);
+                final JoinTuple[] tuples =
+                    new InputRow(row, index, probePort, m_inputDataRowSettings).getJoinTuples();
+                boolean matchFound = false;
+                boolean deferred = false;
+                for (int t = 0; t < tuples.length; t++) {
+                    final int hash = hash(tuples[t]);
+                    if ((hash & prefixMask) != prefix) {
+                        continue;
+                    }
+                    final int partition = (hash >>> prefixBits) & partitionMask;
+                    if (spillStart[partition] >= 0) {
+                        deferred = true;
+                        if (!isWritten(tuples, t, prefixBits, partitionMask)) {
+                            if (probeSpill[partition] == null) {
+                                probeSpill[partition] = exec.createDataContainer(probeSpillSpec);
+                            }
+                            probeSpill[partition].addRowToTable(createSpillRow(row, indexed, index));
+                            m_expectedRows++;
+                        }
+                        continue;
+                    }
+                    final Set<Integer> buildIndices =
+                        buildTuples[partition] == null ? null : buildTuples[partition].get(tuples[t]);
+                    if (buildIndices != null) {
+                        matchFound = true;
+                        for (final Integer buildIndex : buildIndices) {
+                            if (m_buildLeft) {
+                                addMatch(buildIndex, index, row, exec);
+                            } else {
+                                addMatch(index, buildIndex, buildRows[partition].get(buildIndex), exec);
+                            }
+                        }
+                    }
+                }
+                if (!m_buildLeft || matchFound || deferred || !m_retainRight || m_matchAny) {
+                    continue;
+                }
+                // the right row has a single join tuple, which has no match
+                addRightOuter(index, row, exec);
+            }
+        }
+
+        if (!m_buildLeft && m_retainRight && !m_matchAny) {
+            // the right rows of the partitions in memory are complete, each has a single join tuple
+            for (int partition = 0; partition < numPartitions; partition++) {
+                if (buildRows[partition] == null) {
+                    continue;
+                }
+                for (final Map.Entry<Integer, DataRow> e : buildRows[partition].entrySet()) {
+                    if (!m_rightMatched.get(e.getKey())) {
+                        addRightOuter(e.getKey(), e.getValue(), exec);
+                    }
+                }
+            }
+        }
+        // free the memory before the spilled partitions are joined
+        Arrays.fill(buildTuples, null);
+        if (buildRows != null) {
+            Arrays.fill(buildRows, null);
+        }
+
+        final int childBits = Math.min(Math.max(1, m_numBitsInitial), m_numBitsMaximal - prefixBits - numBits);
+        for (int partition = 0; partition < numPartitions; partition++) {
+            if (buildSpill[partition] == null) {
+                continue;
+            }
+            buildSpill[partition].close();
+            final BufferedDataTable spilledBuild = buildSpill[partition].getTable();
+            BufferedDataTable spilledProbe = null;
+            if (probeSpill[partition] != null) {
+                probeSpill[partition].close();
+                spilledProbe = probeSpill[partition].getTable();
+            }
+            final int childPrefixBits = prefixBits + numBits;
+            final int childPrefix = prefix | (childPrefixBits >= Integer.SIZE ? 0 : partition << prefixBits);
+            joinPartition(spilledBuild, spilledProbe, true, childPrefixBits, childPrefix, childBits, exec,
+                progressDiff);
+            exec.clearTable(spilledBuild);
+            if (spilledProbe != null) {
+                exec.clearTable(spilledProbe);
+            }
+        }
+    }
+
+    /**
+     * Evicts half of the non-empty partitions in memory (at least one), the ones with the most join tuples first.
+     *
+     * @return the evicted partitions
+     */
+    private List<Integer> evictPartitions(final Map<JoinTuple, Set<Integer>>[] buildTuples,
+        final Map<Integer, DataRow>[] buildRows, final long[] spillStart, final long position) {
+        final List<Integer> nonEmpty = new ArrayList<>();
+        for (int partition = 0; partition < buildTuples.length; partition++) {
+            if (spillStart[partition] < 0 && buildTuples[partition] != null) {
+                nonEmpty.add(partition);
+            }
+        }
+        nonEmpty.sort((p1, p2) -> Integer.compare(buildTuples[p2].size(), buildTuples[p1].size()));
+        final List<Integer> evicted = new ArrayList<>(nonEmpty.subList(0, (nonEmpty.size() + 1) / 2));
+        for (final int partition : evicted) {
+            spillStart[partition] = position;
+            buildTuples[partition] = null;
+            if (buildRows != null) {
+                buildRows[partition] = null;
+            }
+        }
+        m_spilledPartitions += evicted.size();
+        return evicted;
+    }
+
+    private static void addBuildRow(final Map<JoinTuple, Set<Integer>>[] buildTuples,
+        final Map<Integer, DataRow>[] buildRows, final int partition, final JoinTuple tuple, final int index,
+        final DataRow row) {
+        Map<JoinTuple, Set<Integer>> partTuples = buildTuples[partition];
+        if (partTuples == null) {
+            partTuples = new HashMap<JoinTuple, Set<Integer>>();
+            buildTuples[partition] = partTuples;
+        }
+        Set<Integer> indices = partTuples.get(tuple);
+        if (indices == null) {
+            indices = new HashSet<Integer>();
+            partTuples.put(tuple, indices);
+        }
+        indices.add(index);
+        if (buildRows != null) {
+            Map<Integer, DataRow> partRows = buildRows[partition];
+            if (partRows == null) {
+                partRows = new HashMap<Integer, DataRow>();
+                buildRows[partition] = partRows;
+            }
+            partRows.put(index, row);
+        }
+    }
+
+    private void addMatch(final int leftIndex, final int rightIndex, final DataRow rightRow,
+        final ExecutionContext exec) {
+        final DataRow outRow = OutputRow.createDataRow(m_outputContainer.getRowCount(), leftIndex, rightIndex,
+            rightRow, m_outputDataRowSettings);
+        m_outputContainer.addMatch(outRow, exec);
+        m_leftMatched.set(leftIndex);
+        m_rightMatched.set(rightIndex);
+    }
+
+    private void addRightOuter(final int rightIndex, final DataRow rightRow, final ExecutionContext exec) {
+        final DataRow outRow = OutputRow.createDataRow(m_outputContainer.getRowCount(), -1, rightIndex, rightRow,
+            m_outputDataRowSettings);
+        m_outputContainer.addRightOuter(outRow, exec);
+    }
+
+    private boolean isMemoryLow() {
+        m_rowsAdded++;
+        return m_memIndicator.lowMemoryActionRequired() || ((m_rowsAddedBeforeForcedOOM > 0)
+            && (m_rowsAdded % m_rowsAddedBeforeForcedOOM == (m_rowsAddedBeforeForcedOOM - 1)));
+    }
+
+    private void reportProgress(final ExecutionContext exec, final double progressDiff) {
+        m_processedRows++;
+        exec.setProgress(progressDiff * Math.min(1.0, m_processedRows / m_expectedRows));
+    }
+
+    /**
+     * @return <code>true</code> if one of the join tuples before the given one falls into the same partition, i.e.
+     * the row has already been written to the partition
+     */
+    private static boolean isWritten(final JoinTuple[] tuples, final int t, final int prefixBits,
+        final int partitionMask) {
+        final int partition = (hash(tuples[t]) >>> prefixBits) & partitionMask;
+        for (int i = 0; i < t; i++) {
+            final int hash = hash(tuples[i]);
+            // the prefix of a previous tuple might differ in which case it was not written
+            if (((hash ^ hash(tuples[t])) & lowBits(prefixBits)) == 0
+                    && ((hash >>> prefixBits) & partitionMask) == partition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int lowBits(final int bits) {
+        return bits >= Integer.SIZE ? -1 : (1 << bits) - 1;
+    }
+
+    /**
+     * Spreads the hash code of the join tuple such that all bits depend on all bits of the original hash code, which
+     * is required for partitioning recursively by further bits.
+     */
+    static int hash(final JoinTuple tuple) {
+        final int h = tuple.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int getIndex(final DataRow row, final boolean indexed, final long position) {
+        if (indexed) {
+            return ((IntValue)row.getCell(row.getNumCells() - 1)).getIntValue();
+        }
+        return (int)position;
+    }
+
+    private static DataRow createSpillRow(final DataRow row, final boolean indexed, final int index) {
+        return indexed ? row : new AppendedColumnRow(row, new IntCell(index));
+    }
+
+    private static DataTableSpec createSpillSpec(final DataTableSpec spec, final boolean indexed) {
+        if (indexed) {
+            return spec;
+        }
+        final String indexColumn = DataTableSpec.getUniqueColumnName(spec, "Row Index");
+        return new DataTableSpec(spec, new DataTableSpec(
+            new DataColumnSpecCreator(indexColumn, IntCell.TYPE).createSpec()));
+    }
+}
@@ -49,21 +49,23 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.knime.base.data.sort.SortedTable;
+import org.knime.base.node.preproc.joiner.InputRow.Settings.InDataPort;
 import org.knime.base.node.preproc.joiner.Joiner2Settings.CompositionMode;
 import org.knime.base.node.preproc.joiner.Joiner2Settings.DuplicateHandling;
 import org.knime.base.node.preproc.joiner.Joiner2Settings.JoinMode;
+import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
@@ -72,16 +74,20 @@
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.StringCell;
 import org.knime.core.data.util.memory.MemoryAlertSystem;
 import org.knime.core.data.util.memory.MemoryAlertSystem.MemoryActionIndicator;
+import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeLogger;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
 import org.knime.core.node.util.ConvenienceMethods;
 import org.knime.core.util.UniqueNameGenerator;
 
@@ -91,9 +97,7 @@
  * @author Heiko Hofer
  */
 public final class Joiner {
-    /** Logger to print debug info to. */
-    private static final NodeLogger LOGGER = NodeLogger
-    .getLogger(Joiner.class);
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(Joiner.class);
 
     private final DataTableSpec m_leftDataTableSpec;
     private final DataTableSpec m_rightDataTableSpec;
@@ -111,13 +115,6 @@ public final class Joiner {
      */
     private boolean m_matchAny;
 
-    /**
-     * This field is only used when (m_retainLeft && m_matchAny) is true. It
-     * holds the row indices of the left table that did not match to a row
-     * of the right table.
-     */
-    private Set<Integer> m_globalLeftOuterJoins;
-
     private InputRow.Settings m_inputDataRowSettings;
     private OutputRow.Settings m_outputDataRowSettings;
 
@@ -131,12 +128,9 @@ public final class Joiner {
     private final List<String> m_configWarnings;
     private final List<String> m_runtimeWarnings;
 
-    private int m_numBits;
-    private int m_bitMask;
-
     /** The initial number of partitions the rows are read in. If not all
-     * partitions fit in main memory, they are joined subsequently using as
-     * much memory as possible.
+     * partitions fit in main memory, partitions are spilled to disk and
+     * joined subsequently, see {@link HybridHashJoin}.
      */
     private int m_numBitsInitial = 6;
     /** The maximal number of partitions (changed in testing routines). */
@@ -476,96 +470,33 @@ public BufferedDataTable computeJoinTable(
                 leftTable.getDataTableSpec(),
                 rightTable.getDataTableSpec()});
 
-        if (m_settings.getDuplicateHandling().equals(
-                DuplicateHandling.Filter)) {
-            List<String> leftCols = getLeftIncluded(
-                    leftTable.getDataTableSpec());
-            List<String> rightCols = getRightIncluded(
-                    rightTable.getDataTableSpec());
-            List<String> duplicates = new ArrayList<String>();
-            duplicates.addAll(leftCols);
-            duplicates.retainAll(rightCols);
+        List<String> duplicates = getDuplicates(leftTable.getDataTableSpec(),
+                rightTable.getDataTableSpec());
+        if (!duplicates.isEmpty()) {
             // Check if duplicated columns have identical data
             compareDuplicates(leftTable, rightTable, duplicates);
         }
 
-        BufferedDataTable outerTable = rightTable;
-        BufferedDataTable innerTable = leftTable;
-
-
-        m_retainRight = JoinMode.RightOuterJoin.equals(m_settings.getJoinMode())
-            || JoinMode.FullOuterJoin.equals(m_settings.getJoinMode());
-        m_retainLeft = JoinMode.LeftOuterJoin.equals(m_settings.getJoinMode())
-            || JoinMode.FullOuterJoin.equals(m_settings.getJoinMode());
-
-        // if multipleMatchCanOccur is true, to rows can be match more than
-        // once. This is in general met with the MatchAny Option but only if
-        // there are more than one join column.
-        m_matchAny = m_settings.getCompositionMode()
-            .equals(CompositionMode.MatchAny)
-            && m_settings.getLeftJoinColumns().length > 1;
-
-        if (m_retainLeft && m_matchAny) {
-            m_globalLeftOuterJoins = new HashSet<Integer>();
-            for (int i = 0; i < leftTable.getRowCount(); i++) {
-                m_globalLeftOuterJoins.add(i);
-            }
-        }
-
-
-        m_inputDataRowSettings = createInputDataRowSettings(leftTable,
-                rightTable);
-        int[] rightSurvivors = getIndicesOf(rightTable, m_rightSurvivors);
+        initJoinMode();
+        m_inputDataRowSettings = createInputDataRowSettings(
+                leftTable.getDataTableSpec(), rightTable.getDataTableSpec());
+        int[] rightSurvivors = getIndicesOf(rightTable.getDataTableSpec(),
+                m_rightSurvivors);
         m_outputDataRowSettings = new OutputRow.Settings(
                 rightTable.getDataTableSpec(),
                 rightSurvivors);
 
-        /* numBits -> numPartitions
-         * 0 -> 1
-         * 1 -> 2
-         * 2 -> 4
-         * 3 -> 8
-         * 4 -> 16
-         * 5 -> 32
-         * 6 -> 64
-         * 7 -> 128
-         */
-        m_numBits = m_numBitsInitial;
-        int numPartitions = 0x0001 << m_numBits;
-        m_bitMask = 0;
-        for (int i = 0; i < m_numBits; i++) {
-            m_bitMask += 0x0001 << i;
-        }
-
-        Set<Integer> pendingParts = new TreeSet<Integer>();
-        for (int i = 0; i < numPartitions; i++) {
-            pendingParts.add(i);
-        }
-
-
         JoinContainer joinCont = new JoinContainer(
                 m_outputDataRowSettings);
 
         double[] progressIntervals = new double[] {0.6, 0.2, 0.2};
         exec.setProgress(0.0);
-        while (pendingParts.size() > 0) {
-            Collection<Integer> processedParts = performJoin(
-                    innerTable, outerTable,
-                    joinCont, pendingParts, exec, progressIntervals[0]);
-            pendingParts.removeAll(processedParts);
-        }
-
-
-        if (m_retainLeft && m_matchAny) {
-            // Add left outer joins
-            int c = 0;
-            for (Integer index : m_globalLeftOuterJoins) {
-                DataRow outRow = OutputRow.createDataRow(c, index, -1,
-                        m_outputDataRowSettings);
-                joinCont.addLeftOuter(outRow, exec);
-                c++;
-            }
-        }
+        HybridHashJoin hashJoin = new HybridHashJoin(m_inputDataRowSettings,
+                m_outputDataRowSettings, m_retainLeft, m_retainRight,
+                m_matchAny, m_numBitsInitial, m_numBitsMaximal,
+                m_rowsAddedBeforeForcedOOM);
+        hashJoin.join(leftTable, rightTable, joinCont, exec,
+                progressIntervals[0]);
         joinCont.close();
 
         // numbers are needed to report progress more precisely
@@ -594,13 +525,15 @@ public BufferedDataTable computeJoinTable(
 
         exec.setMessage("Merge Joined Partitions");
         // Build sorted table
-        int[] leftSurvivors = getIndicesOf(leftTable, m_leftSurvivors);
+        int[] leftSurvivors = getIndicesOf(leftTable.getDataTableSpec(),
+                m_leftSurvivors);
 
         DataHiliteOutputContainer oc =
             new DataHiliteOutputContainer(joinedTableSpec,
                     m_settings.getEnableHiLite(), leftTable,
                     leftSurvivors, rightSurvivors,
-                    createRowKeyFactory(leftTable, rightTable));
+                    createRowKeyFactory(leftTable.getDataTableSpec(),
+                            rightTable.getDataTableSpec()));
         oc.addTableAndFilterDuplicates(matches,
                 exec.createSubExecutionContext(
                         progressIntervals[2] * numMatches / totalNumJoins));
@@ -618,379 +551,238 @@ public BufferedDataTable computeJoinTable(
         return oc.getTable();
     }
 
-    /** This method start with reading the partitions of the left table defined
-     * in currParts. If memory is low, partitions will be skipped or the
-     * number of partitions will be raised which leads to smaller partitions.
-     * Successfully read partitions will be joined. The return collection
-     * defines the successfully processed partitions.
+    /**
+     * Joins the rows of the <code>leftInput</code>, which are streamed, with
+     * the <code>rightTable</code>, which is hashed in memory. The matches of
+     * a left row are pushed to the <code>output</code> as soon as the row is
+     * read, unmatched rows are pushed once the left input is exhausted. The
+     * rows are pushed in the same order as the rows of the table created by
+     * {@link #computeJoinTable(BufferedDataTable, BufferedDataTable,
+     * ExecutionContext)}. If memory gets low while the right table is hashed,
+     * the left input is materialized and joined with the hybrid hash join
+     * instead.
      *
-     * @param leftTable The inner input table.
-     * @param rightTable The right input table.
-     * @param outputContainer The container used for storing matches.
-     * @param pendingParts The parts that are not processed yet.
-     * @param exec The execution context.
-     * @param progressDiff The difference in the progress monitor.
-     * @return The partitions that were successfully processed (read + joined).
+     * @param leftInput The left input, which is streamed.
+     * @param rightTable The right input table, which is hashed in memory.
+     * @param output The output the joined rows are pushed to, it is closed
+     *            at the end.
+     * @param exec The Execution monitor for this execution.
      * @throws CanceledExecutionException when execution is canceled
+     * @throws InvalidSettingsException when inconsistent settings are provided
+     * @throws InterruptedException when interrupted while reading the input
+     *             or writing the output
+     * @since 3.7
      */
-    private Collection<Integer> performJoin(
-            final BufferedDataTable leftTable,
-            final BufferedDataTable rightTable,
-            final JoinContainer outputContainer,
-            final Collection<Integer> pendingParts,
-            final ExecutionContext exec,
-            final double progressDiff) throws CanceledExecutionException  {
-        // Update increment for reporting progress
-        double progress = exec.getProgressMonitor().getProgress();
-        double numRows = leftTable.size() + rightTable.size();
-        double inc = (progressDiff - progress) / numRows;
-
-        Collection<Integer> currParts = new ArrayList<Integer>();
-        currParts.addAll(pendingParts);
-        setMessage("Read", exec, pendingParts, currParts);
-
-        // Partition left table
-        Map <Integer, Map<JoinTuple, Set<Integer>>> leftTableHashed =
-            new HashMap<Integer, Map<JoinTuple, Set<Integer>>>();
-        // This is only used when m_leftRetain is true and m_matchAny is false.
-        // It holds the row indices of the left table that do not match to
-        // any row of the right table
-        Map <Integer, Set<Integer>> leftOuterJoins =
-            new HashMap<Integer, Set<Integer>>();
-
-        MemoryActionIndicator memIndicator = MemoryAlertSystem.getInstance().newIndicator();
-
-        int counter = 0;
-        long rowsAdded = 0;
-        CloseableRowIterator leftIter = leftTable.iterator();
-        while (leftIter.hasNext()) {
-            exec.checkCanceled();
-            boolean saveToAddMoreRows =
-                !memIndicator.lowMemoryActionRequired()
-                    && ((m_rowsAddedBeforeForcedOOM == 0)
-                            || (rowsAdded % m_rowsAddedBeforeForcedOOM != (m_rowsAddedBeforeForcedOOM - 1)));
-
-            if (saveToAddMoreRows) {
-                DataRow row = leftIter.next();
-                InputRow inputDataRow = new InputRow(row, counter,
-                        InputRow.Settings.InDataPort.Left,
-                        m_inputDataRowSettings);
-
-                for (JoinTuple tuple : inputDataRow.getJoinTuples()) {
-                    int partition = tuple.hashCode() & m_bitMask;
-                    if (currParts.contains(partition)) {
-                        addRow(leftTableHashed, leftOuterJoins,
-                                partition, tuple, inputDataRow);
-                        rowsAdded++;
-                    }
-                }
-                counter++;
-                // report progress
-                progress += inc;
-                exec.getProgressMonitor().setProgress(progress);
-            } else {
-                rowsAdded++;
-
-                // Build list of partitions that are not empty
-                List<Integer> nonEmptyPartitions = new ArrayList<Integer>();
-                for (Integer i : currParts) {
-                    if (null != leftTableHashed.get(i)) {
-                        nonEmptyPartitions.add(i);
-                    }
+    public void computeJoinTable(final RowInput leftInput,
+            final BufferedDataTable rightTable, final RowOutput output,
+            final ExecutionContext exec) throws CanceledExecutionException,
+            InvalidSettingsException, InterruptedException {
+        m_runtimeWarnings.clear();
+        m_leftRowKeyMap.clear();
+        m_rightRowKeyMap.clear();
+
+        DataTableSpec leftSpec = leftInput.getDataTableSpec();
+        DataTableSpec rightSpec = rightTable.getDataTableSpec();
+        // This does some input data checking, too
+        DataTableSpec joinedTableSpec = createSpec(new DataTableSpec[] {
+                leftSpec, rightSpec});
+
+        initJoinMode();
+        m_inputDataRowSettings = createInputDataRowSettings(leftSpec,
+                rightSpec);
+
+        // Hash the right table, fall back to the hybrid hash join when it
+        // does not fit into memory
+        exec.setMessage("Hash bottom table");
+        MemoryActionIndicator memIndicator =
+            MemoryAlertSystem.getInstance().newIndicator();
+        ExecutionContext hashExec = exec.createSubExecutionContext(0.5);
+        double rightRowCount = Math.max(1, rightTable.size());
+        List<DataRow> rightRows = new ArrayList<DataRow>();
+        Map<JoinTuple, List<Integer>> rightTuples =
+            new HashMap<JoinTuple, List<Integer>>();
+        try (CloseableRowIterator rightIter = rightTable.iterator()) {
+            while (rightIter.hasNext()) {
+                hashExec.checkCanceled();
+                if (memIndicator.lowMemoryActionRequired()
+                        || (m_rowsAddedBeforeForcedOOM > 0
+                        && rightRows.size() >= m_rowsAddedBeforeForcedOOM)) {
+                    LOGGER.debug("Memory is low, the top table is "
+                            + "materialized after " + rightRows.size()
+                            + " rows of the bottom table were hashed");
+                    rightRows = null;
+                    rightTuples = null;
+                    joinMaterialized(leftInput, rightTable, output, exec);
+                    return;
                 }
-                int numNonEmpty = nonEmptyPartitions.size();
-                if (numNonEmpty > 1) {
-                    // remove input partitions to free memory
-                    List<Integer> removeParts = new ArrayList<Integer>();
-                    for (int i = 0; i < numNonEmpty / 2; i++) {
-                        removeParts.add(nonEmptyPartitions.get(i));
-                    }
-                    // remove collected data of the no longer processed
-                    for (int i : removeParts) {
-                        leftTableHashed.remove(i);
-                        if (m_retainLeft && !m_matchAny) {
-                            leftOuterJoins.remove(i);
-                        }
-                    }
-                    currParts.removeAll(removeParts);
-                    LOGGER.debug("Skip partitions while "
-                            + "reading inner table. Currently Processed: "
-                            + currParts + ". Skip: " + removeParts);
-                    // update increment for reporting progress
-                    numRows += leftTable.size() + rightTable.size();
-                    inc = (progressDiff - progress) / numRows;
-
-                    setMessage("Read", exec, pendingParts, currParts);
-                } else if (nonEmptyPartitions.size() == 1) {
-                    if (m_numBits < m_numBitsMaximal) {
-                        LOGGER.debug("Increase number of partitions while "
-                                + "reading inner table. Currently "
-                                + "Processed: " + nonEmptyPartitions);
-
-                        // increase number of partitions
-                        m_numBits = m_numBits + 1;
-                        m_bitMask = m_bitMask | (0x0001 << (m_numBits - 1));
-                        Set<Integer> pending = new TreeSet<Integer>();
-                        pending.addAll(pendingParts);
-                        pendingParts.clear();
-                        for (int i : pending) {
-                            pendingParts.add(i);
-                            int ii = i | (0x0001 << (m_numBits - 1));
-                            pendingParts.add(ii);
-                        }
-
-                        int currPart = nonEmptyPartitions.iterator().next();
-                        currParts.clear();
-                        currParts.add(currPart);
-                        // update chunk size
-                        retainPartitions(leftTableHashed, leftOuterJoins,
-                                currPart);
-                        // update increment for reporting progress
-                        numRows += leftTable.size() + rightTable.size();
-                        inc = (progressDiff - progress) / numRows;
-
-                        setMessage("Read", exec, pendingParts, currParts);
-                    } else {
-                        // We have now 2^32 partitions.
-                        // We can only keep going and hope that other nodes
-                        // may free some memory.
-                        LOGGER.warn("Memory is low. "
-                            + "I have no chance to free memory. This may "
-                            + "cause an endless loop.");
+                DataRow row = rightIter.next();
+                int index = rightRows.size();
+                rightRows.add(row);
+                for (JoinTuple tuple : new InputRow(row, index,
+                        InDataPort.Right, m_inputDataRowSettings)
+                        .getJoinTuples()) {
+                    List<Integer> indices = rightTuples.get(tuple);
+                    if (null == indices) {
+                        indices = new ArrayList<Integer>(1);
+                        rightTuples.put(tuple, indices);
                     }
-                } else if (nonEmptyPartitions.size() < 1) {
-                    // We have only empty partitions.
-                    // Other node consume to much memory,
-                    // we cannot free more memory
-                    LOGGER.warn("Memory is low. "
-                            + "I have no chance to free memory. This may "
-                            + "cause an endless loop.");
+                    indices.add(index);
                 }
+                hashExec.setProgress(index / rightRowCount);
             }
         }
 
-        setMessage("Join", exec, pendingParts, currParts);
-        // Join with outer table
-        joinInMemory(leftTableHashed, leftOuterJoins,
-                currParts, rightTable,
-                outputContainer,
-                exec, inc);
-
-
-        // Log which parts were successfully joined
-        for (int part : currParts) {
-            int numTuples = leftTableHashed.get(part) != null
-            ? leftTableHashed.get(part).values().size() : 0;
-            LOGGER.debug("Joined " + part + " with "
-                    + numTuples + " tuples.");
+        // Stream the left input
+        exec.setMessage("Join top table");
+        List<String> duplicates = getDuplicates(leftSpec, rightSpec);
+        int[] leftDuplicates = getIndicesOf(leftSpec, duplicates);
+        int[] rightDuplicates = getIndicesOf(rightSpec, duplicates);
+        String[] duplicateMessages = new String[duplicates.size()];
+        int[] leftSurvivors = getIndicesOf(leftSpec, m_leftSurvivors);
+        int[] rightSurvivors = getIndicesOf(rightSpec, m_rightSurvivors);
+        JoinedRowKeyFactory rowKeyFactory =
+            createRowKeyFactory(leftSpec, rightSpec);
+        BitSet rightMatched = new BitSet(rightRows.size());
+        BufferedDataContainer leftOuter = m_retainLeft
+            ? exec.createDataContainer(joinedTableSpec) : null;
+        SortedSet<Integer> matches = new TreeSet<Integer>();
+        int leftIndex = 0;
+        DataRow left;
+        while ((left = leftInput.poll()) != null) {
+            exec.checkCanceled();
+            if (leftIndex < rightRows.size()) {
+                compareDuplicateCells(left, rightRows.get(leftIndex),
+                        leftDuplicates, rightDuplicates, duplicates,
+                        duplicateMessages);
+            }
+            matches.clear();
+            for (JoinTuple tuple : new InputRow(left, leftIndex,
+                    InDataPort.Left, m_inputDataRowSettings)
+                    .getJoinTuples()) {
+                List<Integer> indices = rightTuples.get(tuple);
+                if (null != indices) {
+                    matches.addAll(indices);
+                }
+            }
+            for (int rightIndex : matches) {
+                rightMatched.set(rightIndex);
+                output.push(createJoinedRow(left, leftSurvivors,
+                        rightRows.get(rightIndex), rightSurvivors,
+                        rowKeyFactory));
+            }
+            if (matches.isEmpty() && m_retainLeft) {
+                leftOuter.addRowToTable(createJoinedRow(left, leftSurvivors,
+                        null, rightSurvivors, rowKeyFactory));
+            }
+            leftIndex++;
         }
+        addDuplicateWarnings(leftIndex, rightRows.size(), duplicates,
+                duplicateMessages);
 
-        // Garbage collector has problems without this explicit clearance.
-        leftTableHashed.clear();
-        leftOuterJoins.clear();
-
-        // return successfully joined parts
-        return currParts;
-    }
-
-    /**
-     * @param exec
-     * @param pendingParts
-     * @param currParts
-     */
-    private void setMessage(final String activity,
-            final ExecutionContext exec,
-            final Collection<Integer> pendingParts,
-            final Collection<Integer> currParts) {
-        exec.setMessage(activity + " " + currParts.size()
-                + " parts | Pending : "
-                + (pendingParts.size() - currParts.size())
-                + " parts | Total: "
-                + (1 << m_numBits)
-                + " parts.");
+        if (m_retainLeft) {
+            leftOuter.close();
+            for (DataRow row : leftOuter.getTable()) {
+                output.push(row);
+            }
+        }
+        if (m_retainRight) {
+            for (int rightIndex = rightMatched.nextClearBit(0);
+                    rightIndex < rightRows.size();
+                    rightIndex = rightMatched.nextClearBit(rightIndex + 1)) {
+                output.push(createJoinedRow(null, leftSurvivors,
+                        rightRows.get(rightIndex), rightSurvivors,
+                        rowKeyFactory));
+            }
+        }
+        output.close();
     }
 
     /**
-     * Called when the number of partitions is doubled. The innerHash is
-     * traversed and only those entries that are in the given part are
-     * retained. The innerIndexMap is build up so that it contains only
-     * the entries that are in the given part.
+     * Reads the left input into a table, joins it with the right table and
+     * pushes the result to the output.
      */
-    private void retainPartitions(
-            final Map<Integer, Map<JoinTuple, Set<Integer>>> innerHash,
-            final Map<Integer, Set<Integer>> innerIndexMap,
-            final int part) {
-        innerIndexMap.clear();
-
-        Map<JoinTuple, Set<Integer>> thisInnerHash = innerHash.get(part);
-        for (Iterator<JoinTuple> iter = thisInnerHash.keySet().iterator();
-        iter.hasNext();) {
-            JoinTuple tuple = iter.next();
-            int index = tuple.hashCode() & m_bitMask;
-            if (index != part) {
-                iter.remove();
-            } else if (m_retainLeft && !m_matchAny) {
-                Set<Integer> thisInnerIndexMap = innerIndexMap.get(index);
-                if (null == thisInnerIndexMap) {
-                    thisInnerIndexMap = new HashSet<Integer>();
-                    innerIndexMap.put(index, thisInnerIndexMap);
-                }
-                for (Integer rowIndex : thisInnerHash.get(tuple)) {
-                    thisInnerIndexMap.add(rowIndex);
-                }
-            }
+    private void joinMaterialized(final RowInput leftInput,
+            final BufferedDataTable rightTable, final RowOutput output,
+            final ExecutionContext exec) throws CanceledExecutionException,
+            InvalidSettingsException, InterruptedException {
+        exec.setMessage("Read top table");
+        BufferedDataContainer leftCont =
+            exec.createDataContainer(leftInput.getDataTableSpec());
+        DataRow row;
+        while ((row = leftInput.poll()) != null) {
+            exec.checkCanceled();
+            leftCont.addRowToTable(row);
+        }
+        leftCont.close();
+        BufferedDataTable joined = computeJoinTable(leftCont.getTable(),
+                rightTable, exec.createSubExecutionContext(0.5));
+        for (DataRow joinedRow : joined) {
+            output.push(joinedRow);
         }
+        output.close();
     }
 
     /**
-     * Add a row to innerHash and innerIndexMap.
-     * @param partition The index of the partition.
-     * @param joinTuple The join tuples of the row.
-     * @param row The row to be added.
+     * Creates the joined row of the given rows, a row that is
+     * <code>null</code> is replaced by missing cells.
      */
-    private void addRow(
-            final Map <Integer, Map<JoinTuple, Set<Integer>>> leftTableHashed,
-            final Map <Integer, Set<Integer>> leftOuterJoins,
-            final int partition, final JoinTuple joinTuple,
-            final InputRow row) {
-        if (m_retainLeft  && !m_matchAny) {
-            Set<Integer> indices = leftOuterJoins.get(partition);
-            if (null == indices) {
-                indices = new HashSet<Integer>();
-                leftOuterJoins.put(partition, indices);
-            }
-            indices.add(row.getIndex());
+    private DataRow createJoinedRow(final DataRow left,
+            final int[] leftSurvivors, final DataRow right,
+            final int[] rightSurvivors,
+            final JoinedRowKeyFactory rowKeyFactory) {
+        DataCell[] cells =
+            new DataCell[leftSurvivors.length + rightSurvivors.length];
+        int c = 0;
+        for (int i = 0; i < leftSurvivors.length; i++) {
+            cells[c++] = null != left ? left.getCell(leftSurvivors[i])
+                : DataType.getMissingCell();
         }
-
-        Map<JoinTuple, Set<Integer>> partTuples =
-            leftTableHashed.get(partition);
-        if (null == partTuples) {
-            partTuples = new HashMap<JoinTuple, Set<Integer>>();
-            leftTableHashed.put(partition, partTuples);
+        for (int i = 0; i < rightSurvivors.length; i++) {
+            cells[c++] = null != right ? right.getCell(rightSurvivors[i])
+                : DataType.getMissingCell();
         }
-
-
-        Set<Integer> c = partTuples.get(joinTuple);
-        if (null != c) {
-            c.add(row.getIndex());
-        } else {
-            Set<Integer> list = new HashSet<Integer>();
-            list.add(row.getIndex());
-            partTuples.put(joinTuple, list);
+        RowKey leftKey = null != left ? left.getKey() : null;
+        RowKey rightKey = null != right ? right.getKey() : null;
+        RowKey joinedKey = rowKeyFactory.createJoinedKey(leftKey, rightKey);
+        if (m_settings.getEnableHiLite()) {
+            addToRowKeyMap(m_leftRowKeyMap, leftKey, joinedKey);
+            addToRowKeyMap(m_rightRowKeyMap, rightKey, joinedKey);
         }
-
-
+        return new DefaultRow(joinedKey, cells);
     }
 
-
-    /**
-     * Join given rows in memory and append joined row to the outputCont.
-     *
-     * @param leftTableHashed Stores the rows of the left input table in parts.
-     * @param leftOuterJoins The same number as found in leftTableHashed used
-     * for left outer joins.
-     * @param currParts The parts of the outer table that will be joined.
-     * @param rightTable The outer table.
-     * @param outputCont The joined rows will be added to this container.
-     * @param exec The {@link ExecutionContext}
-     * @param incProgress The progress increment.
-     * @throws CanceledExecutionException When execution is canceled
-     */
-    private void joinInMemory(
-            final Map <Integer, Map<JoinTuple, Set<Integer>>> leftTableHashed,
-            final Map <Integer, Set<Integer>> leftOuterJoins,
-            final Collection<Integer> currParts,
-            final BufferedDataTable rightTable,
-            final JoinContainer outputCont,
-            final ExecutionContext exec,
-            final double incProgress) throws CanceledExecutionException {
-        double progress = exec.getProgressMonitor().getProgress();
-        int counter = 0;
-        for (DataRow dataRow : rightTable) {
-            progress += incProgress;
-            exec.getProgressMonitor().setProgress(progress);
-            exec.checkCanceled();
-
-            InputRow rightRow = new InputRow(dataRow, counter,
-                    InputRow.Settings.InDataPort.Right,
-                    m_inputDataRowSettings);
-
-            boolean matchFoundForRightRow = false;
-            boolean deferMatch = false;
-
-            for (JoinTuple joinTuple : rightRow.getJoinTuples()) {
-                int partition = joinTuple.hashCode() & m_bitMask;
-                if (!currParts.contains(partition)) {
-                    deferMatch = true;
-                    // skip and defer non-match when partition is not in the current partitions
-                    continue;
-                }
-
-                Map<JoinTuple, Set<Integer>> leftTuples =
-                    leftTableHashed.get(partition);
-                if (null == leftTuples) {
-                    // skip and check for outer join when the left table does not have rows that fall
-                    // in this partition
-                    deferMatch = false;
-                    continue;
-                }
-
-                Set<Integer> localLeftOuterJoins = null;
-                if (m_retainLeft  && !m_matchAny) {
-                    localLeftOuterJoins = leftOuterJoins.get(partition);
-                }
-
-                Set<Integer> leftRows = leftTuples.get(joinTuple);
-                if (null != leftRows) {
-                    matchFoundForRightRow = true;
-                    for (Integer leftRowIndex : leftRows) {
-                        // add inner join
-                        DataRow outRow = OutputRow.createDataRow(
-                                outputCont.getRowCount(),
-                                leftRowIndex, rightRow.getIndex(),
-                                dataRow,
-                                m_outputDataRowSettings);
-                        outputCont.addMatch(outRow, exec);
-                        if (m_retainLeft && !m_matchAny) {
-                            localLeftOuterJoins.remove(leftRowIndex);
-                        }
-                        if (m_retainLeft && m_matchAny) {
-                            m_globalLeftOuterJoins.remove(leftRowIndex);
-                        }
-                    }
-                }
-            }
-
-
-            if (m_retainRight && !matchFoundForRightRow && !deferMatch) {
-                long outRowIndex = outputCont.getRowCount();
-                // add right outer join
-                DataRow outRow = OutputRow.createDataRow(outRowIndex,
-                        -1, rightRow.getIndex(),
-                        dataRow,
-                        m_outputDataRowSettings);
-                outputCont.addRightOuter(outRow, exec);
+    private static void addToRowKeyMap(
+            final HashMap<RowKey, Set<RowKey>> rowKeyMap, final RowKey key,
+            final RowKey joinedKey) {
+        if (null != key) {
+            Set<RowKey> keySet = rowKeyMap.get(key);
+            if (null == keySet) {
+                keySet = new HashSet<RowKey>();
+                rowKeyMap.put(key, keySet);
             }
-            counter++;
+            keySet.add(joinedKey);
         }
+    }
 
-        if (m_retainLeft && !m_matchAny) {
-            for (int partition : leftOuterJoins.keySet()) {
-                for (Integer row : leftOuterJoins.get(partition)) {
-                    // add left outer join
-                    DataRow outRow = OutputRow.createDataRow(
-                            outputCont.getRowCount(),
-                            row, -1,
-                            m_outputDataRowSettings);
-                    outputCont.addLeftOuter(outRow, exec);
-                }
-            }
-        }
+    /**
+     * Sets the join mode of the next join from the settings.
+     */
+    private void initJoinMode() {
+        m_retainRight = JoinMode.RightOuterJoin.equals(m_settings.getJoinMode())
+            || JoinMode.FullOuterJoin.equals(m_settings.getJoinMode());
+        m_retainLeft = JoinMode.LeftOuterJoin.equals(m_settings.getJoinMode())
+            || JoinMode.FullOuterJoin.equals(m_settings.getJoinMode());
 
+        // if multipleMatchCanOccur is true, to rows can be match more than
+        // once. This is in general met with the MatchAny Option but only if
+        // there are more than one join column.
+        m_matchAny = m_settings.getCompositionMode()
+            .equals(CompositionMode.MatchAny)
+            && m_settings.getLeftJoinColumns().length > 1;
     }
 
     private List<Integer> getLeftJoinIndices(
-            final BufferedDataTable leftTable) {
+            final DataTableSpec leftSpec) {
         // Create list of indices for the joining columns (Element of the list
         // is -1 if RowKey should be joined).
         int numJoinAttributes = m_settings.getLeftJoinColumns().length;
@@ -999,15 +791,14 @@ private List<Integer> getLeftJoinIndices(
         for (int i = 0; i < numJoinAttributes; i++) {
             String joinAttribute = m_settings.getLeftJoinColumns()[i];
             leftTableJoinIndices.add(
-                    leftTable.getDataTableSpec().findColumnIndex(
-                            joinAttribute));
+                    leftSpec.findColumnIndex(joinAttribute));
         }
         return leftTableJoinIndices;
     }
 
 
     private List<Integer> getRightJoinIndices(
-            final BufferedDataTable rightTable) {
+            final DataTableSpec rightSpec) {
         // Create list of indices for the joining columns (Element of the list
         // is -1 if RowKey should be joined).
         int numJoinAttributes = m_settings.getLeftJoinColumns().length;
@@ -1015,18 +806,18 @@ private List<Integer> getRightJoinIndices(
             new ArrayList<Integer>(numJoinAttributes);
         for (int i = 0; i < numJoinAttributes; i++) {
             String joinAttribute = m_settings.getRightJoinColumns()[i];
-            rightTableJoinIndices.add(rightTable.getDataTableSpec()
-                    .findColumnIndex(joinAttribute));
+            rightTableJoinIndices.add(
+                    rightSpec.findColumnIndex(joinAttribute));
         }
         return rightTableJoinIndices;
     }
 
     private JoinedRowKeyFactory createRowKeyFactory(
-            final BufferedDataTable leftTable,
-            final BufferedDataTable rightTable) {
+            final DataTableSpec leftSpec,
+            final DataTableSpec rightSpec) {
 
 
-        if (useSingleRowKeyFactory(leftTable, rightTable)) {
+        if (useSingleRowKeyFactory(leftSpec, rightSpec)) {
             // This is the special case of row key match row key
             return new UseSingleRowKeyFactory();
         } else {
@@ -1039,10 +830,10 @@ private JoinedRowKeyFactory createRowKeyFactory(
      * Gives true when the SingleRowKeyFactory should be used.
      */
     private boolean useSingleRowKeyFactory(
-           final BufferedDataTable leftTable,
-           final BufferedDataTable rightTable) {
-        List<Integer> leftTableJoinIndices = getLeftJoinIndices(leftTable);
-        List<Integer> rightTableJoinIndices = getRightJoinIndices(rightTable);
+           final DataTableSpec leftSpec,
+           final DataTableSpec rightSpec) {
+        List<Integer> leftTableJoinIndices = getLeftJoinIndices(leftSpec);
+        List<Integer> rightTableJoinIndices = getRightJoinIndices(rightSpec);
 
         boolean joinRowIdsOnly = true;
         boolean joinRowIds = false;
@@ -1061,10 +852,10 @@ private boolean useSingleRowKeyFactory(
     }
 
     private InputRow.Settings createInputDataRowSettings(
-            final BufferedDataTable leftTable,
-            final BufferedDataTable rightTable) {
-        List<Integer> leftTableJoinIndices = getLeftJoinIndices(leftTable);
-        List<Integer> rightTableJoinIndices = getRightJoinIndices(rightTable);
+            final DataTableSpec leftSpec,
+            final DataTableSpec rightSpec) {
+        List<Integer> leftTableJoinIndices = getLeftJoinIndices(leftSpec);
+        List<Integer> rightTableJoinIndices = getRightJoinIndices(rightSpec);
 
 
 
@@ -1132,6 +923,24 @@ public static  void validateSettings(final Joiner2Settings s)
 
     }
 
+    /**
+     * @param leftSpec The spec of the left input table
+     * @param rightSpec The spec of the right input table
+     * @return the columns that are filtered from the right table since
+     *         they are duplicates of left columns, empty if duplicates are
+     *         not filtered
+     */
+    private List<String> getDuplicates(final DataTableSpec leftSpec,
+            final DataTableSpec rightSpec) {
+        List<String> duplicates = new ArrayList<String>();
+        if (m_settings.getDuplicateHandling().equals(
+                DuplicateHandling.Filter)) {
+            duplicates.addAll(getLeftIncluded(leftSpec));
+            duplicates.retainAll(getRightIncluded(rightSpec));
+        }
+        return duplicates;
+    }
+
     /**
      * @param leftTable The left input table
      * @param rightTable The right input table
@@ -1140,44 +949,68 @@ public static  void validateSettings(final Joiner2Settings s)
     private void compareDuplicates(final BufferedDataTable leftTable,
             final BufferedDataTable rightTable, final List<String> duplicates) {
 
-        int[] leftIndex = getIndicesOf(leftTable, duplicates);
-        int[] rightIndex = getIndicesOf(rightTable, duplicates);
+        int[] leftIndex = getIndicesOf(leftTable.getDataTableSpec(),
+                duplicates);
+        int[] rightIndex = getIndicesOf(rightTable.getDataTableSpec(),
+                duplicates);
 
         String[] messages = new String[duplicates.size()];
 
-        CloseableRowIterator leftIter = leftTable.iterator();
-        CloseableRowIterator rightIter = rightTable.iterator();
-        while (leftIter.hasNext()) {
-            if (!rightIter.hasNext()) {
-                // right table has less rows
-                m_runtimeWarnings.add("Possible problem in configuration "
-                        + "found. The \"Duplicate Column Handling\" is "
-                        + "configured to  filter duplicates, but the "
-                        + "duplicate columns are not equal since the "
-                        + "top table has more elements than the bottom "
-                        + "table.");
-                break;
+        try (CloseableRowIterator leftIter = leftTable.iterator();
+                CloseableRowIterator rightIter = rightTable.iterator()) {
+            while (leftIter.hasNext() && rightIter.hasNext()) {
+                compareDuplicateCells(leftIter.next(), rightIter.next(),
+                        leftIndex, rightIndex, duplicates, messages);
             }
-            DataRow left = leftIter.next();
-            DataRow right = rightIter.next();
-            for (int i = 0; i < duplicates.size(); i++) {
-                if (null == messages[i]
-                                     && !left.getCell(leftIndex[i]).equals(
-                                             right.getCell(rightIndex[i]))) {
-                    // Two cells do not match
-                    messages[i] = "The column \"" + duplicates.get(i)
-                    + "\" can be found in "
-                    + "both input tables but the content is not "
-                    + "equal. "
-                    + "Only the one in the top input table will show "
-                    + "up in the output table. Please change the "
-                    + "Duplicate Column Handling if both columns "
-                    + "should show up in the output table.";
-                }
+        }
+        addDuplicateWarnings(leftTable.size(), rightTable.size(), duplicates,
+                messages);
+    }
+
+    /**
+     * Compares the duplicate columns of two rows at the same position in
+     * their tables and remembers a message for each column whose cells do
+     * not match.
+     */
+    private static void compareDuplicateCells(final DataRow left,
+            final DataRow right, final int[] leftIndex, final int[] rightIndex,
+            final List<String> duplicates, final String[] messages) {
+        for (int i = 0; i < duplicates.size(); i++) {
+            if (null == messages[i]
+                                 && !left.getCell(leftIndex[i]).equals(
+                                         right.getCell(rightIndex[i]))) {
+                // Two cells do not match
+                messages[i] = "The column \"" + duplicates.get(i)
+                + "\" can be found in "
+                + "both input tables but the content is not "
+                + "equal. "
+                + "Only the one in the top input table will show "
+                + "up in the output table. Please change the "
+                + "Duplicate Column Handling if both columns "
+                + "should show up in the output table.";
             }
+        }
+    }
 
+    /**
+     * Adds the warnings of the comparison of the duplicate columns to the
+     * runtime warnings.
+     */
+    private void addDuplicateWarnings(final long leftRowCount,
+            final long rightRowCount, final List<String> duplicates,
+            final String[] messages) {
+        if (duplicates.isEmpty()) {
+            return;
         }
-        if (rightIter.hasNext()) {
+        if (leftRowCount > rightRowCount) {
+            // right table has less rows
+            m_runtimeWarnings.add("Possible problem in configuration "
+                    + "found. The \"Duplicate Column Handling\" is "
+                    + "configured to  filter duplicates, but the "
+                    + "duplicate columns are not equal since the "
+                    + "top table has more elements than the bottom "
+                    + "table.");
+        } else if (rightRowCount > leftRowCount) {
             // right table has more rows
             m_runtimeWarnings.add("Possible problem in configuration found. "
                     + "The \"Duplicate Column Handling\" is configured to "
@@ -1194,18 +1027,18 @@ private void compareDuplicates(final BufferedDataTable leftTable,
 
     /**
      * Used in compareDuplicates.
-     * @param table A DataTable
+     * @param spec The spec of a DataTable
      * @param cols Columns of the table
      * @return the indices of the given columns in the table.
      */
-    private int[] getIndicesOf(final BufferedDataTable table,
+    private int[] getIndicesOf(final DataTableSpec spec,
             final List<String> cols) {
         int[] indices = new int[cols.size()];
         int c = 0;
 
         for (String col : cols) {
-            for (int i = 0; i < table.getDataTableSpec().getNumColumns(); i++) {
-                if (table.getSpec().getColumnSpec(i).getName().equals(col)) {
+            for (int i = 0; i < spec.getNumColumns(); i++) {
+                if (spec.getColumnSpec(i).getName().equals(col)) {
                     indices[c] = i;
                 }
             }
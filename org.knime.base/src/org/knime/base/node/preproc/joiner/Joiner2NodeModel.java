@@ -65,10 +65,20 @@
 import org.knime.core.node.NodeSettings;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.property.hilite.DefaultHiLiteMapper;
 import org.knime.core.node.property.hilite.HiLiteHandler;
 import org.knime.core.node.property.hilite.HiLiteMapper;
 import org.knime.core.node.property.hilite.HiLiteTranslator;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 
 /**
  * This is the model of the joiner node. It delegates the dirty work to the
@@ -133,6 +143,14 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         BufferedDataTable[] joinedTable = new BufferedDataTable[]{
                 joiner.computeJoinTable(inData[0], inData[1], exec)};
 
+        setJoinResults(joiner);
+        return joinedTable;
+    }
+
+    /**
+     * Sets the warnings and the hilite mapping of the finished join.
+     */
+    private void setJoinResults(final Joiner joiner) {
         if (!joiner.getRuntimeWarnings().isEmpty()) {
             for (String warning : joiner.getRuntimeWarnings()) {
                 setWarningMessage(warning);
@@ -144,8 +162,51 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         m_rightMapper = new DefaultHiLiteMapper(m_rightRowKeyMap);
         m_leftTranslator.setMapper(m_leftMapper);
         m_rightTranslator.setMapper(m_rightMapper);
+    }
 
-        return joinedTable;
+    /**
+     * The bottom table is hashed in memory and the top table is streamed.
+     * The top table is not distributed since the hilite mapping and the
+     * duplicate column checks need to see all of its rows.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        return new InputPortRole[]{InputPortRole.NONDISTRIBUTED_STREAMABLE,
+            InputPortRole.NONDISTRIBUTED_NONSTREAMABLE};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OutputPortRole[] getOutputPortRoles() {
+        return new OutputPortRole[]{OutputPortRole.NONDISTRIBUTED};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(
+            final PartitionInfo partitionInfo,
+            final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        return new StreamableOperator() {
+            @Override
+            public void runFinal(final PortInput[] inputs,
+                    final PortOutput[] outputs, final ExecutionContext exec)
+                    throws Exception {
+                BufferedDataTable rightTable = (BufferedDataTable)
+                    ((PortObjectInput)inputs[1]).getPortObject();
+                RowInput leftInput = (RowInput)inputs[0];
+                Joiner joiner = new Joiner(leftInput.getDataTableSpec(),
+                        rightTable.getDataTableSpec(), m_settings);
+                joiner.computeJoinTable(leftInput, rightTable,
+                        (RowOutput)outputs[0], exec);
+                setJoinResults(joiner);
+            }
+        };
     }
 
     /**
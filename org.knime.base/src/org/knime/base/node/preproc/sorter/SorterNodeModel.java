@@ -173,6 +173,8 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         BufferedDataTableSorter sorter = new BufferedDataTableSorter(
                 inData[INPORT], m_inclList, m_sortOrder, m_missingToEnd);
         sorter.setSortInMemory(m_sortInMemory);
+        // same result, but columns are only compared once per row (if all sort columns are supported)
+        sorter.setUseNormalizedKeys(true);
         BufferedDataTable sortedTable = sorter.sort(exec);
 
         return new BufferedDataTable[]{sortedTable};
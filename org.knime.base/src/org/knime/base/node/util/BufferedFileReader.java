@@ -660,6 +660,43 @@ public static BufferedFileReader createNewReader(final InputStream in) {
 
     }
 
+    /**
+     * Same as {@link #createNewReader(InputStream)}, but decodes the stream
+     * with the specified character set. The stream is read as is, it is not
+     * tested for compression.
+     *
+     * @param in the stream to read from
+     * @param charsetName the character set to use. Must be supported by the
+     *            VM. If null, the default charset is used.
+     * @return a new buffered reader with some extra functionality (compared to
+     *         the {@link BufferedReader}), but no file size (even if the
+     *         stream reads from a file).
+     * @throws java.nio.charset.IllegalCharsetNameException If the given charset
+     *             name is illegal
+     * @throws java.nio.charset.UnsupportedCharsetException If no support for
+     *             the named charset is available in this instance of the Java
+     *             virtual machine
+     * @since 3.7
+     */
+    public static BufferedFileReader createNewReader(final InputStream in,
+            final String charsetName) {
+        if (in == null) {
+            throw new NullPointerException("Can't open a reader on a null "
+                    + "input stream");
+        }
+
+        Charset cs = Charset.defaultCharset();
+        if (charsetName != null) {
+            cs = Charset.forName(charsetName);
+        }
+
+        // the stream used to get the byte count from
+        ByteCountingStream sourceStream = new ByteCountingStream(in);
+        InputStreamReader readerStream = new InputStreamReader(sourceStream, cs);
+
+        return new BufferedFileReader(readerStream, sourceStream, 0);
+    }
+
     private void setZipEntryName(final String name) {
         m_zipEntryName = name;
     }
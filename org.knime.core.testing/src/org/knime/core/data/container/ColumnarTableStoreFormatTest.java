@@ -0,0 +1,184 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.UnmaterializedCell;
+import org.knime.core.data.container.storage.AbstractTableStoreReader;
+import org.knime.core.data.container.storage.AbstractTableStoreReader.TableStoreCloseableRowIterator;
+import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.util.FileUtil;
+
+/**
+ * Tests the {@link ColumnarTableStoreFormat}, in particular reading with a column filter.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ColumnarTableStoreFormatTest {
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new String[]{"Int", "Long", "Double", "Boolean", "String"},
+        new DataType[]{IntCell.TYPE, LongCell.TYPE, DoubleCell.TYPE, BooleanCell.TYPE, StringCell.TYPE});
+
+    private File m_tempDir;
+
+    /** Creates temp directory. */
+    @Before
+    public void setUp() throws Exception {
+        m_tempDir = FileUtil.createTempDir(getClass().getSimpleName());
+    }
+
+    /** Deletes temp directory. */
+    @After
+    public void tearDown() {
+        FileUtil.deleteRecursively(m_tempDir);
+    }
+
+    private static List<DataRow> createRows(final int count) {
+        List<DataRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DataCell[] cells;
+            if (i % 17 == 0) {
+                cells = new DataCell[]{DataType.getMissingCell(), new MissingCell("error " + i),
+                    DataType.getMissingCell(), DataType.getMissingCell(), DataType.getMissingCell()};
+            } else {
+                cells = new DataCell[]{new IntCell(i), new LongCell(Long.MAX_VALUE - i), new DoubleCell(i / 3.0),
+                    BooleanCell.get(i % 2 == 0), new StringCell("Row " + i)};
+            }
+            rows.add(new DefaultRow(RowKey.createRowKey((long)i), cells));
+        }
+        return rows;
+    }
+
+    private AbstractTableStoreReader writeAndCreateReader(final List<DataRow> rows) throws Exception {
+        ColumnarTableStoreFormat format = new ColumnarTableStoreFormat();
+        File file = new File(m_tempDir, "table" + format.getFilenameSuffix());
+        NodeSettings settings = new NodeSettings("format");
+        try (AbstractTableStoreWriter writer = format.createWriter(file, SPEC, true)) {
+            for (DataRow r : rows) {
+                writer.writeRow(r);
+            }
+            writer.close();
+            writer.writeMetaInfoAfterWrite(settings);
+        }
+        return format.createReader(file, SPEC, settings, null, Buffer.IVERSION, true);
+    }
+
+    /** Writes and reads all columns (spanning multiple chunks). */
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<DataRow> rows = createRows(3 * ColumnarTableStoreFormat.getRowsPerChunk(SPEC) + 7);
+        AbstractTableStoreReader reader = writeAndCreateReader(rows);
+        int index = 0;
+        try (TableStoreCloseableRowIterator it = reader.iteratorBuilder().build()) {
+            while (it.hasNext()) {
+                DataRow expected = rows.get(index++);
+                DataRow actual = it.next();
+                assertEquals(expected.getKey(), actual.getKey());
+                for (int c = 0; c < SPEC.getNumColumns(); c++) {
+                    assertEquals("Cell " + c + " in row " + expected.getKey(), expected.getCell(c),
+                        actual.getCell(c));
+                }
+            }
+        }
+        assertEquals(rows.size(), index);
+    }
+
+    /** Reads only two columns, others are expected to be not materialized. */
+    @Test
+    public void testColumnFilter() throws Exception {
+        List<DataRow> rows = createRows(1000);
+        AbstractTableStoreReader reader = writeAndCreateReader(rows);
+        int index = 0;
+        try (TableStoreCloseableRowIterator it = reader.iteratorBuilder().filterColumns(2, 4).build()) {
+            while (it.hasNext()) {
+                DataRow expected = rows.get(index++);
+                DataRow actual = it.next();
+                assertEquals(expected.getKey(), actual.getKey());
+                assertSame(UnmaterializedCell.getInstance(), actual.getCell(0));
+                assertSame(UnmaterializedCell.getInstance(), actual.getCell(1));
+                assertSame(UnmaterializedCell.getInstance(), actual.getCell(3));
+                assertEquals(expected.getCell(2), actual.getCell(2));
+                assertEquals(expected.getCell(4), actual.getCell(4));
+            }
+        }
+        assertEquals(rows.size(), index);
+    }
+
+    /** Empty table. */
+    @Test
+    public void testEmptyTable() throws Exception {
+        AbstractTableStoreReader reader = writeAndCreateReader(new ArrayList<>());
+        try (TableStoreCloseableRowIterator it = reader.iteratorBuilder().build()) {
+            assertFalse(it.hasNext());
+        }
+        assertTrue(new ColumnarTableStoreFormat().accepts(SPEC));
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.MissingValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the {@link CompactRowList}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompactRowListTest {
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("int", IntCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("long", LongCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("double", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("string", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("boolean", BooleanCell.TYPE).createSpec());
+
+    private static BlobSupportDataRow createRow(final int i) {
+        final DataCell[] cells = new DataCell[5];
+        cells[0] = i % 7 == 0 ? DataType.getMissingCell() : new IntCell(i);
+        cells[1] = i % 11 == 0 ? new MissingCell("error " + i) : new LongCell(1000000000000L * i);
+        cells[2] = i % 13 == 0 ? new IntCell(i) : new DoubleCell(i / 3.0);
+        cells[3] = i % 5 == 0 ? DataType.getMissingCell() : new StringCell("value " + (i % 17));
+        cells[4] = BooleanCell.get(i % 2 == 0);
+        return new BlobSupportDataRow(RowKey.createRowKey((long)i), cells);
+    }
+
+    /** All cells, including missing cells with error and cells of unexpected class, are restored. */
+    @Test
+    public void testRoundTrip() {
+        final CompactRowList list = new CompactRowList(SPEC, 0);
+        final List<BlobSupportDataRow> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final BlobSupportDataRow row = createRow(i);
+            expected.add(row);
+            list.add(row);
+        }
+        list.trimToSize();
+        list.close();
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final BlobSupportDataRow row = list.get(i);
+            assertEquals(expected.get(i).getKey(), row.getKey());
+            for (int c = 0; c < SPEC.getNumColumns(); c++) {
+                final DataCell expectedCell = expected.get(i).getRawCell(c);
+                assertEquals("Row " + i + ", column " + c, expectedCell, row.getRawCell(c));
+                assertSame(expectedCell.getClass(), row.getRawCell(c).getClass());
+                if (expectedCell.isMissing()) {
+                    assertEquals(((MissingValue)expectedCell).getError(),
+                        ((MissingValue)row.getRawCell(c)).getError());
+                }
+            }
+        }
+    }
+
+    /** String columns with mostly distinct values still return all values. */
+    @Test
+    public void testDistinctStrings() {
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("string", StringCell.TYPE).createSpec());
+        final CompactRowList list = new CompactRowList(spec, 0);
+        final int rowCount = 20000;
+        for (int i = 0; i < rowCount; i++) {
+            final DataCell cell = i % 100 == 0 ? new IntCell(i) : new StringCell("distinct " + i);
+            list.add(new BlobSupportDataRow(RowKey.createRowKey((long)i), new DataCell[]{cell}));
+        }
+        list.close();
+        for (int i = 0; i < rowCount; i++) {
+            final DataCell expected = i % 100 == 0 ? new IntCell(i) : new StringCell("distinct " + i);
+            assertEquals(expected, list.get(i).getCell(0));
+        }
+    }
+
+    /** The compact representation of a numeric table is considerably smaller than the rows of cells. */
+    @Test
+    public void testEstimateBytes() {
+        final DataTableSpec spec = new DataTableSpec(new String[]{"a", "b", "c"},
+            new DataType[]{DoubleCell.TYPE, DoubleCell.TYPE, IntCell.TYPE});
+        final CompactRowList list = new CompactRowList(spec, 0);
+        final List<BlobSupportDataRow> rows = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            final BlobSupportDataRow row = new BlobSupportDataRow(RowKey.createRowKey((long)i),
+                new DataCell[]{new DoubleCell(i), new DoubleCell(-i), new IntCell(i)});
+            rows.add(row);
+            list.add(row);
+        }
+        list.trimToSize();
+        final long compact = list.estimateBytes();
+        final long plain = TableCache.estimateBytes(rows, rows.size());
+        assertTrue("Compact size " + compact + " not smaller than " + plain, compact < plain);
+        assertEquals(compact, TableCache.estimateBytes(list, list.size()));
+    }
+
+    /** Closed lists are read-only. */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddToClosedList() {
+        final CompactRowList list = new CompactRowList(SPEC, 0);
+        list.close();
+        list.add(createRow(1));
+    }
+}
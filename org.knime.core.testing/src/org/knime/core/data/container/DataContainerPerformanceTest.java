@@ -0,0 +1,138 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Measures the throughput of {@link DataContainer#addRowToTable(org.knime.core.data.DataRow)} for narrow and wide
+ * rows, with synchronous and asynchronous writes. Run manually, results are logged.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+@Ignore("Benchmark, run manually")
+public class DataContainerPerformanceTest {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DataContainerPerformanceTest.class);
+
+    private static final int WARMUP_RUNS = 2;
+
+    private static final int RUNS = 5;
+
+    private static DataTableSpec createSpec(final int columnCount) {
+        DataColumnSpec[] colSpecs = new DataColumnSpec[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            colSpecs[i] =
+                new DataColumnSpecCreator("Column " + i, i % 2 == 0 ? IntCell.TYPE : DoubleCell.TYPE).createSpec();
+        }
+        return new DataTableSpec(colSpecs);
+    }
+
+    private static DataCell[] createCells(final int columnCount, final int row) {
+        DataCell[] cells = new DataCell[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            cells[i] = i % 2 == 0 ? new IntCell(row + i) : new DoubleCell(row * 0.5 + i);
+        }
+        return cells;
+    }
+
+    /** Writes the rows and returns the time in ns (including close). */
+    private static long runOnce(final DataTableSpec spec, final int rowCount, final boolean isSynchronous) {
+        final int columnCount = spec.getNumColumns();
+        // pre-create a few cell arrays, the benchmark is about the container, not about cell creation
+        DataCell[][] cells = new DataCell[64][];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = createCells(columnCount, i);
+        }
+        long start = System.nanoTime();
+        DataContainer container = new DataContainer(spec, false, 0, isSynchronous);
+        for (int i = 0; i < rowCount; i++) {
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), cells[i & 63]));
+        }
+        container.close();
+        long time = System.nanoTime() - start;
+        container.getBufferedTable().clear();
+        return time;
+    }
+
+    private static void benchmark(final int columnCount, final int rowCount) {
+        DataTableSpec spec = createSpec(columnCount);
+        for (boolean isSynchronous : new boolean[]{true, false}) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                runOnce(spec, rowCount, isSynchronous);
+            }
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                best = Math.min(best, runOnce(spec, rowCount, isSynchronous));
+            }
+            LOGGER.infoWithFormat("%4d columns, %s: %,10.0f rows/s", columnCount,
+                isSynchronous ? "synchronous " : "asynchronous", rowCount / (best / 1e9));
+        }
+        LOGGER.info(TableWriteScheduler.getInstance());
+    }
+
+    /** Narrow rows (3 columns). */
+    @Test
+    public void testNarrowRows() {
+        benchmark(3, 5000000);
+    }
+
+    /** Wide rows (500 columns). */
+    @Test
+    public void testWideRows() {
+        benchmark(500, 40000);
+    }
+
+}
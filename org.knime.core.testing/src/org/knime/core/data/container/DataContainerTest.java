@@ -635,6 +635,60 @@ public void run() {
         }
     } // testBigFile()
 
+    /** Restoring a table into memory after it has been iterated on disk repeatedly (regression test). */
+    public void testRestoreIntoMemoryAfterDiskIterations() {
+        final int colCount = 5;
+        final int rowCount = 100;
+        DataTableSpec spec = new DataTableSpec(createNames(colCount), createTypes(colCount));
+        DataContainer container = new DataContainer(spec, true, 0);
+        final ObjectToDataCellConverter conv = new ObjectToDataCellConverter();
+        final long seed = System.currentTimeMillis();
+        Random rand = new Random(seed);
+        for (int i = 0; i < rowCount; i++) {
+            container.addRowToTable(createRandomRow(i, colCount, rand, conv));
+        }
+        container.close();
+        final ContainerTable table = container.getBufferedTable();
+        assertTrue(table.getBuffer().usesOutFile());
+        // two iterations from disk, the second one may already promote the table back into memory
+        assertRows(table, seed, colCount, rowCount, conv);
+        assertRows(table, seed, colCount, rowCount, conv);
+        table.restoreIntoMemory();
+        assertRows(table, seed, colCount, rowCount, conv);
+        assertRows(table, seed, colCount, rowCount, conv);
+    }
+
+    private static String[] createNames(final int colCount) {
+        String[] names = new String[colCount];
+        for (int c = 0; c < colCount; c++) {
+            names[c] = "Column " + c;
+        }
+        return names;
+    }
+
+    private static DataType[] createTypes(final int colCount) {
+        DataType[] types = new DataType[colCount];
+        for (int c = 0; c < colCount; c++) {
+            switch (c % 3) {
+                case 0: types[c] = DoubleCell.TYPE; break;
+                case 1: types[c] = StringCell.TYPE; break;
+                case 2: types[c] = IntCell.TYPE; break;
+                default: throw new InternalError();
+            }
+        }
+        return types;
+    }
+
+    private static void assertRows(final ContainerTable table, final long seed, final int colCount,
+        final int rowCount, final ObjectToDataCellConverter conv) {
+        Random rand = new Random(seed);
+        int i = 0;
+        for (RowIterator it = table.iterator(); it.hasNext(); i++) {
+            assertEquals(createRandomRow(i, colCount, rand, conv), it.next());
+        }
+        assertEquals(rowCount, i);
+    }
+
     /** Test if the domain is retained. */
     public void testTableDomain() {
         RowKey r1Key = new RowKey("row 1");
@@ -695,25 +749,35 @@ public void testAsyncWriteLimits() throws Exception {
         Assume.assumeTrue(!DataContainer.SYNCHRONOUS_IO);
         final int limit = Platform.ARCH_X86.equals(Platform.getOSArch()) ? 10 : 50;
         Assert.assertEquals(limit, DataContainer.MAX_ASYNC_WRITE_THREADS);
+        final TableWriteScheduler scheduler = TableWriteScheduler.getInstance();
+        assertTrue("too many write threads: " + scheduler.getThreadCount(), scheduler.getThreadCount() <= limit);
+        final int rowsPerContainer = 5 * DataContainer.ASYNC_CACHE_SIZE + 3;
+        final long fallbackCountBefore = scheduler.getSyncFallbackCount();
         RowIterator infinitIterator = generateRows(Integer.MAX_VALUE);
         List<DataContainer> containerList = new ArrayList<DataContainer>();
         try {
-            boolean isAsync;
-            do {
-                int activeCount = DataContainer.ASYNC_EXECUTORS.getActiveCount();
+            // many more open containers than threads, they all share the write threads
+            for (int i = 0; i < 4 * limit; i++) {
                 DataContainer c = new DataContainer(SPEC_STR_INT_DBL, true, 0);
-                c.addRowToTable(infinitIterator.next());
-                // no activeCount is incremented by one - so order of two lines is important.
                 containerList.add(c);
-                isAsync = activeCount <= limit;
-                assertEquals("unexpected async write behavior, active thread count is " + activeCount,
-                    isAsync, !c.isSynchronousWrite());
-            } while (isAsync);
+                for (int r = 0; r < rowsPerContainer; r++) {
+                    c.addRowToTable(infinitIterator.next());
+                }
+                assertTrue("unexpected number of active write threads: " + scheduler.getActiveThreadCount(),
+                    scheduler.getActiveThreadCount() <= scheduler.getThreadCount());
+            }
         } finally {
             for (DataContainer c : containerList) {
                 c.close();
             }
         }
+        long asyncCount = containerList.stream().filter(c -> !c.isSynchronousWrite()).count();
+        assertEquals("unexpected number of containers falling back to synchronous writes",
+            containerList.size() - asyncCount, scheduler.getSyncFallbackCount() - fallbackCountBefore);
+        for (DataContainer c : containerList) {
+            assertEquals(rowsPerContainer, c.size());
+            assertEquals(rowsPerContainer, c.getBufferedTable().size());
+        }
     }
 
     /**
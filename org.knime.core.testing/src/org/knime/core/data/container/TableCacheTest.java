@@ -0,0 +1,133 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the byte accounting, eviction order and promotion of the {@link TableCache}. The entries used here do not
+ * reference a buffer, hence evicted entries are only removed from the accounting.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TableCacheTest {
+
+    /** Longer strings and more cells result in larger estimates; the estimate scales with the row count. */
+    @Test
+    public void testEstimateBytes() {
+        final DataRow small = new DefaultRow("Row0", new IntCell(1), new DoubleCell(2.0));
+        final DataRow large = new DefaultRow("Row0", new IntCell(1), new DoubleCell(2.0),
+            new StringCell("a rather long string value that takes some memory"));
+        assertTrue(TableCache.estimateBytes(small) > 0);
+        assertTrue(TableCache.estimateBytes(large) > TableCache.estimateBytes(small));
+        final List<DataRow> rows = new ArrayList<>(Collections.nCopies(1000, small));
+        final long estimate = TableCache.estimateBytes(rows, rows.size());
+        assertEquals(2 * estimate, TableCache.estimateBytes(rows, 2 * rows.size()));
+        assertEquals(0, TableCache.estimateBytes(Collections.<DataRow> emptyList(), 0));
+    }
+
+    /** The least recently iterated table is evicted first. */
+    @Test
+    public void testEvictLeastRecentlyIterated() {
+        final TableCache cache = new TableCache(1000);
+        final TableCache.Entry first = new TableCache.Entry(null);
+        final TableCache.Entry second = new TableCache.Entry(null);
+        final TableCache.Entry third = new TableCache.Entry(null);
+        cache.put(first, 400);
+        cache.put(second, 400);
+        cache.onIteration(first);
+        cache.put(third, 400);
+        assertTrue(cache.isCached(first));
+        assertFalse("Least recently iterated table not evicted", cache.isCached(second));
+        assertTrue(cache.isCached(third));
+        assertEquals(800, cache.getUsedBytes());
+        cache.remove(first);
+        assertEquals(400, cache.getUsedBytes());
+    }
+
+    /** A table that is larger than the cache is not kept in memory. */
+    @Test
+    public void testTableLargerThanCache() {
+        final TableCache cache = new TableCache(1000);
+        final TableCache.Entry entry = new TableCache.Entry(null);
+        cache.put(entry, 2000);
+        assertFalse(cache.isCached(entry));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    /** Tables are only read back into memory after repeated iterations from disk and if they fit. */
+    @Test
+    public void testPromotion() {
+        final TableCache cache = new TableCache(1000);
+        final TableCache.Entry entry = new TableCache.Entry(null);
+        for (int i = 1; i < TableCache.PROMOTION_THRESHOLD; i++) {
+            cache.onIteration(entry);
+        }
+        assertFalse("Promoted before threshold", cache.tryPromote(entry, () -> 100));
+        cache.onIteration(entry);
+        final TableCache.Entry tooLarge = new TableCache.Entry(null);
+        for (int i = 0; i < TableCache.PROMOTION_THRESHOLD; i++) {
+            cache.onIteration(tooLarge);
+        }
+        assertFalse("Table larger than headroom promoted", cache.tryPromote(tooLarge, () -> 2000));
+        assertTrue("Hot table not promoted", cache.tryPromote(entry, () -> 100));
+        assertTrue(cache.isCached(entry));
+        assertEquals(100, cache.getUsedBytes());
+        assertFalse("Cached table promoted twice", cache.tryPromote(entry, () -> 100));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.storage.AbstractTableStoreReader;
+import org.knime.core.data.container.storage.AbstractTableStoreReader.TableStoreCloseableRowIterator;
+import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
+import org.knime.core.data.container.storage.TableStoreCompressionCodecRegistry;
+import org.knime.core.data.container.storage.TableStoreFormat;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.util.FileUtil;
+
+/**
+ * Writes and reads tables with all registered {@link TableStoreCompressionCodec}s. The (ignored) benchmark compares
+ * write/read throughput and file size of the codecs for a numeric and a string table, run it manually when changing
+ * a codec.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TableCompressionCodecPerformanceTest {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(TableCompressionCodecPerformanceTest.class);
+
+    private static final DataTableSpec NUMERIC_SPEC = new DataTableSpec(
+        new String[]{"Int", "Double 1", "Double 2", "Double 3"},
+        new DataType[]{IntCell.TYPE, DoubleCell.TYPE, DoubleCell.TYPE, DoubleCell.TYPE});
+
+    private static final DataTableSpec STRING_SPEC = new DataTableSpec(
+        new String[]{"Category", "Text"}, new DataType[]{StringCell.TYPE, StringCell.TYPE});
+
+    private File m_tempDir;
+
+    /** Creates temp directory. */
+    @Before
+    public void setUp() throws Exception {
+        m_tempDir = FileUtil.createTempDir(getClass().getSimpleName());
+    }
+
+    /** Deletes temp directory. */
+    @After
+    public void tearDown() {
+        FileUtil.deleteRecursively(m_tempDir);
+    }
+
+    private static DataRow createRow(final DataTableSpec spec, final int index, final Random random) {
+        DataCell[] cells;
+        if (spec == NUMERIC_SPEC) {
+            cells = new DataCell[]{new IntCell(random.nextInt(100)), new DoubleCell(index),
+                new DoubleCell(random.nextInt(1000) / 10.0), new DoubleCell(random.nextGaussian())};
+        } else {
+            cells = new DataCell[]{new StringCell("Category " + random.nextInt(20)),
+                new StringCell("Some longer text for row " + index + " with value " + random.nextInt(1000))};
+        }
+        return new DefaultRow(RowKey.createRowKey((long)index), cells);
+    }
+
+    /** Writes the table, returns the meta information as written by the writer. */
+    private static NodeSettings write(final TableStoreFormat format, final TableStoreCompressionCodec codec,
+        final DataTableSpec spec, final int rowCount, final File file) throws Exception {
+        NodeSettings settings = new NodeSettings("format");
+        Random random = new Random(rowCount);
+        try (AbstractTableStoreWriter writer = format.createWriter(file, spec, true, codec)) {
+            for (int i = 0; i < rowCount; i++) {
+                writer.writeRow(createRow(spec, i, random));
+            }
+            writer.close();
+            writer.writeMetaInfoAfterWrite(settings);
+        }
+        return settings;
+    }
+
+    /** Reads the table and validates its content. */
+    private static void readAndValidate(final TableStoreFormat format, final DataTableSpec spec, final int rowCount,
+        final File file, final NodeSettings settings) throws Exception {
+        AbstractTableStoreReader reader = format.createReader(file, spec, settings, null, Buffer.IVERSION, true);
+        Random random = new Random(rowCount);
+        int index = 0;
+        try (TableStoreCloseableRowIterator it = reader.iteratorBuilder().build()) {
+            while (it.hasNext()) {
+                DataRow expected = createRow(spec, index, random);
+                DataRow actual = it.next();
+                assertEquals(expected.getKey(), actual.getKey());
+                for (int c = 0; c < spec.getNumColumns(); c++) {
+                    assertEquals(expected.getCell(c), actual.getCell(c));
+                }
+                index += 1;
+            }
+        }
+        assertEquals("Row count", rowCount, index);
+    }
+
+    /** Writes and reads a table with each codec and each of the default and columnar formats. */
+    @Test
+    public void testRoundTripAllCodecs() throws Exception {
+        TableStoreFormat[] formats = new TableStoreFormat[]{new DefaultTableStoreFormat(),
+            new ColumnarTableStoreFormat()};
+        for (TableStoreFormat format : formats) {
+            for (TableStoreCompressionCodec codec : TableStoreCompressionCodecRegistry.getInstance().getCodecs()) {
+                for (DataTableSpec spec : new DataTableSpec[]{NUMERIC_SPEC, STRING_SPEC}) {
+                    File file = new File(m_tempDir, codec.getName() + format.getFilenameSuffix());
+                    NodeSettings settings = write(format, codec, spec, 5000, file);
+                    assertEquals(codec.getName(), settings.getString(DefaultTableStoreFormat.CFG_COMPRESSION));
+                    readAndValidate(format, spec, 5000, file, settings);
+                }
+            }
+        }
+    }
+
+    /** Compares the codecs, results are logged. */
+    @Test
+    @Ignore("Benchmark, run manually")
+    public void benchmarkCodecs() throws Exception {
+        final int rowCount = 2000000;
+        final int runs = 3;
+        TableStoreFormat format = new DefaultTableStoreFormat();
+        for (DataTableSpec spec : new DataTableSpec[]{NUMERIC_SPEC, STRING_SPEC}) {
+            for (TableStoreCompressionCodec codec : TableStoreCompressionCodecRegistry.getInstance().getCodecs()) {
+                long writeTime = 0;
+                long readTime = 0;
+                long size = 0;
+                for (int run = 0; run < runs; run++) {
+                    File file = new File(m_tempDir, codec.getName() + run + format.getFilenameSuffix());
+                    long start = System.nanoTime();
+                    NodeSettings settings = write(format, codec, spec, rowCount, file);
+                    writeTime += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    readAndValidate(format, spec, rowCount, file, settings);
+                    readTime += System.nanoTime() - start;
+                    size = file.length();
+                    file.delete();
+                }
+                LOGGER.infoWithFormat("%-8s %-8s write: %6d ms, read: %6d ms, size: %8.1f MB",
+                    spec == NUMERIC_SPEC ? "numeric" : "string", codec.getName(), writeTime / runs / 1000000,
+                    readTime / runs / 1000000, size / 1024.0 / 1024.0);
+            }
+        }
+    }
+
+}
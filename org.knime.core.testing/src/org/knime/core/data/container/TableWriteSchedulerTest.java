@@ -0,0 +1,189 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TableWriteScheduler} and its ring buffer based {@link TableWriteScheduler.WriteQueue}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TableWriteSchedulerTest {
+
+    private static final Object END = new Object();
+
+    /** Consumer that checks that the elements arrive in order. */
+    private static final class OrderCheckingConsumer implements TableWriteScheduler.ElementConsumer {
+
+        private long m_last = -1L;
+
+        private final long m_failAt;
+
+        OrderCheckingConsumer(final long failAt) {
+            m_failAt = failAt;
+        }
+
+        @Override
+        public boolean consume(final Object element) throws Exception {
+            if (element == END) {
+                return true;
+            }
+            long value = (Long)element;
+            if (value != m_last + 1) {
+                throw new IllegalStateException("Unexpected element " + value + ", last was " + m_last);
+            }
+            m_last = value;
+            if (value == m_failAt) {
+                throw new IllegalArgumentException("Failing at " + value);
+            }
+            return false;
+        }
+    }
+
+    /** Ring length depends on row width, is a power of two and respects the lower bound. */
+    @Test
+    public void testQueueCapacity() {
+        assertEquals(TableWriteScheduler.MAX_QUEUE_CAPACITY, TableWriteScheduler.getQueueCapacity(1, 10));
+        assertEquals(512, TableWriteScheduler.getQueueCapacity(64, 10));
+        assertEquals(16, TableWriteScheduler.getQueueCapacity(100000, 10));
+        assertEquals(1024, TableWriteScheduler.getQueueCapacity(100000, 1000));
+        for (int cells = 1; cells < 10000; cells += 7) {
+            assertEquals(1, Integer.bitCount(TableWriteScheduler.getQueueCapacity(cells, 10)));
+        }
+    }
+
+    /** Many containers with small rings writing concurrently; all elements arrive in order. */
+    @Test(timeout = 60000)
+    public void testManyQueues() throws Exception {
+        final TableWriteScheduler scheduler = new TableWriteScheduler(3);
+        final int queueCount = 50;
+        final long elementCount = 20000;
+        ExecutorService producers = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<OrderCheckingConsumer>> futures = new ArrayList<>();
+            for (int i = 0; i < queueCount; i++) {
+                final int capacity = TableWriteScheduler.getQueueCapacity(1 << (i % 14), 1);
+                futures.add(producers.submit(() -> {
+                    OrderCheckingConsumer consumer = new OrderCheckingConsumer(-1L);
+                    TableWriteScheduler.WriteQueue queue = scheduler.createQueue(consumer, capacity, null);
+                    assertNotNull(queue);
+                    for (long e = 0; e < elementCount; e++) {
+                        queue.offer(e, e % 5000 == 0);
+                    }
+                    queue.offer(END, true);
+                    queue.awaitDone();
+                    assertNull(queue.getThrowable());
+                    return consumer;
+                }));
+            }
+            for (Future<OrderCheckingConsumer> f : futures) {
+                assertEquals(elementCount - 1, f.get().m_last);
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+        assertEquals(queueCount * elementCount, scheduler.getWrittenRowCount());
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(0, scheduler.getSyncFallbackCount());
+    }
+
+    /** An exception in the consumer ends the queue, unblocks the producer and rejects further elements. */
+    @Test(timeout = 60000)
+    public void testConsumerFailure() throws Exception {
+        final TableWriteScheduler scheduler = new TableWriteScheduler(1);
+        TableWriteScheduler.WriteQueue queue = scheduler.createQueue(new OrderCheckingConsumer(100), 16, null);
+        long rejected = 0;
+        for (long e = 0; e < 100000; e++) {
+            if (!queue.offer(e, false)) {
+                rejected++;
+            }
+        }
+        assertTrue("Elements offered after the failure must be rejected", rejected > 0);
+        assertFalse("End marker must be rejected after the failure", queue.offer(END, true));
+        queue.awaitDone();
+        assertNotNull("Expected failure", queue.getThrowable());
+        assertSame(IllegalArgumentException.class, queue.getThrowable().getClass());
+        assertTrue("Producer should have been stalled", scheduler.getStallCount() > 0);
+    }
+
+    /** Elements offered as 'urgent' are written without further elements being added. */
+    @Test(timeout = 60000)
+    public void testUrgentElementIsWritten() throws Exception {
+        final TableWriteScheduler scheduler = new TableWriteScheduler(1);
+        final Object flush = new Object();
+        final Object[] written = new Object[1];
+        TableWriteScheduler.WriteQueue queue = scheduler.createQueue(e -> {
+            synchronized (written) {
+                written[0] = e;
+                written.notifyAll();
+            }
+            return e == END;
+        }, 1024, null);
+        queue.offer(flush, true);
+        synchronized (written) {
+            while (written[0] != flush) {
+                written.wait();
+            }
+        }
+        queue.offer(END, true);
+        queue.awaitDone();
+        assertSame(END, written[0]);
+    }
+
+}
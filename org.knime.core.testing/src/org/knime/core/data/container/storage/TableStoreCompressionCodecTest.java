@@ -0,0 +1,194 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Tests the {@link TableStoreCompressionCodec} implementations and their registry.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TableStoreCompressionCodecTest {
+
+    private static final TableStoreCompressionCodec[] CODECS = new TableStoreCompressionCodec[]{
+        new NoCompressionCodec(), new GzipCompressionCodec(), new LZ4BlockCompressionCodec()};
+
+    /** Data that compresses well (repeating text with some noise). */
+    private static byte[] createCompressibleData(final int length) {
+        Random random = new Random(length);
+        StringBuilder b = new StringBuilder(length + 32);
+        while (b.length() < length) {
+            b.append("Row").append(random.nextInt(1000)).append(";value=").append(random.nextInt(10)).append('\n');
+        }
+        return Arrays.copyOf(b.toString().getBytes(StandardCharsets.US_ASCII), length);
+    }
+
+    /** Data that doesn't compress. */
+    private static byte[] createRandomData(final int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] compressStream(final TableStoreCompressionCodec codec, final byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.compress(bytes)) {
+            // mix single byte and array writes
+            int split = Math.min(data.length, 100);
+            for (int i = 0; i < split; i++) {
+                out.write(data[i]);
+            }
+            out.write(data, split, data.length - split);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompressStream(final TableStoreCompressionCodec codec, final byte[] compressed,
+        final int length) throws IOException {
+        byte[] result = new byte[length];
+        try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed))) {
+            new DataInputStream(in).readFully(result);
+            assertEquals("Stream not at end", -1, in.read());
+        }
+        return result;
+    }
+
+    private static void assertRoundTrip(final byte[] data) throws IOException {
+        for (TableStoreCompressionCodec codec : CODECS) {
+            byte[] compressed = compressStream(codec, data);
+            assertArrayEquals("Stream round trip with " + codec.getName(), data,
+                decompressStream(codec, compressed, data.length));
+            byte[] block = codec.compressBlock(data, 0, data.length);
+            assertArrayEquals("Block round trip with " + codec.getName(), data,
+                codec.decompressBlock(block, data.length));
+        }
+    }
+
+    /** Round trip of empty data. */
+    @Test
+    public void testEmpty() throws Exception {
+        assertRoundTrip(new byte[0]);
+    }
+
+    /** Round trip of data that is smaller, equal and larger than the LZ4 block size. */
+    @Test
+    public void testCompressibleData() throws Exception {
+        for (int length : new int[]{1, 13, 100, LZ4BlockCompressionCodec.BLOCK_SIZE,
+            3 * LZ4BlockCompressionCodec.BLOCK_SIZE + 17}) {
+            assertRoundTrip(createCompressibleData(length));
+        }
+    }
+
+    /** Round trip of random data, which LZ4 stores uncompressed. */
+    @Test
+    public void testIncompressibleData() throws Exception {
+        for (int length : new int[]{1, 100, 2 * LZ4BlockCompressionCodec.BLOCK_SIZE + 5}) {
+            assertRoundTrip(createRandomData(length));
+        }
+    }
+
+    /** Long runs of identical bytes (overlapping matches in LZ4). */
+    @Test
+    public void testRepeatingData() throws Exception {
+        byte[] data = new byte[200000];
+        Arrays.fill(data, 10000, 150000, (byte)7);
+        assertRoundTrip(data);
+        byte[] lz4 = new LZ4BlockCompressionCodec().compressBlock(data, 0, data.length);
+        assertTrue("LZ4 didn't compress: " + lz4.length, lz4.length < data.length / 50);
+    }
+
+    /** Corrupt LZ4 blocks must fail with an exception and not produce garbage or hang. */
+    @Test(expected = IOException.class)
+    public void testCorruptLZ4Block() throws Exception {
+        LZ4BlockCompressionCodec codec = new LZ4BlockCompressionCodec();
+        byte[] data = createCompressibleData(5000);
+        byte[] block = codec.compressBlock(data, 0, data.length);
+        assertEquals(LZ4BlockCompressionCodec.METHOD_LZ4, block[0]);
+        codec.decompressBlock(Arrays.copyOf(block, block.length / 2), data.length);
+    }
+
+    /** Truncated LZ4 streams must fail. */
+    @Test(expected = IOException.class)
+    public void testTruncatedLZ4Stream() throws Exception {
+        LZ4BlockCompressionCodec codec = new LZ4BlockCompressionCodec();
+        byte[] data = createCompressibleData(3 * LZ4BlockCompressionCodec.BLOCK_SIZE);
+        byte[] compressed = compressStream(codec, data);
+        decompressStream(codec, Arrays.copyOf(compressed, compressed.length / 2), data.length);
+    }
+
+    /** Built-in codecs are registered; unknown names fail with a proper exception. */
+    @Test
+    public void testRegistry() throws Exception {
+        TableStoreCompressionCodecRegistry registry = TableStoreCompressionCodecRegistry.getInstance();
+        for (TableStoreCompressionCodec codec : CODECS) {
+            assertEquals(codec.getClass(), registry.getCodecForReading(codec.getName()).getClass());
+        }
+        assertFalse(registry.getCodec("no such codec").isPresent());
+        try {
+            registry.getCodecForReading("no such codec");
+            throw new AssertionError("Expected exception for unknown codec");
+        } catch (InvalidSettingsException ise) {
+            assertTrue(ise.getMessage(), ise.getMessage().contains("no such codec"));
+        }
+    }
+
+}
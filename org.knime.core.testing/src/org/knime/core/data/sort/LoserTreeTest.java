@@ -0,0 +1,116 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link LoserTree} used to merge sorted runs.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class LoserTreeTest {
+
+    /** Compares on the value only, the run index is used to check stability. */
+    private static final Comparator<int[]> VALUE_COMPARATOR = (a, b) -> Integer.compare(a[0], b[0]);
+
+    /** Merges random runs of various counts (including non powers of two and empty runs). */
+    @Test
+    public void testMergeRandomRuns() {
+        final Random random = new Random(42);
+        for (int runCount : new int[]{1, 2, 3, 5, 8, 13, 40, 100}) {
+            List<List<int[]>> runs = new ArrayList<>();
+            List<int[]> expected = new ArrayList<>();
+            for (int r = 0; r < runCount; r++) {
+                List<int[]> run = new ArrayList<>();
+                int length = random.nextInt(4) == 0 ? 0 : random.nextInt(200);
+                for (int i = 0; i < length; i++) {
+                    run.add(new int[]{random.nextInt(50), r});
+                }
+                Collections.sort(run, VALUE_COMPARATOR);
+                runs.add(run);
+                expected.addAll(run);
+            }
+            // stable sort: equal values keep the order of the runs
+            Collections.sort(expected, VALUE_COMPARATOR);
+
+            LoserTree<int[]> tree = new LoserTree<>(iterators(runs), VALUE_COMPARATOR);
+            for (int[] e : expected) {
+                Assert.assertTrue("Merge ended prematurely (" + runCount + " runs)", tree.hasNext());
+                int[] actual = tree.next();
+                Assert.assertArrayEquals("Wrong merge order (" + runCount + " runs)", e, actual);
+            }
+            Assert.assertFalse(tree.hasNext());
+        }
+    }
+
+    /** An empty list of runs or only empty runs yield nothing. */
+    @Test(expected = NoSuchElementException.class)
+    public void testEmpty() {
+        Assert.assertFalse(new LoserTree<>(iterators(Collections.emptyList()), VALUE_COMPARATOR).hasNext());
+        List<List<int[]>> emptyRuns = Arrays.asList(Collections.emptyList(), Collections.emptyList());
+        LoserTree<int[]> tree = new LoserTree<>(iterators(emptyRuns), VALUE_COMPARATOR);
+        Assert.assertFalse(tree.hasNext());
+        tree.next();
+    }
+
+    private static List<Iterator<int[]>> iterators(final List<List<int[]>> runs) {
+        List<Iterator<int[]>> result = new ArrayList<>();
+        for (List<int[]> run : runs) {
+            result.add(run.iterator());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValueComparator;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Tests sorting with normalized keys ({@link NormalizedKeyEncoder}). The (ignored) benchmark compares the sort time
+ * with and without normalized keys on a string and double table, run it manually when changing the encoding.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class NormalizedKeySortTest {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(NormalizedKeySortTest.class);
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new String[]{"String", "Double", "Int", "Long", "Boolean"},
+        new DataType[]{StringCell.TYPE, DoubleCell.TYPE, IntCell.TYPE, LongCell.TYPE, BooleanCell.TYPE});
+
+    private static final String[] STRINGS = new String[]{"", "a", "A", "ab", "abc", "b", "\u0000", "a\u0000",
+        "\u00e9", "\u07ff", "\u0800", "\uffff", "\ud83d\ude00", "z"};
+
+    private static final double[] DOUBLES = new double[]{0.0, -0.0, 1.0, -1.0, Double.NaN, Double.MIN_VALUE,
+        -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private static final long[] LONGS = new long[]{0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE,
+        Long.MAX_VALUE};
+
+    private static DataRow createRow(final long index, final Random random, final double missingProbability) {
+        DataCell[] cells = new DataCell[SPEC.getNumColumns()];
+        cells[0] = new StringCell(STRINGS[random.nextInt(STRINGS.length)]);
+        cells[1] = new DoubleCell(DOUBLES[random.nextInt(DOUBLES.length)]);
+        cells[2] = new IntCell((int)LONGS[random.nextInt(5)]);
+        cells[3] = new LongCell(LONGS[random.nextInt(LONGS.length)]);
+        cells[4] = BooleanCell.get(random.nextBoolean());
+        for (int i = 0; i < cells.length; i++) {
+            if (random.nextDouble() < missingProbability) {
+                cells[i] = DataType.getMissingCell();
+            }
+        }
+        return new DefaultRow(RowKey.createRowKey(index), cells);
+    }
+
+    /** Same semantics as the sorter's row comparator. */
+    private static int compareCells(final DataCell c1, final DataCell c2, final DataValueComparator comparator,
+        final boolean ascending, final boolean missingsToEnd) {
+        if (missingsToEnd && (c1.isMissing() || c2.isMissing())) {
+            if (c1.isMissing() && c2.isMissing()) {
+                return 0;
+            }
+            return c1.isMissing() ? 1 : -1;
+        }
+        int result = comparator.compare(c1, c2);
+        return ascending ? result : -result;
+    }
+
+    /** Compares the order of keys of single columns to the column comparator, for all sort options. */
+    @Test
+    public void testKeyOrderMatchesComparator() {
+        Random random = new Random(42);
+        List<DataRow> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(createRow(i, random, 0.1));
+        }
+        for (int col = -1; col < SPEC.getNumColumns(); col++) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                for (boolean missingsToEnd : new boolean[]{true, false}) {
+                    NormalizedKeyEncoder encoder =
+                        NormalizedKeyEncoder.create(new int[]{col}, new boolean[]{ascending}, missingsToEnd, SPEC);
+                    assertNotNull(encoder);
+                    DataValueComparator comparator = col < 0 ? null : SPEC.getColumnSpec(col).getType().getComparator();
+                    for (DataRow r1 : rows) {
+                        byte[] k1 = encoder.encode(r1);
+                        for (DataRow r2 : rows) {
+                            int expected;
+                            if (col < 0) {
+                                expected = r1.getKey().getString().compareTo(r2.getKey().getString());
+                                expected = ascending ? expected : -expected;
+                            } else {
+                                expected = compareCells(r1.getCell(col), r2.getCell(col), comparator, ascending,
+                                    missingsToEnd);
+                            }
+                            int actual = NormalizedKeyEncoder.compareKeys(k1, encoder.encode(r2));
+                            assertEquals("Column " + col + " (ascending: " + ascending + ", missings to end: "
+                                + missingsToEnd + "): " + r1 + " vs. " + r2, Integer.signum(expected),
+                                Integer.signum(actual));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Strings with runs of chars at the top of the range (0xFFFF takes 4 bytes) are encoded in order. */
+    @Test
+    public void testStringsNearTopOfRange() {
+        final String[] strings = new String[]{"\uffff", "\uffff\uffff", "\ufffe\uffff", "\uffff\ufffe",
+            "a\uffff\uffff\uffffb", "\ud83d\ude00\uffff", "\uffff\u0000", "\uffff\ud7ff\uffff"};
+        final List<String> values = new ArrayList<>(Arrays.asList(strings));
+        final StringBuilder run = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            run.append('\uffff');
+            if (i % 10 == 9) {
+                values.add(run.toString());
+                values.add(run + "\ufffd");
+                values.add(run.toString().replace('\uffff', '\ufffe'));
+            }
+        }
+        final DataTableSpec spec = new DataTableSpec(new String[]{"String"}, new DataType[]{StringCell.TYPE});
+        final NormalizedKeyEncoder encoder =
+            NormalizedKeyEncoder.create(new int[]{0}, new boolean[]{true}, false, spec);
+        final DataValueComparator comparator = StringCell.TYPE.getComparator();
+        for (String v1 : values) {
+            final DataRow r1 = new DefaultRow(RowKey.createRowKey(0L), new StringCell(v1));
+            final byte[] k1 = encoder.encode(r1);
+            for (String v2 : values) {
+                final DataRow r2 = new DefaultRow(RowKey.createRowKey(0L), new StringCell(v2));
+                assertEquals("Order of " + v1.length() + " and " + v2.length() + " chars",
+                    Integer.signum(comparator.compare(r1.getCell(0), r2.getCell(0))),
+                    Integer.signum(NormalizedKeyEncoder.compareKeys(k1, encoder.encode(r2))));
+            }
+        }
+    }
+
+    /** Columns with a comparator that has no normalized representation are not supported. */
+    @Test
+    public void testUnsupportedColumn() {
+        DataTableSpec spec = new DataTableSpec(new String[]{"String", "Generic"},
+            new DataType[]{StringCell.TYPE, DataType.getType(DataCell.class)});
+        assertNotNull(NormalizedKeyEncoder.create(new int[]{0}, new boolean[]{true}, false, spec));
+        assertNull(NormalizedKeyEncoder.create(new int[]{0, 1}, new boolean[]{true, true}, false, spec));
+    }
+
+    /** Multi-column sorts (including the merge of temporary tables) yield the same result with normalized keys. */
+    @Test
+    public void testSortResultIdentical() throws Exception {
+        DataTable table = createTable(5000, 0.05);
+        List<String> columns = Arrays.asList("String", "Double", "Boolean");
+        boolean[] ascending = new boolean[]{true, false, true};
+        for (boolean missingsToEnd : new boolean[]{true, false}) {
+            DataTableSorter sorter = new DataTableSorter(table, 5000L, columns, ascending, missingsToEnd);
+            sorter.setMaxRows(700);
+            sorter.setMaxOpenContainers(3);
+            DataTable expected = sorter.sort(new ExecutionMonitor());
+            sorter.setUseNormalizedKeys(true);
+            DataTable actual = sorter.sort(new ExecutionMonitor());
+            List<RowKey> expectedKeys = new ArrayList<>();
+            expected.forEach(r -> expectedKeys.add(r.getKey()));
+            List<RowKey> actualKeys = new ArrayList<>();
+            actual.forEach(r -> actualKeys.add(r.getKey()));
+            assertEquals(expectedKeys, actualKeys);
+        }
+    }
+
+    private static DataTable createTable(final int rowCount, final double missingProbability) {
+        Random random = new Random(rowCount);
+        DataContainer container = new DataContainer(SPEC);
+        for (int i = 0; i < rowCount; i++) {
+            container.addRowToTable(createRow(i, random, missingProbability));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /** Compares sorting by column comparators and by normalized keys, results are logged. */
+    @Test
+    @Ignore("Benchmark, run manually")
+    public void benchmarkStringDoubleSort() throws Exception {
+        final int rowCount = 2000000;
+        final int runs = 3;
+        Random random = new Random(rowCount);
+        DataTableSpec spec = new DataTableSpec(new String[]{"Category", "Name", "Value"},
+            new DataType[]{StringCell.TYPE, StringCell.TYPE, DoubleCell.TYPE});
+        DataContainer container = new DataContainer(spec);
+        for (int i = 0; i < rowCount; i++) {
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i),
+                new StringCell("Category " + random.nextInt(50)), new StringCell("Name " + random.nextInt(100000)),
+                new DoubleCell(random.nextGaussian())));
+        }
+        container.close();
+        DataTable table = container.getTable();
+        List<String> columns = Arrays.asList("Category", "Name", "Value");
+        boolean[] ascending = new boolean[]{true, false, true};
+        for (boolean inMemory : new boolean[]{true, false}) {
+            for (boolean normalizedKeys : new boolean[]{false, true}) {
+                long time = 0;
+                for (int run = 0; run < runs; run++) {
+                    DataTableSorter sorter = new DataTableSorter(table, (long)rowCount, columns, ascending);
+                    sorter.setSortInMemory(inMemory);
+                    sorter.setUseNormalizedKeys(normalizedKeys);
+                    if (!inMemory) {
+                        sorter.setMaxRows(rowCount / 16);
+                    }
+                    long start = System.nanoTime();
+                    sorter.sort(new ExecutionMonitor());
+                    time += System.nanoTime() - start;
+                }
+                LOGGER.infoWithFormat("%-10s normalized keys: %-5b %6d ms", inMemory ? "in memory" : "on disk",
+                    normalizedKeys, time / runs / 1000000);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link DBConnectionPool}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBConnectionPoolTest {
+
+    /** Creates a connection proxy that only supports {@link Connection#isClosed()} and {@link Connection#close()}. */
+    private static Connection createConnection() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        return (Connection)Proxy.newProxyInstance(DBConnectionPoolTest.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isClosed":
+                        return closed.get();
+                    case "close":
+                        closed.set(true);
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "TestConnection@" + System.identityHashCode(proxy);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static DBConnectionPool createPool(final int min, final int max, final long idleTimeout,
+        final long waitTimeout) {
+        final DBConnectionPool pool = new DBConnectionPool(null);
+        pool.configure(min, max, idleTimeout, waitTimeout, TimeUnit.MILLISECONDS, true);
+        return pool;
+    }
+
+    /**
+     * Checks that released connections are reused and that nested borrows of the same thread get the same
+     * connection.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReuseAndNestedBorrow() throws Exception {
+        final DBConnectionPool pool = createPool(1, 1, 0, 0);
+        final Connection conn = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        assertSame("Nested borrow must return the connection of the thread", conn,
+            pool.borrow(DBConnectionPoolTest::createConnection, c -> true));
+        pool.release(conn);
+        assertEquals("Connection still borrowed by outer call", 1, pool.getStatistics().getActive());
+        pool.release(conn);
+        assertEquals(0, pool.getStatistics().getActive());
+        assertEquals(1, pool.getStatistics().getIdle());
+        final Connection conn2 = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        assertSame("Idle connection not reused", conn, conn2);
+        pool.release(conn2);
+        final DBConnectionPoolStatistics stats = pool.getStatistics();
+        assertEquals(1, stats.getCreated());
+        assertEquals(3, stats.getBorrowed());
+    }
+
+    /**
+     * Checks that several threads get different connections up to the maximum pool size and that further requests
+     * time out.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 10000)
+    public void testMaxSizeAndWaitTimeout() throws Exception {
+        final DBConnectionPool pool = createPool(0, 2, 0, 200);
+        final Connection first = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Callable<Connection> borrow = () -> pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+            final Connection second = executor.submit(borrow).get();
+            assertNotSame("Parallel borrowers must get different connections", first, second);
+            final Future<Connection> third = executor.submit(borrow);
+            try {
+                third.get();
+                fail("Borrowing from an exhausted pool did not time out");
+            } catch (ExecutionException e) {
+                assertTrue("Unexpected exception: " + e.getCause(), e.getCause() instanceof SQLException);
+            }
+            final DBConnectionPoolStatistics stats = pool.getStatistics();
+            assertEquals(2, stats.getActive());
+            assertEquals(1, stats.getWaits());
+            assertEquals(1, stats.getTimeouts());
+            assertTrue("Wait time not recorded", stats.getTotalWaitTime(TimeUnit.MILLISECONDS) >= 100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks that a waiting thread gets the connection that is released by another thread.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 10000)
+    public void testWaitForRelease() throws Exception {
+        final DBConnectionPool pool = createPool(1, 1, 0, 0);
+        final Connection conn = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Connection> waiting = executor.submit(() -> {
+                final Connection c = pool.borrow(DBConnectionPoolTest::createConnection, v -> true);
+                pool.release(c);
+                return c;
+            });
+            while (pool.getStatistics().getWaiting() == 0) {
+                Thread.sleep(10);
+            }
+            pool.release(conn);
+            assertSame("Waiting thread did not get the released connection", conn, waiting.get());
+            assertEquals(1, pool.getStatistics().getCreated());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks that invalid idle connections are closed and replaced on borrow.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testValidateOnBorrow() throws Exception {
+        final DBConnectionPool pool = createPool(1, 1, 0, 0);
+        final Connection conn = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        pool.release(conn);
+        final Connection conn2 = pool.borrow(DBConnectionPoolTest::createConnection, c -> false);
+        assertNotSame("Invalid connection returned", conn, conn2);
+        assertTrue("Invalid connection not closed", conn.isClosed());
+        pool.release(conn2);
+        assertEquals(1, pool.getStatistics().getInvalidated());
+        assertEquals(1, pool.getStatistics().getSize());
+    }
+
+    /**
+     * Checks that idle connections are evicted after the idle timeout but not below the minimum pool size.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testIdleEviction() throws Exception {
+        final DBConnectionPool pool = createPool(1, 3, 50, 0);
+        final Connection[] conns = new Connection[3];
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int i = 0; i < conns.length; i++) {
+                conns[i] = executor.submit(() -> pool.borrow(DBConnectionPoolTest::createConnection, c -> true)).get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (final Connection conn : conns) {
+            pool.release(conn);
+        }
+        assertEquals(3, pool.getStatistics().getIdle());
+        Thread.sleep(100);
+        final Connection conn = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        pool.release(conn);
+        final DBConnectionPoolStatistics stats = pool.getStatistics();
+        assertEquals("Pool shrunk below its minimum size", 1, stats.getSize());
+        assertEquals(2, stats.getEvicted());
+        assertFalse("Remaining connection closed", conn.isClosed());
+    }
+
+    /**
+     * Checks that the shared connection is handed out to borrowers and that an invalid shared connection is
+     * replaced.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testGetShared() throws Exception {
+        final DBConnectionPool pool = createPool(1, 1, 0, 0);
+        final Connection shared = pool.getShared(DBConnectionPoolTest::createConnection, c -> true);
+        final Connection borrowed = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        assertSame("Borrower did not get the shared connection", shared, borrowed);
+        assertSame("Borrowed shared connection not returned", shared,
+            pool.getShared(DBConnectionPoolTest::createConnection, c -> true));
+        pool.release(borrowed);
+        assertEquals(1, pool.getStatistics().getIdle());
+
+        final Connection replaced = pool.getShared(DBConnectionPoolTest::createConnection, c -> c != shared);
+        assertNotSame("Invalid shared connection returned", shared, replaced);
+        assertTrue("Invalid shared connection not closed", shared.isClosed());
+        assertSame("Replaced shared connection not reused", replaced,
+            pool.getShared(DBConnectionPoolTest::createConnection, c -> true));
+        final DBConnectionPoolStatistics stats = pool.getStatistics();
+        assertEquals(1, stats.getSize());
+        assertEquals(2, stats.getCreated());
+        assertEquals(1, stats.getInvalidated());
+    }
+
+    /**
+     * Checks that an increased maximum size releases waiting threads and that connections exceeding a decreased
+     * maximum size are closed when they are released.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 10000)
+    public void testReconfigure() throws Exception {
+        final DBConnectionPool pool = createPool(0, 1, 0, 0);
+        final Connection first = pool.borrow(DBConnectionPoolTest::createConnection, c -> true);
+        pool.configure(0, 1, 0, 0, TimeUnit.MILLISECONDS, true);
+        assertEquals("Unchanged configuration altered the pool", 1, pool.getStatistics().getMaxSize());
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Connection second;
+        try {
+            final Future<Connection> waiting =
+                executor.submit(() -> pool.borrow(DBConnectionPoolTest::createConnection, c -> true));
+            while (pool.getStatistics().getWaiting() == 0) {
+                Thread.sleep(10);
+            }
+            pool.configure(0, 2, 0, 0, TimeUnit.MILLISECONDS, true);
+            second = waiting.get();
+            assertNotSame("Waiting thread did not get a new connection", first, second);
+            assertEquals(2, pool.getStatistics().getMaxSize());
+            assertEquals(2, pool.getStatistics().getActive());
+
+            pool.configure(0, 1, 0, 0, TimeUnit.MILLISECONDS, true);
+            executor.submit(() -> pool.release(second)).get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue("Connection exceeding the decreased maximum size not closed", second.isClosed());
+        pool.release(first);
+        final DBConnectionPoolStatistics stats = pool.getStatistics();
+        assertEquals(1, stats.getMaxSize());
+        assertEquals(1, stats.getSize());
+        assertFalse("Connection within the maximum size closed", first.isClosed());
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.database.DatabaseConnectionSettings;
+import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests the partitioned reading of {@link DBReaderImpl} against an SQLite database.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBReaderImplPartitionTest {
+    private static final int ROWS = 1000;
+
+    private File m_dbFile;
+
+    private DatabaseConnectionSettings m_conn;
+
+    private ExecutionContext m_exec;
+
+    /**
+     * Creates a new SQLite database with a test table. The tests are skipped if the SQLite driver is not available.
+     *
+     * @throws Exception if an error occurs
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Before
+    public void setUp() throws Exception {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+
+        m_dbFile = File.createTempFile("partitioned-read", ".sqlite");
+        m_conn = new DatabaseConnectionSettings("sqlite", "org.sqlite.JDBC", "jdbc:sqlite:" + m_dbFile.getAbsolutePath(),
+            null, null, null, "none");
+        try {
+            m_conn.execute("CREATE TABLE data (id INTEGER, val REAL, name VARCHAR(20))", null);
+        } catch (SQLException ex) {
+            Assume.assumeNoException("SQLite driver not available", ex);
+        }
+        final StringBuilder insert = new StringBuilder("INSERT INTO data VALUES ");
+        for (int i = 0; i < ROWS; i++) {
+            if (i > 0) {
+                insert.append(", ");
+            }
+            // every 100th row has a missing id
+            final String id = (i % 100 == 99) ? "NULL" : Integer.toString(i);
+            insert.append("(" + id + ", " + (i / 10.0) + ", 'Row " + i + "')");
+        }
+        m_conn.execute(insert.toString(), null);
+    }
+
+    /**
+     * Deletes the database file.
+     */
+    @After
+    public void tearDown() {
+        if (m_dbFile != null) {
+            m_dbFile.delete();
+        }
+    }
+
+    /**
+     * Tests the split points of numeric and date ranges.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSplitPoints() throws Exception {
+        assertArrayEquals(new Object[]{3L, 6L}, DBReaderImpl.computeSplitPoints(0, 9, 3));
+        assertArrayEquals(new Object[]{1L}, DBReaderImpl.computeSplitPoints(0L, 1L, 4));
+        assertArrayEquals(new Object[0], DBReaderImpl.computeSplitPoints(5, 5, 4));
+        assertArrayEquals(new Object[0], DBReaderImpl.computeSplitPoints(null, 5, 4));
+        assertArrayEquals(new Object[]{0.25, 0.5, 0.75}, DBReaderImpl.computeSplitPoints(0.0, 1.0, 4));
+        assertArrayEquals(new Object[]{new Timestamp(50)},
+            DBReaderImpl.computeSplitPoints(new Timestamp(0), new Timestamp(99), 2));
+    }
+
+    /**
+     * Tests reading ranges of an integer and a double column.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadByColumn() throws Exception {
+        final BufferedDataTable expected = read("SELECT * FROM data", null);
+        final BufferedDataTable byId = read("SELECT * FROM data", DBReadPartitioning.byColumn("id", 4));
+        assertSameRows(expected, byId);
+        // the rows are not copied to renumber them, the keys are made unique by the partition prefix
+        for (DataRow row : byId) {
+            assertThat("Unexpected row key " + row.getKey(), row.getKey().getString().matches("Part\\d+_Row\\d+"),
+                is(true));
+        }
+        assertSameRows(expected, read("SELECT * FROM data", DBReadPartitioning.byColumn("val", 7)));
+        assertSameRows(read("SELECT * FROM data WHERE id < 2", null),
+            read("SELECT * FROM data WHERE id < 2", DBReadPartitioning.byColumn("id", 8)));
+    }
+
+    /**
+     * Tests reading windows of rows.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadByRowCount() throws Exception {
+        final String query = "SELECT * FROM data ORDER BY val";
+        final BufferedDataTable expected = read(query, null);
+        final BufferedDataTable partitioned = read(query, DBReadPartitioning.byRowCount(3));
+        assertSameRows(expected, partitioned);
+        // the windows keep the order of the query
+        assertEquals(ids(expected), ids(partitioned));
+    }
+
+    private BufferedDataTable read(final String query, final DBReadPartitioning partitioning) throws Exception {
+        final DatabaseQueryConnectionSettings settings = new DatabaseQueryConnectionSettings(m_conn, query);
+        final DBReader reader = settings.getUtility().getReader(settings);
+        return partitioning == null ? reader.createTable(m_exec, null, false)
+            : reader.createTable(m_exec, null, false, partitioning);
+    }
+
+    private static void assertSameRows(final BufferedDataTable expected, final BufferedDataTable actual) {
+        assertArrayEquals("Unexpected columns", expected.getDataTableSpec().getColumnNames(),
+            actual.getDataTableSpec().getColumnNames());
+        assertThat("Unexpected row count", actual.size(), is(expected.size()));
+        assertThat("Unexpected rows", new HashSet<>(ids(actual)), is(new HashSet<>(ids(expected))));
+        final Set<String> keys = new HashSet<>();
+        for (DataRow row : actual) {
+            assertThat("Duplicate row key " + row.getKey(), keys.add(row.getKey().getString()), is(true));
+        }
+    }
+
+    private static List<String> ids(final BufferedDataTable table) {
+        final List<String> ids = new ArrayList<>();
+        for (DataRow row : table) {
+            final DataCell id = row.getCell(0);
+            ids.add(id.isMissing() ? row.getCell(2).toString() : Integer.toString(((IntValue)id).getIntValue()));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.database.DatabaseConnectionSettings;
+import org.knime.core.node.port.database.DatabaseUtility;
+import org.knime.core.node.port.database.SQLiteUtility;
+import org.knime.core.node.port.database.connection.DBConnectionFactory;
+import org.knime.core.node.port.database.connection.DBDriverFactory;
+import org.knime.core.node.streamable.DataTableRowInput;
+import org.knime.core.node.workflow.CredentialsProvider;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests the batched writing of {@link DBWriterImpl} against an SQLite database.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBWriterImplBatchTest {
+    private static final int ROWS = 1000;
+
+    private static final int CONNECTIONS = 3;
+
+    private File m_dbFile;
+
+    private DatabaseConnectionSettings m_conn;
+
+    /** Settings whose dedicated connections share the connection of {@link #m_conn}, see
+     * {@link SharingConnectionFactory}. */
+    private DatabaseConnectionSettings m_sharingConn;
+
+    private final List<RecordingConnection> m_connections = new CopyOnWriteArrayList<>();
+
+    /** Released by the first batch of a dedicated connection, the batches of the primary connection wait for it. */
+    private final CountDownLatch m_dedicatedBatch = new CountDownLatch(1);
+
+    private final AtomicBoolean m_failDedicatedBatch = new AtomicBoolean();
+
+    private final AtomicInteger m_failedRows = new AtomicInteger();
+
+    private ExecutionContext m_exec;
+
+    private BufferedDataTable m_input;
+
+    /**
+     * Creates a new SQLite database and the input table. The tests are skipped if the SQLite driver is not
+     * available.
+     *
+     * @throws Exception if an error occurs
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Before
+    public void setUp() throws Exception {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("id", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("name", StringCell.TYPE).createSpec());
+        final BufferedDataContainer cont = m_exec.createDataContainer(spec);
+        for (int i = 0; i < ROWS; i++) {
+            cont.addRowToTable(new DefaultRow(RowKey.createRowKey(i), new IntCell(i), new StringCell("Row " + i)));
+        }
+        cont.close();
+        m_input = cont.getTable();
+
+        m_dbFile = File.createTempFile("batch-write", ".sqlite");
+        m_conn = new DatabaseConnectionSettings("sqlite", "org.sqlite.JDBC",
+            "jdbc:sqlite:" + m_dbFile.getAbsolutePath(), null, null, null, "none");
+        try {
+            m_conn.execute("CREATE TABLE target (id INTEGER PRIMARY KEY, name VARCHAR(255))", null);
+        } catch (SQLException ex) {
+            Assume.assumeNoException("SQLite driver not available", ex);
+        }
+
+        final DatabaseUtility utility = new SQLiteUtility() {
+            private final DBConnectionFactory m_factory =
+                new SharingConnectionFactory(m_conn.getUtility().getConnectionFactory());
+
+            @Override
+            public DBConnectionFactory getConnectionFactory() {
+                return m_factory;
+            }
+        };
+        m_sharingConn = new DatabaseConnectionSettings("sqlite", "org.sqlite.JDBC",
+            "jdbc:sqlite:" + m_dbFile.getAbsolutePath(), null, null, null, "none") {
+            @Override
+            public DatabaseUtility getUtility() {
+                return utility;
+            }
+        };
+    }
+
+    /**
+     * Deletes the database file.
+     */
+    @After
+    public void tearDown() {
+        if (m_dbFile != null) {
+            m_dbFile.delete();
+        }
+    }
+
+    /**
+     * Tests that all rows are written if the batches are prepared while others are executed.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWriteBatches() throws Exception {
+        final Map<String, String> types = new LinkedHashMap<>();
+        types.put("id", "integer");
+        types.put("name", "varchar(255)");
+        final String error = write(false, types, false);
+        assertNull("Unexpected error: " + error, error);
+        assertEquals(ROWS, countRows());
+    }
+
+    /**
+     * Tests that a failing batch is reported and the other batches are written if the writer does not fail on
+     * errors.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReportFailingBatch() throws Exception {
+        m_conn.execute("INSERT INTO target VALUES (500, 'existing')", null);
+        final String error = write(true, null, false);
+        assertNotNull("Duplicate key not reported", error);
+        assertTrue("Rows of other batches not written", countRows() > ROWS / 2);
+    }
+
+    /**
+     * Tests that all batches are rolled back if the writer fails on errors.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRollbackOnError() throws Exception {
+        m_conn.execute("INSERT INTO target VALUES (500, 'existing')", null);
+        try {
+            write(true, null, true);
+            fail("Duplicate key not detected");
+        } catch (Exception ex) {
+            // expected
+        }
+        assertEquals(1, countRows());
+    }
+
+    /**
+     * Tests that all rows are written and committed if several connections write the batches.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 60000)
+    public void testWriteBatchesWithSeveralConnections() throws Exception {
+        final String error = write(m_sharingConn, true, null, false, CONNECTIONS);
+        assertNull("Unexpected error: " + error, error);
+        assertEquals(ROWS, countRows());
+        final List<RecordingConnection> dedicated = getDedicatedConnections();
+        assertEquals("Wrong number of dedicated connections", CONNECTIONS - 1, dedicated.size());
+        assertTrue("No batch written by a dedicated connection",
+            dedicated.stream().anyMatch(c -> c.m_batches.get() > 0));
+        for (final RecordingConnection conn : dedicated) {
+            assertTrue("Dedicated connection not committed", conn.m_commits.get() > 0);
+            assertEquals("Dedicated connection rolled back", 0, conn.m_rollbacks.get());
+            assertTrue("Dedicated connection not closed", conn.m_closed);
+        }
+        assertNoClosedPrimaryConnection();
+    }
+
+    /**
+     * Tests that a batch failing on a dedicated connection is reported and the other batches are committed if the
+     * writer does not fail on errors.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 60000)
+    public void testReportFailingBatchWithSeveralConnections() throws Exception {
+        m_failDedicatedBatch.set(true);
+        final String error = write(m_sharingConn, true, null, false, CONNECTIONS);
+        assertNotNull("Failing batch not reported", error);
+        assertTrue("No batch failed", m_failedRows.get() > 0);
+        assertEquals("Rows of other batches not written", ROWS - m_failedRows.get(), countRows());
+        for (final RecordingConnection conn : getDedicatedConnections()) {
+            assertTrue("Dedicated connection not committed", conn.m_commits.get() > 0);
+            assertEquals("Dedicated connection rolled back", 0, conn.m_rollbacks.get());
+            assertTrue("Dedicated connection not closed", conn.m_closed);
+        }
+        assertNoClosedPrimaryConnection();
+    }
+
+    /**
+     * Tests that a batch failing on a dedicated connection is propagated and rolls back the transactions of all
+     * connections if the writer fails on errors.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 60000)
+    public void testRollbackOnErrorWithSeveralConnections() throws Exception {
+        m_failDedicatedBatch.set(true);
+        try {
+            write(m_sharingConn, true, null, true, CONNECTIONS);
+            fail("Failing batch not propagated");
+        } catch (Exception ex) {
+            Throwable cause = ex;
+            while ((cause != null) && !(cause instanceof BatchUpdateException)) {
+                cause = cause.getCause();
+            }
+            assertNotNull("Error of the dedicated connection not propagated: " + ex, cause);
+        }
+        assertEquals(0, countRows());
+        for (final RecordingConnection conn : getDedicatedConnections()) {
+            assertTrue("Dedicated connection not rolled back", conn.m_rollbacks.get() > 0);
+            assertTrue("Dedicated connection not closed", conn.m_closed);
+        }
+        assertTrue("Primary connection not rolled back",
+            m_connections.stream().anyMatch(c -> !c.m_dedicated && (c.m_rollbacks.get() > 0)));
+        assertNoClosedPrimaryConnection();
+    }
+
+    private String write(final boolean append, final Map<String, String> types, final boolean failOnError)
+        throws Exception {
+        return write(m_conn, append, types, failOnError, 1);
+    }
+
+    private String write(final DatabaseConnectionSettings conn, final boolean append, final Map<String, String> types,
+        final boolean failOnError, final int nrConnections) throws Exception {
+        final DBWriter writer = conn.getUtility().getWriter(conn);
+        return writer.writeData("target", new DataTableRowInput(m_input), m_input.size(), append, m_exec, types, null,
+            64, false, failOnError, nrConnections);
+    }
+
+    private List<RecordingConnection> getDedicatedConnections() {
+        return m_connections.stream().filter(c -> c.m_dedicated).collect(Collectors.toList());
+    }
+
+    private void assertNoClosedPrimaryConnection() {
+        assertFalse("Primary connection closed by the writer",
+            m_connections.stream().anyMatch(c -> !c.m_dedicated && c.m_closed));
+    }
+
+    private int countRows() throws SQLException {
+        return m_conn.execute(null, conn -> {
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM target")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Hands out the connections of the wrapped factory. SQLite only allows one writing transaction per database,
+     * therefore dedicated connections are views on the shared connection with their own commit, rollback and close
+     * bookkeeping.
+     */
+    private final class SharingConnectionFactory implements DBConnectionFactory {
+        private final DBConnectionFactory m_delegate;
+
+        private SharingConnectionFactory(final DBConnectionFactory delegate) {
+            m_delegate = delegate;
+        }
+
+        @Override
+        public Connection getConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+            throws InvalidSettingsException, SQLException, IOException {
+            return wrap(m_delegate.getConnection(cp, settings), false);
+        }
+
+        @Override
+        public DBDriverFactory getDriverFactory() {
+            return m_delegate.getDriverFactory();
+        }
+
+        @Override
+        public Connection createDedicatedConnection(final CredentialsProvider cp,
+            final DatabaseConnectionSettings settings) throws InvalidSettingsException, SQLException, IOException {
+            return wrap(m_delegate.getConnection(cp, settings), true);
+        }
+
+        @Override
+        public Connection borrowConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+            throws InvalidSettingsException, SQLException, IOException {
+            return wrap(m_delegate.borrowConnection(cp, settings), false);
+        }
+
+        @Override
+        public void releaseConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings,
+            final Connection conn) {
+            m_delegate.releaseConnection(cp, settings,
+                ((RecordingConnection)Proxy.getInvocationHandler(conn)).m_conn);
+        }
+
+        private Connection wrap(final Connection conn, final boolean dedicated) {
+            final RecordingConnection handler = new RecordingConnection(conn, dedicated);
+            m_connections.add(handler);
+            return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                handler);
+        }
+    }
+
+    /**
+     * Records the commits, rollbacks and batches of a connection. Dedicated connections are not closed, the first
+     * batch of a dedicated connection fails if {@link #m_failDedicatedBatch} is set.
+     */
+    private final class RecordingConnection implements InvocationHandler {
+        private final Connection m_conn;
+
+        private final boolean m_dedicated;
+
+        private final AtomicInteger m_batches = new AtomicInteger();
+
+        private final AtomicInteger m_commits = new AtomicInteger();
+
+        private final AtomicInteger m_rollbacks = new AtomicInteger();
+
+        private volatile boolean m_closed;
+
+        private RecordingConnection(final Connection conn, final boolean dedicated) {
+            m_conn = conn;
+            m_dedicated = dedicated;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "commit":
+                    m_commits.incrementAndGet();
+                    break;
+                case "rollback":
+                    m_rollbacks.incrementAndGet();
+                    break;
+                case "isClosed":
+                    if (m_closed) {
+                        return true;
+                    }
+                    break;
+                case "close":
+                    m_closed = true;
+                    if (m_dedicated) {
+                        return null;
+                    }
+                    break;
+                case "prepareStatement":
+                    return wrap((PreparedStatement)DBWriterImplBatchTest.invoke(m_conn, method, args));
+                default:
+                    break;
+            }
+            return DBWriterImplBatchTest.invoke(m_conn, method, args);
+        }
+
+        private PreparedStatement wrap(final PreparedStatement stmt) {
+            final AtomicInteger pending = new AtomicInteger();
+            return (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addBatch":
+                            pending.incrementAndGet();
+                            break;
+                        case "clearBatch":
+                            pending.set(0);
+                            break;
+                        case "executeBatch":
+                            if (m_dedicated) {
+                                m_batches.incrementAndGet();
+                                m_dedicatedBatch.countDown();
+                                if (m_failDedicatedBatch.compareAndSet(true, false)) {
+                                    m_failedRows.set(pending.get());
+                                    throw new BatchUpdateException("Injected batch failure", new int[0]);
+                                }
+                            } else {
+                                m_dedicatedBatch.await(10, TimeUnit.SECONDS);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    return DBWriterImplBatchTest.invoke(stmt, method, args);
+                });
+        }
+    }
+}
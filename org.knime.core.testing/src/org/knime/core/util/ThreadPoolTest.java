@@ -50,8 +50,10 @@
 import static org.junit.Assert.assertThat;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.osgi.internal.framework.ContextFinder;
@@ -434,4 +436,73 @@ public ClassLoader call() throws Exception {
             Thread.currentThread().setContextClassLoader(cl);
         }
     }
+
+    /**
+     * Checks the queue statistics and that tasks enqueued by a worker are taken by other workers.
+     *
+     * @throws Exception if an error occurs
+     */
+    public void testQueueStatistics() throws Exception {
+        final ThreadPool root = new ThreadPool(1);
+        final ThreadPool sub = root.createSubPool(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+
+        root.enqueue(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                blocker.await();
+                return null;
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            sub.enqueue(new Tester(sub));
+        }
+        assertEquals(3, sub.getQueuedTasks());
+        assertEquals(3, root.getQueuedTasks());
+
+        blocker.countDown();
+        root.waitForTermination();
+        assertEquals(0, root.getQueuedTasks());
+        assertEquals(3, sub.getDequeuedTasks());
+        assertEquals(3, root.getDequeuedTasks());
+        assertTrue(root.getTotalWaitTime(TimeUnit.NANOSECONDS) > 0);
+
+        // tasks enqueued by a blocked worker must be stolen by other workers
+        root.setMaxThreads(3);
+        final CountDownLatch stealBlocker = new CountDownLatch(1);
+        final CountDownLatch firstBlocker = new CountDownLatch(1);
+        final ThreadPool stealSub = root.createSubPool(1);
+        root.enqueue(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                // the first task holds the only thread of the sub pool until the second one is queued in the deque
+                // of this worker, so the second task can only be started by stealing it
+                stealSub.enqueue(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        firstBlocker.await();
+                        return null;
+                    }
+                });
+                stealSub.enqueue(new Tester(stealSub));
+                firstBlocker.countDown();
+                stealBlocker.await();
+                return null;
+            }
+        });
+        try {
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (stealSub.getDequeuedTasks() == 0) {
+                assertTrue("Queued task has not been stolen within 10 seconds",
+                    System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+        } finally {
+            stealBlocker.countDown();
+        }
+        root.waitForTermination();
+        assertEquals(1, stealSub.getStolenTasks());
+        assertEquals(0, root.getQueuedTasks());
+        root.shutdown();
+    }
 }
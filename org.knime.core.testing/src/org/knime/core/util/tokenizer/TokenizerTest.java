@@ -44,6 +44,8 @@
  */
 package org.knime.core.util.tokenizer;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 
 import junit.framework.TestCase;
@@ -1585,4 +1587,52 @@ public void testAddWhiteSpaceCharacter() throws TokenizerException {
         token = ft.nextToken();
         assertNull(token);
     }
+    /**
+     * Tests tokens, delimiters, quotes and CR+LF line endings that span the
+     * blocks the tokenizer reads from the stream, and a stream that returns
+     * only a few characters per read.
+     * @throws TokenizerException if somethings goes wrong.
+     */
+    public void testBlockBoundaries() throws TokenizerException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder longToken = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            longToken.append((char)('a' + (i % 26)));
+        }
+        final int numLines = 10000;
+        for (int i = 0; i < numLines; i++) {
+            input.append(i).append("::\"q,").append(i).append("\"::x y\r\n");
+        }
+        input.append(longToken).append("::end");
+        final String inputString = input.toString();
+
+        for (final int maxChunk : new int[]{3, Integer.MAX_VALUE}) {
+            Reader reader = new StringReader(inputString) {
+                @Override
+                public int read(final char[] cbuf, final int off,
+                        final int len) throws IOException {
+                    return super.read(cbuf, off, Math.min(len, maxChunk));
+                }
+            };
+            TokenizerSettings fts = new TokenizerSettings();
+            fts.addDelimiterPattern("::", false, false, false);
+            fts.addDelimiterPattern("\n", false, true, false);
+            fts.addQuotePattern("\"", "\"");
+            Tokenizer ft = new Tokenizer(reader);
+            ft.setSettings(fts);
+
+            for (int i = 0; i < numLines; i++) {
+                assertEquals(Integer.toString(i), ft.nextToken());
+                assertEquals("q," + i, ft.nextToken());
+                assertTrue(ft.lastTokenWasQuoted());
+                assertEquals("x y", ft.nextToken());
+                assertEquals("\n", ft.nextToken());
+                assertTrue(ft.lastTokenWasDelimiter());
+            }
+            assertEquals(numLines + 1, ft.getLineNumber());
+            assertEquals(longToken.toString(), ft.nextToken());
+            assertEquals("end", ft.nextToken());
+            assertNull(ft.nextToken());
+        }
+    }
 } // TokenizerTest
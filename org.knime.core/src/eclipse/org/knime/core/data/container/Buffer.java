@@ -98,6 +98,7 @@
 import org.knime.core.data.container.storage.AbstractTableStoreReader;
 import org.knime.core.data.container.storage.AbstractTableStoreReader.TableStoreCloseableRowIterator;
 import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
 import org.knime.core.data.container.storage.TableStoreFormat;
 import org.knime.core.data.container.storage.TableStoreFormatRegistry;
 import org.knime.core.data.filestore.FileStore;
@@ -111,9 +112,6 @@
 import org.knime.core.data.filestore.internal.NotInWorkflowWriteFileStoreHandler;
 import org.knime.core.data.filestore.internal.ROWriteFileStoreHandler;
 import org.knime.core.data.util.NonClosableOutputStream;
-import org.knime.core.data.util.memory.MemoryAlert;
-import org.knime.core.data.util.memory.MemoryAlertListener;
-import org.knime.core.data.util.memory.MemoryAlertSystem;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
@@ -124,7 +122,6 @@
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.util.FileUtil;
 import org.knime.core.util.ShutdownHelper;
-import org.knime.core.util.ThreadUtils;
 
 /**
  * A buffer writes the rows from a {@link DataContainer} to a file. This class serves as connector between the
@@ -149,6 +146,10 @@ public class Buffer implements KNIMEStreamConstants {
      */
     private static final boolean ZLIB_SUPPORTS_LEVEL_SWITCH_AP8083;
 
+    /** Whether rows held in memory are stored in a {@link CompactRowList}, see
+     * {@link KNIMEConstants#PROPERTY_DISABLE_COMPACT_ROWS}. */
+    private static final boolean USE_COMPACT_ROWS = !Boolean.getBoolean(KNIMEConstants.PROPERTY_DISABLE_COMPACT_ROWS);
+
     /**
      * Contains the information whether or not certain blob cell implementations shall be compressed when saved. This
      * information is retrieved from the field BlobDataCell#USE_COMPRESSION.
@@ -330,12 +331,6 @@ static boolean isUseCompressionForBlobs(final CellClassInfo cellClassInfo) {
         return result;
     }
 
-    /** Compression on the binary (main) file. */
-    enum CompressionFormat {
-        Gzip,
-        None;
-    }
-
     /** the file to write to. */
     private File m_binFile;
 
@@ -376,6 +371,8 @@ enum CompressionFormat {
     private IFileStoreHandler m_fileStoreHandler;
 
     private TableStoreFormat m_outputFormat;
+    /** The codec passed to the output format when creating the writer, null to use the format's default. */
+    private TableStoreCompressionCodec m_compressionCodec;
     private AbstractTableStoreWriter m_outputWriter;
     private AbstractTableStoreReader m_outputReader;
 
@@ -397,6 +394,9 @@ enum CompressionFormat {
     /** the list that keeps up to m_maxRowsInMem in memory. */
     private List<BlobSupportDataRow> m_list;
 
+    /** Bookkeeping of the {@link TableCache}, which decides whether the rows of this buffer stay in memory. */
+    private final TableCache.Entry m_cacheEntry = new TableCache.Entry(this);
+
     private int[] m_indicesOfBlobInColumns;
 
     /** the spec the rows comply with, no checking is done, however. */
@@ -445,7 +445,7 @@ enum CompressionFormat {
            final Map<Integer, ContainerTable> globalRep, final Map<Integer, ContainerTable> localRep, final IWriteFileStoreHandler fileStoreHandler) {
         assert (maxRowsInMemory >= 0);
         m_maxRowsInMem = maxRowsInMemory;
-        m_list = new ArrayList<BlobSupportDataRow>();
+        m_list = createRowList(spec, 0);
         m_size = 0;
         m_bufferID = bufferID;
         m_globalRepository = globalRep;
@@ -542,6 +542,14 @@ final TableStoreFormat getOutputFormat() {
         return m_outputFormat;
     }
 
+    /** Sets the codec used to compress the data when this buffer is written to disc. Must be called before any row is
+     * added (the writer is created lazily).
+     * @param compressionCodec the codec or null to use the default codec of the output format.
+     */
+    final void setCompressionCodec(final TableStoreCompressionCodec compressionCodec) {
+        m_compressionCodec = compressionCodec;
+    }
+
     /**
      * Validate the version as read from the file if it can be parsed by this implementation. If unknown, uses
      * latest known version (good luck).
@@ -607,6 +615,22 @@ synchronized void addRow(final DataRow r, final boolean isCopyOfExisting, final
         }
     } // addRow(DataRow)
 
+    /**
+     * Creates the list that keeps the rows in memory. Unless disabled via
+     * {@link KNIMEConstants#PROPERTY_DISABLE_COMPACT_ROWS} this is a {@link CompactRowList}, which stores the cells
+     * column-wise and materializes the rows on access.
+     *
+     * @param spec the spec of the rows
+     * @param initialCapacity the expected number of rows
+     * @return a new, empty list
+     */
+    private static List<BlobSupportDataRow> createRowList(final DataTableSpec spec, final int initialCapacity) {
+        if (USE_COMPACT_ROWS && spec != null) {
+            return new CompactRowList(spec, initialCapacity);
+        }
+        return new ArrayList<BlobSupportDataRow>(initialCapacity);
+    }
+
     /**
      * Write all rows from list into file. Used while rows are added and if low mem condition is met.
      *
@@ -643,7 +667,7 @@ final int writeAllRowsFromListToFile() throws IOException {
      * @throws IOException
      */
     private void initOutputWriter(final OutputStream output) throws IOException, UnsupportedOperationException {
-        m_outputWriter = m_outputFormat.createWriter(output, m_spec, !shouldSkipRowKey());
+        m_outputWriter = m_outputFormat.createWriter(output, m_spec, !shouldSkipRowKey(), m_compressionCodec);
         m_outputWriter.setFileStoreHandler((IWriteFileStoreHandler)m_fileStoreHandler);
     }
 
@@ -651,7 +675,7 @@ private void initOutputWriter(final OutputStream output) throws IOException, Uns
      * @throws IOException
      */
     private void initOutputWriter(final File binFile) throws IOException {
-        m_outputWriter = m_outputFormat.createWriter(binFile, m_spec, !shouldSkipRowKey());
+        m_outputWriter = m_outputFormat.createWriter(binFile, m_spec, !shouldSkipRowKey(), m_compressionCodec);
         m_outputWriter.setFileStoreHandler((IWriteFileStoreHandler)m_fileStoreHandler);
     }
 
@@ -978,10 +1002,16 @@ void closeInternal() {
         // everything is in the list, i.e. in memory
         if (m_outputWriter == null) {
             // disallow modification
-            List<BlobSupportDataRow> newList = Collections.unmodifiableList(m_list);
-            m_list = newList;
+            if (m_list instanceof CompactRowList) {
+                final CompactRowList compactList = (CompactRowList)m_list;
+                compactList.trimToSize();
+                compactList.close();
+            } else {
+                List<BlobSupportDataRow> newList = Collections.unmodifiableList(m_list);
+                m_list = newList;
+            }
             if (!m_list.isEmpty()) {
-                registerMemoryAlertListener();
+                TableCache.getInstance().put(m_cacheEntry, TableCache.estimateBytes(m_list, size()));
             }
         } else {
             try {
@@ -1006,41 +1036,24 @@ void closeInternal() {
         m_localRepository = null;
     } // close()
 
-    private MemoryAlertListener m_memoryAlertListener;
-
-    private void registerMemoryAlertListener() {
-        m_memoryAlertListener = new MemoryAlertListener() {
-            @Override
-            protected boolean memoryAlert(final MemoryAlert alert) {
-                if (m_list != null && !m_list.isEmpty()) {
-                    ThreadUtils.threadWithContext(new Runnable() {
-                        @Override
-                        public void run() {
-                            onMemoryAlert();
-                        }
-                    }, "KNIME Buffer flusher").start();
-                }
-                return true;
-            }
-        };
-        MemoryAlertSystem.getInstance().addListener(m_memoryAlertListener);
-    }
-
-    private synchronized void onMemoryAlert() {
-        if (m_list == null) {
-            // concurrent close or addRow() caused this to be flushed (this method may stall long on Buffer.this)
+    /**
+     * Called by the {@link TableCache} to free the memory held by this buffer. Rows that are only held in memory are
+     * written to disk first. Does nothing if the buffer has been added to the cache again in the meantime.
+     */
+    synchronized void evictFromMemory() {
+        if (m_list == null || TableCache.getInstance().isCached(m_cacheEntry)) {
+            // concurrent close, flush or clear() freed the memory already (this method may stall long on Buffer.this)
+            return;
+        }
+        final int nrRows = m_list.size();
+        if (m_outputReader != null) {
+            // rows have been read back into memory and are still available on disk
+            m_list = null;
+            LOGGER.debug("Dropped " + nrRows + " rows read back from disk in order to free memory");
         } else {
-            final int nrRowsWritten = m_list.size();
             flushBuffer();
             closeInternal();
-            LOGGER.debug("Wrote " + nrRowsWritten + " rows in order to free memory");
-        }
-    }
-
-    private void unregisterMemoryAlertListener() {
-        if (m_memoryAlertListener != null) {
-            MemoryAlertSystem.getInstance().removeListener(m_memoryAlertListener);
-            m_memoryAlertListener = null;
+            LOGGER.debug("Wrote " + nrRows + " rows in order to free memory");
         }
     }
 
@@ -1217,19 +1230,35 @@ final synchronized void restoreIntoMemory() {
         m_useBackIntoMemoryIterator = true;
     }
 
-    /** Called from back into memory iterator when the last row was read. */
-    final synchronized void onAllRowsReadBackIntoMemory() {
-        if (m_memoryAlertListener == null) {
-            m_memoryAlertListener = new MemoryAlertListener() {
-                @Override
-                protected boolean memoryAlert(final MemoryAlert alert) {
-                    m_list = null;
-                    return true;
-                }
-            };
+    /**
+     * Called from back into memory iterator when the last row was read.
+     *
+     * @param list the list the rows were read into
+     */
+    final synchronized void onAllRowsReadBackIntoMemory(final List<BlobSupportDataRow> list) {
+        if (list instanceof CompactRowList) {
+            ((CompactRowList)list).close();
+        }
+        if (list == m_list) {
+            // (re-)account with the exact estimate, the list may have been dropped by the cache in the meantime
+            TableCache.getInstance().put(m_cacheEntry, TableCache.estimateBytes(list, size()));
         }
     }
 
+    /** Estimates the size of this buffer in memory from the first rows in the file. */
+    private long estimateBytesFromFile() {
+        final List<DataRow> sample = new ArrayList<DataRow>();
+        try (CloseableRowIterator it = m_outputReader.iteratorBuilder().build()) {
+            while (it.hasNext() && sample.size() < 100) {
+                sample.add(it.next());
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Unable to estimate size of buffer " + m_bufferID + ": " + e.getMessage(), e);
+            return -1;
+        }
+        return TableCache.estimateBytes(sample, size());
+    }
+
 
     /**
      * Get reference to the table repository that this buffer was initially instantiated with. Used for blob
@@ -1400,13 +1429,21 @@ private static String getFileName(final int fileIndex) {
     }
 
     synchronized RowIteratorBuilder<? extends CloseableRowIterator> iteratorBuilder() {
+        final TableCache cache = TableCache.getInstance();
+        cache.onIteration(m_cacheEntry);
         if (usesOutFile()) {
+            // read a table that is iterated repeatedly back into memory if there is enough headroom (again)
+            if (!m_useBackIntoMemoryIterator && m_backIntoMemoryIterator == null && m_outputReader != null
+                && size() <= Integer.MAX_VALUE && cache.tryPromote(m_cacheEntry, this::estimateBytesFromFile)) {
+                m_useBackIntoMemoryIterator = true;
+            }
             if (m_useBackIntoMemoryIterator) {
                 // the order of the following lines is very important!
                 m_useBackIntoMemoryIterator = false;
-                m_backIntoMemoryIterator = iteratorBuilder().build();
+                // read the file directly, the iteration has already been counted above
+                m_backIntoMemoryIterator = m_outputReader.iteratorBuilder().build();
                 // we never store more than 2^31 rows in memory, therefore it's safe to cast to int
-                m_list = new ArrayList<BlobSupportDataRow>((int) size());
+                m_list = createRowList(getTableSpec(), (int) size());
                 return new DefaultRowIteratorBuilder<>(() -> new FromListIterator(), getTableSpec());
             }
             RowIteratorBuilder<? extends TableStoreCloseableRowIterator> iteratorBuilder =
@@ -1497,6 +1534,7 @@ synchronized void addToZipFile(final ZipOutputStream zipOut, final ExecutionMoni
             // of this buffer, which prevents it from further reading (version
             // conflict) - see bug #1364
             Buffer copy = createLocalCloneForWriting();
+            copy.m_compressionCodec = m_compressionCodec;
             File tempFile = null;
             try {
                 copy.initOutputWriter(new NonClosableOutputStream.Zip(zipOut));
@@ -1621,7 +1659,7 @@ public int getBufferID() {
     synchronized void clear() {
         BufferTracker.getInstance().bufferCleared(this);
         m_list = null;
-        unregisterMemoryAlertListener();
+        TableCache.getInstance().remove(m_cacheEntry);
         if (m_binFile != null) {
             if (m_outputReader != null) {
                 // output reader might be null if Buffer was created but never read -- no iterators to clear
@@ -1686,6 +1724,9 @@ private static void logDebug(final String message, final Throwable t) {
     }
 
     synchronized void flushBuffer() {
+        if (m_list != null) {
+            TableCache.getInstance().remove(m_cacheEntry);
+        }
         try {
             writeAllRowsFromListToFile();
             m_list = null; // don't write to internal cache any more
@@ -1774,7 +1815,7 @@ public DataRow next() {
                 if (++m_nextIndex >= size()) {
                     assert !m_backIntoMemoryIterator.hasNext() : "File iterator returns more rows than buffer contains";
                     m_backIntoMemoryIterator = null;
-                    onAllRowsReadBackIntoMemory();
+                    onAllRowsReadBackIntoMemory(m_listReference);
                 }
                 return next;
             }
@@ -106,19 +106,11 @@ final class BufferFromFileIteratorVersion1x extends FromFileIterator {
         BufferedInputStream bufferedStream =
             new BufferedInputStream(new FileInputStream(tableFormatReader.getBinFile()));
         InputStream in;
-        switch (tableFormatReader.getBinFileCompressionFormat()) {
-            case Gzip:
-                in = new GZIPInputStream(bufferedStream);
-                // buffering is important when reading gzip streams
-                in = new BufferedInputStream(in);
-                break;
-            case None:
-                in = bufferedStream;
-                break;
-            default:
-                bufferedStream.close();
-                throw new IOException("Unsupported compression format: "
-                        + tableFormatReader.getBinFileCompressionFormat());
+        try {
+            in = tableFormatReader.getBinFileCompressionCodec().decompress(bufferedStream);
+        } catch (IOException ioe) {
+            bufferedStream.close();
+            throw ioe;
         }
         m_inStream = new DCObjectInputStream(in);
     }
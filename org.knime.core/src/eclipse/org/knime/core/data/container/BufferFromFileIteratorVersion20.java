@@ -62,6 +62,7 @@
 import org.knime.core.data.RowKey;
 import org.knime.core.data.container.BlobDataCell.BlobAddress;
 import org.knime.core.data.container.DefaultTableStoreReader.FromFileIterator;
+import org.knime.core.data.container.storage.AbstractTableStoreReader;
 import org.knime.core.data.filestore.FileStoreCell;
 import org.knime.core.data.filestore.FileStoreKey;
 import org.knime.core.data.filestore.FileStoreUtil;
@@ -115,19 +116,7 @@ final class BufferFromFileIteratorVersion20 extends FromFileIterator {
             + BufferFromFileIteratorVersion1x.class.getSimpleName();
         BufferedInputStream bufferedStream =
             new BufferedInputStream(new FileInputStream(tableFormatReader.getBinFile()));
-        InputStream in;
-        switch (tableFormatReader.getBinFileCompressionFormat()) {
-            case Gzip:
-                in = new GZIPInputStream(bufferedStream);
-                // buffering is important when reading gzip streams
-                in = new BufferedInputStream(in);
-                break;
-            case None:
-                in = bufferedStream;
-                break;
-            default:
-                throw new IOException("Unsupported compression format: " + tableFormatReader.getBinFileCompressionFormat());
-        }
+        InputStream in = tableFormatReader.getBinFileCompressionCodec().decompress(bufferedStream);
         m_dataCellStreamReader = new DataCellStreamReader(tableFormatReader);
         m_inStream = new DCObjectInputVersion2(in, m_dataCellStreamReader);
     }
@@ -312,11 +301,11 @@ static BlobDataCell readBlobDataCell(final BlobAddress blobAddress, final CellCl
     static class DataCellStreamReader {
 
         /** Associated buffer. */
-        private final DefaultTableStoreReader m_tableFormatReader;
+        private final AbstractTableStoreReader m_tableFormatReader;
 
         /** Only memorizes the table reader.
          * @param tableFormatReader associated reader, possibly be null. */
-        DataCellStreamReader(final DefaultTableStoreReader tableFormatReader) {
+        DataCellStreamReader(final AbstractTableStoreReader tableFormatReader) {
             m_tableFormatReader = tableFormatReader;
         }
 
@@ -0,0 +1,232 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.container.storage.AbstractTableStoreReader;
+import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
+import org.knime.core.data.container.storage.TableStoreFormat;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+
+/**
+ * Table store format that writes the data column by column. Rows are grouped into chunks and each chunk stores the
+ * cells of one column in a separate, length-prefixed block. Columns of type {@link IntCell}, {@link LongCell},
+ * {@link DoubleCell} and {@link BooleanCell} are stored as plain primitive values, all other columns use the standard
+ * KNIME cell serialization.
+ *
+ * <p>
+ * The main benefit is that an iterator that was created with a column filter (see
+ * {@link org.knime.core.data.RowIteratorBuilder#filterColumns(int...)}) skips the blocks of columns it does not need
+ * (without decompressing or decoding them).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ * @noextend This class is not intended to be subclassed by clients.
+ * @noreference This class is not intended to be referenced by clients.
+ */
+public final class ColumnarTableStoreFormat implements TableStoreFormat {
+
+    /** Version of the file layout, validated by the reader. */
+    static final String VERSION = "columnar_1";
+
+    /** Config key for the version written by the writer. */
+    static final String CFG_VERSION = "columnar.version";
+
+    /** Config key for the (maximum) number of rows per chunk. */
+    static final String CFG_CHUNK_SIZE = "columnar.chunksize";
+
+    /** Number of cells that are collected per chunk; the row count per chunk is derived from the table width. */
+    static final int CELLS_PER_CHUNK = 1 << 18;
+
+    /** Lower bound on the number of rows per chunk (very wide tables). */
+    static final int MIN_ROWS_PER_CHUNK = 64;
+
+    /** Upper bound on the number of rows per chunk (very narrow tables). */
+    static final int MAX_ROWS_PER_CHUNK = 1 << 14;
+
+    /** Marker written instead of a row count after the last chunk. */
+    static final int END_OF_TABLE = -1;
+
+    /** How the cells of a column are encoded in a chunk. */
+    enum ColumnEncoding {
+            /** Cells are written using the standard cell serialization. */
+            Generic(-1),
+            /** Primitive int values. */
+            Int(Integer.BYTES),
+            /** Primitive long values. */
+            Long(java.lang.Long.BYTES),
+            /** Primitive double values. */
+            Double(java.lang.Double.BYTES),
+            /** Primitive boolean values. */
+            Boolean(1);
+
+        private final int m_byteWidth;
+
+        ColumnEncoding(final int byteWidth) {
+            m_byteWidth = byteWidth;
+        }
+
+        /** @return number of bytes per value, -1 for {@link #Generic}. */
+        int getByteWidth() {
+            return m_byteWidth;
+        }
+
+        /**
+         * @param type the column type
+         * @return the encoding to use for cells of the argument type
+         */
+        static ColumnEncoding forType(final DataType type) {
+            if (IntCell.TYPE.equals(type)) {
+                return Int;
+            } else if (LongCell.TYPE.equals(type)) {
+                return Long;
+            } else if (DoubleCell.TYPE.equals(type)) {
+                return Double;
+            } else if (BooleanCell.TYPE.equals(type)) {
+                return Boolean;
+            }
+            return Generic;
+        }
+    }
+
+    /** Per-cell flags in a primitive column block. */
+    static final byte FLAG_VALUE = 0;
+
+    /** The cell is the singleton missing cell. */
+    static final byte FLAG_MISSING = 1;
+
+    /** The cell isn't of the expected class and is written using the standard serialization. */
+    static final byte FLAG_GENERIC = 2;
+
+    /**
+     * Determines the number of rows that are written into one chunk.
+     *
+     * @param spec the spec of the table
+     * @return rows per chunk, between {@value #MIN_ROWS_PER_CHUNK} and {@value #MAX_ROWS_PER_CHUNK}
+     */
+    static int getRowsPerChunk(final DataTableSpec spec) {
+        int nrCols = Math.max(1, spec.getNumColumns());
+        return Math.max(MIN_ROWS_PER_CHUNK, Math.min(MAX_ROWS_PER_CHUNK, CELLS_PER_CHUNK / nrCols));
+    }
+
+    @Override
+    public String getName() {
+        return "Column Store (KNIME)";
+    }
+
+    @Override
+    public String getFilenameSuffix() {
+        return ".bin.col";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean accepts(final DataTableSpec spec) {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreWriter createWriter(final File binFile, final DataTableSpec spec,
+        final boolean writeRowKey) throws IOException {
+        return createWriter(binFile, spec, writeRowKey, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreWriter createWriter(final OutputStream output, final DataTableSpec spec,
+        final boolean writeRowKey) throws IOException {
+        return createWriter(output, spec, writeRowKey, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreWriter createWriter(final File binFile, final DataTableSpec spec,
+        final boolean writeRowKey, final TableStoreCompressionCodec codec) throws IOException {
+        return createWriter(new FileOutputStream(binFile), spec, writeRowKey, codec);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreWriter createWriter(final OutputStream output, final DataTableSpec spec,
+        final boolean writeRowKey, final TableStoreCompressionCodec codec) throws IOException {
+        return new ColumnarTableStoreWriter(spec, output, writeRowKey,
+            codec != null ? codec : DefaultTableStoreFormat.getDefaultCompressionCodec());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreReader createReader(final File binFile, final DataTableSpec spec,
+        final NodeSettingsRO settings, final Map<Integer, ContainerTable> tblRep, final int version,
+        final boolean isReadRowKey) throws IOException, InvalidSettingsException {
+        return new ColumnarTableStoreReader(binFile, spec, settings, version, isReadRowKey);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getVersion() {
+        return VERSION;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean validateVersion(final String versionString) {
+        return VERSION.equals(versionString);
+    }
+
+}
@@ -0,0 +1,410 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowIteratorBuilder;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.UnmaterializedCell;
+import org.knime.core.data.container.BufferFromFileIteratorVersion20.DataCellStreamReader;
+import org.knime.core.data.container.ColumnarTableStoreFormat.ColumnEncoding;
+import org.knime.core.data.container.storage.AbstractTableStoreReader;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
+import org.knime.core.data.container.storage.TableStoreCompressionCodecRegistry;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeSettingsRO;
+
+/**
+ * Reader for the {@link ColumnarTableStoreFormat}. Iterators created via {@link #iteratorBuilder()} with a column
+ * filter only decode the selected columns; the blocks of all other columns are skipped on the file and their cells
+ * are represented by {@link UnmaterializedCell}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ColumnarTableStoreReader extends AbstractTableStoreReader {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(ColumnarTableStoreReader.class);
+
+    private final boolean m_isReadRowKey;
+
+    private TableStoreCompressionCodec m_compressionCodec;
+
+    private ColumnEncoding[] m_encodings;
+
+    /**
+     * Constructs a reader for materializing tables written by the {@link ColumnarTableStoreWriter}.
+     *
+     * @param binFile the local file from which to read
+     * @param spec the specification of the data table
+     * @param settings The settings (written by
+     *            {@link ColumnarTableStoreWriter#writeMetaInfoAfterWrite(org.knime.core.node.NodeSettingsWO)})
+     * @param version The version as defined in the {@link Buffer} class
+     * @param isReadRowKey whether or not row keys are to be read (or generated anew)
+     * @throws IOException any type of I/O problem
+     * @throws InvalidSettingsException if the settings are invalid or written by a newer version
+     */
+    ColumnarTableStoreReader(final File binFile, final DataTableSpec spec, final NodeSettingsRO settings,
+        final int version, final boolean isReadRowKey) throws IOException, InvalidSettingsException {
+        super(binFile, spec, settings, version);
+        m_isReadRowKey = isReadRowKey;
+        m_encodings = new ColumnEncoding[spec.getNumColumns()];
+        for (int i = 0; i < m_encodings.length; i++) {
+            m_encodings[i] = ColumnEncoding.forType(spec.getColumnSpec(i).getType());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void readMetaFromFile(final NodeSettingsRO settings, final int version)
+        throws IOException, InvalidSettingsException {
+        String formatVersion = settings.getString(ColumnarTableStoreFormat.CFG_VERSION);
+        if (!ColumnarTableStoreFormat.VERSION.equals(formatVersion)) {
+            throw new InvalidSettingsException(String.format(
+                "Unsupported version of columnar table format: \"%s\" (expected \"%s\")", formatVersion,
+                ColumnarTableStoreFormat.VERSION));
+        }
+        String compFormat = settings.getString(DefaultTableStoreFormat.CFG_COMPRESSION);
+        m_compressionCodec = TableStoreCompressionCodecRegistry.getInstance().getCodecForReading(compFormat);
+        super.readMetaFromFile(settings, version);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TableStoreCloseableRowIterator iterator() {
+        return createIterator(null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RowIteratorBuilder<? extends TableStoreCloseableRowIterator> iteratorBuilder() {
+        return new ColumnarRowIteratorBuilder();
+    }
+
+    private TableStoreCloseableRowIterator createIterator(final boolean[] selectedColumns) {
+        try {
+            return new ColumnarFromFileIterator(selectedColumns);
+        } catch (IOException ioe) {
+            checkAndReportOpenFiles(ioe);
+            throw new RuntimeException("Cannot read file \"" + getFile().getName() + "\"", ioe);
+        }
+    }
+
+    /** Builder that memorizes the selected columns and passes them on to the iterator. */
+    private final class ColumnarRowIteratorBuilder implements RowIteratorBuilder<TableStoreCloseableRowIterator> {
+
+        private boolean[] m_selectedColumns;
+
+        /** {@inheritDoc} */
+        @Override
+        public RowIteratorBuilder<TableStoreCloseableRowIterator> filterColumns(final int... indices) {
+            getSpec().verifyIndices(indices);
+            m_selectedColumns = new boolean[getSpec().getNumColumns()];
+            for (int i : indices) {
+                m_selectedColumns[i] = true;
+            }
+            return this;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public RowIteratorBuilder<TableStoreCloseableRowIterator> filterColumns(final String... columns) {
+            return filterColumns(getSpec().columnsToIndices(columns));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public TableStoreCloseableRowIterator build() {
+            TableStoreCloseableRowIterator iterator = createIterator(m_selectedColumns);
+            registerNewIteratorInstance(iterator);
+            return iterator;
+        }
+    }
+
+    /** Iterator reading the file chunk by chunk. */
+    private final class ColumnarFromFileIterator extends TableStoreCloseableRowIterator {
+
+        /** Selected columns, null if all columns are read. */
+        private final boolean[] m_selectedColumns;
+
+        private final DataCellStreamReader m_dataCellStreamReader;
+
+        /** Stream to read from, null when closed or at the end. */
+        private DataInputStream m_in;
+
+        private RowKey[] m_chunkKeys;
+
+        /** The decoded cells of the current chunk: [column][row], null for unselected columns. */
+        private final DataCell[][] m_chunkCells;
+
+        private int m_rowsInChunk;
+
+        private int m_indexInChunk;
+
+        private long m_rowIndex;
+
+        private boolean m_hasThrownReadException;
+
+        ColumnarFromFileIterator(final boolean[] selectedColumns) throws IOException {
+            m_selectedColumns = selectedColumns;
+            m_dataCellStreamReader = new DataCellStreamReader(ColumnarTableStoreReader.this);
+            m_chunkCells = new DataCell[m_encodings.length][];
+            m_in = new DataInputStream(new BufferedInputStream(new FileInputStream(getFile()), 1 << 16));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized boolean hasNext() {
+            if (m_indexInChunk < m_rowsInChunk) {
+                return true;
+            }
+            if (m_in == null) {
+                return false;
+            }
+            try {
+                readNextChunk();
+            } catch (IOException ioe) {
+                throw new RuntimeException("Unable to read chunk from file \"" + getFile().getName() + "\": "
+                    + ioe.getMessage(), ioe);
+            }
+            boolean hasNext = m_indexInChunk < m_rowsInChunk;
+            if (!hasNext) {
+                close();
+            }
+            return hasNext;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized BlobSupportDataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator at end");
+            }
+            final int index = m_indexInChunk++;
+            m_rowIndex++;
+            DataCell[] cells = new DataCell[m_chunkCells.length];
+            for (int i = 0; i < cells.length; i++) {
+                DataCell[] column = m_chunkCells[i];
+                cells[i] = column == null ? UnmaterializedCell.getInstance() : column[index];
+            }
+            RowKey key = m_chunkKeys == null ? DUMMY_ROW_KEY : m_chunkKeys[index];
+            return new BlobSupportDataRow(key, cells);
+        }
+
+        private void readNextChunk() throws IOException {
+            final DataInputStream in = m_in;
+            m_indexInChunk = 0;
+            m_rowsInChunk = 0;
+            final int rowCount = in.readInt();
+            if (rowCount == ColumnarTableStoreFormat.END_OF_TABLE) {
+                return;
+            }
+            if (m_isReadRowKey) {
+                m_chunkKeys = readRowKeys(readBlock(in), rowCount);
+            }
+            for (int c = 0; c < m_encodings.length; c++) {
+                if (m_selectedColumns == null || m_selectedColumns[c]) {
+                    m_chunkCells[c] = readColumn(readBlock(in), m_encodings[c], rowCount, m_chunkCells[c]);
+                } else {
+                    skipBlock(in);
+                }
+            }
+            m_rowsInChunk = rowCount;
+        }
+
+        private byte[] readBlock(final DataInputStream in) throws IOException {
+            int storedLength = in.readInt();
+            int rawLength = in.readInt();
+            byte[] stored = new byte[storedLength];
+            in.readFully(stored);
+            return m_compressionCodec.decompressBlock(stored, rawLength);
+        }
+
+        private void skipBlock(final DataInputStream in) throws IOException {
+            long remaining = in.readInt();
+            in.readInt(); // raw length
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        throw new EOFException("Unexpected end of file while skipping column block");
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+        }
+
+        private RowKey[] readRowKeys(final byte[] block, final int rowCount) throws IOException {
+            RowKey[] keys = m_chunkKeys != null && m_chunkKeys.length >= rowCount ? m_chunkKeys : new RowKey[rowCount];
+            DCObjectInputVersion2 inStream =
+                new DCObjectInputVersion2(new ByteArrayInputStream(block), m_dataCellStreamReader);
+            for (int r = 0; r < rowCount; r++) {
+                try {
+                    keys[r] = inStream.readRowKey();
+                } finally {
+                    inStream.endBlock();
+                }
+            }
+            return keys;
+        }
+
+        private DataCell[] readColumn(final byte[] block, final ColumnEncoding encoding, final int rowCount,
+            final DataCell[] reuse) throws IOException {
+            DataCell[] result = reuse != null && reuse.length >= rowCount ? reuse : new DataCell[rowCount];
+            if (encoding == ColumnEncoding.Generic) {
+                DCObjectInputVersion2 inStream =
+                    new DCObjectInputVersion2(new ByteArrayInputStream(block), m_dataCellStreamReader);
+                readGenericCells(inStream, result, rowCount, null);
+                return result;
+            }
+            ByteBuffer values = ByteBuffer.wrap(block, rowCount, block.length - rowCount);
+            boolean hasGeneric = false;
+            for (int r = 0; r < rowCount; r++) {
+                switch (block[r]) {
+                    case ColumnarTableStoreFormat.FLAG_VALUE:
+                        result[r] = readPrimitive(values, encoding);
+                        break;
+                    case ColumnarTableStoreFormat.FLAG_MISSING:
+                        result[r] = DataType.getMissingCell();
+                        break;
+                    case ColumnarTableStoreFormat.FLAG_GENERIC:
+                        hasGeneric = true;
+                        break;
+                    default:
+                        throw new IOException("Invalid cell flag in column block: " + block[r]);
+                }
+            }
+            if (hasGeneric) {
+                // remaining bytes in the block contain the cells that were not written as primitives
+                DCObjectInputVersion2 inStream = new DCObjectInputVersion2(
+                    new ByteArrayInputStream(block, values.position(), values.remaining()), m_dataCellStreamReader);
+                readGenericCells(inStream, result, rowCount, block);
+            }
+            return result;
+        }
+
+        /** Reads the cells from the argument stream, if flags is non-null only those flagged as generic. */
+        private void readGenericCells(final DCObjectInputVersion2 inStream, final DataCell[] result,
+            final int rowCount, final byte[] flags) {
+            for (int r = 0; r < rowCount; r++) {
+                if (flags != null && flags[r] != ColumnarTableStoreFormat.FLAG_GENERIC) {
+                    continue;
+                }
+                DataCell cell;
+                try {
+                    try {
+                        cell = m_dataCellStreamReader.readDataCell(inStream);
+                    } finally {
+                        inStream.endBlock();
+                    }
+                } catch (Exception e) {
+                    handleReadThrowable(e);
+                    cell = DataType.getMissingCell();
+                }
+                result[r] = cell;
+            }
+        }
+
+        private DataCell readPrimitive(final ByteBuffer values, final ColumnEncoding encoding) {
+            switch (encoding) {
+                case Int:
+                    return new IntCell(values.getInt());
+                case Long:
+                    return new LongCell(values.getLong());
+                case Double:
+                    return new DoubleCell(values.getDouble());
+                case Boolean:
+                    return BooleanCell.get(values.get() != 0);
+                default:
+                    throw new IllegalStateException("Not a primitive encoding: " + encoding);
+            }
+        }
+
+        /** Handle exceptions, make sure to issue errors only once. */
+        private void handleReadThrowable(final Throwable throwable) {
+            String warnMessage = "Errors while reading row " + (m_rowIndex + 1) + " from file \""
+                + getFile().getName() + "\": " + throwable.getMessage();
+            if (!m_hasThrownReadException) {
+                LOGGER.error(warnMessage + "; Suppressing further warnings.", throwable);
+            } else {
+                LOGGER.debug(warnMessage, throwable);
+            }
+            m_hasThrownReadException = true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized boolean performClose() throws IOException {
+            if (m_in == null) {
+                return false;
+            }
+            DataInputStream in = m_in;
+            m_in = null;
+            m_rowsInChunk = 0;
+            m_indexInChunk = 0;
+            in.close();
+            return true;
+        }
+
+    }
+
+}
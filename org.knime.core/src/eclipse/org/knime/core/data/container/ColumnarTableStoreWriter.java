@@ -0,0 +1,346 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ColumnarTableStoreFormat.ColumnEncoding;
+import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.node.NodeSettingsWO;
+
+/**
+ * Writer for the {@link ColumnarTableStoreFormat}. Rows are collected column-wise in per-column byte buffers; when a
+ * chunk is full (see {@link ColumnarTableStoreFormat#getRowsPerChunk(DataTableSpec)}) each column buffer is
+ * (optionally) compressed and written as a separate, length-prefixed block.
+ *
+ * <p>
+ * File layout: <code>chunk* END_OF_TABLE</code>, whereby a chunk is <code>rowCount [rowKeyBlock] columnBlock*</code>
+ * and a block is <code>storedLength rawLength bytes</code>.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ColumnarTableStoreWriter extends AbstractTableStoreWriter {
+
+    /** Used to compress the blocks. */
+    private final TableStoreCompressionCodec m_compressionCodec;
+
+    private final DataOutputStream m_out;
+
+    private final int m_rowsPerChunk;
+
+    /** Encodes the row keys, null if row keys are not written. */
+    private final GenericColumnEncoder m_rowKeyEncoder;
+
+    private final ColumnEncoder[] m_columnEncoders;
+
+    private int m_rowsInChunk;
+
+    private boolean m_isClosed;
+
+    /**
+     * Constructs a writer for writing KNIME tables to disk in a column-wise layout.
+     *
+     * @param spec the specification of the KNIME table to write to disk
+     * @param outputStream the stream to write to
+     * @param writeRowKey a flag that determines whether to store the row keys
+     * @param compressionCodec the codec to compress each block with, not null
+     * @throws IOException any type of I/O problem
+     */
+    ColumnarTableStoreWriter(final DataTableSpec spec, final OutputStream outputStream, final boolean writeRowKey,
+        final TableStoreCompressionCodec compressionCodec) throws IOException {
+        super(spec, writeRowKey);
+        m_compressionCodec = compressionCodec;
+        m_out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        m_rowsPerChunk = ColumnarTableStoreFormat.getRowsPerChunk(spec);
+        m_rowKeyEncoder = writeRowKey ? new GenericColumnEncoder(this) : null;
+        m_columnEncoders = new ColumnEncoder[spec.getNumColumns()];
+        for (int i = 0; i < m_columnEncoders.length; i++) {
+            ColumnEncoding encoding = ColumnEncoding.forType(spec.getColumnSpec(i).getType());
+            if (encoding == ColumnEncoding.Generic) {
+                m_columnEncoders[i] = new GenericColumnEncoder(this);
+            } else {
+                m_columnEncoders[i] = new PrimitiveColumnEncoder(this, encoding, m_rowsPerChunk);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeRow(final DataRow row) throws IOException {
+        if (m_rowKeyEncoder != null) {
+            m_rowKeyEncoder.addRowKey(row.getKey());
+        }
+        for (int i = 0; i < m_columnEncoders.length; i++) {
+            DataCell cell =
+                row instanceof BlobSupportDataRow ? ((BlobSupportDataRow)row).getRawCell(i) : row.getCell(i);
+            m_columnEncoders[i].add(cell);
+        }
+        m_rowsInChunk += 1;
+        if (m_rowsInChunk >= m_rowsPerChunk) {
+            flushChunk();
+        }
+    }
+
+    /** Writes the current chunk (if not empty) and resets the column encoders. */
+    private void flushChunk() throws IOException {
+        if (m_rowsInChunk == 0) {
+            return;
+        }
+        m_out.writeInt(m_rowsInChunk);
+        if (m_rowKeyEncoder != null) {
+            writeBlock(m_rowKeyEncoder);
+        }
+        for (ColumnEncoder e : m_columnEncoders) {
+            writeBlock(e);
+        }
+        m_rowsInChunk = 0;
+    }
+
+    private void writeBlock(final ColumnEncoder encoder) throws IOException {
+        ByteArrayOutputStream raw = encoder.finishChunk();
+        byte[] rawBytes = raw.toByteArray();
+        byte[] stored = m_compressionCodec.compressBlock(rawBytes, 0, rawBytes.length);
+        m_out.writeInt(stored.length);
+        m_out.writeInt(rawBytes.length);
+        m_out.write(stored);
+        raw.reset();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeMetaInfoAfterWrite(final NodeSettingsWO settings) {
+        settings.addString(ColumnarTableStoreFormat.CFG_VERSION, ColumnarTableStoreFormat.VERSION);
+        settings.addString(DefaultTableStoreFormat.CFG_COMPRESSION, m_compressionCodec.getName());
+        settings.addInt(ColumnarTableStoreFormat.CFG_CHUNK_SIZE, m_rowsPerChunk);
+        super.writeMetaInfoAfterWrite(settings);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (m_isClosed) {
+            return;
+        }
+        m_isClosed = true;
+        try {
+            flushChunk();
+            m_out.writeInt(ColumnarTableStoreFormat.END_OF_TABLE);
+        } finally {
+            m_out.close();
+        }
+    }
+
+    /** Collects the cells of one column of the current chunk. */
+    private abstract static class ColumnEncoder {
+
+        /**
+         * @param cell the next cell of the column (a raw cell, i.e. blobs are not unwrapped)
+         * @throws IOException if serialization fails
+         */
+        abstract void add(DataCell cell) throws IOException;
+
+        /**
+         * Finishes the current chunk. The returned stream is reset by the caller after it's been written.
+         *
+         * @return the buffer containing the chunk data
+         * @throws IOException if serialization fails
+         */
+        abstract ByteArrayOutputStream finishChunk() throws IOException;
+    }
+
+    /** Writes all cells using the standard KNIME serialization, each cell as separate block. */
+    private static final class GenericColumnEncoder extends ColumnEncoder {
+
+        private final ByteArrayOutputStream m_bytes = new ByteArrayOutputStream();
+
+        private final DCObjectOutputVersion2 m_outStream;
+
+        GenericColumnEncoder(final AbstractTableStoreWriter writer) {
+            m_outStream = new DCObjectOutputVersion2(m_bytes, writer);
+        }
+
+        void addRowKey(final RowKey key) throws IOException {
+            m_outStream.writeRowKey(key);
+            m_outStream.endBlock();
+        }
+
+        @Override
+        void add(final DataCell cell) throws IOException {
+            m_outStream.writeDataCell(cell);
+            m_outStream.endBlock();
+        }
+
+        @Override
+        ByteArrayOutputStream finishChunk() throws IOException {
+            m_outStream.flush();
+            return m_bytes;
+        }
+    }
+
+    /**
+     * Writes int, long, double or boolean cells as primitives. The block consists of one flag byte per row (see
+     * {@link ColumnarTableStoreFormat#FLAG_VALUE} and siblings), followed by the primitive values (big endian) and
+     * finally the cells that couldn't be written as primitive (missing cells with error message, cells of unexpected
+     * class).
+     */
+    private static final class PrimitiveColumnEncoder extends ColumnEncoder {
+
+        private final ColumnEncoding m_encoding;
+
+        private final ByteArrayOutputStream m_bytes = new ByteArrayOutputStream();
+
+        private final GenericColumnEncoder m_genericEncoder;
+
+        private final byte[] m_flags;
+
+        /** The raw bits of the values (ints, doubles, booleans are converted to long). */
+        private final long[] m_values;
+
+        private int m_count;
+
+        private int m_valueCount;
+
+        private boolean m_hasGeneric;
+
+        PrimitiveColumnEncoder(final AbstractTableStoreWriter writer, final ColumnEncoding encoding,
+            final int rowsPerChunk) {
+            m_encoding = encoding;
+            m_genericEncoder = new GenericColumnEncoder(writer);
+            m_flags = new byte[rowsPerChunk];
+            m_values = new long[rowsPerChunk];
+        }
+
+        @Override
+        void add(final DataCell cell) throws IOException {
+            final byte flag;
+            if (cell == DataType.getMissingCell()) {
+                flag = ColumnarTableStoreFormat.FLAG_MISSING;
+            } else if (addPrimitive(cell)) {
+                flag = ColumnarTableStoreFormat.FLAG_VALUE;
+            } else {
+                m_genericEncoder.add(cell);
+                m_hasGeneric = true;
+                flag = ColumnarTableStoreFormat.FLAG_GENERIC;
+            }
+            m_flags[m_count++] = flag;
+        }
+
+        private boolean addPrimitive(final DataCell cell) {
+            final Class<? extends DataCell> cellClass = cell.getClass();
+            switch (m_encoding) {
+                case Int:
+                    if (cellClass == IntCell.class) {
+                        m_values[m_valueCount++] = ((IntCell)cell).getIntValue();
+                        return true;
+                    }
+                    return false;
+                case Long:
+                    if (cellClass == LongCell.class) {
+                        m_values[m_valueCount++] = ((LongCell)cell).getLongValue();
+                        return true;
+                    }
+                    return false;
+                case Double:
+                    if (cellClass == DoubleCell.class) {
+                        m_values[m_valueCount++] = Double.doubleToRawLongBits(((DoubleCell)cell).getDoubleValue());
+                        return true;
+                    }
+                    return false;
+                case Boolean:
+                    if (cellClass == BooleanCell.class) {
+                        m_values[m_valueCount++] = ((BooleanCell)cell).getBooleanValue() ? 1L : 0L;
+                        return true;
+                    }
+                    return false;
+                default:
+                    throw new IllegalStateException("Not a primitive encoding: " + m_encoding);
+            }
+        }
+
+        @Override
+        ByteArrayOutputStream finishChunk() throws IOException {
+            m_bytes.write(m_flags, 0, m_count);
+            ByteBuffer valueBuffer = ByteBuffer.allocate(m_valueCount * m_encoding.getByteWidth());
+            for (int i = 0; i < m_valueCount; i++) {
+                switch (m_encoding) {
+                    case Int:
+                        valueBuffer.putInt((int)m_values[i]);
+                        break;
+                    case Boolean:
+                        valueBuffer.put((byte)m_values[i]);
+                        break;
+                    default:
+                        valueBuffer.putLong(m_values[i]);
+                }
+            }
+            m_bytes.write(valueBuffer.array());
+            if (m_hasGeneric) {
+                ByteArrayOutputStream generic = m_genericEncoder.finishChunk();
+                generic.writeTo(m_bytes);
+                generic.reset();
+            }
+            m_count = 0;
+            m_valueCount = 0;
+            m_hasGeneric = false;
+            return m_bytes;
+        }
+    }
+
+}
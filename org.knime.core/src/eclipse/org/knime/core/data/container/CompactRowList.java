@@ -0,0 +1,547 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Compact in-memory representation of the rows of a {@link Buffer}. The cells are stored column-wise: int, long and
+ * double columns as primitive arrays with a bit set for missing values, string columns dictionary encoded and all
+ * other columns as cell arrays. A {@link BlobSupportDataRow} is only materialized when it is accessed by
+ * {@link #get(int)}. Cells that don't match the encoding of their column (e.g. missing cells with an error message or
+ * cells of a sub class) are kept as they are, similar to the generic cells of the {@link ColumnarTableStoreFormat}.
+ *
+ * <p>
+ * Rows are appended while the buffer is written or read back into memory; this is synchronized by the buffer. Once
+ * {@link #close() closed} the list is read-only.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class CompactRowList extends AbstractList<BlobSupportDataRow> implements RandomAccess {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private RowKey[] m_keys;
+
+    private final Column[] m_columns;
+
+    private int m_size;
+
+    private boolean m_isClosed;
+
+    /**
+     * @param spec the spec of the rows, used to choose the encoding of each column
+     * @param initialCapacity the number of rows to allocate space for
+     */
+    CompactRowList(final DataTableSpec spec, final int initialCapacity) {
+        final int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+        m_keys = new RowKey[capacity];
+        m_columns = new Column[spec.getNumColumns()];
+        for (int i = 0; i < m_columns.length; i++) {
+            m_columns[i] = createColumn(spec.getColumnSpec(i).getType(), capacity);
+        }
+    }
+
+    private static Column createColumn(final DataType type, final int capacity) {
+        if (IntCell.TYPE.equals(type)) {
+            return new IntColumn(capacity);
+        } else if (LongCell.TYPE.equals(type)) {
+            return new LongColumn(capacity);
+        } else if (DoubleCell.TYPE.equals(type)) {
+            return new DoubleColumn(capacity);
+        } else if (StringCell.TYPE.equals(type)) {
+            return new StringColumn(capacity);
+        }
+        return new CellColumn(capacity);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean add(final BlobSupportDataRow row) {
+        if (m_isClosed) {
+            throw new UnsupportedOperationException("Rows can't be added to a closed list");
+        }
+        if (row.getNumCells() != m_columns.length) {
+            throw new IllegalArgumentException(
+                "Row has " + row.getNumCells() + " cells, expected " + m_columns.length + ": " + row.getKey());
+        }
+        if (m_size == m_keys.length) {
+            final int capacity = m_keys.length + (m_keys.length >> 1);
+            m_keys = Arrays.copyOf(m_keys, capacity);
+            for (final Column column : m_columns) {
+                column.resize(capacity);
+            }
+        }
+        m_keys[m_size] = row.getKey();
+        for (int i = 0; i < m_columns.length; i++) {
+            m_columns[i].set(m_size, row.getRawCell(i));
+        }
+        m_size++;
+        modCount++;
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BlobSupportDataRow get(final int index) {
+        if (index < 0 || index >= m_size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+        }
+        final DataCell[] cells = new DataCell[m_columns.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = m_columns[i].get(index);
+        }
+        return new BlobSupportDataRow(m_keys[index], cells);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return m_size;
+    }
+
+    /** Disallows further modification. */
+    void close() {
+        m_isClosed = true;
+        for (final Column column : m_columns) {
+            column.close();
+        }
+    }
+
+    /** Releases unused capacity; must only be called before the list is shared with other threads. */
+    void trimToSize() {
+        if (m_keys.length > m_size) {
+            m_keys = Arrays.copyOf(m_keys, m_size);
+            for (final Column column : m_columns) {
+                column.resize(m_size);
+            }
+        }
+    }
+
+    /**
+     * @return the estimated memory footprint of the rows in bytes
+     */
+    long estimateBytes() {
+        if (m_size == 0) {
+            return 0;
+        }
+        final int step = Math.max(1, m_size / 100);
+        long keyBytes = 0;
+        int sampled = 0;
+        for (int i = 0; i < m_size; i += step) {
+            keyBytes += 16 + 40 + 2L * m_keys[i].getString().length();
+            sampled++;
+        }
+        long bytes = 8L * m_keys.length + keyBytes / sampled * m_size;
+        for (final Column column : m_columns) {
+            bytes += column.estimateBytes(m_size);
+        }
+        return bytes;
+    }
+
+    /** Storage of a single column. */
+    private abstract static class Column {
+
+        /** Cells that don't match the encoding of the column by row index, null if there are none. */
+        private Map<Integer, DataCell> m_generic;
+
+        final void set(final int row, final DataCell cell) {
+            if (!setValue(row, cell)) {
+                if (m_generic == null) {
+                    m_generic = new HashMap<>();
+                }
+                m_generic.put(row, cell);
+            }
+        }
+
+        final DataCell get(final int row) {
+            if (m_generic != null) {
+                final DataCell cell = m_generic.get(row);
+                if (cell != null) {
+                    return cell;
+                }
+            }
+            return getValue(row);
+        }
+
+        /** @return whether the cell could be stored in the column's encoding */
+        abstract boolean setValue(int row, DataCell cell);
+
+        abstract DataCell getValue(int row);
+
+        abstract void resize(int capacity);
+
+        void close() {
+            // nothing to do by default
+        }
+
+        long estimateBytes(final int size) {
+            long bytes = 0;
+            if (m_generic != null) {
+                for (final DataCell cell : m_generic.values()) {
+                    // map entry and boxed row index
+                    bytes += 64 + TableCache.estimateBytes(cell);
+                }
+            }
+            return bytes;
+        }
+    }
+
+    /** Column of primitive values with a bit set for (plain) missing cells. */
+    private abstract static class PrimitiveColumn extends Column {
+
+        private long[] m_missing;
+
+        PrimitiveColumn(final int capacity) {
+            m_missing = new long[bitSetLength(capacity)];
+        }
+
+        private static int bitSetLength(final int capacity) {
+            return (capacity + 63) >>> 6;
+        }
+
+        @Override
+        final boolean setValue(final int row, final DataCell cell) {
+            if (cell == DataType.getMissingCell()) {
+                m_missing[row >>> 6] |= 1L << row;
+                return true;
+            }
+            return setPrimitive(row, cell);
+        }
+
+        @Override
+        final DataCell getValue(final int row) {
+            if ((m_missing[row >>> 6] & (1L << row)) != 0) {
+                return DataType.getMissingCell();
+            }
+            return getPrimitive(row);
+        }
+
+        @Override
+        void resize(final int capacity) {
+            m_missing = Arrays.copyOf(m_missing, bitSetLength(capacity));
+        }
+
+        @Override
+        long estimateBytes(final int size) {
+            return super.estimateBytes(size) + 8L * m_missing.length;
+        }
+
+        abstract boolean setPrimitive(int row, DataCell cell);
+
+        abstract DataCell getPrimitive(int row);
+    }
+
+    private static final class IntColumn extends PrimitiveColumn {
+
+        private int[] m_values;
+
+        IntColumn(final int capacity) {
+            super(capacity);
+            m_values = new int[capacity];
+        }
+
+        @Override
+        boolean setPrimitive(final int row, final DataCell cell) {
+            if (cell.getClass() == IntCell.class) {
+                m_values[row] = ((IntCell)cell).getIntValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        DataCell getPrimitive(final int row) {
+            return new IntCell(m_values[row]);
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        long estimateBytes(final int size) {
+            return super.estimateBytes(size) + 4L * m_values.length;
+        }
+    }
+
+    private static final class LongColumn extends PrimitiveColumn {
+
+        private long[] m_values;
+
+        LongColumn(final int capacity) {
+            super(capacity);
+            m_values = new long[capacity];
+        }
+
+        @Override
+        boolean setPrimitive(final int row, final DataCell cell) {
+            if (cell.getClass() == LongCell.class) {
+                m_values[row] = ((LongCell)cell).getLongValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        DataCell getPrimitive(final int row) {
+            return new LongCell(m_values[row]);
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        long estimateBytes(final int size) {
+            return super.estimateBytes(size) + 8L * m_values.length;
+        }
+    }
+
+    private static final class DoubleColumn extends PrimitiveColumn {
+
+        private double[] m_values;
+
+        DoubleColumn(final int capacity) {
+            super(capacity);
+            m_values = new double[capacity];
+        }
+
+        @Override
+        boolean setPrimitive(final int row, final DataCell cell) {
+            if (cell.getClass() == DoubleCell.class) {
+                m_values[row] = ((DoubleCell)cell).getDoubleValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        DataCell getPrimitive(final int row) {
+            return new DoubleCell(m_values[row]);
+        }
+
+        @Override
+        void resize(final int capacity) {
+            super.resize(capacity);
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        long estimateBytes(final int size) {
+            return super.estimateBytes(size) + 8L * m_values.length;
+        }
+    }
+
+    /**
+     * Dictionary encoded string column. Each distinct value is held once and the rows refer to it by index. If
+     * (almost) all values are distinct the column switches to a plain cell array as the dictionary doesn't pay off.
+     */
+    private static final class StringColumn extends Column {
+
+        /** Number of distinct values after which the dictionary is checked for its efficiency. */
+        private static final int MIN_DICTIONARY_SIZE = 1 << 12;
+
+        private static final int MISSING = -1;
+
+        private int[] m_codes;
+
+        private List<StringCell> m_dictionary = new ArrayList<>();
+
+        /** Maps the values to their index in the dictionary, null when closed. */
+        private Map<String, Integer> m_index = new HashMap<>();
+
+        /** Non-null if the column doesn't use a dictionary (anymore). */
+        private DataCell[] m_cells;
+
+        private int m_count;
+
+        StringColumn(final int capacity) {
+            m_codes = new int[capacity];
+        }
+
+        @Override
+        boolean setValue(final int row, final DataCell cell) {
+            if (m_cells != null) {
+                m_cells[row] = cell;
+                return true;
+            }
+            m_count++;
+            if (cell == DataType.getMissingCell()) {
+                m_codes[row] = MISSING;
+                return true;
+            } else if (cell.getClass() != StringCell.class) {
+                return false;
+            }
+            final StringCell stringCell = (StringCell)cell;
+            final Integer code = m_index.get(stringCell.getStringValue());
+            if (code != null) {
+                m_codes[row] = code;
+            } else {
+                m_codes[row] = m_dictionary.size();
+                m_index.put(stringCell.getStringValue(), m_dictionary.size());
+                m_dictionary.add(stringCell);
+                if (m_dictionary.size() >= MIN_DICTIONARY_SIZE && m_dictionary.size() > m_count / 2) {
+                    decode(row + 1);
+                }
+            }
+            return true;
+        }
+
+        /** Switches to a plain cell array. */
+        private void decode(final int size) {
+            final DataCell[] cells = new DataCell[m_codes.length];
+            for (int i = 0; i < size; i++) {
+                cells[i] = get(i);
+            }
+            m_cells = cells;
+            m_codes = null;
+            m_dictionary = null;
+            m_index = null;
+        }
+
+        @Override
+        DataCell getValue(final int row) {
+            if (m_cells != null) {
+                return m_cells[row];
+            }
+            final int code = m_codes[row];
+            return code == MISSING ? DataType.getMissingCell() : m_dictionary.get(code);
+        }
+
+        @Override
+        void resize(final int capacity) {
+            if (m_cells != null) {
+                m_cells = Arrays.copyOf(m_cells, capacity);
+            } else {
+                m_codes = Arrays.copyOf(m_codes, capacity);
+            }
+        }
+
+        @Override
+        void close() {
+            m_index = null;
+        }
+
+        @Override
+        long estimateBytes(final int size) {
+            long bytes = super.estimateBytes(size);
+            if (m_cells != null) {
+                bytes += 8L * m_cells.length;
+                final int step = Math.max(1, size / 100);
+                long sampleBytes = 0;
+                int sampled = 0;
+                for (int i = 0; i < size; i += step) {
+                    sampleBytes += m_cells[i] == null ? 0 : TableCache.estimateBytes(m_cells[i]);
+                    sampled++;
+                }
+                return bytes + (sampled == 0 ? 0 : sampleBytes / sampled * size);
+            }
+            bytes += 4L * m_codes.length + 8L * m_dictionary.size();
+            for (final StringCell cell : m_dictionary) {
+                bytes += TableCache.estimateBytes(cell);
+            }
+            return bytes;
+        }
+    }
+
+    /** Column of arbitrary cells. */
+    private static final class CellColumn extends Column {
+
+        private DataCell[] m_cells;
+
+        CellColumn(final int capacity) {
+            m_cells = new DataCell[capacity];
+        }
+
+        @Override
+        boolean setValue(final int row, final DataCell cell) {
+            m_cells[row] = cell;
+            return true;
+        }
+
+        @Override
+        DataCell getValue(final int row) {
+            return m_cells[row];
+        }
+
+        @Override
+        void resize(final int capacity) {
+            m_cells = Arrays.copyOf(m_cells, capacity);
+        }
+
+        @Override
+        long estimateBytes(final int size) {
+            final int step = Math.max(1, size / 100);
+            long sampleBytes = 0;
+            int sampled = 0;
+            for (int i = 0; i < size; i += step) {
+                sampleBytes += TableCache.estimateBytes(m_cells[i]);
+                sampled++;
+            }
+            final long cellBytes = sampled == 0 ? 0 : sampleBytes / sampled * size;
+            return super.estimateBytes(size) + 8L * m_cells.length + cellBytes;
+        }
+    }
+}
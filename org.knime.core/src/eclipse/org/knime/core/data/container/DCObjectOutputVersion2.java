@@ -55,8 +55,10 @@
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellDataOutput;
 import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataType;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.container.BlobDataCell.BlobAddress;
+import org.knime.core.data.container.storage.AbstractTableStoreWriter;
 import org.knime.core.data.filestore.FileStoreKey;
 
 
@@ -90,7 +92,7 @@ class DCObjectOutputVersion2 implements KNIMEStreamConstants, AutoCloseable {
      * @param out The stream to write to (the file)
      * @param tableStoreWriter the corresponding writer (callback for embedded cell writing)
      */
-    DCObjectOutputVersion2(final OutputStream out, final DefaultTableStoreWriter tableStoreWriter) {
+    DCObjectOutputVersion2(final OutputStream out, final AbstractTableStoreWriter tableStoreWriter) {
         m_out = new BlockableOutputStream(out);
         m_dataOut = new DCLongUTFDataOutputStream(new DataOutputStream(m_out), tableStoreWriter);
     }
@@ -115,6 +117,50 @@ void writeDataCellPerKNIMESerializer(
         serializer.serialize(cell, m_dataOut);
     }
 
+    /**
+     * Writes a data cell, including its type identifier, file store key and blob address (if any). The serializer and
+     * type short cut are looked up from the table store writer passed in the constructor. No blocking is done.
+     *
+     * @param cell The cell to write.
+     * @throws IOException If stream corruption happens.
+     */
+    void writeDataCell(final DataCell cell) throws IOException {
+        final AbstractTableStoreWriter tableStoreWriter = m_dataOut.m_tableStoreWriter;
+        if (tableStoreWriter == null) {
+            throw new UnsupportedOperationException("Writing encapsulated cells not supported for Blobs");
+        }
+        if (cell == DataType.getMissingCell()) {
+            // only write 'missing' byte if that's the singleton missing cell;
+            // missing cells with error cause are handled like ordinary cells below (via serializer)
+            writeControlByte(BYTE_TYPE_MISSING);
+            return;
+        }
+        boolean isBlob = cell instanceof BlobWrapperDataCell;
+        CellClassInfo cellClass = isBlob ? ((BlobWrapperDataCell)cell).getBlobClassInfo() : CellClassInfo.get(cell);
+        DataCellSerializer<DataCell> ser = tableStoreWriter.getSerializerForDataCell(cellClass);
+        Byte identifier = tableStoreWriter.getTypeShortCut(cellClass);
+        FileStoreKey fileStoreKey = tableStoreWriter.getFileStoreKeyAndFlush(cell);
+        final boolean isJavaSerializationOrBlob = ser == null && !isBlob;
+        if (isJavaSerializationOrBlob) {
+            writeControlByte(BYTE_TYPE_SERIALIZATION);
+        }
+        writeControlByte(identifier);
+        if (fileStoreKey != null) {
+            writeFileStoreKey(fileStoreKey);
+        }
+        // DataCell is datacell-serializable
+        if (!isJavaSerializationOrBlob) {
+            if (isBlob) {
+                BlobWrapperDataCell bc = (BlobWrapperDataCell)cell;
+                writeBlobAddress(bc.getAddress());
+            } else {
+                writeDataCellPerKNIMESerializer(ser, cell);
+            }
+        } else {
+            writeDataCellPerJavaSerialization(cell);
+        }
+    }
+
     /** Saves file store cell.
      * @param key ...
      * @throws IOException ... */
@@ -187,7 +233,7 @@ public void flush() throws IOException {
      * as required by {@link DataCellDataOutput}. */
     final class DCLongUTFDataOutputStream extends LongUTFDataOutputStream implements DataCellDataOutput {
 
-        private final DefaultTableStoreWriter m_tableStoreWriter;
+        private final AbstractTableStoreWriter m_tableStoreWriter;
 
         /**
          * Delegates to super implementation.
@@ -195,7 +241,7 @@ final class DCLongUTFDataOutputStream extends LongUTFDataOutputStream implements
          * @param output Forwarded to super.
          * @param tableStoreWriter To redirect the contained cell writing to. Null when not supported (for blobs).
          */
-        DCLongUTFDataOutputStream(final DataOutputStream output, final DefaultTableStoreWriter tableStoreWriter) {
+        DCLongUTFDataOutputStream(final DataOutputStream output, final AbstractTableStoreWriter tableStoreWriter) {
             super(output);
             m_tableStoreWriter = tableStoreWriter;
         }
@@ -206,7 +252,7 @@ public void writeDataCell(final DataCell cell) throws IOException {
             if (m_tableStoreWriter == null) {
                 throw new UnsupportedOperationException("Writing encapsulated cells not supported for Blobs");
             }
-            m_tableStoreWriter.writeDataCell(cell, DCObjectOutputVersion2.this);
+            DCObjectOutputVersion2.this.writeDataCell(cell);
         }
     }
 
@@ -51,24 +51,10 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.WeakReference;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Exchanger;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -81,6 +67,7 @@
 import org.knime.core.data.DataType;
 import org.knime.core.data.RowIterator;
 import org.knime.core.data.RowKey;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
 import org.knime.core.data.filestore.internal.FileStoreHandlerRepository;
 import org.knime.core.data.filestore.internal.IWriteFileStoreHandler;
 import org.knime.core.data.filestore.internal.NotInWorkflowWriteFileStoreHandler;
@@ -135,6 +122,14 @@ public class DataContainer implements RowAppender {
     /** The default number of cells to be held in memory. */
     public static final int DEF_MAX_CELLS_IN_MEMORY = 100000;
 
+    /**
+     * The default size of the cache for tables held in memory in percent of the maximum heap size, see
+     * {@link KNIMEConstants#PROPERTY_TABLE_CACHE_SIZE}.
+     *
+     * @since 3.7
+     */
+    public static final int DEF_TABLE_CACHE_SIZE_PERCENT = 50;
+
     /**
      * Default minimum disc space requirement, see {@link KNIMEConstants#PROPERTY_MIN_FREE_DISC_SPACE_IN_TEMP_IN_MB}.
      *
@@ -143,8 +138,8 @@ public class DataContainer implements RowAppender {
     public static final int DEF_MIN_FREE_DISC_SPACE_IN_TEMP_IN_MB = 100;
 
     /**
-     * For asynchronous table writing (default) the cache size. It's the number of rows that are kept in memory until
-     * handed off to the write routines.
+     * For asynchronous table writing (default) the minimum cache size. It's the minimum number of rows that can be
+     * queued for the write routines; the actual queue length depends on the number of columns.
      *
      * @see KNIMEConstants#PROPERTY_ASYNC_WRITE_CACHE_SIZE
      */
@@ -242,7 +237,27 @@ public class DataContainer implements RowAppender {
         }
 
         // enh 5835: Number of asynchronous write threads to have different limits on different architectures
-        MAX_ASYNC_WRITE_THREADS = Platform.ARCH_X86.equals(Platform.getOSArch()) ? 10 : 50;
+        final int maxAsyncWriteThreads = Platform.ARCH_X86.equals(Platform.getOSArch()) ? 10 : 50;
+        MAX_ASYNC_WRITE_THREADS = maxAsyncWriteThreads;
+
+        int asyncWriteThreads = Math.min(Runtime.getRuntime().availableProcessors(), maxAsyncWriteThreads);
+        String envAsyncThreads = KNIMEConstants.PROPERTY_ASYNC_WRITE_THREADS;
+        String valAsyncThreads = System.getProperty(envAsyncThreads);
+        if (valAsyncThreads != null) {
+            String s = valAsyncThreads.trim();
+            try {
+                int newCount = Integer.parseInt(s);
+                if (newCount <= 0) {
+                    throw new NumberFormatException("async write threads <= 0: " + newCount);
+                }
+                asyncWriteThreads = Math.min(newCount, maxAsyncWriteThreads);
+                LOGGER.debug("Setting number of asynchronous write threads to " + asyncWriteThreads);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Unable to parse property " + envAsyncThreads + ", using default (" + asyncWriteThreads
+                    + ")", e);
+            }
+        }
+        ASYNC_WRITE_THREADS = Math.max(1, asyncWriteThreads);
     }
 
     /**
@@ -269,20 +284,6 @@ public class DataContainer implements RowAppender {
     /** Size of buffers. */
     static final int ASYNC_CACHE_SIZE;
 
-    /** The executor, which runs the IO tasks. Currently used only while writing rows. */
-    static final ThreadPoolExecutor ASYNC_EXECUTORS =
-    // see also Executors.newCachedThreadPool(ThreadFactory)
-        new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
-            new ThreadFactory() {
-                private final AtomicInteger m_threadCount = new AtomicInteger();
-
-                /** {@inheritDoc} */
-                @Override
-                public Thread newThread(final Runnable r) {
-                    return new Thread(r, "KNIME-TableIO-" + m_threadCount.incrementAndGet());
-                }
-            });
-
     /**
      * Whether to use synchronous IO while adding rows to a buffer or reading from an file iterator. This is by default
      * <code>false</code> but can be enabled by setting the appropriate java property at startup.
@@ -290,18 +291,22 @@ public Thread newThread(final Runnable r) {
     static final boolean SYNCHRONOUS_IO;
 
     /**
-     * the maximum number of asynchronous write threads, each additional container will switch to synchronous mode.
+     * The upper bound for the number of asynchronous write threads, see {@link #ASYNC_WRITE_THREADS}.
      */
     static final int MAX_ASYNC_WRITE_THREADS;
 
+    /**
+     * The number of threads of the {@link TableWriteScheduler}, which are shared by all containers writing
+     * asynchronously. Defaults to the number of processors (but at most {@link #MAX_ASYNC_WRITE_THREADS}), see
+     * {@link KNIMEConstants#PROPERTY_ASYNC_WRITE_THREADS}.
+     */
+    static final int ASYNC_WRITE_THREADS;
+
     /** Put into write queue to signal end of writing process. */
     private static final Object CONTAINER_CLOSE = new Object();
 
     private static final Object FLUSH_CACHE = new Object();
 
-    /** Put into read queue to signal failure while writing a row. */
-    private static final Object CONTAINER_WRITE_FAILED = new Object();
-
     /**
      * The object that instantiates the buffer, may be set right after constructor call before any rows are added.
      */
@@ -317,27 +322,17 @@ public Thread newThread(final Runnable r) {
     private int m_size;
 
     /**
-     * The object that represent the pending task of adding a data rows to a table.
+     * The queue, to which the batches of added rows are handed for writing, null if writing synchronously.
      */
-    private Future<Void> m_asyncAddFuture;
-
-    private AtomicReference<Throwable> m_writeThrowable;
+    private final TableWriteScheduler.WriteQueue m_writeQueue;
 
     /**
      * Whether this container writes synchronously, i.e. when rows come in they get written immediately. If true the
-     * fields {@link #m_asyncAddFuture} and {@link #m_writeThrowable} are null. This field coincides most of times with
-     * the {@link #SYNCHRONOUS_IO}, but may be true if there are too many concurrent write threads (more than
-     * {@value #MAX_ASYNC_WRITE_THREADS}).
+     * field {@link #m_writeQueue} is null. This field coincides most of times with
+     * the {@link #SYNCHRONOUS_IO}, but may be true if the {@link TableWriteScheduler} is saturated.
      */
     private final boolean m_isSynchronousWrite;
 
-    /** The asynchronous queue holding the most recently added rows. */
-    private Exchanger<List<Object>> m_rowBufferExchanger;
-
-    private List<Object> m_fillingRowBuffer;
-
-    private List<Object> m_emptyingRowBuffer;
-
     private int m_maxRowsInMemory;
 
     /** Holds the keys of the added rows to check for duplicates. */
@@ -368,6 +363,10 @@ public Thread newThread(final Runnable r) {
      */
     private boolean m_forceCopyOfBlobs;
 
+    /** The codec used to compress the table when written to disc, see {@link #setCompressionCodec(
+     * TableStoreCompressionCodec)}; null to use the default. */
+    private TableStoreCompressionCodec m_compressionCodec;
+
     /**
      * Opens the container so that rows can be added by <code>addRowToTable(DataRow)</code>. The table spec of the
      * resulting table (the one being returned by <code>getTable()</code>) will have a valid column domain. That means,
@@ -428,26 +427,18 @@ protected DataContainer(final DataTableSpec spec, final boolean initDomain, fina
         }
         m_spec = spec;
         m_duplicateChecker = new DuplicateChecker();
-        boolean isSynchronousWrite = forceSynchronousIO || SYNCHRONOUS_IO;
-        if (!isSynchronousWrite && ASYNC_EXECUTORS.getActiveCount() > MAX_ASYNC_WRITE_THREADS) {
-            LOGGER.debug("Number of Table IO write threads exceeds " + MAX_ASYNC_WRITE_THREADS
-                + " -- switching to synchronous write mode");
-            isSynchronousWrite = true;
-        }
-        m_isSynchronousWrite = isSynchronousWrite;
-        if (m_isSynchronousWrite) {
-            m_fillingRowBuffer = null;
-            m_emptyingRowBuffer = null;
-            m_asyncAddFuture = null;
-            m_rowBufferExchanger = null;
-            m_writeThrowable = null;
-        } else {
-            m_fillingRowBuffer = new ArrayList<Object>(ASYNC_CACHE_SIZE);
-            m_emptyingRowBuffer = new ArrayList<Object>(ASYNC_CACHE_SIZE);
-            m_rowBufferExchanger = new Exchanger<List<Object>>();
-            m_writeThrowable = new AtomicReference<Throwable>();
-            m_asyncAddFuture = ASYNC_EXECUTORS.submit(new ASyncWriteCallable(this, NodeContext.getContext()));
+        TableWriteScheduler.WriteQueue writeQueue = null;
+        if (!(forceSynchronousIO || SYNCHRONOUS_IO)) {
+            TableWriteScheduler scheduler = TableWriteScheduler.getInstance();
+            int capacity = TableWriteScheduler.getQueueCapacity(spec.getNumColumns(), ASYNC_CACHE_SIZE);
+            writeQueue = scheduler.createQueue(new ASyncWriteConsumer(this), capacity, NodeContext.getContext());
+            if (writeQueue == null) {
+                LOGGER.debug("Table IO write queue is saturated (" + scheduler.getQueueDepth()
+                    + " pending rows) -- switching to synchronous write mode");
+            }
         }
+        m_writeQueue = writeQueue;
+        m_isSynchronousWrite = writeQueue == null;
 
         m_domainCreator = new DataTableDomainCreator(m_spec, initDomain);
         m_size = 0;
@@ -500,7 +491,7 @@ private void addRowToTableWrite(final DataRow row) {
     }
 
     private void checkAsyncWriteThrowable() {
-        Throwable t = m_writeThrowable.get();
+        Throwable t = m_writeQueue.getThrowable();
         if (t != null) {
             StringBuilder error = new StringBuilder();
             if (t.getMessage() != null) {
@@ -560,6 +551,36 @@ protected final boolean isForceCopyOfBlobs() {
         return m_forceCopyOfBlobs;
     }
 
+    /**
+     * Sets the codec used to compress the table data when it is written to disc. By default the codec is determined by
+     * the {@link org.knime.core.node.KNIMEConstants#PROPERTY_TABLE_COMPRESSION_CODEC} system property. Nodes that
+     * produce tables, which are read often (or are written to fast local storage) may choose a faster codec, e.g.
+     * {@link org.knime.core.data.container.storage.LZ4BlockCompressionCodec}. The codec name is persisted with the
+     * table, so the table can be read independent of the setting used when writing.
+     *
+     * @param compressionCodec the codec or null to use the default
+     * @throws IllegalStateException If this buffer has already added rows, i.e. this method must be called right after
+     *             construction.
+     * @since 3.7
+     */
+    public final void setCompressionCodec(final TableStoreCompressionCodec compressionCodec) {
+        if (size() > 0 || m_buffer != null) {
+            throw new IllegalStateException("Container already has rows; "
+                + "invocation of this method is only permitted immediately " + "after constructor call.");
+        }
+        m_compressionCodec = compressionCodec;
+    }
+
+    /**
+     * Get the property, which has possibly been set by {@link #setCompressionCodec(TableStoreCompressionCodec)}.
+     *
+     * @return this property, null if the default is used.
+     * @since 3.7
+     */
+    public final TableStoreCompressionCodec getCompressionCodec() {
+        return m_compressionCodec;
+    }
+
     /**
      * Define a new threshold for number of possible values to memorize. It makes sense to call this method before any
      * rows are added.
@@ -610,16 +631,16 @@ public void close() {
             m_buffer =
                 m_bufferCreator.createBuffer(m_spec, m_maxRowsInMemory, createInternalBufferID(),
                     getGlobalTableRepository(), getLocalTableRepository(), getFileStoreHandler());
+            m_buffer.setCompressionCodec(m_compressionCodec);
         }
         if (!m_isSynchronousWrite) {
             try {
                 offerToAsynchronousQueue(CONTAINER_CLOSE);
-                m_asyncAddFuture.get();
+                m_writeQueue.awaitDone();
                 checkAsyncWriteThrowable();
             } catch (InterruptedException e) {
+                m_writeQueue.cancel();
                 throw new DataContainerException("Adding rows to table was interrupted", e);
-            } catch (ExecutionException e) {
-                throw new DataContainerException("Adding rows to table threw exception", e);
             }
         }
         // create table spec _after_ all_ rows have been added (i.e. wait for
@@ -645,38 +666,24 @@ public void close() {
     }
 
     /**
-     * Adds the argument object (which will be a DataRow unless when called from close()) to the filling data row queue.
-     * It will exchange the filling queue with the emptying queue from the write thread in case the queue is full.
+     * Adds the argument object (which will be a DataRow unless when called from close()) to the write queue. Blocks
+     * if the queue is full. Rethrows the exception of the writer as soon as it has failed, so that no row is
+     * discarded silently.
      *
      * @param object the object to add.
      */
     private void offerToAsynchronousQueue(final Object object) {
-        m_fillingRowBuffer.add(object);
-        if (m_fillingRowBuffer.size() >= ASYNC_CACHE_SIZE || object == CONTAINER_CLOSE || object == FLUSH_CACHE) {
-            while (true) {
-                try {
-                    m_fillingRowBuffer = m_rowBufferExchanger.exchange(m_fillingRowBuffer, 30, TimeUnit.SECONDS);
-                    if (!m_fillingRowBuffer.isEmpty()) {
-                        Object ob = m_fillingRowBuffer.get(0);
-                        assert ob == CONTAINER_WRITE_FAILED : "Not expected element in write queue: " + ob;
-                        m_fillingRowBuffer.clear();
-                        checkAsyncWriteThrowable();
-                    }
-                    return;
-                } catch (TimeoutException e) {
-                    if (m_asyncAddFuture.isDone()) {
-                        checkAsyncWriteThrowable();
-                        // if we reach this code, the write process has not
-                        // thrown an exception (the above line will likely
-                        // throw an exc.)
-                        throw new DataContainerException("Writing to table has unexpectedly stopped");
-                    }
-                    continue;
-                } catch (InterruptedException e) {
-                    m_asyncAddFuture.cancel(true);
-                    throw new DataContainerException("Adding rows to buffer was interrupted", e);
-                }
-            }
+        final boolean isUrgent = object == CONTAINER_CLOSE || object == FLUSH_CACHE;
+        final boolean isAdded;
+        try {
+            isAdded = m_writeQueue.offer(object, isUrgent);
+        } catch (InterruptedException e) {
+            m_writeQueue.cancel();
+            throw new DataContainerException("Adding rows to buffer was interrupted", e);
+        }
+        checkAsyncWriteThrowable();
+        if (!isAdded) {
+            throw new DataContainerException("Adding rows to buffer failed, writing the table has been canceled");
         }
     }
 
@@ -770,6 +777,7 @@ public void addRowToTable(final DataRow row) {
             if (m_buffer == null) {
                 throw new NullPointerException("Implementation error, must not return a null buffer.");
             }
+            m_buffer.setCompressionCodec(m_compressionCodec);
         }
         if (m_isSynchronousWrite) {
             if (MemoryAlertSystem.getInstance().isMemoryLow()) {
@@ -777,7 +785,6 @@ public void addRowToTable(final DataRow row) {
             }
             addRowToTableWrite(row);
         } else {
-            checkAsyncWriteThrowable();
             if (MemoryAlertSystem.getInstance().isMemoryLow()) {
                 offerToAsynchronousQueue(FLUSH_CACHE);
             }
@@ -910,7 +917,7 @@ protected Map<Integer, ContainerTable> getLocalTableRepository() {
 
     /**
      * @return the isSynchronousWrite whether the data is written in the same thread that calls addRow. Property depends
-     *         on system property {@link #SYNCHRONOUS_IO} and the number of concurrent writes.
+     *         on system property {@link #SYNCHRONOUS_IO} and the load of the {@link TableWriteScheduler}.
      */
     boolean isSynchronousWrite() {
         return m_isSynchronousWrite;
@@ -1197,91 +1204,33 @@ public static final boolean isContainerTable(final DataTable table) {
     }
 
     /**
-     * Background task that will write the output data. This is kept as static inner class in order to allow for a
-     * garbage collection of the outer class (which indicates an early stopped buffer writing).
+     * Writes the rows handed to the {@link TableWriteScheduler.WriteQueue} of a container. The scheduler only
+     * references it while there are pending rows, so an abandoned container can still be garbage collected.
      */
-    private static final class ASyncWriteCallable implements Callable<Void> {
+    private static final class ASyncWriteConsumer implements TableWriteScheduler.ElementConsumer {
 
-        private final WeakReference<DataContainer> m_containerRef;
-
-        private final NodeContext m_context;
+        private final DataContainer m_container;
 
         /**
          * @param cont The outer container.
-         * @param context owner node information, if any.
          */
-        ASyncWriteCallable(final DataContainer cont, final NodeContext context) {
-            m_context = context;
-            m_containerRef = new WeakReference<DataContainer>(cont);
+        ASyncWriteConsumer(final DataContainer cont) {
+            m_container = cont;
         }
 
         /** {@inheritDoc} */
         @Override
-        public Void call() throws Exception {
-            NodeContext.pushContext(m_context);
-            try {
-                return callWithContext();
-            } finally {
-                NodeContext.removeLastContext();
-            }
-        }
-
-        private Void callWithContext() throws Exception {
-            DataContainer d = m_containerRef.get();
-            if (d == null) {
-                // data container was already discarded (no rows added)
-                return null;
-            }
-            List<Object> queue = d.m_emptyingRowBuffer;
-            final AtomicReference<Throwable> throwable = d.m_writeThrowable;
-            final Exchanger<List<Object>> exchanger = d.m_rowBufferExchanger;
-            try {
-                do {
-                    final int size = queue.size();
-                    for (int i = 0; i < size; i++) {
-                        Object obj = queue.set(i, null);
-                        if (obj == CONTAINER_CLOSE) {
-                            assert i == size - 1;
-                            // table has been closed
-                            // (some non-DataRow was queued)
-                            return null;
-                        } else if (obj == FLUSH_CACHE) {
-                            assert i == size - 1;
-                            d.m_buffer.flushBuffer();
-                        } else {
-                            DataRow row = (DataRow)obj;
-                            d.addRowToTableWrite(row);
-                        }
-                    }
-                    queue.clear();
-                    d = null;
-                    try {
-                        queue = exchanger.exchange(queue, 30, TimeUnit.SECONDS);
-                    } catch (TimeoutException te) {
-                        // can be safely ignored, do another loop on the same
-                        // (empty!) queue (or don't if container is gc'ed)
-                    }
-                    d = m_containerRef.get();
-                } while (d != null);
-                // m_containerRef.get() returned null -> close() was never
-                // called on the container (which was garbage collected
-                // already); we can end this thread
-                LOGGER.debug("Ending DataContainer write thread since container was garbage collected");
-                return null;
-            } catch (Throwable t) {
-                throwable.compareAndSet(null, t);
-                boolean callExchange = !queue.contains(CONTAINER_CLOSE);
-                queue.clear();
-                queue.add(CONTAINER_WRITE_FAILED);
-                if (callExchange) {
-                    try {
-                        exchanger.exchange(queue, 30, TimeUnit.SECONDS);
-                    } catch (Exception e) {
-                        // ignore
-                    }
-                }
-                return null;
+        public boolean consume(final Object obj) throws Exception {
+            if (obj == CONTAINER_CLOSE) {
+                // table has been closed
+                // (some non-DataRow was queued)
+                return true;
+            } else if (obj == FLUSH_CACHE) {
+                m_container.m_buffer.flushBuffer();
+            } else {
+                m_container.addRowToTableWrite((DataRow)obj);
             }
+            return false;
         }
     }
 
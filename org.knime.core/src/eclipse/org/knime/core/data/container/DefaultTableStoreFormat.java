@@ -56,6 +56,8 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.container.storage.AbstractTableStoreReader;
 import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
+import org.knime.core.data.container.storage.TableStoreCompressionCodecRegistry;
 import org.knime.core.data.container.storage.TableStoreFormat;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.KNIMEConstants;
@@ -72,7 +74,7 @@ public final class DefaultTableStoreFormat implements TableStoreFormat {
 
     private static final NodeLogger LOGGER = NodeLogger.getLogger(DefaultTableStoreFormat.class);
 
-    /** Compression format. */
+    /** Compression format, the name of the {@link TableStoreCompressionCodec}. */
     static final String CFG_COMPRESSION = "container.compression";
 
     /**
@@ -104,10 +106,18 @@ public final class DefaultTableStoreFormat implements TableStoreFormat {
         }
     }
 
-    /** Compression on the binary (main) file. */
-    enum CompressionFormat {
-            Gzip,
-            None;
+    /** The codec used unless the buffer defines one, see
+     * {@link TableStoreCompressionCodecRegistry#getDefaultCodec(boolean)}. Lazily initialized. */
+    private static TableStoreCompressionCodec defaultCompressionCodec;
+
+    /** @return the codec used unless a table defines one (see {@link DataContainer#setCompressionCodec(
+     * TableStoreCompressionCodec)}), not null. */
+    static synchronized TableStoreCompressionCodec getDefaultCompressionCodec() {
+        if (defaultCompressionCodec == null) {
+            defaultCompressionCodec = TableStoreCompressionCodecRegistry.getInstance().getDefaultCodec(IS_USE_GZIP);
+            LOGGER.debugWithFormat("Using table compression codec \"%s\"", defaultCompressionCodec.getName());
+        }
+        return defaultCompressionCodec;
     }
 
     @Override
@@ -130,14 +140,29 @@ public boolean accepts(final DataTableSpec spec) {
     @Override
     public AbstractTableStoreWriter createWriter(final File binFile, final DataTableSpec spec,
         final boolean writeRowKey) throws IOException {
-        return createWriter(new FileOutputStream(binFile), spec, writeRowKey);
+        return createWriter(binFile, spec, writeRowKey, null);
     }
 
     /** {@inheritDoc} */
     @Override
     public AbstractTableStoreWriter createWriter(final OutputStream output, final DataTableSpec spec,
         final boolean writeRowKey) throws IOException {
-        return new DefaultTableStoreWriter(spec, output, writeRowKey);
+        return createWriter(output, spec, writeRowKey, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreWriter createWriter(final File binFile, final DataTableSpec spec,
+        final boolean writeRowKey, final TableStoreCompressionCodec codec) throws IOException {
+        return createWriter(new FileOutputStream(binFile), spec, writeRowKey, codec);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractTableStoreWriter createWriter(final OutputStream output, final DataTableSpec spec,
+        final boolean writeRowKey, final TableStoreCompressionCodec codec) throws IOException {
+        return new DefaultTableStoreWriter(spec, output, writeRowKey,
+            codec != null ? codec : getDefaultCompressionCodec());
     }
 
     /**
@@ -51,9 +51,12 @@
 import java.io.IOException;
 
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.container.Buffer.CompressionFormat;
 import org.knime.core.data.container.storage.AbstractTableStoreReader;
 import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.container.storage.GzipCompressionCodec;
+import org.knime.core.data.container.storage.NoCompressionCodec;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
+import org.knime.core.data.container.storage.TableStoreCompressionCodecRegistry;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
 
@@ -63,7 +66,7 @@
  */
 final class DefaultTableStoreReader extends AbstractTableStoreReader {
 
-    private CompressionFormat m_compressionFormat;
+    private TableStoreCompressionCodec m_compressionCodec;
     private final File m_binFile;
     private final DataTableSpec m_spec;
     private int m_version;
@@ -109,9 +112,9 @@ public TableStoreCloseableRowIterator iterator() {
         }
     }
 
-    /** @return Whether stream is zipped. */
-    CompressionFormat getBinFileCompressionFormat() {
-        return m_compressionFormat;
+    /** @return The codec the stream was compressed with. */
+    TableStoreCompressionCodec getBinFileCompressionCodec() {
+        return m_compressionCodec;
     }
 
     /** @return Underlying binary file. */
@@ -151,22 +154,17 @@ long size() {
     @Override
     public void readMetaFromFile(final NodeSettingsRO settings, final int version)
         throws IOException, InvalidSettingsException {
-        final CompressionFormat cF;
+        final TableStoreCompressionCodecRegistry codecRegistry = TableStoreCompressionCodecRegistry.getInstance();
+        final TableStoreCompressionCodec codec;
         if (version < 3) { // stream was not zipped in KNIME 1.1.x
-            cF = CompressionFormat.None;
+            codec = codecRegistry.getCodecForReading(NoCompressionCodec.NAME);
         } else if (version >= 8) { // added sometime between format 8 and 9 - no increment of version number
-            String compFormat =
-                settings.getString(DefaultTableStoreFormat.CFG_COMPRESSION, CompressionFormat.Gzip.name());
-            try {
-                cF = CompressionFormat.valueOf(compFormat);
-            } catch (Exception e) {
-                throw new InvalidSettingsException(String.format("Unable to parse \"%s\" property (\"%s\"): %s",
-                    DefaultTableStoreFormat.CFG_COMPRESSION, compFormat, e.getMessage()), e);
-            }
+            String compFormat = settings.getString(DefaultTableStoreFormat.CFG_COMPRESSION, GzipCompressionCodec.NAME);
+            codec = codecRegistry.getCodecForReading(compFormat);
         } else {
-            cF = CompressionFormat.Gzip;
+            codec = codecRegistry.getCodecForReading(GzipCompressionCodec.NAME);
         }
-        m_compressionFormat = cF;
+        m_compressionCodec = codec;
         super.readMetaFromFile(settings, version);
     }
 
@@ -50,17 +50,13 @@
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 import org.knime.core.data.DataCell;
-import org.knime.core.data.DataCellSerializer;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.DataType;
 import org.knime.core.data.RowKey;
-import org.knime.core.data.container.DefaultTableStoreFormat.CompressionFormat;
 import org.knime.core.data.container.storage.AbstractTableStoreWriter;
-import org.knime.core.data.filestore.FileStoreKey;
+import org.knime.core.data.container.storage.TableStoreCompressionCodec;
 import org.knime.core.node.NodeSettingsWO;
 
 /**
@@ -69,7 +65,7 @@
  */
 final class DefaultTableStoreWriter extends AbstractTableStoreWriter implements KNIMEStreamConstants {
 
-    private final CompressionFormat m_compressionFormat;
+    private final TableStoreCompressionCodec m_compressionCodec;
 
     /**
      * the stream that writes to the file, it's a special object output stream, in which we can mark the end of an entry
@@ -83,12 +79,13 @@ final class DefaultTableStoreWriter extends AbstractTableStoreWriter implements
      * @param spec the specification of the KNIME table to write to disk
      * @param outputStream
      * @param writeRowKey a flag that determines whether to store the row keys in the Parquet file
+     * @param compressionCodec the codec to compress the stream with, not null
      * @throws IOException any type of I/O problem
      */
-    public DefaultTableStoreWriter(final DataTableSpec spec, final OutputStream outputStream, final boolean writeRowKey)
-        throws IOException {
+    public DefaultTableStoreWriter(final DataTableSpec spec, final OutputStream outputStream, final boolean writeRowKey,
+        final TableStoreCompressionCodec compressionCodec) throws IOException {
         super(spec, writeRowKey);
-        m_compressionFormat = DefaultTableStoreFormat.IS_USE_GZIP ? CompressionFormat.Gzip : CompressionFormat.None;
+        m_compressionCodec = compressionCodec;
         m_outStream = initOutFile(new BufferedOutputStream(outputStream));
     }
 
@@ -104,7 +101,7 @@ public void writeRow(final DataRow row) throws IOException {
         for (int i = 0; i < row.getNumCells(); i++) {
             DataCell cell =
                 row instanceof BlobSupportDataRow ? ((BlobSupportDataRow)row).getRawCell(i) : row.getCell(i);
-            writeDataCell(cell, m_outStream);
+            m_outStream.writeDataCell(cell);
             m_outStream.endBlock();
         }
         m_outStream.endRow();
@@ -125,73 +122,17 @@ void writeRowKey(final RowKey key, final DCObjectOutputVersion2 outStream) throw
         }
     }
 
-    /**
-     * Writes a data cell to the outStream.
-     *
-     * @param cell The cell to write.
-     * @param outStream To write to.
-     * @throws IOException If stream corruption happens.
-     */
-    void writeDataCell(final DataCell cell, final DCObjectOutputVersion2 outStream) throws IOException {
-        if (cell == DataType.getMissingCell()) {
-            // only write 'missing' byte if that's the singleton missing cell;
-            // missing cells with error cause are handled like ordinary cells below (via serializer)
-            outStream.writeControlByte(BYTE_TYPE_MISSING);
-            return;
-        }
-        boolean isBlob = cell instanceof BlobWrapperDataCell;
-        CellClassInfo cellClass = isBlob ? ((BlobWrapperDataCell)cell).getBlobClassInfo() : CellClassInfo.get(cell);
-        DataCellSerializer<DataCell> ser = getSerializerForDataCell(cellClass);
-        Byte identifier = getTypeShortCut(cellClass);
-        FileStoreKey fileStoreKey = super.getFileStoreKeyAndFlush(cell);
-        final boolean isJavaSerializationOrBlob = ser == null && !isBlob;
-        if (isJavaSerializationOrBlob) {
-            outStream.writeControlByte(BYTE_TYPE_SERIALIZATION);
-        }
-        outStream.writeControlByte(identifier);
-        if (fileStoreKey != null) {
-            outStream.writeFileStoreKey(fileStoreKey);
-        }
-        // DataCell is datacell-serializable
-        if (!isJavaSerializationOrBlob) {
-            if (isBlob) {
-                BlobWrapperDataCell bc = (BlobWrapperDataCell)cell;
-                outStream.writeBlobAddress(bc.getAddress());
-            } else {
-                outStream.writeDataCellPerKNIMESerializer(ser, cell);
-            }
-        } else {
-            outStream.writeDataCellPerJavaSerialization(cell);
-        }
-    }
-
     /**
      * Creates short cut array and wraps the argument stream in a {@link DCObjectOutputVersion2}.
      */
     private DCObjectOutputVersion2 initOutFile(final OutputStream outStream) throws IOException {
-        OutputStream wrap;
-        switch (m_compressionFormat) {
-            case Gzip:
-                wrap = new GZIPOutputStream(outStream);
-                // buffering the input stream is important as the blockable
-                // stream, which will be put on top of it, reads bytes individually
-                // (had a table, on which a single read-scan took ~6min without
-                // and ~30s with buffering)
-                wrap = new BufferedOutputStream(wrap);
-                break;
-            case None:
-                wrap = outStream;
-                break;
-            default:
-                throw new IOException("Unsupported compression format: " + m_compressionFormat);
-        }
-        return new DCObjectOutputVersion2(wrap, this);
+        return new DCObjectOutputVersion2(m_compressionCodec.compress(outStream), this);
     }
 
     /** {@inheritDoc} */
     @Override
     public void writeMetaInfoAfterWrite(final NodeSettingsWO settings) {
-        settings.addString(DefaultTableStoreFormat.CFG_COMPRESSION, m_compressionFormat.name());
+        settings.addString(DefaultTableStoreFormat.CFG_COMPRESSION, m_compressionCodec.getName());
         super.writeMetaInfoAfterWrite(settings);
     }
 
@@ -0,0 +1,430 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.collection.CollectionDataValue;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.util.memory.MemoryAlert;
+import org.knime.core.data.util.memory.MemoryAlertListener;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.util.ThreadUtils;
+
+/**
+ * Process wide cache of the {@link Buffer}s (i.e. the {@link ContainerTable}s) whose rows are held in memory. The
+ * cache accounts for the estimated size of the rows in bytes and keeps the total below a fraction of the heap (see
+ * {@link KNIMEConstants#PROPERTY_TABLE_CACHE_SIZE}). If a table does not fit or if memory gets low the least recently
+ * iterated tables are written to disk. Tables that are iterated repeatedly from disk are read back into memory once
+ * there is enough headroom again.
+ *
+ * <p>
+ * The cache only keeps weak references to the buffers so that it does not prevent them from being garbage collected.
+ * Buffers are evicted asynchronously; the cache never acquires the lock of a buffer while holding its own lock.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class TableCache {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(TableCache.class);
+
+    /** Number of iterations from disk after which a table is read back into memory if it fits. */
+    static final int PROMOTION_THRESHOLD = 2;
+
+    /** Number of rows used to estimate the size of a table. */
+    private static final int SAMPLE_SIZE = 100;
+
+    /** Estimated size of objects whose size is not known, e.g. cells of unknown type. */
+    private static final int DEF_OBJECT_SIZE = 64;
+
+    private static final ReferenceQueue<Buffer> QUEUE = new ReferenceQueue<>();
+
+    private static final TableCache INSTANCE = new TableCache(initMaxBytes());
+
+    private static long initMaxBytes() {
+        int percent = DataContainer.DEF_TABLE_CACHE_SIZE_PERCENT;
+        final String property = System.getProperty(KNIMEConstants.PROPERTY_TABLE_CACHE_SIZE);
+        if (property != null) {
+            try {
+                final int newPercent = Integer.parseInt(property.trim());
+                if (newPercent < 0 || newPercent > 100) {
+                    throw new NumberFormatException("table cache size not within [0, 100]: " + newPercent);
+                }
+                percent = newPercent;
+                LOGGER.debug("Setting table cache size to " + percent + "% of the heap");
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Unable to parse property " + KNIMEConstants.PROPERTY_TABLE_CACHE_SIZE
+                    + ", using default (" + DataContainer.DEF_TABLE_CACHE_SIZE_PERCENT + ")", e);
+            }
+        }
+        return (long)(MemoryAlertSystem.getMaximumMemory() * (percent / 100.0));
+    }
+
+    /** Cache bookkeeping of a single buffer, created once per buffer. */
+    static final class Entry extends WeakReference<Buffer> {
+
+        /** Estimated size in bytes, -1 if not known yet. Guarded by the cache. */
+        private long m_bytes = -1;
+
+        /** Number of iterations from disk since the table was last held in memory. Guarded by the cache. */
+        private int m_diskIterations;
+
+        /** Whether the buffer is accounted for in the cache. Guarded by the cache. */
+        private boolean m_cached;
+
+        /**
+         * @param buffer the buffer
+         */
+        Entry(final Buffer buffer) {
+            super(buffer, QUEUE);
+        }
+    }
+
+    private final long m_maxBytes;
+
+    /** The cached entries, least recently iterated first. */
+    private final LinkedHashMap<Entry, Entry> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long m_usedBytes;
+
+    private long m_hits;
+
+    private long m_misses;
+
+    private long m_evictions;
+
+    private long m_promotions;
+
+    /**
+     * Creates a new cache, only used directly in tests; all buffers use {@link #getInstance()}.
+     *
+     * @param maxBytes the maximum estimated size of the cached tables in bytes
+     */
+    TableCache(final long maxBytes) {
+        m_maxBytes = maxBytes;
+        MemoryAlertSystem.getInstance().addListener(new MemoryAlertListener() {
+            @Override
+            protected boolean memoryAlert(final MemoryAlert alert) {
+                onMemoryAlert();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @return the singleton instance
+     */
+    static TableCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds a buffer whose rows are now held in memory to the cache. Less recently iterated buffers are written to
+     * disk if the cache becomes too large; a buffer larger than the cache itself is written to disk right away.
+     *
+     * @param entry the entry of the buffer
+     * @param bytes the estimated size of the rows in bytes
+     */
+    void put(final Entry entry, final long bytes) {
+        final List<Buffer> victims = new ArrayList<>();
+        synchronized (this) {
+            expungeStaleEntries();
+            if (entry.m_cached) {
+                m_usedBytes -= entry.m_bytes;
+            }
+            entry.m_bytes = bytes;
+            entry.m_diskIterations = 0;
+            entry.m_cached = true;
+            m_entries.put(entry, entry);
+            m_usedBytes += bytes;
+            if (bytes > m_maxBytes) {
+                m_entries.remove(entry);
+                removeEntry(entry, victims);
+            }
+            for (Iterator<Entry> it = m_entries.keySet().iterator(); m_usedBytes > m_maxBytes && it.hasNext();) {
+                final Entry eldest = it.next();
+                if (eldest != entry) {
+                    it.remove();
+                    removeEntry(eldest, victims);
+                }
+            }
+        }
+        evictInBackground(victims, "table cache exceeds " + (m_maxBytes >> 20) + "MB");
+    }
+
+    /**
+     * Removes a buffer from the cache, e.g. because its rows are no longer held in memory or it has been cleared.
+     *
+     * @param entry the entry of the buffer
+     */
+    synchronized void remove(final Entry entry) {
+        if (entry.m_cached) {
+            m_entries.remove(entry);
+            entry.m_cached = false;
+            m_usedBytes -= entry.m_bytes;
+        }
+    }
+
+    /**
+     * @param entry the entry of the buffer
+     * @return whether the buffer is currently held in memory according to the cache
+     */
+    synchronized boolean isCached(final Entry entry) {
+        return entry.m_cached;
+    }
+
+    /**
+     * Records the iteration of a buffer. Iterations of cached buffers mark them as most recently used.
+     *
+     * @param entry the entry of the buffer
+     */
+    synchronized void onIteration(final Entry entry) {
+        if (entry.m_cached) {
+            m_entries.get(entry);
+            m_hits++;
+        } else {
+            entry.m_diskIterations++;
+            m_misses++;
+        }
+    }
+
+    /**
+     * Decides whether a buffer that is iterated from disk is read back into memory. This is the case if it has been
+     * iterated at least {@link #PROMOTION_THRESHOLD} times from disk, it fits into the cache without evicting other
+     * tables and memory is not low. If so the buffer is accounted for in the cache right away.
+     *
+     * @param entry the entry of the buffer
+     * @param estimator estimates the size of the buffer in bytes if the size is not known yet; called without holding
+     *            the lock of the cache
+     * @return <code>true</code> if the buffer should read its rows back into memory
+     */
+    boolean tryPromote(final Entry entry, final LongSupplier estimator) {
+        long bytes;
+        synchronized (this) {
+            if (entry.m_cached || entry.m_diskIterations < PROMOTION_THRESHOLD) {
+                return false;
+            }
+            bytes = entry.m_bytes;
+        }
+        if (bytes < 0) {
+            bytes = estimator.getAsLong();
+        }
+        synchronized (this) {
+            entry.m_bytes = bytes;
+            if (entry.m_cached || bytes < 0 || !hasHeadroom(bytes)) {
+                return false;
+            }
+            entry.m_cached = true;
+            entry.m_diskIterations = 0;
+            m_entries.put(entry, entry);
+            m_usedBytes += bytes;
+            m_promotions++;
+        }
+        LOGGER.debugWithFormat("Reading table (%.1fMB) back into memory", bytes / (double)(1 << 20));
+        return true;
+    }
+
+    /** Whether the given number of bytes fit into the cache and the heap. Must hold the lock. */
+    private boolean hasHeadroom(final long bytes) {
+        if (m_usedBytes + bytes > m_maxBytes || MemoryAlertSystem.getInstance().isMemoryLow()) {
+            return false;
+        }
+        final double threshold = MemoryAlertSystem.DEFAULT_USAGE_THRESHOLD * MemoryAlertSystem.getMaximumMemory();
+        return MemoryAlertSystem.getUsedMemory() + bytes < threshold;
+    }
+
+    /** Writes the least recently iterated half of the cached tables (by size) to disk. */
+    private void onMemoryAlert() {
+        final List<Buffer> victims = new ArrayList<>();
+        synchronized (this) {
+            expungeStaleEntries();
+            final long target = m_usedBytes / 2;
+            for (Iterator<Entry> it = m_entries.keySet().iterator(); it.hasNext() && (victims.isEmpty()
+                    || m_usedBytes > target);) {
+                final Entry eldest = it.next();
+                it.remove();
+                removeEntry(eldest, victims);
+            }
+        }
+        evictInBackground(victims, "memory is low");
+    }
+
+    /** Updates the accounting of an entry that has been removed from the map. Must hold the lock. */
+    private void removeEntry(final Entry entry, final List<Buffer> victims) {
+        entry.m_cached = false;
+        m_usedBytes -= entry.m_bytes;
+        m_evictions++;
+        final Buffer buffer = entry.get();
+        if (buffer != null) {
+            victims.add(buffer);
+        }
+    }
+
+    /** Removes the entries of garbage collected buffers. Must hold the lock. */
+    private void expungeStaleEntries() {
+        Reference<? extends Buffer> ref;
+        while ((ref = QUEUE.poll()) != null) {
+            remove((Entry)ref);
+        }
+    }
+
+    private static void evictInBackground(final List<Buffer> victims, final String reason) {
+        if (victims.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Writing " + victims.size() + " table(s) to disk, " + reason);
+        ThreadUtils.threadWithContext(() -> {
+            for (final Buffer buffer : victims) {
+                buffer.evictFromMemory();
+            }
+        }, "KNIME Buffer flusher").start();
+    }
+
+    /**
+     * @return the estimated size of all cached tables in bytes
+     */
+    synchronized long getUsedBytes() {
+        return m_usedBytes;
+    }
+
+    /**
+     * @return the maximum size of the cached tables in bytes
+     */
+    long getMaxBytes() {
+        return m_maxBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        return "TableCache [tables=" + m_entries.size() + ", used=" + (m_usedBytes >> 20) + "MB, max="
+            + (m_maxBytes >> 20) + "MB, hits=" + m_hits + ", misses=" + m_misses + ", evictions=" + m_evictions
+            + ", promotions=" + m_promotions + "]";
+    }
+
+    /**
+     * Estimates the memory footprint of a table from a sample of its rows.
+     *
+     * @param rows the rows of the table or a prefix of them
+     * @param rowCount the number of rows of the table
+     * @return the estimated size in bytes
+     */
+    static long estimateBytes(final List<? extends DataRow> rows, final long rowCount) {
+        final int size = rows.size();
+        if (rows instanceof CompactRowList && size == rowCount) {
+            return ((CompactRowList)rows).estimateBytes();
+        }
+        if (size == 0 || rowCount == 0) {
+            return 0;
+        }
+        final int step = Math.max(1, size / SAMPLE_SIZE);
+        long sampleBytes = 0;
+        int sampled = 0;
+        for (int i = 0; i < size; i += step) {
+            sampleBytes += estimateBytes(rows.get(i));
+            sampled++;
+        }
+        // 8 bytes for the reference in the list
+        return (long)((sampleBytes / (double)sampled + 8) * rowCount);
+    }
+
+    /**
+     * @param row a row
+     * @return the estimated size of the row, its key and its cells in bytes
+     */
+    static long estimateBytes(final DataRow row) {
+        // row object and cell array header plus key and its string
+        long bytes = 16 + 16 + 16 + 40 + 2L * row.getKey().getString().length();
+        final int nrCells = row.getNumCells();
+        for (int i = 0; i < nrCells; i++) {
+            final DataCell cell = row instanceof BlobSupportDataRow
+                ? ((BlobSupportDataRow)row).getRawCell(i) : row.getCell(i);
+            bytes += 8 + estimateBytes(cell);
+        }
+        return bytes;
+    }
+
+    /**
+     * @param cell a cell
+     * @return the estimated size of the cell in bytes
+     */
+    static long estimateBytes(final DataCell cell) {
+        if (cell instanceof BooleanCell) {
+            return 0; // singletons
+        } else if (cell instanceof IntCell) {
+            return 16;
+        } else if (cell instanceof DoubleCell || cell instanceof LongCell) {
+            return 24;
+        } else if (cell instanceof BlobWrapperDataCell) {
+            return DEF_OBJECT_SIZE; // the blob itself is read from disk on demand
+        } else if (cell instanceof StringValue && !cell.isMissing()) {
+            return 16 + 40 + 2L * ((StringValue)cell).getStringValue().length();
+        } else if (cell instanceof CollectionDataValue) {
+            long bytes = DEF_OBJECT_SIZE;
+            for (final DataCell element : (CollectionDataValue)cell) {
+                bytes += 8 + estimateBytes(element);
+            }
+            return bytes;
+        }
+        return DEF_OBJECT_SIZE;
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.knime.core.node.workflow.NodeContext;
+
+/**
+ * Runs the asynchronous writes of {@link DataContainer DataContainers} on a bounded number of threads. Each container
+ * that writes asynchronously owns a {@link WriteQueue}, a single-producer/single-consumer ring buffer to which rows are
+ * added without locking. The writer drains the ring in batches; a queue is processed for at most one ring length and
+ * then re-scheduled at the end of the executor queue, so that many containers are served fairly by few threads.
+ *
+ * <p>
+ * A producer whose ring is full is blocked (a stall). If the total number of queued rows exceeds a threshold new
+ * containers don't get a queue but write synchronously. Both, as well as the current queue depth, are recorded and can
+ * be queried via {@link #getInstance()}, e.g. to tune the number of threads
+ * ({@link org.knime.core.node.KNIMEConstants#PROPERTY_ASYNC_WRITE_THREADS}).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class TableWriteScheduler {
+
+    /** Number of cells that the ring of a queue holds (approximately), used to derive the ring length. */
+    static final int CELLS_PER_QUEUE = 1 << 15;
+
+    /** Maximum ring length of a queue (narrow rows). */
+    static final int MAX_QUEUE_CAPACITY = 1 << 12;
+
+    /** Queued rows per thread above which new containers fall back to synchronous writing. */
+    private static final int SATURATION_ROWS_PER_THREAD = 1 << 16;
+
+    /** Time a blocked producer sleeps before it re-checks the queue (wake-ups are usually explicit). */
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final TableWriteScheduler INSTANCE = new TableWriteScheduler(DataContainer.ASYNC_WRITE_THREADS);
+
+    private final int m_threadCount;
+
+    private final int m_saturationThreshold;
+
+    private final ThreadPoolExecutor m_executor;
+
+    /** Queues that are in the executor queue or currently run, used to determine the queue depth. */
+    private final Set<WriteQueue> m_scheduledQueues = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder m_stallCount = new LongAdder();
+
+    private final LongAdder m_stallTimeNanos = new LongAdder();
+
+    private final LongAdder m_syncFallbackCount = new LongAdder();
+
+    private final LongAdder m_writtenRowCount = new LongAdder();
+
+    /**
+     * @param threadCount the maximum number of write threads, &gt; 0
+     */
+    TableWriteScheduler(final int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+        }
+        m_threadCount = threadCount;
+        m_saturationThreshold = threadCount * SATURATION_ROWS_PER_THREAD;
+        m_executor = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger m_threadIndex = new AtomicInteger();
+
+                /** {@inheritDoc} */
+                @Override
+                public Thread newThread(final Runnable r) {
+                    return new Thread(r, "KNIME-TableIO-" + m_threadIndex.incrementAndGet());
+                }
+            });
+        m_executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** @return the scheduler used by all data containers, not null. */
+    public static TableWriteScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The ring length for rows with the given number of cells: wide rows get a shorter ring, so that the memory held by
+     * queued rows is roughly independent of the row width.
+     *
+     * @param cellsPerRow number of cells per row
+     * @param minCapacity lower bound, e.g. the configured asynchronous cache size
+     * @return a power of two
+     */
+    static int getQueueCapacity(final int cellsPerRow, final int minCapacity) {
+        int capacity = CELLS_PER_QUEUE / Math.max(1, cellsPerRow);
+        capacity = Math.max(Math.max(capacity, minCapacity), 16);
+        capacity = Math.min(capacity, Math.max(MAX_QUEUE_CAPACITY, minCapacity));
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Creates a new queue for a container unless the scheduler is saturated, in which case the container should write
+     * synchronously (counted as fallback).
+     *
+     * @param consumer writes the rows
+     * @param capacity the ring length, a power of two, see {@link #getQueueCapacity(int, int)}
+     * @param context the node context, set while rows are written, may be null
+     * @return a new queue or null if the caller should write synchronously
+     */
+    WriteQueue createQueue(final ElementConsumer consumer, final int capacity, final NodeContext context) {
+        if (getQueueDepth() > m_saturationThreshold) {
+            m_syncFallbackCount.increment();
+            return null;
+        }
+        return new WriteQueue(consumer, capacity, context);
+    }
+
+    /** @return the maximum number of write threads. */
+    public int getThreadCount() {
+        return m_threadCount;
+    }
+
+    /** @return the number of threads currently writing. */
+    public int getActiveThreadCount() {
+        return m_executor.getActiveCount();
+    }
+
+    /** @return the number of rows of all containers waiting to be written (only counting scheduled queues). */
+    public int getQueueDepth() {
+        long depth = 0L;
+        for (WriteQueue q : m_scheduledQueues) {
+            depth += q.size();
+        }
+        return (int)Math.min(depth, Integer.MAX_VALUE);
+    }
+
+    /** @return how often a producer was blocked because the queue of its container was full. */
+    public long getStallCount() {
+        return m_stallCount.sum();
+    }
+
+    /** @return the total time producers were blocked, see {@link #getStallCount()}. */
+    public long getStallTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(m_stallTimeNanos.sum());
+    }
+
+    /** @return the number of containers that wrote synchronously because the scheduler was saturated. */
+    public long getSyncFallbackCount() {
+        return m_syncFallbackCount.sum();
+    }
+
+    /** @return the number of rows written asynchronously so far. */
+    public long getWrittenRowCount() {
+        return m_writtenRowCount.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format("Table write scheduler (%d/%d threads active, %d rows queued, %d stalls (%d ms), "
+            + "%d synchronous fallbacks, %d rows written)", getActiveThreadCount(), m_threadCount, getQueueDepth(),
+            getStallCount(), getStallTimeMillis(), getSyncFallbackCount(), getWrittenRowCount());
+    }
+
+    /** Writes the elements of a {@link WriteQueue}. */
+    @FunctionalInterface
+    interface ElementConsumer {
+
+        /**
+         * Writes the element. Called by a single thread at a time (not necessarily the same thread for each call).
+         *
+         * @param element the element, not null
+         * @return true if this was the last element, i.e. the queue is done.
+         * @throws Exception any problem, the queue is done then and the exception available via
+         *             {@link WriteQueue#getThrowable()}
+         */
+        boolean consume(Object element) throws Exception;
+    }
+
+    /**
+     * The write queue of a single container, a single-producer/single-consumer ring buffer. Elements are added by one
+     * thread at a time (the container is not thread-safe) and written in order. The producer only synchronizes with
+     * the writer when the queue needs to be scheduled or is full.
+     */
+    final class WriteQueue implements Runnable {
+
+        private final ElementConsumer m_consumer;
+
+        private final NodeContext m_context;
+
+        private final Object[] m_ring;
+
+        private final int m_mask;
+
+        /** Number of unscheduled elements at which the producer schedules the queue. */
+        private final int m_scheduleThreshold;
+
+        /** Index of the next element to write (written by the consumer). */
+        private final AtomicLong m_head = new AtomicLong();
+
+        /** Index of the next element to add (written by the producer). */
+        private final AtomicLong m_tail = new AtomicLong();
+
+        /** Whether the queue is in the executor queue or currently run. */
+        private final AtomicBoolean m_isScheduled = new AtomicBoolean();
+
+        /** Index of the last element that needs to be written without waiting for more, -1 if none. */
+        private volatile long m_lastUrgentIndex = -1L;
+
+        /** Producer thread blocked on a full ring or null. */
+        private volatile Thread m_waitingProducer;
+
+        /** Set when the last element is written, an exception is thrown or the queue is cancelled. */
+        private volatile boolean m_isDone;
+
+        private volatile Throwable m_throwable;
+
+        /** Producer's view of the head; avoids reading {@link #m_head} for each element. */
+        private long m_cachedHead;
+
+        /** Producer's copy of the tail. */
+        private long m_producerTail;
+
+        private WriteQueue(final ElementConsumer consumer, final int capacity, final NodeContext context) {
+            if (Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+            }
+            m_consumer = consumer;
+            m_context = context;
+            m_ring = new Object[capacity];
+            m_mask = capacity - 1;
+            m_scheduleThreshold = Math.max(1, capacity / 4);
+        }
+
+        /** @return the ring length. */
+        int getCapacity() {
+            return m_ring.length;
+        }
+
+        /** @return the number of elements added but not written yet. */
+        int size() {
+            // read head first, tail can only grow meanwhile
+            final long head = m_head.get();
+            return (int)Math.max(0L, m_tail.get() - head);
+        }
+
+        /**
+         * Adds an element, blocks while the ring is full. If the queue is done (failed or cancelled) the element is
+         * discarded and <code>false</code> is returned, the caller is expected to check {@link #getThrowable()}.
+         *
+         * @param element the element to add, not null
+         * @param isUrgent whether the element is to be written without waiting for further elements (close, flush)
+         * @return <code>true</code> if the element was added, <code>false</code> if it was discarded
+         * @throws InterruptedException if interrupted while waiting
+         */
+        boolean offer(final Object element, final boolean isUrgent) throws InterruptedException {
+            if (m_isDone) {
+                return false;
+            }
+            final long tail = m_producerTail;
+            if (tail - m_cachedHead >= m_ring.length) {
+                m_cachedHead = m_head.get();
+                if (tail - m_cachedHead >= m_ring.length) {
+                    awaitSpace(tail);
+                    if (m_isDone) {
+                        return false;
+                    }
+                }
+            }
+            m_ring[(int)tail & m_mask] = element;
+            if (isUrgent) {
+                m_lastUrgentIndex = tail;
+            }
+            // no full fence here: if the writer misses the new tail when descheduling, the next offer schedules
+            // (urgent elements use the volatile m_lastUrgentIndex, which the writer checks)
+            m_producerTail = tail + 1;
+            m_tail.lazySet(tail + 1);
+            if (isUrgent) {
+                schedule();
+            } else if (tail + 1 - m_cachedHead >= m_scheduleThreshold && !m_isScheduled.get()) {
+                // the cached head may be outdated, only schedule if there are really enough elements
+                m_cachedHead = m_head.get();
+                if (tail + 1 - m_cachedHead >= m_scheduleThreshold) {
+                    schedule();
+                }
+            }
+            return true;
+        }
+
+        /** Blocks until the ring has space for the element at the given index or the queue is done. */
+        private void awaitSpace(final long tail) throws InterruptedException {
+            final long start = System.nanoTime();
+            try {
+                m_waitingProducer = Thread.currentThread();
+                while (!m_isDone && tail - (m_cachedHead = m_head.get()) >= m_ring.length) {
+                    schedule();
+                    LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                m_waitingProducer = null;
+                m_stallCount.increment();
+                m_stallTimeNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        /** Submits the queue to the executor unless it is already scheduled. */
+        private void schedule() {
+            if (!m_isScheduled.get() && m_isScheduled.compareAndSet(false, true)) {
+                m_scheduledQueues.add(this);
+                m_executor.execute(this);
+            }
+        }
+
+        /**
+         * Blocks until the last element is written, writing failed or the queue was cancelled.
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        synchronized void awaitDone() throws InterruptedException {
+            while (!m_isDone) {
+                wait();
+            }
+        }
+
+        /** Discards all pending elements, the element currently written is completed. */
+        void cancel() {
+            finish(null);
+        }
+
+        /** @return the exception thrown by the consumer or null. */
+        Throwable getThrowable() {
+            return m_throwable;
+        }
+
+        /** Marks the queue done, wakes up all waiting threads. */
+        private synchronized void finish(final Throwable throwable) {
+            if (m_isDone) {
+                return;
+            }
+            if (throwable != null) {
+                m_throwable = throwable;
+            }
+            m_isDone = true;
+            notifyAll();
+            wakeUpProducer();
+        }
+
+        private void wakeUpProducer() {
+            Thread producer = m_waitingProducer;
+            if (producer != null) {
+                LockSupport.unpark(producer);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void run() {
+            NodeContext.pushContext(m_context);
+            try {
+                drain();
+                m_scheduledQueues.remove(this);
+                m_isScheduled.set(false);
+                // re-check: the producer may have added elements after the last drain but didn't schedule
+                // because the queue was still marked as scheduled
+                final long head = m_head.get();
+                if (!m_isDone && (m_tail.get() - head >= m_scheduleThreshold || m_lastUrgentIndex >= head
+                    || m_waitingProducer != null)) {
+                    schedule();
+                }
+            } finally {
+                NodeContext.removeLastContext();
+            }
+        }
+
+        /** Writes elements until the ring is empty or one ring length is written (then other queues get a turn). */
+        private void drain() {
+            long head = m_head.get();
+            int remaining = m_ring.length;
+            while (remaining > 0 && !m_isDone) {
+                final long end = Math.min(m_tail.get(), head + remaining);
+                if (end == head) {
+                    return;
+                }
+                final int count = (int)(end - head);
+                for (; head < end; head++) {
+                    final int index = (int)head & m_mask;
+                    final Object element = m_ring[index];
+                    m_ring[index] = null;
+                    final boolean isLast;
+                    try {
+                        isLast = m_consumer.consume(element);
+                    } catch (Throwable t) {
+                        m_head.lazySet(head + 1);
+                        m_writtenRowCount.add(count - (end - head - 1));
+                        finish(t);
+                        return;
+                    }
+                    if (isLast) {
+                        // the last element is the end marker, not a row
+                        m_head.lazySet(head + 1);
+                        m_writtenRowCount.add(count - (end - head));
+                        finish(null);
+                        return;
+                    }
+                }
+                m_head.lazySet(head);
+                m_writtenRowCount.add(count);
+                wakeUpProducer();
+                remaining -= count;
+            }
+        }
+    }
+
+}
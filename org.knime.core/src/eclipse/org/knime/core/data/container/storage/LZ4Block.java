@@ -0,0 +1,285 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container.storage;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure java implementation of the LZ4 block format (greedy compression with a single hash table, no dictionary). The
+ * compressed data follows the sequence layout of the LZ4 block specification: a token with literal and match length,
+ * optional length extension bytes, the literals, a two-byte little endian match offset and optional match length
+ * extension bytes. The last sequence only contains literals.
+ *
+ * <p>
+ * This class only deals with single blocks; the framing is done by {@link LZ4BlockCompressionCodec}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class LZ4Block {
+
+    private static final int MIN_MATCH = 4;
+
+    /** The last match must start at least that many bytes before the end of the block. */
+    private static final int MF_LIMIT = 12;
+
+    /** The last that many bytes are always literals. */
+    private static final int LAST_LITERALS = 5;
+
+    /** Blocks smaller than that are only stored as literals. */
+    private static final int MIN_LENGTH = MF_LIMIT + 1;
+
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+
+    private static final int HASH_LOG = 14;
+
+    private static final int ML_BITS = 4;
+
+    private static final int ML_MASK = (1 << ML_BITS) - 1;
+
+    private static final int RUN_MASK = ML_MASK;
+
+    private LZ4Block() {
+    }
+
+    /**
+     * @param length the number of bytes to compress
+     * @return the size of the buffer that is guaranteed to hold the compressed data
+     */
+    static int maxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    /** A hash table that can be reused for consecutive calls to compress (not thread-safe). */
+    static final class HashTable {
+        private final int[] m_table = new int[1 << HASH_LOG];
+
+        void reset() {
+            Arrays.fill(m_table, -1);
+        }
+    }
+
+    private static int readInt(final byte[] buf, final int i) {
+        return (buf[i] & 0xFF) | ((buf[i + 1] & 0xFF) << 8) | ((buf[i + 2] & 0xFF) << 16) | ((buf[i + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(final int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * Compresses the source block into the destination array.
+     *
+     * @param src source data
+     * @param srcOff start in source
+     * @param srcLen number of bytes to compress
+     * @param dest destination, must have at least {@link #maxCompressedLength(int)} bytes after <code>destOff</code>
+     * @param destOff start in destination
+     * @param hashTable a hash table (will be reset)
+     * @return the number of bytes written to the destination
+     */
+    static int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dest, final int destOff,
+        final HashTable hashTable) {
+        final int srcEnd = srcOff + srcLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        int anchor = srcOff;
+        if (srcLen >= MIN_LENGTH) {
+            final int[] table = hashTable.m_table;
+            hashTable.reset();
+            final int mfLimit = srcEnd - MF_LIMIT;
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            main: while (true) {
+                // find next match
+                int ref;
+                while (true) {
+                    if (sOff >= mfLimit) {
+                        break main;
+                    }
+                    final int value = readInt(src, sOff);
+                    final int h = hash(value);
+                    ref = table[h];
+                    table[h] = sOff;
+                    if (ref >= 0 && sOff - ref <= MAX_DISTANCE && readInt(src, ref) == value) {
+                        break;
+                    }
+                    sOff++;
+                }
+                // extend backwards
+                while (sOff > anchor && ref > srcOff && src[sOff - 1] == src[ref - 1]) {
+                    sOff--;
+                    ref--;
+                }
+                // extend forward
+                int matchLen = MIN_MATCH;
+                while (sOff + matchLen < matchLimit && src[ref + matchLen] == src[sOff + matchLen]) {
+                    matchLen++;
+                }
+                dOff = writeSequence(src, anchor, sOff - anchor, sOff - ref, matchLen, dest, dOff);
+                sOff += matchLen;
+                anchor = sOff;
+            }
+        }
+        // last literals
+        final int literalLength = srcEnd - anchor;
+        final int tokenOff = dOff++;
+        if (literalLength >= RUN_MASK) {
+            dest[tokenOff] = (byte)(RUN_MASK << ML_BITS);
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[tokenOff] = (byte)(literalLength << ML_BITS);
+        }
+        System.arraycopy(src, anchor, dest, dOff, literalLength);
+        return dOff + literalLength - destOff;
+    }
+
+    private static int writeSequence(final byte[] src, final int literalOff, final int literalLength,
+        final int matchOffset, final int matchLength, final byte[] dest, final int destOff) {
+        int dOff = destOff;
+        final int tokenOff = dOff++;
+        int token;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << ML_BITS;
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            token = literalLength << ML_BITS;
+        }
+        System.arraycopy(src, literalOff, dest, dOff, literalLength);
+        dOff += literalLength;
+        dest[dOff++] = (byte)matchOffset;
+        dest[dOff++] = (byte)(matchOffset >>> 8);
+        final int ml = matchLength - MIN_MATCH;
+        if (ml >= ML_MASK) {
+            token |= ML_MASK;
+            dOff = writeLength(ml - ML_MASK, dest, dOff);
+        } else {
+            token |= ml;
+        }
+        dest[tokenOff] = (byte)token;
+        return dOff;
+    }
+
+    private static int writeLength(final int length, final byte[] dest, final int destOff) {
+        int len = length;
+        int dOff = destOff;
+        while (len >= 0xFF) {
+            dest[dOff++] = (byte)0xFF;
+            len -= 0xFF;
+        }
+        dest[dOff++] = (byte)len;
+        return dOff;
+    }
+
+    /**
+     * Decompresses a block.
+     *
+     * @param src compressed data
+     * @param srcOff start in compressed data
+     * @param srcLen length of compressed data
+     * @param dest destination
+     * @param destOff start in destination
+     * @param destLen exact length of the decompressed data
+     * @throws IOException if the data is corrupt
+     */
+    static void decompress(final byte[] src, final int srcOff, final int srcLen, final byte[] dest,
+        final int destOff, final int destLen) throws IOException {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + destLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        try {
+            while (true) {
+                final int token = src[sOff++] & 0xFF;
+                int literalLength = token >>> ML_BITS;
+                if (literalLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[sOff++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 0xFF);
+                }
+                if (sOff + literalLength > srcEnd || dOff + literalLength > destEnd) {
+                    throw new IOException("Malformed LZ4 block (literal length " + literalLength + ")");
+                }
+                System.arraycopy(src, sOff, dest, dOff, literalLength);
+                sOff += literalLength;
+                dOff += literalLength;
+                if (sOff == srcEnd) {
+                    break;
+                }
+                final int matchOffset = (src[sOff++] & 0xFF) | ((src[sOff++] & 0xFF) << 8);
+                int matchLength = token & ML_MASK;
+                if (matchLength == ML_MASK) {
+                    int b;
+                    do {
+                        b = src[sOff++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 0xFF);
+                }
+                matchLength += MIN_MATCH;
+                final int ref = dOff - matchOffset;
+                if (matchOffset == 0 || ref < destOff || dOff + matchLength > destEnd) {
+                    throw new IOException("Malformed LZ4 block (match offset " + matchOffset + ")");
+                }
+                if (matchOffset >= matchLength) {
+                    System.arraycopy(dest, ref, dest, dOff, matchLength);
+                } else {
+                    // overlapping copy (repeated pattern)
+                    for (int i = 0; i < matchLength; i++) {
+                        dest[dOff + i] = dest[ref + i];
+                    }
+                }
+                dOff += matchLength;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Malformed LZ4 block: " + e.getMessage(), e);
+        }
+        if (dOff != destEnd) {
+            throw new IOException("Malformed LZ4 block, decompressed " + (dOff - destOff) + " bytes, expected "
+                + destLen);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression codec used by the table store writers and readers to compress the binary table data. Codecs are
+ * registered via extension point (<code>org.knime.core.TableCompressionCodec</code>) and collected by the
+ * {@link TableStoreCompressionCodecRegistry}.
+ *
+ * <p>
+ * The {@link #getName() name} of the codec is persisted along with each table (as part of the format meta
+ * information). Readers use it to look up the codec again. A codec must therefore never change its name or its
+ * format once tables have been written with it.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ * @noreference This interface is not intended to be referenced by clients.
+ */
+public interface TableStoreCompressionCodec {
+
+    /**
+     * @return unique, non-blank name of the codec, e.g. "Gzip". This is the value persisted in the meta information
+     *         and must not change between versions.
+     */
+    public String getName();
+
+    /**
+     * Wraps the argument stream so that all data written to the returned stream is compressed. Closing the returned
+     * stream closes the argument stream.
+     *
+     * @param out the stream to write the compressed data to, usually buffered
+     * @return a new stream, not null
+     * @throws IOException any type of I/O problem
+     */
+    public OutputStream compress(final OutputStream out) throws IOException;
+
+    /**
+     * Wraps the argument stream so that reading from the returned stream returns the decompressed data. The returned
+     * stream should be buffered (the table readers read single bytes).
+     *
+     * @param in the stream with compressed data, usually buffered
+     * @return a new stream, not null
+     * @throws IOException any type of I/O problem
+     */
+    public InputStream decompress(final InputStream in) throws IOException;
+
+    /**
+     * Compresses a single self-contained block of data. Used by formats that compress chunks individually (in order
+     * to skip them during reading). The default implementation uses the stream methods, implementations are
+     * encouraged to override it.
+     *
+     * @param raw the data to compress
+     * @param offset the start offset in the data
+     * @param length the number of bytes to compress
+     * @return the compressed data
+     * @throws IOException any type of I/O problem
+     */
+    public default byte[] compressBlock(final byte[] raw, final int offset, final int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(32, length / 2));
+        try (OutputStream out = compress(bytes)) {
+            out.write(raw, offset, length);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompresses a block previously compressed with {@link #compressBlock(byte[], int, int)}.
+     *
+     * @param stored the compressed data
+     * @param rawLength the length of the uncompressed data
+     * @return the decompressed data, an array of length <code>rawLength</code>
+     * @throws IOException any type of I/O problem, including corrupt data
+     */
+    public default byte[] decompressBlock(final byte[] stored, final int rawLength) throws IOException {
+        byte[] raw = new byte[rawLength];
+        try (DataInputStream in = new DataInputStream(decompress(new ByteArrayInputStream(stored)))) {
+            in.readFully(raw);
+        }
+        return raw;
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.container.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.Platform;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Collects the compression codecs from the extension point and provides them to the table store formats.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ * @noextend This class is not intended to be subclassed by clients.
+ * @noreference This class is not intended to be referenced by clients.
+ */
+public final class TableStoreCompressionCodecRegistry {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(TableStoreCompressionCodecRegistry.class);
+
+    private static final String EXT_POINT_ID = "org.knime.core.TableCompressionCodec";
+
+    private static final TableStoreCompressionCodecRegistry INSTANCE = createInstance();
+
+    private static TableStoreCompressionCodecRegistry createInstance() {
+        // the built-in codecs are always available, also when running without extension registry (e.g. in tests)
+        List<TableStoreCompressionCodec> codecs = new ArrayList<>();
+        codecs.add(new GzipCompressionCodec());
+        codecs.add(new NoCompressionCodec());
+        codecs.add(new LZ4BlockCompressionCodec());
+        IExtensionRegistry registry = Platform.getExtensionRegistry();
+        IExtensionPoint point = registry == null ? null : registry.getExtensionPoint(EXT_POINT_ID);
+        if (point != null) {
+            Stream.of(point.getExtensions())
+                .flatMap(ext -> Stream.of(ext.getConfigurationElements()))
+                .map(cfe -> readCodec(cfe))
+                .filter(c -> c != null)
+                .filter(c -> codecs.stream().noneMatch(e -> e.getClass().equals(c.getClass())))
+                .forEach(c -> {
+                    if (codecs.stream().anyMatch(e -> e.getName().equals(c.getName()))) {
+                        LOGGER.errorWithFormat("Ignoring compression codec '%s' - name '%s' is already in use",
+                            c.getClass().getName(), c.getName());
+                    } else {
+                        codecs.add(c);
+                    }
+                });
+        }
+        return new TableStoreCompressionCodecRegistry(codecs);
+    }
+
+    private static TableStoreCompressionCodec readCodec(final IConfigurationElement cfe) {
+        try {
+            TableStoreCompressionCodec c = (TableStoreCompressionCodec)cfe.createExecutableExtension("codecDefinition");
+            if (StringUtils.isBlank(c.getName())) {
+                LOGGER.errorWithFormat("Ignoring compression codec '%s' from '%s' - name must not be blank",
+                    c.getClass().getName(), cfe.getContributor().getName());
+                return null;
+            }
+            LOGGER.debugWithFormat("Added table compression codec '%s' from '%s'",
+                c.getClass().getName(), cfe.getContributor().getName());
+            return c;
+        } catch (CoreException ex) {
+            LOGGER.error(String.format("Could not create '%s' from extension '%s': %s",
+                TableStoreCompressionCodec.class.getName(), cfe.getContributor().getName(), ex.getMessage()), ex);
+        }
+        return null;
+    }
+
+    /** @return the instance to use. */
+    public static TableStoreCompressionCodecRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private final List<TableStoreCompressionCodec> m_codecs;
+
+    private TableStoreCompressionCodecRegistry(final List<TableStoreCompressionCodec> codecs) {
+        m_codecs = Collections.unmodifiableList(codecs);
+    }
+
+    /** @return all codecs in an unmodifiable list. */
+    public List<TableStoreCompressionCodec> getCodecs() {
+        return m_codecs;
+    }
+
+    /**
+     * @param name the name as per {@link TableStoreCompressionCodec#getName()}
+     * @return the codec with that name or an empty optional if unknown (usually means: not installed)
+     */
+    public Optional<TableStoreCompressionCodec> getCodec(final String name) {
+        return m_codecs.stream().filter(c -> c.getName().equals(name)).findFirst();
+    }
+
+    /**
+     * Get codec for name as read from the format's meta information.
+     *
+     * @param name the name as per {@link TableStoreCompressionCodec#getName()}
+     * @return the codec with that name
+     * @throws InvalidSettingsException if there is no such codec
+     */
+    public TableStoreCompressionCodec getCodecForReading(final String name) throws InvalidSettingsException {
+        return getCodec(name).orElseThrow(() -> new InvalidSettingsException(String.format(
+            "Unknown table compression codec \"%s\" (table was written with a newer version of KNIME or the codec "
+                + "is not installed), available codecs: %s", name,
+            m_codecs.stream().map(c -> c.getName()).collect(Collectors.joining(", ")))));
+    }
+
+    /**
+     * The codec used when neither the table nor the node define one. This is the codec as per system property
+     * {@link KNIMEConstants#PROPERTY_TABLE_COMPRESSION_CODEC} or, if unset, Gzip or None, depending on
+     * {@link KNIMEConstants#PROPERTY_TABLE_GZIP_COMPRESSION}.
+     *
+     * @param isUseGzip the value of {@link KNIMEConstants#PROPERTY_TABLE_GZIP_COMPRESSION}
+     * @return the default codec, not null
+     */
+    public TableStoreCompressionCodec getDefaultCodec(final boolean isUseGzip) {
+        String codecName = System.getProperty(KNIMEConstants.PROPERTY_TABLE_COMPRESSION_CODEC);
+        if (StringUtils.isNotBlank(codecName)) {
+            Optional<TableStoreCompressionCodec> codec = getCodec(codecName.trim());
+            if (codec.isPresent()) {
+                return codec.get();
+            }
+            LOGGER.warnWithFormat("Unknown table compression codec \"%s\" (property \"%s\"), available: %s",
+                codecName, KNIMEConstants.PROPERTY_TABLE_COMPRESSION_CODEC,
+                m_codecs.stream().map(c -> c.getName()).collect(Collectors.joining(", ")));
+        }
+        return getCodec(isUseGzip ? GzipCompressionCodec.NAME : NoCompressionCodec.NAME).get();
+    }
+
+}
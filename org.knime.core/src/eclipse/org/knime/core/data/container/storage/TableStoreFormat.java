@@ -113,6 +113,39 @@ public AbstractTableStoreWriter createWriter(final File binFile, final DataTable
     public AbstractTableStoreWriter createWriter(final OutputStream output, final DataTableSpec spec,
         boolean writeRowKey) throws IOException, UnsupportedOperationException;
 
+    /** Create a new writer instance that compresses the data with the given codec. The default implementation
+     * ignores the codec and delegates to {@link #createWriter(File, DataTableSpec, boolean)}.
+     * @param binFile where to write to (new file).
+     * @param spec The spec
+     * @param writeRowKey If to also write the row key (false for appending columsn tables)
+     * @param codec The compression codec or <code>null</code> to use the default codec.
+     * @return A writer instance.
+     * @throws IOException Any type of I/O problem.
+     * @since 3.7
+     */
+    public default AbstractTableStoreWriter createWriter(final File binFile, final DataTableSpec spec,
+        final boolean writeRowKey, final TableStoreCompressionCodec codec) throws IOException {
+        return createWriter(binFile, spec, writeRowKey);
+    }
+
+    /** Similar to {@link #createWriter(File, DataTableSpec, boolean, TableStoreCompressionCodec)} but writing to a
+     * stream. The default implementation ignores the codec and delegates to
+     * {@link #createWriter(OutputStream, DataTableSpec, boolean)}.
+     * @param output ..
+     * @param spec ..
+     * @param writeRowKey ...
+     * @param codec The compression codec or <code>null</code> to use the default codec.
+     * @return The writer
+     * @throws IOException ...
+     * @throws UnsupportedOperationException If not supported by the implementation
+     * @since 3.7
+     */
+    public default AbstractTableStoreWriter createWriter(final OutputStream output, final DataTableSpec spec,
+        final boolean writeRowKey, final TableStoreCompressionCodec codec)
+        throws IOException, UnsupportedOperationException {
+        return createWriter(output, spec, writeRowKey);
+    }
+
     /** Creates a reader that is able to read the file previously written by the writer.
      * @param binFile where to read from
      * @param spec The spec matching the content of the file.
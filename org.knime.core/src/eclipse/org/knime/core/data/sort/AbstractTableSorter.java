@@ -49,8 +49,8 @@
 package org.knime.core.data.sort;
 
 import java.text.NumberFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -59,9 +59,15 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -73,12 +79,14 @@
 import org.knime.core.data.DataValueComparator;
 import org.knime.core.data.container.DataContainer;
 import org.knime.core.data.def.StringCell;
+import org.knime.core.data.sort.NormalizedKeyEncoder.KeyedRow;
 import org.knime.core.data.util.memory.MemoryAlertSystem;
 import org.knime.core.data.util.memory.MemoryAlertSystem.MemoryActionIndicator;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.NodeLogger;
+import org.knime.core.node.workflow.NodeContext;
 
 /**
  * Class to sort a table. See <a href="package.html">package description</a> for details.
@@ -98,6 +106,9 @@ abstract class AbstractTableSorter {
      */
     public static final int DEF_MAX_OPENCONTAINER = 40;
 
+    /** Buffers smaller than this are sorted on the calling thread, even if sorting in parallel is enabled. */
+    private static final int MIN_PARALLEL_SORT_SIZE = 1 << 13;
+
     private MemoryAlertSystem m_memService = MemoryAlertSystem.getInstance();
 
     private final DataTable m_inputTable;
@@ -118,6 +129,18 @@ abstract class AbstractTableSorter {
 
     private boolean m_sortInMemory = false;
 
+    /** Number of threads used to sort chunks and to merge them, see {@link #setParallelism(int)}. */
+    private int m_parallelism = 1;
+
+    /** Pool used while sorting with a parallelism greater than 1, null otherwise. */
+    private ForkJoinPool m_forkJoinPool;
+
+    /** See {@link #setUseNormalizedKeys(boolean)}. */
+    private boolean m_useNormalizedKeys = false;
+
+    /** Encoder used while sorting with normalized keys, null otherwise. */
+    private NormalizedKeyEncoder m_keyEncoder;
+
     /** The RowComparator to compare two DataRows (inner class). */
     private Comparator<DataRow> m_rowComparator;
 
@@ -405,6 +428,67 @@ public void setSortInMemory(final boolean sortInMemory) {
         m_sortInMemory = sortInMemory;
     }
 
+    /**
+     * @return the number of threads used for sorting, see {@link #setParallelism(int)} for details.
+     * @since 3.7
+     */
+    public int getParallelism() {
+        return m_parallelism;
+    }
+
+    /**
+     * Sets the number of threads that are used to sort. If the argument is larger than 1 the row buffers are sorted
+     * using a fork-join pool of that size and, if the temporary tables can't be merged in a single pass, independent
+     * groups of temporary tables are merged concurrently. The final merge is always done by the thread consuming the
+     * result. A value of {@link Runtime#availableProcessors()} is a reasonable choice for large tables.
+     *
+     * <p>
+     * Sorting in parallel requires the row comparator to be thread-safe, which is the case for the comparator created
+     * by {@link #setSortColumns(Collection, boolean[], boolean)}. The sort order is identical to the sequential sort,
+     * i.e. the sort is stable in both cases.
+     *
+     * <p>
+     * The default value for this option is <b>1</b> (sort sequentially).
+     *
+     * @param parallelism the number of threads, must be at least 1.
+     * @throws IllegalArgumentException If argument is smaller than 1.
+     * @since 3.7
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        m_parallelism = parallelism;
+    }
+
+    /**
+     * @return whether normalized sort keys are used, see {@link #setUseNormalizedKeys(boolean)} for details.
+     * @since 3.7
+     */
+    public boolean getUseNormalizedKeys() {
+        return m_useNormalizedKeys;
+    }
+
+    /**
+     * Sets whether the sort columns of each row are encoded into a binary key (once per row) that is then used for all
+     * comparisons when sorting the chunks and merging the temporary tables. This avoids calling the column comparators
+     * for each comparison and is considerably faster for string and multi-column sorts.
+     *
+     * <p>
+     * The option only has an effect if the sort order is defined via {@link #setSortColumns(Collection, boolean[],
+     * boolean)} and all sort columns are string, double, int, long or boolean columns (or the row key); otherwise
+     * the rows are compared as usual. The result is identical in both cases.
+     *
+     * <p>
+     * The default value for this option is <b>false</b>.
+     *
+     * @param useNormalizedKeys whether to use normalized keys if possible.
+     * @since 3.7
+     */
+    public void setUseNormalizedKeys(final boolean useNormalizedKeys) {
+        m_useNormalizedKeys = useNormalizedKeys;
+    }
+
     /**
      * Sorts the table passed in the constructor according to the settings and returns the sorted output table.
      *
@@ -414,18 +498,119 @@ public void setSortInMemory(final boolean sortInMemory) {
      */
     DataTable sortInternal(final ExecutionMonitor exec) throws CanceledExecutionException {
         DataTable result;
-        if (m_sortInMemory && (m_rowsInInputTable <= Integer.MAX_VALUE)) {
-            result = sortInMemory(exec);
-        } else {
-            if (m_rowsInInputTable > Integer.MAX_VALUE) {
-                LOGGER.info("Not sorting table in memory, because it has more than " + Integer.MAX_VALUE + " rows.");
+        if (m_parallelism > 1) {
+            m_forkJoinPool = new ForkJoinPool(m_parallelism);
+        }
+        if (m_useNormalizedKeys) {
+            if (m_rowComparator instanceof RowComparator) {
+                m_keyEncoder = ((RowComparator)m_rowComparator).createKeyEncoder();
+            }
+            if (m_keyEncoder == null) {
+                LOGGER.debug("Sort columns can't be represented by normalized keys, comparing rows instead");
             }
-            result = sortOnDisk(exec);
+        }
+        try {
+            if (m_sortInMemory && (m_rowsInInputTable <= Integer.MAX_VALUE)) {
+                result = sortInMemory(exec);
+            } else {
+                if (m_rowsInInputTable > Integer.MAX_VALUE) {
+                    LOGGER.info(
+                        "Not sorting table in memory, because it has more than " + Integer.MAX_VALUE + " rows.");
+                }
+                result = sortOnDisk(exec);
+            }
+        } finally {
+            if (m_forkJoinPool != null) {
+                m_forkJoinPool.shutdownNow();
+                m_forkJoinPool = null;
+            }
+            m_keyEncoder = null;
         }
         exec.setProgress(1.0);
         return result;
     }
 
+    /**
+     * Sorts the argument buffer according to the row comparator. The buffer is sorted on the fork-join pool if sorting
+     * in parallel is enabled and the buffer is large enough.
+     *
+     * @param buffer The buffer to sort (in place).
+     * @throws CanceledExecutionException If interrupted while waiting for the parallel sort.
+     */
+    private void sortBuffer(final List<DataRow> buffer) throws CanceledExecutionException {
+        final ForkJoinPool pool = m_forkJoinPool;
+        if (m_keyEncoder != null) {
+            sortBufferByKeys(buffer, pool != null && buffer.size() >= MIN_PARALLEL_SORT_SIZE ? pool : null);
+            return;
+        }
+        if (pool == null || buffer.size() < MIN_PARALLEL_SORT_SIZE) {
+            Collections.sort(buffer, m_rowComparator);
+            return;
+        }
+        final DataRow[] rows = buffer.toArray(new DataRow[buffer.size()]);
+        // Arrays#parallelSort forks into the pool of the thread invoking it, it's stable just like Collections#sort
+        waitFor(pool.submit(() -> Arrays.parallelSort(rows, m_rowComparator)));
+        for (int i = 0; i < rows.length; i++) {
+            buffer.set(i, rows[i]);
+        }
+    }
+
+    /**
+     * Sorts the argument buffer by the rows' normalized keys, which are computed once per row.
+     *
+     * @param buffer The buffer to sort (in place).
+     * @param pool The pool to compute keys and sort on, null to do it on the calling thread.
+     * @throws CanceledExecutionException If interrupted while waiting for the parallel sort.
+     */
+    private void sortBufferByKeys(final List<DataRow> buffer, final ForkJoinPool pool)
+        throws CanceledExecutionException {
+        final NormalizedKeyEncoder encoder = m_keyEncoder;
+        final KeyedRow[] rows = new KeyedRow[buffer.size()];
+        if (pool == null) {
+            for (int i = 0; i < rows.length; i++) {
+                DataRow row = buffer.get(i);
+                rows[i] = new KeyedRow(encoder.encode(row), row);
+            }
+            Arrays.sort(rows, NormalizedKeyEncoder.KEY_COMPARATOR);
+        } else {
+            waitFor(pool.submit(() -> {
+                Arrays.parallelSetAll(rows, i -> {
+                    DataRow row = buffer.get(i);
+                    return new KeyedRow(encoder.encode(row), row);
+                });
+                Arrays.parallelSort(rows, NormalizedKeyEncoder.KEY_COMPARATOR);
+            }));
+        }
+        for (int i = 0; i < rows.length; i++) {
+            buffer.set(i, rows[i].getRow());
+        }
+    }
+
+    /** Waits for the argument future, unwraps exceptions thrown by the task. */
+    private static void waitFor(final Future<?> future) throws CanceledExecutionException {
+        try {
+            future.get();
+        } catch (InterruptedException ie) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CanceledExecutionException("Interrupted while sorting");
+        } catch (ExecutionException ee) {
+            throw unwrap(ee);
+        }
+    }
+
+    /** Rethrows errors, returns runtime exceptions as is and wraps all other causes. */
+    private static RuntimeException unwrap(final ExecutionException ee) {
+        final Throwable cause = ee.getCause();
+        if (cause instanceof Error) {
+            throw (Error)cause;
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException)cause;
+        }
+        return new RuntimeException(cause.getMessage(), cause);
+    }
+
     private DataTable sortInMemory(final ExecutionMonitor exec) throws CanceledExecutionException {
         final DataTable dataTable = m_inputTable;
         List<DataRow> rowList = new ArrayList<DataRow>();
@@ -451,7 +636,7 @@ private DataTable sortInMemory(final ExecutionMonitor exec) throws CanceledExecu
         }
 
         exec.setMessage("Sorting");
-        Collections.sort(rowList, m_rowComparator);
+        sortBuffer(rowList);
 
         exec.setMessage("Creating sorted table");
 
@@ -533,6 +718,9 @@ private DataTable sortOnDisk(final ExecutionMonitor exec) throws CanceledExecuti
      */
     Iterator<DataRow> mergeChunks(final ExecutionMonitor exec, final boolean mergeCompletely)
         throws CanceledExecutionException {
+        if (m_forkJoinPool != null) {
+            mergeChunksInParallel(exec);
+        }
         while (!m_chunksContainer.isEmpty()) {
             exec.setMessage("Merging temporary tables, " + m_chunksContainer.size() + " remaining");
             if (m_chunksContainer.size() < m_maxOpenContainers) {
@@ -547,13 +735,13 @@ Iterator<DataRow> mergeChunks(final ExecutionMonitor exec, final boolean mergeCo
                 }
             }
 
-            Queue<MergeEntry> containersToMerge = new ArrayDeque<>();
+            List<MergeEntry> containersToMerge = new ArrayList<>();
 
             for (int i = 0; !m_chunksContainer.isEmpty() && i < m_maxOpenContainers; i++) {
-                containersToMerge.add(new MergeEntry(m_chunksContainer.poll(), i, m_rowComparator));
+                containersToMerge.add(new MergeEntry(m_chunksContainer.poll(), true));
             }
 
-            MergingIterator mergingIterator = new MergingIterator(containersToMerge);
+            MergingIterator mergingIterator = new MergingIterator(containersToMerge, m_rowComparator, m_keyEncoder);
 
             if (m_chunksContainer.isEmpty() && (!mergeCompletely || containersToMerge.size() == 1)) {
                 return mergingIterator;
@@ -578,6 +766,133 @@ Iterator<DataRow> mergeChunks(final ExecutionMonitor exec, final boolean mergeCo
         return Collections.<DataRow>emptyList().iterator();
     }
 
+    /**
+     * Merges groups of chunks concurrently on the fork-join pool until at most {@link #m_maxOpenContainers} chunks are
+     * left, which are then merged by the caller. If fewer than <code>m_maxOpenContainers^2</code> chunks exist, only
+     * as many chunks are merged as are needed to bring down the number to <code>m_maxOpenContainers</code>, so most
+     * rows are read only once more. Merged chunks take the place of their group so that ties are still resolved in
+     * input order.
+     *
+     * @param exec for progress and cancellation
+     * @throws CanceledExecutionException if canceled
+     */
+    private void mergeChunksInParallel(final ExecutionMonitor exec) throws CanceledExecutionException {
+        final NodeContext nodeContext = NodeContext.getContext();
+        while (m_chunksContainer.size() > m_maxOpenContainers) {
+            final List<Iterable<DataRow>> chunks = new ArrayList<>(m_chunksContainer);
+            m_chunksContainer.clear();
+            final int chunkCount = chunks.size();
+            final int groupSize = m_maxOpenContainers;
+            final int groupCount;
+            if (chunkCount <= groupSize * groupSize) {
+                // each group of size s reduces the number of chunks by s - 1
+                groupCount = (chunkCount - groupSize + groupSize - 2) / (groupSize - 1);
+            } else {
+                groupCount = (chunkCount + groupSize - 1) / groupSize;
+            }
+            exec.setMessage("Merging temporary tables, " + chunkCount + " remaining (" + groupCount
+                + " groups in parallel)");
+            if (m_rowsInInputTable > 0) {
+                double estimatedReads = Math.ceil(Math.log(chunkCount) / Math.log(groupSize)) * m_rowsInInputTable;
+                m_incProgress = (1.0 - m_progress) / estimatedReads;
+            }
+
+            final AtomicBoolean isCanceled = new AtomicBoolean();
+            final AtomicLong mergedRows = new AtomicLong();
+            final List<List<Iterable<DataRow>>> groups = new ArrayList<>();
+            final List<DataContainer> containers = new ArrayList<>();
+            final List<Future<?>> futures = new ArrayList<>();
+            int nextChunk = 0;
+            for (int g = 0; g < groupCount && nextChunk < chunkCount; g++) {
+                int size = Math.min(groupSize, chunkCount - nextChunk);
+                if (chunkCount <= groupSize * groupSize && g == groupCount - 1) {
+                    // the last group only needs to be as large as required to reach m_maxOpenContainers
+                    size = chunkCount - nextChunk - groupSize + groupCount;
+                }
+                final List<Iterable<DataRow>> group = chunks.subList(nextChunk, nextChunk + size);
+                nextChunk += size;
+                groups.add(group);
+                if (size == 1) {
+                    containers.add(null);
+                    futures.add(null);
+                    continue;
+                }
+                // containers are created (and later closed) on this thread as the execution context isn't thread-safe
+                final DataContainer container = createDataContainer(m_dataTableSpec, true);
+                container.setMaxPossibleValues(0);
+                containers.add(container);
+                final List<MergeEntry> entries = new ArrayList<>(size);
+                for (Iterable<DataRow> chunk : group) {
+                    entries.add(new MergeEntry(chunk, false));
+                }
+                futures.add(m_forkJoinPool.submit(() -> {
+                    NodeContext.pushContext(nodeContext);
+                    try {
+                        MergingIterator it = new MergingIterator(entries, m_rowComparator, m_keyEncoder);
+                        while (it.hasNext() && !isCanceled.get()) {
+                            container.addRowToTable(it.next());
+                            mergedRows.incrementAndGet();
+                        }
+                    } finally {
+                        NodeContext.removeLastContext();
+                    }
+                }));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    while (future != null) {
+                        try {
+                            future.get(100, TimeUnit.MILLISECONDS);
+                            break;
+                        } catch (TimeoutException te) {
+                            exec.checkCanceled();
+                            if (m_rowsInInputTable > 0) {
+                                exec.setProgress(m_progress + mergedRows.get() * m_incProgress);
+                            }
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            throw new CanceledExecutionException("Interrupted while merging temporary tables");
+                        } catch (ExecutionException ee) {
+                            throw unwrap(ee);
+                        }
+                    }
+                }
+            } catch (CanceledExecutionException | RuntimeException | Error e) {
+                // let the running tasks stop before closing their containers
+                isCanceled.set(true);
+                m_forkJoinPool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                for (DataContainer container : containers) {
+                    if (container != null) {
+                        container.close();
+                        clearTable(container.getTable());
+                    }
+                }
+                throw e;
+            }
+
+            for (int g = 0; g < groups.size(); g++) {
+                final DataContainer container = containers.get(g);
+                if (container == null) {
+                    m_chunksContainer.add(groups.get(g).get(0));
+                    continue;
+                }
+                container.close();
+                m_chunksContainer.add(container.getTable());
+                for (Iterable<DataRow> chunk : groups.get(g)) {
+                    if (chunk instanceof DataTable) {
+                        clearTable((DataTable)chunk);
+                    }
+                }
+            }
+            m_chunksContainer.addAll(chunks.subList(nextChunk, chunkCount));
+            if (m_rowsInInputTable > 0) {
+                m_progress += mergedRows.get() * m_incProgress;
+                exec.setProgress(m_progress);
+            }
+        }
+    }
+
     private long createInitialChunks(final ExecutionMonitor exec, final DataTable dataTable)
         throws CanceledExecutionException {
         long outerCounter;
@@ -611,7 +926,7 @@ private long createInitialChunks(final ExecutionMonitor exec, final DataTable da
                 }
                 exec.setMessage("Sorting temporary buffer");
                 // sort buffer
-                Collections.sort(buffer, m_rowComparator);
+                sortBuffer(buffer);
                 // write buffer to disk
                 openChunk();
                 final int totalBufferSize = buffer.size();
@@ -638,7 +953,7 @@ private long createInitialChunks(final ExecutionMonitor exec, final DataTable da
         // Add buffer to the chunks
         if (!buffer.isEmpty()) {
             // sort buffer
-            Collections.sort(buffer, m_rowComparator);
+            sortBuffer(buffer);
             m_chunksContainer.add(buffer);
         }
         outerCounter = counter;
@@ -693,26 +1008,26 @@ private String getMemUsage() {
         return "avail: " + availS + "MB, total: " + totalS + "MB, free: " + freeS + "MB";
     }
 
-    private final class MergeEntry implements Comparable<MergeEntry>, Iterator<DataRow> {
+    /**
+     * A sorted run (chunk) that is merged with others, opened lazily.
+     */
+    private final class MergeEntry implements Iterator<DataRow> {
         private DataRow m_row;
 
         private Iterable<DataRow> m_iterable;
 
         private Iterator<DataRow> m_iterator;
 
-        private int m_index;
-
-        private Comparator<DataRow> m_comparator;
+        private final boolean m_clearWhenExhausted;
 
         /**
-         * @param iterator
-         * @param index
-         * @param comparator
+         * @param iterable the chunk
+         * @param clearWhenExhausted whether to clear the chunk's table once all rows are read; false when merging on
+         *            a thread other than the one owning the execution context (the caller clears the tables)
          */
-        MergeEntry(final Iterable<DataRow> iterable, final int index, final Comparator<DataRow> comparator) {
+        MergeEntry(final Iterable<DataRow> iterable, final boolean clearWhenExhausted) {
             m_iterable = iterable;
-            m_index = index;
-            m_comparator = comparator;
+            m_clearWhenExhausted = clearWhenExhausted;
         }
 
         private void open() {
@@ -731,7 +1046,7 @@ private void open() {
         public boolean hasNext() {
             // open the file lazily
             if (m_row == null) {
-                if (m_iterable instanceof DataTable) {
+                if (m_clearWhenExhausted && m_iterable instanceof DataTable) {
                     clearTable((DataTable)m_iterable);
                 }
                 return false;
@@ -760,67 +1075,34 @@ public DataRow next() {
         public void remove() {
             throw new UnsupportedOperationException();
         }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int compareTo(final MergeEntry that) {
-            int value = m_comparator.compare(this.m_row, that.m_row);
-            if (value == 0) {
-                return this.m_index - that.m_index;
-            } else {
-                return value;
-            }
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + m_index;
-            result = prime * result + ((m_row == null) ? 0 : m_row.hashCode());
-            return result;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean equals(final Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            MergeEntry other = (MergeEntry)obj;
-            return (this.compareTo(other) == 0);
-        }
     }
 
     /**
-     * Lazily opens the given MergeEntry's (The runs of this merging step) and returns the rows.
+     * Lazily opens the given MergeEntry's (The runs of this merging step) and returns the rows, merged using a
+     * {@link LoserTree}. Ties are resolved by the order of the entries.
      *
      * @author Marcel Hanser
      */
     private static final class MergingIterator implements Iterator<DataRow> {
-        private Queue<MergeEntry> m_containerToMerge;
+        private final List<MergeEntry> m_containerToMerge;
+
+        private final Comparator<DataRow> m_comparator;
 
-        private boolean m_opened = false;
+        private final NormalizedKeyEncoder m_keyEncoder;
+
+        private Iterator<DataRow> m_mergedRows;
 
         /**
          * @param containerToMerge
+         * @param comparator
+         * @param keyEncoder if not null the rows are merged by their normalized keys, otherwise using the comparator
          */
-        private MergingIterator(final Queue<MergeEntry> containerToMerge) {
+        private MergingIterator(final List<MergeEntry> containerToMerge, final Comparator<DataRow> comparator,
+            final NormalizedKeyEncoder keyEncoder) {
             super();
             m_containerToMerge = containerToMerge;
+            m_comparator = comparator;
+            m_keyEncoder = keyEncoder;
         }
 
         /**
@@ -828,16 +1110,45 @@ private MergingIterator(final Queue<MergeEntry> containerToMerge) {
          */
         @Override
         public boolean hasNext() {
-            if (!m_opened) {
-                Queue<MergeEntry> sortedEntries = new PriorityQueue<>();
+            if (m_mergedRows == null) {
                 for (MergeEntry entry : m_containerToMerge) {
                     entry.open();
-                    sortedEntries.add(entry);
                 }
-                m_containerToMerge = sortedEntries;
-                m_opened = true;
+                m_mergedRows = m_keyEncoder == null ? new LoserTree<>(m_containerToMerge, m_comparator)
+                    : mergeByKeys();
+            }
+            return m_mergedRows.hasNext();
+        }
+
+        /** Computes the key of each row once when it is read, the tree then only compares keys. */
+        private Iterator<DataRow> mergeByKeys() {
+            List<Iterator<KeyedRow>> keyedRuns = new ArrayList<>(m_containerToMerge.size());
+            for (final MergeEntry entry : m_containerToMerge) {
+                keyedRuns.add(new Iterator<KeyedRow>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entry.hasNext();
+                    }
+
+                    @Override
+                    public KeyedRow next() {
+                        DataRow row = entry.next();
+                        return new KeyedRow(m_keyEncoder.encode(row), row);
+                    }
+                });
             }
-            return !m_containerToMerge.isEmpty();
+            final LoserTree<KeyedRow> tree = new LoserTree<>(keyedRuns, NormalizedKeyEncoder.KEY_COMPARATOR);
+            return new Iterator<DataRow>() {
+                @Override
+                public boolean hasNext() {
+                    return tree.hasNext();
+                }
+
+                @Override
+                public DataRow next() {
+                    return tree.next().getRow();
+                }
+            };
         }
 
         /**
@@ -846,12 +1157,7 @@ public boolean hasNext() {
         @Override
         public DataRow next() {
             if (hasNext()) {
-                MergeEntry first = m_containerToMerge.poll();
-                DataRow currentCell = first.next();
-                if (first.hasNext()) {
-                    m_containerToMerge.offer(first);
-                }
-                return currentCell;
+                return m_mergedRows.next();
             } else {
                 throw new NoSuchElementException();
             }
@@ -893,6 +1199,9 @@ private static final class RowComparator implements Comparator<DataRow> {
          */
         private final boolean m_sortMissingsToEnd;
 
+        /** The spec of the table, used to create the {@link NormalizedKeyEncoder}. */
+        private final DataTableSpec m_spec;
+
         /**
          * @param indices Array of sort column indices.
          * @param sortAscending Sort order.
@@ -914,6 +1223,15 @@ private static final class RowComparator implements Comparator<DataRow> {
             }
             m_sortAscending = sortAscending;
             m_sortMissingsToEnd = sortMissingsToEnd;
+            m_spec = spec;
+        }
+
+        /**
+         * @return an encoder for normalized keys in the order of this comparator or null if not supported for the
+         *         sort columns
+         */
+        NormalizedKeyEncoder createKeyEncoder() {
+            return NormalizedKeyEncoder.create(m_indices, m_sortAscending, m_sortMissingsToEnd, m_spec);
         }
 
         /** {@inheritDoc} */
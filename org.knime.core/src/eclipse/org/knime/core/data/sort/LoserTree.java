@@ -0,0 +1,178 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.sort;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Merges a number of sorted runs using a tournament tree of losers. Each inner node of the tree remembers the run
+ * that lost the match played at that node, the overall winner is kept in slot 0. Retrieving an element only replays
+ * the matches on the path from the winner's leaf to the root, i.e. it costs <code>log2(k)</code> comparisons for
+ * <code>k</code> runs (a binary heap needs up to twice as many).
+ *
+ * <p>
+ * The merge is stable: elements that compare equal are returned in the order of the runs in the argument list.
+ *
+ * @param <E> The element type.
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class LoserTree<E> implements Iterator<E> {
+
+    private final Iterator<? extends E>[] m_runs;
+
+    private final Comparator<? super E> m_comparator;
+
+    /** The current head element of each run, only valid if the run is not exhausted. */
+    private final Object[] m_heads;
+
+    private final boolean[] m_isExhausted;
+
+    /** Index 0 holds the winner, indices 1 to k-1 hold the loser of the respective match. */
+    private final int[] m_tree;
+
+    /**
+     * Creates a new tree and pulls the first element from each of the runs.
+     *
+     * @param runs The sorted runs to merge, not null.
+     * @param comparator The comparator the runs are sorted with, not null.
+     */
+    @SuppressWarnings("unchecked")
+    LoserTree(final List<? extends Iterator<? extends E>> runs, final Comparator<? super E> comparator) {
+        if (comparator == null) {
+            throw new NullPointerException("Comparator must not be null.");
+        }
+        final int k = runs.size();
+        m_runs = runs.toArray(new Iterator[k]);
+        m_comparator = comparator;
+        m_heads = new Object[k];
+        m_isExhausted = new boolean[k];
+        m_tree = new int[Math.max(k, 1)];
+        if (k == 0) {
+            return;
+        }
+        for (int i = 0; i < k; i++) {
+            advance(i);
+        }
+        m_tree[0] = initTree(1);
+    }
+
+    /** Plays all matches in the sub-tree rooted at the given node, returns the winner of that sub-tree. */
+    private int initTree(final int node) {
+        final int k = m_runs.length;
+        if (node >= k) {
+            return node - k;
+        }
+        final int left = initTree(2 * node);
+        final int right = initTree(2 * node + 1);
+        if (beats(left, right)) {
+            m_tree[node] = right;
+            return left;
+        }
+        m_tree[node] = left;
+        return right;
+    }
+
+    /** Whether the head of run <code>a</code> is to be returned before the head of run <code>b</code>. */
+    @SuppressWarnings("unchecked")
+    private boolean beats(final int a, final int b) {
+        if (m_isExhausted[a] || m_isExhausted[b]) {
+            return !m_isExhausted[a] || (m_isExhausted[b] && a < b);
+        }
+        final int c = m_comparator.compare((E)m_heads[a], (E)m_heads[b]);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    private void advance(final int run) {
+        final Iterator<? extends E> it = m_runs[run];
+        if (it.hasNext()) {
+            m_heads[run] = it.next();
+        } else {
+            m_heads[run] = null;
+            m_isExhausted[run] = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return m_runs.length > 0 && !m_isExhausted[m_tree[0]];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int winner = m_tree[0];
+        final E result = (E)m_heads[winner];
+        advance(winner);
+        for (int node = (winner + m_runs.length) >> 1; node > 0; node >>= 1) {
+            final int loser = m_tree[node];
+            if (beats(loser, winner)) {
+                m_tree[node] = winner;
+                winner = loser;
+            }
+        }
+        m_tree[0] = winner;
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.data.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.knime.core.data.BooleanValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValueComparator;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.DoubleValueComparator;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.IntValueComparator;
+import org.knime.core.data.LongValue;
+import org.knime.core.data.LongValueComparator;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.StringValueComparator;
+
+/**
+ * Encodes the sort columns of a row into a normalized key, i.e. a byte array whose unsigned lexicographic order is
+ * identical to the order imposed by the sorter's row comparator. Keys are computed once per row, sorting and merging
+ * then only compare bytes instead of calling {@link DataValueComparator}s for each column of each comparison.
+ *
+ * <p>
+ * Each column contributes a marker byte (missing first, present, missing last) followed by the value bytes, which
+ * are inverted for descending columns:
+ * <ul>
+ * <li>int, long: big endian with flipped sign bit</li>
+ * <li>double: the bits of {@link Double#doubleToLongBits(double)}, all bits flipped for negative numbers and only the
+ * sign bit flipped for positive numbers (same order as {@link Double#compare(double, double)})</li>
+ * <li>boolean: one byte</li>
+ * <li>string (and row key): each UTF-16 code unit incremented by one and written in UTF-8 format, followed by a zero
+ * terminator. This preserves the code unit order of {@link String#compareTo(String)}, which is the collation used by
+ * {@link StringValueComparator}.</li>
+ * </ul>
+ *
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NormalizedKeyEncoder {
+
+    /** Compares keyed rows by their key (unsigned lexicographic order). */
+    static final Comparator<KeyedRow> KEY_COMPARATOR = (r1, r2) -> compareKeys(r1.getKey(), r2.getKey());
+
+    private static final int TYPE_ROWKEY = 0;
+
+    private static final int TYPE_STRING = 1;
+
+    private static final int TYPE_DOUBLE = 2;
+
+    private static final int TYPE_INT = 3;
+
+    private static final int TYPE_LONG = 4;
+
+    private static final int TYPE_BOOLEAN = 5;
+
+    private static final byte MISSING_FIRST = 0x00;
+
+    private static final byte PRESENT = 0x01;
+
+    private static final byte MISSING_LAST = 0x02;
+
+    private final int[] m_indices;
+
+    private final int[] m_types;
+
+    private final boolean[] m_sortAscending;
+
+    private final boolean m_sortMissingsToEnd;
+
+    private NormalizedKeyEncoder(final int[] indices, final int[] types, final boolean[] sortAscending,
+        final boolean sortMissingsToEnd) {
+        m_indices = indices;
+        m_types = types;
+        m_sortAscending = sortAscending;
+        m_sortMissingsToEnd = sortMissingsToEnd;
+    }
+
+    /**
+     * Creates an encoder for the given sort settings, if all sort columns are supported.
+     *
+     * @param indices The sort column indices, -1 for the row key.
+     * @param sortAscending The sort order of each column.
+     * @param sortMissingsToEnd Whether missing values are sorted to the end irrespective of the sort order.
+     * @param spec The spec of the table to sort.
+     * @return a new encoder or <code>null</code> if any of the sort columns has a type whose comparator can't be
+     *         represented by a normalized key.
+     */
+    static NormalizedKeyEncoder create(final int[] indices, final boolean[] sortAscending,
+        final boolean sortMissingsToEnd, final DataTableSpec spec) {
+        int[] types = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] == -1) {
+                types[i] = TYPE_ROWKEY;
+                continue;
+            }
+            DataType type = spec.getColumnSpec(indices[i]).getType();
+            Class<? extends DataValueComparator> comparatorClass = type.getComparator().getClass();
+            if (comparatorClass == StringValueComparator.class) {
+                types[i] = TYPE_STRING;
+            } else if (comparatorClass == DoubleValueComparator.class) {
+                types[i] = TYPE_DOUBLE;
+            } else if (comparatorClass == IntValueComparator.class) {
+                types[i] = TYPE_INT;
+            } else if (comparatorClass == LongValueComparator.class) {
+                types[i] = TYPE_LONG;
+            } else if (type.getPreferredValueClass() == BooleanValue.class) {
+                types[i] = TYPE_BOOLEAN;
+            } else {
+                return null;
+            }
+        }
+        return new NormalizedKeyEncoder(indices.clone(), types, sortAscending.clone(), sortMissingsToEnd);
+    }
+
+    /**
+     * Computes the key of the argument row.
+     *
+     * @param row The row, not null.
+     * @return The normalized key.
+     */
+    byte[] encode(final DataRow row) {
+        KeyBuilder key = new KeyBuilder();
+        for (int i = 0; i < m_indices.length; i++) {
+            final boolean isDescending = !m_sortAscending[i];
+            final int start = key.m_length;
+            if (m_types[i] == TYPE_ROWKEY) {
+                key.add(PRESENT);
+                key.addString(row.getKey().getString());
+            } else {
+                final DataCell cell = row.getCell(m_indices[i]);
+                if (cell.isMissing()) {
+                    // the row comparator flips the "missing is smallest" order for descending columns
+                    key.add(m_sortMissingsToEnd || isDescending ? MISSING_LAST : MISSING_FIRST);
+                    continue;
+                }
+                key.add(PRESENT);
+                switch (m_types[i]) {
+                    case TYPE_STRING:
+                        key.addString(((StringValue)cell).getStringValue());
+                        break;
+                    case TYPE_DOUBLE:
+                        long bits = Double.doubleToLongBits(((DoubleValue)cell).getDoubleValue());
+                        key.addLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+                        break;
+                    case TYPE_INT:
+                        key.addInt(((IntValue)cell).getIntValue() ^ Integer.MIN_VALUE);
+                        break;
+                    case TYPE_LONG:
+                        key.addLong(((LongValue)cell).getLongValue() ^ Long.MIN_VALUE);
+                        break;
+                    default:
+                        key.add((byte)(((BooleanValue)cell).getBooleanValue() ? 1 : 0));
+                        break;
+                }
+            }
+            if (isDescending) {
+                // invert the value bytes, the marker byte stays as is
+                key.invert(start + 1);
+            }
+        }
+        return key.toByteArray();
+    }
+
+    /**
+     * Compares two keys, treating bytes as unsigned. A key that is a prefix of the other is smaller.
+     *
+     * @param k1 first key
+     * @param k2 second key
+     * @return negative, zero or positive value as per {@link Comparator#compare(Object, Object)}
+     */
+    static int compareKeys(final byte[] k1, final byte[] k2) {
+        final int length = Math.min(k1.length, k2.length);
+        for (int i = 0; i < length; i++) {
+            if (k1[i] != k2[i]) {
+                return (k1[i] & 0xFF) - (k2[i] & 0xFF);
+            }
+        }
+        return k1.length - k2.length;
+    }
+
+    /** A row along with its normalized key. */
+    static final class KeyedRow {
+
+        private final byte[] m_key;
+
+        private final DataRow m_row;
+
+        /**
+         * @param key the key
+         * @param row the row
+         */
+        KeyedRow(final byte[] key, final DataRow row) {
+            m_key = key;
+            m_row = row;
+        }
+
+        /** @return the key */
+        byte[] getKey() {
+            return m_key;
+        }
+
+        /** @return the row */
+        DataRow getRow() {
+            return m_row;
+        }
+    }
+
+    /** Growable byte array used while encoding a single row. */
+    private static final class KeyBuilder {
+
+        private byte[] m_bytes = new byte[32];
+
+        private int m_length;
+
+        private void ensureCapacity(final int additional) {
+            if (m_length + additional > m_bytes.length) {
+                m_bytes = Arrays.copyOf(m_bytes, Math.max(m_bytes.length * 2, m_length + additional));
+            }
+        }
+
+        void add(final byte b) {
+            ensureCapacity(1);
+            m_bytes[m_length++] = b;
+        }
+
+        void addInt(final int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                m_bytes[m_length++] = (byte)(value >>> shift);
+            }
+        }
+
+        void addLong(final long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                m_bytes[m_length++] = (byte)(value >>> shift);
+            }
+        }
+
+        void addString(final String value) {
+            final int length = value.length();
+            // at most 3 bytes per char plus the terminator, each 0xFFFF needs one more byte (reserved when hit)
+            ensureCapacity(length * 3 + 1);
+            for (int i = 0; i < length; i++) {
+                // shift by one so that the terminator is smaller than any character, 0xFFFF takes 4 bytes then
+                final int c = value.charAt(i) + 1;
+                if (c < 0x80) {
+                    m_bytes[m_length++] = (byte)c;
+                } else if (c < 0x800) {
+                    m_bytes[m_length++] = (byte)(0xC0 | (c >>> 6));
+                    m_bytes[m_length++] = (byte)(0x80 | (c & 0x3F));
+                } else if (c < 0x10000) {
+                    m_bytes[m_length++] = (byte)(0xE0 | (c >>> 12));
+                    m_bytes[m_length++] = (byte)(0x80 | ((c >>> 6) & 0x3F));
+                    m_bytes[m_length++] = (byte)(0x80 | (c & 0x3F));
+                } else {
+                    ensureCapacity((length - i) * 3 + 2);
+                    m_bytes[m_length++] = (byte)0xF0;
+                    m_bytes[m_length++] = (byte)0x90;
+                    m_bytes[m_length++] = (byte)0x80;
+                    m_bytes[m_length++] = (byte)0x80;
+                }
+            }
+            add((byte)0);
+        }
+
+        void invert(final int from) {
+            for (int i = from; i < m_length; i++) {
+                m_bytes[i] = (byte)~m_bytes[i];
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(m_bytes, m_length);
+        }
+    }
+}
@@ -119,12 +119,12 @@ public final class KNIMEConstants {
     public static final String PROPERTY_SYNCHRONOUS_IO = "knime.synchronous.io";
 
     /** Java property to customize the write cache for asynchronous
-     * table writing. It specifies the size of a temporary buffer for data rows
-     * that is used during table creating. Once this buffer is full (or there
-     * are no more rows to write), this buffer is handed over to the writing
-     * routines to write the data output stream. The larger the buffer, the
-     * smaller the synchronization overhead but the larger the memory
-     * requirements.
+     * table writing. It specifies the minimum length of the queue of data rows
+     * that is used during table creating. Rows are added to the queue and
+     * written by the writing routines concurrently; the queue length is
+     * derived from the number of columns but is at least this value. The
+     * larger the queue, the fewer stalls of the producing thread but the
+     * larger the memory requirements.
      * <p>
      * The default value is {@value
      * org.knime.core.data.container.DataContainer#DEF_ASYNC_CACHE_SIZE}. This
@@ -133,6 +133,15 @@ public final class KNIMEConstants {
     public static final String PROPERTY_ASYNC_WRITE_CACHE_SIZE =
         "knime.async.io.cachesize";
 
+    /** Java property to set the number of threads used to write KNIME tables asynchronously. The threads are shared
+     * by all tables, which are written asynchronously. The default is the number of available processors (limited
+     * to 10 on 32bit and 50 on 64bit systems). This property has no effect if tables are written synchronously
+     * (see {@link #PROPERTY_SYNCHRONOUS_IO}).
+     * @see org.knime.core.data.container.TableWriteScheduler
+     * @since 3.7 */
+    public static final String PROPERTY_ASYNC_WRITE_THREADS =
+        "knime.async.io.writethreads";
+
     /** The number of nominal values kept in the domain when adding rows to a table. This is only the default and
      * may be overruled by individual node implementations. If not specified the default is {@value
      * org.knime.core.data.container.DataContainer#DEF_MAX_POSSIBLE_VALUES}.
@@ -148,6 +157,20 @@ public final class KNIMEConstants {
      */
     public static final String PROPERTY_CELLS_IN_MEMORY = "org.knime.container.cellsinmemory";
 
+    /** Java property name to set the size of the cache for tables held in main memory in percent of the maximum
+     * heap size. Tables that do not fit are written to disk, least recently iterated tables first. The default is
+     * {@value org.knime.core.data.container.DataContainer#DEF_TABLE_CACHE_SIZE_PERCENT}.
+     * @since 3.7
+     */
+    public static final String PROPERTY_TABLE_CACHE_SIZE = "org.knime.container.cachesize";
+
+    /** Java property to disable the compact in-memory representation of tables. By default, rows held in memory are
+     * stored column-wise with primitive arrays for int, long and double columns and dictionary encoded string
+     * columns. Setting this property to true keeps the rows as lists of cells.
+     * @since 3.7
+     */
+    public static final String PROPERTY_DISABLE_COMPACT_ROWS = "org.knime.container.disablecompactrows";
+
     /** Java property name to specify the minimum free disc space in MB that needs to be available. If less is
      * available, no further table files &amp; blobs will be created (resulting in an exception). Default is
      * {@value org.knime.core.data.container.DataContainer#DEF_MIN_FREE_DISC_SPACE_IN_TEMP_IN_MB} MB.
@@ -165,6 +188,14 @@ public final class KNIMEConstants {
     public static final String PROPERTY_TABLE_GZIP_COMPRESSION =
         "knime.compress.io";
 
+    /** Java property to select the compression codec used for table streams by name, e.g. "LZ4", "Gzip" or "None".
+     * If set it takes precedence over {@link #PROPERTY_TABLE_GZIP_COMPRESSION}. The codec name is stored along with
+     * each table so that tables written with a different codec can still be read.
+     * @see org.knime.core.data.container.storage.TableStoreCompressionCodecRegistry
+     * @since 3.7 */
+    public static final String PROPERTY_TABLE_COMPRESSION_CODEC =
+        "knime.compress.io.codec";
+
     /** Java property to enable/disable row ID duplicate checks on tables.
      * Tables in KNIME are supposed to have unique IDs, whereby the uniqueness
      * is asserted using a duplicate checker. This property will disable this
@@ -68,6 +68,7 @@
 import org.knime.core.node.config.ConfigWO;
 import org.knime.core.node.port.database.connection.CachedConnectionFactory;
 import org.knime.core.node.port.database.connection.CachedConnectionFactory.ConnectionKey;
+import org.knime.core.node.port.database.connection.DBConnectionFactory;
 import org.knime.core.node.util.CheckUtils;
 import org.knime.core.node.util.StringHistory;
 import org.knime.core.node.workflow.CredentialsProvider;
@@ -111,6 +112,22 @@ public class DatabaseConnectionSettings {
     /** Config for SQL statement. */
     public static final String CFG_STATEMENT = "statement";
 
+    /** Default minimum number of pooled connections per database and user.
+     * @since 3.7*/
+    public static final int DEFAULT_POOL_MIN_SIZE = 1;
+
+    /** Default maximum number of pooled connections per database and user.
+     * @since 3.7*/
+    public static final int DEFAULT_POOL_MAX_SIZE = 1;
+
+    /** Default time in seconds after which idle pooled connections are closed.
+     * @since 3.7*/
+    public static final int DEFAULT_POOL_IDLE_TIMEOUT = 600;
+
+    /** Default time in seconds to wait for a free pooled connection, 0 waits indefinitely.
+     * @since 3.7*/
+    public static final int DEFAULT_POOL_WAIT_TIMEOUT = 0;
+
     /** Keeps the history of all loaded driver and its order. */
     public static final StringHistory DRIVER_ORDER = StringHistory.getInstance(
             "database_drivers");
@@ -283,6 +300,17 @@ private static int initBatchWriteSize() {
     //Introduced in KNIME 3.4 to know with which version the settings object has been created
     private Version m_knimeVersion = CURRENT_VERSION;
 
+    // connection pool settings, the defaults keep a single connection per database and user open
+    private int m_poolMinSize = DEFAULT_POOL_MIN_SIZE;
+
+    private int m_poolMaxSize = DEFAULT_POOL_MAX_SIZE;
+
+    private int m_poolIdleTimeout = DEFAULT_POOL_IDLE_TIMEOUT;
+
+    private int m_poolWaitTimeout = DEFAULT_POOL_WAIT_TIMEOUT;
+
+    private boolean m_poolValidateOnBorrow = true;
+
     /**
      * Create a default settings connection object.
      */
@@ -386,6 +414,11 @@ public DatabaseConnectionSettings(final DatabaseConnectionSettings conn) {
         m_dbIdentifier = conn.getDatabaseIdentifier();
         m_kerberos = conn.useKerberos();
         m_knimeVersion = conn.m_knimeVersion;
+        m_poolMinSize = conn.m_poolMinSize;
+        m_poolMaxSize = conn.m_poolMaxSize;
+        m_poolIdleTimeout = conn.m_poolIdleTimeout;
+        m_poolWaitTimeout = conn.m_poolWaitTimeout;
+        m_poolValidateOnBorrow = conn.m_poolValidateOnBorrow;
     }
 
 //    /** Map the keeps database connection based on the user and URL. */
@@ -488,19 +521,6 @@ public final Object syncConnection(final Connection conn) {
         }
     }
 
-    /**
-     * Used to sync access to all databases depending if <code>SQL_CONCURRENCY</code> is true.
-     * @param key connection used to sync access to all databases
-     * @return sync object which is either the given connection or an new object (no sync necessary)
-     */
-    private Object syncKey(final ConnectionKey key) {
-        if (SQL_CONCURRENCY && key != null) {
-            return key;
-        } else {
-            return new Object();
-        }
-    }
-
     /**
      * Save settings.
      * @param settings connection settings
@@ -531,6 +551,11 @@ public void saveConnection(final ConfigWO settings) {
         settings.addString("databaseIdentifier", m_dbIdentifier);
         settings.addBoolean("kerberos", m_kerberos);
         settings.addString("knimeVersion", m_knimeVersion.toString());
+        settings.addInt("poolMinSize", m_poolMinSize);
+        settings.addInt("poolMaxSize", m_poolMaxSize);
+        settings.addInt("poolIdleTimeout", m_poolIdleTimeout);
+        settings.addInt("poolWaitTimeout", m_poolWaitTimeout);
+        settings.addBoolean("poolValidateOnBorrow", m_poolValidateOnBorrow);
     }
 
     /**
@@ -617,6 +642,19 @@ private boolean loadConnection(final ConfigRO settings,
             }
         }
         final String dbIdentifier = settings.getString("databaseIdentifier", null);
+        // added in 3.7
+        final int poolMinSize = settings.getInt("poolMinSize", DEFAULT_POOL_MIN_SIZE);
+        final int poolMaxSize = settings.getInt("poolMaxSize", DEFAULT_POOL_MAX_SIZE);
+        final int poolIdleTimeout = settings.getInt("poolIdleTimeout", DEFAULT_POOL_IDLE_TIMEOUT);
+        final int poolWaitTimeout = settings.getInt("poolWaitTimeout", DEFAULT_POOL_WAIT_TIMEOUT);
+        final boolean poolValidateOnBorrow = settings.getBoolean("poolValidateOnBorrow", true);
+        if (poolMaxSize < 1) {
+            throw new InvalidSettingsException("Maximum connection pool size must be at least 1: " + poolMaxSize);
+        }
+        if (poolMinSize < 0 || poolMinSize > poolMaxSize) {
+            throw new InvalidSettingsException("Minimum connection pool size must be between 0 and the maximum pool"
+                + " size " + poolMaxSize + ": " + poolMinSize);
+        }
         // write settings or skip it
         if (write) {
             m_driver = driver;
@@ -644,6 +682,11 @@ private boolean loadConnection(final ConfigRO settings,
             m_dbIdentifier = dbIdentifier;
             m_kerberos = kerberos;
             m_knimeVersion = knimeVersion;
+            m_poolMinSize = poolMinSize;
+            m_poolMaxSize = poolMaxSize;
+            m_poolIdleTimeout = poolIdleTimeout;
+            m_poolWaitTimeout = poolWaitTimeout;
+            m_poolValidateOnBorrow = poolValidateOnBorrow;
             DATABASE_URLS.add(m_jdbcUrl);
             return changed;
         }
@@ -662,24 +705,36 @@ private boolean loadConnection(final ConfigRO settings,
      */
     public <T> T execute(final CredentialsProvider cp, final ExecuteStatement<T> stmt) throws SQLException {
         try {
+            if (SQL_CONCURRENCY) {
+                // borrow a connection from the pool which validates it and makes sure that no other thread uses it
+                CheckUtils.checkSettingNotNull(m_driver, "No settings available to create database connection.");
+                CheckUtils.checkSettingNotNull(m_jdbcUrl, "No JDBC URL set.");
+                final DBConnectionFactory factory = getUtility().getConnectionFactory();
+                final Connection conn = factory.borrowConnection(cp, this);
+                try {
+                    synchronized (syncConnection(conn)) {
+                        return stmt.apply(conn);
+                    }
+                } finally {
+                    factory.releaseConnection(cp, this, conn);
+                }
+            }
             for (int i = 1; i <= MAX_CONNECTION_TRIES; i++) {
                 final Connection conn = createConnection(cp);
                 final ConnectionKey databaseConnKey = CachedConnectionFactory.getConnectionKey(cp, this);
-                synchronized (syncKey(databaseConnKey)) {
-                    try {
-                        if (conn.isClosed() || !getUtility().isValid(conn)) {
-                            LOGGER.debug("Invalid or closed connection found. Retry counter: " + i +
-                                ". Retry to get valid connection for key: " + databaseConnKey);
-                            continue;
-                        }
-                    } catch (Exception ex) {
-                        LOGGER.debug("Exception: " + ex.getMessage() + " during validation of connection with key: "
-                            + databaseConnKey, ex);
-                        //continue if an exception is thrown during connection validation
+                try {
+                    if (conn.isClosed() || !getUtility().isValid(conn)) {
+                        LOGGER.debug("Invalid or closed connection found. Retry counter: " + i +
+                            ". Retry to get valid connection for key: " + databaseConnKey);
                         continue;
                     }
-                    return stmt.apply(conn);
+                } catch (Exception ex) {
+                    LOGGER.debug("Exception: " + ex.getMessage() + " during validation of connection with key: "
+                        + databaseConnKey, ex);
+                    //continue if an exception is thrown during connection validation
+                    continue;
                 }
+                return stmt.apply(conn);
             }
         } catch (Exception ex) {
             if (ex instanceof SQLException) {
@@ -1075,6 +1130,93 @@ public void setRowIdsStartWithZero(final boolean b) {
     }
 
 
+    /**
+     * Returns the number of pooled connections that are kept open even if they are idle. The default is
+     * {@value #DEFAULT_POOL_MIN_SIZE}.
+     *
+     * @return the minimum connection pool size
+     * @since 3.7
+     */
+    public int getPoolMinSize() {
+        return m_poolMinSize;
+    }
+
+    /**
+     * @param minSize the number of pooled connections that are kept open even if they are idle
+     * @since 3.7
+     */
+    public void setPoolMinSize(final int minSize) {
+        m_poolMinSize = minSize;
+    }
+
+    /**
+     * Returns the maximum number of connections that are used in parallel for the same database and user. The
+     * default is {@value #DEFAULT_POOL_MAX_SIZE} in which case all statements are executed one after the other on
+     * the same connection.
+     *
+     * @return the maximum connection pool size
+     * @since 3.7
+     */
+    public int getPoolMaxSize() {
+        return m_poolMaxSize;
+    }
+
+    /**
+     * @param maxSize the maximum number of connections that are used in parallel for the same database and user
+     * @since 3.7
+     */
+    public void setPoolMaxSize(final int maxSize) {
+        m_poolMaxSize = maxSize;
+    }
+
+    /**
+     * @return the time in seconds after which idle pooled connections are closed, 0 keeps them open
+     * @since 3.7
+     */
+    public int getPoolIdleTimeout() {
+        return m_poolIdleTimeout;
+    }
+
+    /**
+     * @param seconds the time after which idle pooled connections are closed, 0 keeps them open
+     * @since 3.7
+     */
+    public void setPoolIdleTimeout(final int seconds) {
+        m_poolIdleTimeout = seconds;
+    }
+
+    /**
+     * @return the time in seconds to wait for a free pooled connection, 0 waits indefinitely
+     * @since 3.7
+     */
+    public int getPoolWaitTimeout() {
+        return m_poolWaitTimeout;
+    }
+
+    /**
+     * @param seconds the time to wait for a free pooled connection, 0 waits indefinitely
+     * @since 3.7
+     */
+    public void setPoolWaitTimeout(final int seconds) {
+        m_poolWaitTimeout = seconds;
+    }
+
+    /**
+     * @return <code>true</code> if idle pooled connections are validated before they are used
+     * @since 3.7
+     */
+    public boolean getPoolValidateOnBorrow() {
+        return m_poolValidateOnBorrow;
+    }
+
+    /**
+     * @param validate <code>true</code> if idle pooled connections should be validated before they are used
+     * @since 3.7
+     */
+    public void setPoolValidateOnBorrow(final boolean validate) {
+        m_poolValidateOnBorrow = validate;
+    }
+
     /**
      * Returns a utility implementation for the current database.
      *
@@ -141,6 +141,21 @@ public String limitRows(final String sql, final long count) {
         return "SELECT * FROM (" + sql + ") " + getTempTableName() + " LIMIT " + count;
     }
 
+    /**
+     * Modifies the incoming SQL query so that only the rows from the given offset on are returned and their number
+     * is limited. The default implementation uses the LIMIT and OFFSET clauses. Note that the query has to define a
+     * deterministic order if consecutive windows are requested.
+     *
+     * @param sql any valid SQL query
+     * @param count the maximum number of rows
+     * @param offset the number of rows to skip
+     * @return an SQL query
+     * @since 3.7
+     */
+    public String limitRows(final String sql, final long count, final long offset) {
+        return "SELECT * FROM (" + sql + ") " + getTempTableName() + " LIMIT " + count + " OFFSET " + offset;
+    }
+
     /**
      * @param sql A valid SQL query
      * @param count The number of rows to take randomly
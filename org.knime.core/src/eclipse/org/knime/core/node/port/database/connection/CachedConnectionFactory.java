@@ -52,12 +52,13 @@
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.SQLException;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -81,11 +82,8 @@
 public class CachedConnectionFactory implements DBConnectionFactory {
 
     private static final NodeLogger LOGGER = NodeLogger.getLogger(RegisteredDriversConnectionFactory.class);
-    /** Map the keeps database connection based on the user and URL. */
-    private static final Map<ConnectionKey, Connection> CONNECTION_MAP = Collections.synchronizedMap(new HashMap<ConnectionKey, Connection>());
-    /** Holding the database connection keys used to sync the open connection
-     * process. */
-    private static final Map<ConnectionKey, ConnectionKey> CONNECTION_KEYS = new HashMap<ConnectionKey, ConnectionKey>();
+    /** Map that keeps the connection pools based on the user and URL. */
+    private static final Map<ConnectionKey, DBConnectionPool> POOLS = new ConcurrentHashMap<>();
     private static final ExecutorService CONNECTION_CREATOR_EXECUTOR = ThreadUtils.executorServiceWithContext(Executors.newCachedThreadPool());
     private DBDriverFactory m_driverFactory;
 
@@ -172,73 +170,106 @@ public DBDriverFactory getDriverFactory() {
      */
     @Override
     public Connection getConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings) throws InvalidSettingsException, SQLException, IOException {
-        final String jdbcUrl = settings.getJDBCUrl();
-        final String user = settings.getUserName(cp);
-        final String pass = settings.getPassword(cp);
-        final boolean kerberos = settings.useKerberos();
+        final DBConnectionPool pool = getPool(cp, settings);
+        return pool.getShared(() -> openConnection(cp, settings),
+            conn -> isOpenAndValid(settings, conn, pool.getKey()));
+    }
 
-        ConnectionKey databaseConnKey = createConnectionKey(cp, settings);
+    /**
+     * {@inheritDoc} The connection is taken from the pool of the connection key which is (re-)configured with the
+     * pool settings of the given {@link DatabaseConnectionSettings}.
+     */
+    @Override
+    public Connection borrowConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+        throws InvalidSettingsException, SQLException, IOException {
+        final DBConnectionPool pool = getPool(cp, settings);
+        return pool.borrow(() -> openConnection(cp, settings), conn -> isOpenAndValid(settings, conn, pool.getKey()));
+    }
 
-        // retrieve original key and/or modify connection key map
-        Connection conn = null;
-        synchronized (CONNECTION_KEYS) {
-            if (CONNECTION_KEYS.containsKey(databaseConnKey)) {
-                databaseConnKey = CONNECTION_KEYS.get(databaseConnKey);
-            } else {
-                CONNECTION_KEYS.put(databaseConnKey, databaseConnKey);
-            }
-            conn = CONNECTION_MAP.get(databaseConnKey);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings,
+        final Connection conn) {
+        final DBConnectionPool pool = POOLS.get(createConnectionKey(cp, settings));
+        if (pool != null) {
+            pool.release(conn);
+        } else {
+            LOGGER.debug("No connection pool found for released connection, closing it");
+            closeSafely(createConnectionKey(cp, settings), conn);
+        }
+    }
 
-            if (conn != null) {
-                synchronized (databaseConnKey) {
-                    if (isOpenAndValid(settings, conn, databaseConnKey)) {
-                        return conn;
-                    }
-                    //close invalid connection if it is not already closed
-                    closeSafely(databaseConnKey, conn);
-                    //remove the connection from the cache also if an exception occurs during closing
-                    LOGGER.debug("Removing closed connection from cache with key: " + databaseConnKey);
-                    CONNECTION_MAP.remove(databaseConnKey);
-                }
-            }
+    private static DBConnectionPool getPool(final CredentialsProvider cp, final DatabaseConnectionSettings settings) {
+        final DBConnectionPool pool = POOLS.computeIfAbsent(createConnectionKey(cp, settings), DBConnectionPool::new);
+        pool.configure(settings.getPoolMinSize(), settings.getPoolMaxSize(), settings.getPoolIdleTimeout(),
+            settings.getPoolWaitTimeout(), TimeUnit.SECONDS, settings.getPoolValidateOnBorrow());
+        return pool;
+    }
 
-            final Driver d;
-            try {
-                d = getDriverFactory().getDriver(settings);
-            } catch (Exception ex1) {
-                throw new InvalidSettingsException(ex1);
-            }
-            if (!d.acceptsURL(jdbcUrl)) {
-                throw new InvalidSettingsException("Driver \"" + d + "\" does not accept URL: " + jdbcUrl);
+    /**
+     * @return the statistics of all connection pools
+     * @since 3.7
+     */
+    public static List<DBConnectionPoolStatistics> getPoolStatistics() {
+        final List<DBConnectionPoolStatistics> stats = new ArrayList<>(POOLS.size());
+        for (final DBConnectionPool pool : POOLS.values()) {
+            stats.add(pool.getStatistics());
+        }
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Connection createDedicatedConnection(final CredentialsProvider cp,
+        final DatabaseConnectionSettings settings) throws InvalidSettingsException, SQLException, IOException {
+        return openConnection(cp, settings);
+    }
+
+    /** Opens a new connection without looking at or updating the cache. */
+    private Connection openConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+        throws InvalidSettingsException, SQLException, IOException {
+        final String jdbcUrl = settings.getJDBCUrl();
+        final String user = settings.getUserName(cp);
+        final String pass = settings.getPassword(cp);
+        final boolean kerberos = settings.useKerberos();
+        final Driver d;
+        try {
+            d = getDriverFactory().getDriver(settings);
+        } catch (Exception ex1) {
+            throw new InvalidSettingsException(ex1);
+        }
+        if (!d.acceptsURL(jdbcUrl)) {
+            throw new InvalidSettingsException("Driver \"" + d + "\" does not accept URL: " + jdbcUrl);
+        }
+        // if a connection is not available
+        Callable<Connection> callable = new Callable<Connection>() {
+            /** {@inheritDoc} */
+            @Override
+            public Connection call() throws Exception {
+                LOGGER.debug("Opening database connection to \"" + jdbcUrl + "\"...");
+                return createConnection(settings, jdbcUrl, user, pass, kerberos, d);
             }
-            // if a connection is not available
-            Callable<Connection> callable = new Callable<Connection>() {
-                /** {@inheritDoc} */
-                @Override
-                public Connection call() throws Exception {
-                    LOGGER.debug("Opening database connection to \"" + jdbcUrl + "\"...");
-                    return createConnection(settings, jdbcUrl, user, pass, kerberos, d);
-                }
-            };
-            //TODO:this has to be more robust e.g. the thread should terminate when KNIME terminates and should be
-            //cancelable if the user presses cancel. If no credentials are present for Phoenix the thread keeps KNIME
-            //alive for ages
-            Future<Connection> task = CONNECTION_CREATOR_EXECUTOR.submit(callable);
-            try {
-                conn = task.get(DatabaseConnectionSettings.getDatabaseTimeout() + 1, TimeUnit.SECONDS);
-                CONNECTION_MAP.put(databaseConnKey, conn);
-                return conn;
-            } catch (ExecutionException ee) {
-                if (ee.getCause() instanceof SQLException) {
-                    throw (SQLException) ee.getCause();
-                } else {
-                    throw new SQLException(ee.getCause());
-                }
-            } catch (InterruptedException ex) {
-                throw new SQLException("Thread was interrupted while waiting for database to respond");
-            } catch (TimeoutException ex) {
-                throw new IOException("Connection to database '" + jdbcUrl + "' timed out");
+        };
+        //TODO:this has to be more robust e.g. the thread should terminate when KNIME terminates and should be
+        //cancelable if the user presses cancel. If no credentials are present for Phoenix the thread keeps KNIME
+        //alive for ages
+        Future<Connection> task = CONNECTION_CREATOR_EXECUTOR.submit(callable);
+        try {
+            return task.get(DatabaseConnectionSettings.getDatabaseTimeout() + 1, TimeUnit.SECONDS);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof SQLException) {
+                throw (SQLException) ee.getCause();
+            } else {
+                throw new SQLException(ee.getCause());
             }
+        } catch (InterruptedException ex) {
+            throw new SQLException("Thread was interrupted while waiting for database to respond");
+        } catch (TimeoutException ex) {
+            throw new IOException("Connection to database '" + jdbcUrl + "' timed out");
         }
     }
 
@@ -259,10 +290,8 @@ private static ConnectionKey createConnectionKey(final CredentialsProvider cp, f
      */
     public static ConnectionKey getConnectionKey(final CredentialsProvider cp,
         final DatabaseConnectionSettings settings) {
-        ConnectionKey key = createConnectionKey(cp, settings);
-        synchronized (CONNECTION_KEYS) {
-            return CONNECTION_KEYS.get(key);
-        }
+        final DBConnectionPool pool = POOLS.get(createConnectionKey(cp, settings));
+        return pool == null ? null : pool.getKey();
     }
 
     private boolean isOpenAndValid(final DatabaseConnectionSettings settings, final Connection conn,
@@ -51,6 +51,7 @@
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
@@ -79,4 +80,56 @@ Connection getConnection(final CredentialsProvider cp,
      */
     DBDriverFactory getDriverFactory();
 
+    /**
+     * Opens a new connection that is not shared with any other caller, e.g. to run several queries in parallel.
+     *
+     * @param cp {@link CredentialsProvider}
+     * @param settings {@link DatabaseConnectionSettings}
+     * @return a new {@link Connection} which needs to be closed after usage by calling {@link Connection#close()}
+     * @throws InvalidSettingsException
+     * @throws SQLException if the connection could not be opened or the factory does not support dedicated
+     *             connections ({@link SQLFeatureNotSupportedException})
+     * @throws IOException
+     * @since 3.7
+     */
+    default Connection createDedicatedConnection(final CredentialsProvider cp,
+        final DatabaseConnectionSettings settings) throws InvalidSettingsException, SQLException, IOException {
+        throw new SQLFeatureNotSupportedException(
+            "Dedicated connections are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Borrows a connection for exclusive use by the calling thread. Each borrowed connection must be handed back by
+     * calling {@link #releaseConnection(CredentialsProvider, DatabaseConnectionSettings, Connection)} and must not be
+     * closed by the caller. The default implementation returns the shared connection of
+     * {@link #getConnection(CredentialsProvider, DatabaseConnectionSettings)}.
+     *
+     * @param cp {@link CredentialsProvider}
+     * @param settings {@link DatabaseConnectionSettings}
+     * @return the borrowed {@link Connection}
+     * @throws InvalidSettingsException
+     * @throws SQLException if the connection could not be opened or no connection became available in time
+     * @throws IOException
+     * @since 3.7
+     */
+    default Connection borrowConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+        throws InvalidSettingsException, SQLException, IOException {
+        return getConnection(cp, settings);
+    }
+
+    /**
+     * Hands back a connection obtained from
+     * {@link #borrowConnection(CredentialsProvider, DatabaseConnectionSettings)}. The default implementation does
+     * nothing.
+     *
+     * @param cp {@link CredentialsProvider}
+     * @param settings the {@link DatabaseConnectionSettings} the connection was borrowed with
+     * @param conn the borrowed {@link Connection}
+     * @since 3.7
+     */
+    default void releaseConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings,
+        final Connection conn) {
+        // nothing to do for the shared connection
+    }
+
 }
@@ -0,0 +1,579 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.connection;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.port.database.connection.CachedConnectionFactory.ConnectionKey;
+
+/**
+ * Bounded pool of database connections that share the same {@link ConnectionKey}. A borrowed connection is used
+ * exclusively by the borrowing thread until it is released. If a thread borrows again while it still holds a
+ * connection it gets the same connection back, so nested statements run within the same session. Idle connections are
+ * optionally validated before they are handed out and are closed once they have been idle for longer than the idle
+ * timeout, unless the pool would shrink below its minimum size.
+ * <p>
+ * Callers that do not borrow connections use the shared connection of the pool, see
+ * {@link #getShared(ConnectionOpener, Predicate)}. The shared connection is one of the pooled connections, so with the
+ * default pool size of one all callers work in the same session.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class DBConnectionPool {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DBConnectionPool.class);
+
+    /** Opens a new physical connection for the pool. */
+    @FunctionalInterface
+    interface ConnectionOpener {
+        /**
+         * @return a new connection, never <code>null</code>
+         * @throws InvalidSettingsException if the settings are invalid
+         * @throws SQLException if the connection could not be opened
+         * @throws IOException if opening the connection timed out
+         */
+        Connection open() throws InvalidSettingsException, SQLException, IOException;
+    }
+
+    private static final class IdleConnection {
+        private final Connection m_conn;
+
+        private final long m_idleSince;
+
+        private IdleConnection(final Connection conn, final long idleSince) {
+            m_conn = conn;
+            m_idleSince = idleSince;
+        }
+    }
+
+    private static final class Lease {
+        private final Connection m_conn;
+
+        private final Thread m_owner;
+
+        private int m_holds = 1;
+
+        private Lease(final Connection conn, final Thread owner) {
+            m_conn = conn;
+            m_owner = owner;
+        }
+    }
+
+    private final ConnectionKey m_key;
+
+    private final ReentrantLock m_lock = new ReentrantLock();
+
+    private final Condition m_released = m_lock.newCondition();
+
+    /** Idle connections, most recently released first. */
+    private final Deque<IdleConnection> m_idle = new ArrayDeque<>();
+
+    private final Map<Thread, Lease> m_leasesByThread = new HashMap<>();
+
+    private final Map<Connection, Lease> m_leasesByConnection = new IdentityHashMap<>();
+
+    /** Number of physical connections including the ones that are currently opened or validated. */
+    private int m_size;
+
+    private int m_minSize = 1;
+
+    private int m_maxSize = 1;
+
+    private long m_idleTimeoutNanos;
+
+    private long m_waitTimeoutNanos;
+
+    private boolean m_validateOnBorrow = true;
+
+    private int m_waiting;
+
+    private long m_borrowed;
+
+    private long m_created;
+
+    private long m_invalidated;
+
+    private long m_evicted;
+
+    private long m_waits;
+
+    private long m_timeouts;
+
+    private long m_totalWaitNanos;
+
+    private long m_maxWaitNanos;
+
+    /** Serializes the opening and validation of the shared connection. */
+    private final Object m_sharedLock = new Object();
+
+    /** The shared connection, one of the pooled connections or <code>null</code>. Guarded by the lock. */
+    private Connection m_shared;
+
+    /**
+     * @param key the key of the connections in this pool
+     */
+    DBConnectionPool(final ConnectionKey key) {
+        m_key = key;
+    }
+
+    /**
+     * @return the key of the connections in this pool
+     */
+    ConnectionKey getKey() {
+        return m_key;
+    }
+
+    /**
+     * Updates the pool limits. Connections that exceed a decreased maximum size are closed when they are released.
+     * Calling this method with the current limits has no effect.
+     *
+     * @param minSize the number of connections that are kept open even if they are idle
+     * @param maxSize the maximum number of connections
+     * @param idleTimeout the time after which idle connections are closed, zero or less to keep them open
+     * @param waitTimeout the maximum time to wait for a free connection, zero or less to wait indefinitely
+     * @param unit the unit of both timeouts
+     * @param validateOnBorrow <code>true</code> if idle connections should be validated before they are handed out
+     */
+    void configure(final int minSize, final int maxSize, final long idleTimeout, final long waitTimeout,
+        final TimeUnit unit, final boolean validateOnBorrow) {
+        final int newMinSize = Math.max(0, Math.min(minSize, maxSize));
+        final int newMaxSize = Math.max(1, maxSize);
+        final long newIdleTimeoutNanos = unit.toNanos(idleTimeout);
+        final long newWaitTimeoutNanos = unit.toNanos(waitTimeout);
+        m_lock.lock();
+        try {
+            if (newMinSize == m_minSize && newMaxSize == m_maxSize && newIdleTimeoutNanos == m_idleTimeoutNanos
+                && newWaitTimeoutNanos == m_waitTimeoutNanos && validateOnBorrow == m_validateOnBorrow) {
+                return;
+            }
+            LOGGER.debug("Reconfiguring connection pool with key: " + m_key);
+            final boolean grown = newMaxSize > m_maxSize;
+            m_minSize = newMinSize;
+            m_maxSize = newMaxSize;
+            m_idleTimeoutNanos = newIdleTimeoutNanos;
+            m_waitTimeoutNanos = newWaitTimeoutNanos;
+            m_validateOnBorrow = validateOnBorrow;
+            if (grown) {
+                m_released.signalAll();
+            }
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool. Each call must be followed by a call of {@link #release(Connection)}.
+     *
+     * @param opener used to open a new connection if no idle connection is available and the pool is not exhausted
+     * @param validator used to validate idle connections before they are handed out
+     * @return the connection
+     * @throws InvalidSettingsException if a new connection could not be opened because of invalid settings
+     * @throws SQLException if a new connection could not be opened or no connection became available in time
+     * @throws IOException if opening a new connection timed out
+     */
+    Connection borrow(final ConnectionOpener opener, final Predicate<Connection> validator)
+        throws InvalidSettingsException, SQLException, IOException {
+        final Thread thread = Thread.currentThread();
+        while (true) {
+            final List<Connection> toClose = new ArrayList<>();
+            final IdleConnection idle;
+            final boolean validate;
+            m_lock.lock();
+            try {
+                final Lease lease = m_leasesByThread.get(thread);
+                if (lease != null) {
+                    lease.m_holds++;
+                    m_borrowed++;
+                    return lease.m_conn;
+                }
+                evictIdle(System.nanoTime(), toClose);
+                idle = awaitIdleOrCapacity();
+                validate = m_validateOnBorrow;
+            } finally {
+                m_lock.unlock();
+                closeAll(toClose);
+            }
+            final Connection conn;
+            if (idle == null) {
+                try {
+                    conn = opener.open();
+                } catch (final Exception e) {
+                    discard(null, false);
+                    throw e;
+                }
+                if (conn == null) {
+                    discard(null, false);
+                    throw new SQLException("Driver returned no connection for " + m_key);
+                }
+                LOGGER.debug("Opened new pooled connection for key: " + m_key);
+            } else {
+                conn = idle.m_conn;
+                if (validate && !validator.test(conn)) {
+                    discard(conn, true);
+                    continue;
+                }
+            }
+            m_lock.lock();
+            try {
+                final Lease lease = new Lease(conn, thread);
+                m_leasesByThread.put(thread, lease);
+                m_leasesByConnection.put(conn, lease);
+                m_borrowed++;
+                if (idle == null) {
+                    m_created++;
+                }
+            } finally {
+                m_lock.unlock();
+            }
+            return conn;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. Closed connections and connections that exceed the maximum pool
+     * size are dropped from the pool.
+     *
+     * @param conn the connection returned by {@link #borrow(ConnectionOpener, Predicate)}
+     */
+    void release(final Connection conn) {
+        final List<Connection> toClose = new ArrayList<>();
+        m_lock.lock();
+        try {
+            final Lease lease = m_leasesByConnection.get(conn);
+            if (lease == null) {
+                LOGGER.debug("Connection released that has not been borrowed from the pool with key: " + m_key);
+                return;
+            }
+            if (--lease.m_holds > 0) {
+                return;
+            }
+            m_leasesByConnection.remove(conn);
+            m_leasesByThread.remove(lease.m_owner);
+            final long now = System.nanoTime();
+            if (isClosed(conn)) {
+                m_size--;
+                if (conn == m_shared) {
+                    m_shared = null;
+                }
+            } else if (m_size > m_maxSize && conn != m_shared) {
+                m_size--;
+                toClose.add(conn);
+            } else {
+                m_idle.addFirst(new IdleConnection(conn, now));
+            }
+            evictIdle(now, toClose);
+            m_released.signal();
+        } finally {
+            m_lock.unlock();
+            closeAll(toClose);
+        }
+    }
+
+    /**
+     * Returns the connection that is shared by all callers that do not borrow connections from the pool. The shared
+     * connection is taken from the pool, preferably an idle one, otherwise one that is currently borrowed, and is
+     * handed out first to borrowers. With a maximum pool size of one the shared connection is therefore the same as
+     * the borrowed one. The pool never evicts or closes the shared connection unless it becomes invalid.
+     *
+     * @param opener used to open the shared connection if the pool has no connection yet
+     * @param validator used to validate the existing shared connection
+     * @return the shared connection
+     * @throws InvalidSettingsException if the connection could not be opened because of invalid settings
+     * @throws SQLException if the connection could not be opened
+     * @throws IOException if opening the connection timed out
+     */
+    Connection getShared(final ConnectionOpener opener, final Predicate<Connection> validator)
+        throws InvalidSettingsException, SQLException, IOException {
+        synchronized (m_sharedLock) {
+            while (true) {
+                final Connection shared;
+                m_lock.lock();
+                try {
+                    if (m_shared == null) {
+                        m_shared = adoptShared();
+                    }
+                    shared = m_shared;
+                    if (shared == null) {
+                        // always reserve a slot, the pool only exceeds its maximum size if other connections are
+                        // currently being opened and shrinks again once they are released
+                        m_size++;
+                    }
+                } finally {
+                    m_lock.unlock();
+                }
+                if (shared == null) {
+                    return openShared(opener);
+                }
+                if (validator.test(shared)) {
+                    return shared;
+                }
+                LOGGER.debug("Removing invalid shared connection from pool with key: " + m_key);
+                invalidateShared(shared);
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the pool statistics
+     */
+    DBConnectionPoolStatistics getStatistics() {
+        m_lock.lock();
+        try {
+            return new DBConnectionPoolStatistics(String.valueOf(m_key), m_minSize, m_maxSize, m_size,
+                m_leasesByConnection.size(), m_idle.size(), m_waiting, m_borrowed, m_created, m_invalidated, m_evicted,
+                m_waits, m_timeouts, m_totalWaitNanos, m_maxWaitNanos);
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /** Picks the shared connection among the pooled connections. Must hold the lock.
+     * @return an idle or a borrowed connection or <code>null</code> if the pool has no open connection */
+    private Connection adoptShared() {
+        if (!m_idle.isEmpty()) {
+            return m_idle.peekFirst().m_conn;
+        }
+        final Iterator<Connection> leased = m_leasesByConnection.keySet().iterator();
+        return leased.hasNext() ? leased.next() : null;
+    }
+
+    /** Opens the shared connection in the slot reserved by the caller and adds it to the idle connections. */
+    private Connection openShared(final ConnectionOpener opener)
+        throws InvalidSettingsException, SQLException, IOException {
+        final Connection conn;
+        try {
+            conn = opener.open();
+        } catch (final Exception e) {
+            discard(null, false);
+            throw e;
+        }
+        if (conn == null) {
+            discard(null, false);
+            throw new SQLException("Driver returned no connection for " + m_key);
+        }
+        LOGGER.debug("Opened new shared connection for key: " + m_key);
+        m_lock.lock();
+        try {
+            m_shared = conn;
+            m_created++;
+            m_idle.addFirst(new IdleConnection(conn, System.nanoTime()));
+            m_released.signal();
+        } finally {
+            m_lock.unlock();
+        }
+        return conn;
+    }
+
+    /** Removes the invalid shared connection from the pool if it is idle, borrowed connections are dropped by
+     * {@link #release(Connection)} once they are closed. */
+    private void invalidateShared(final Connection conn) {
+        boolean wasIdle = false;
+        m_lock.lock();
+        try {
+            if (m_shared == conn) {
+                m_shared = null;
+            }
+            for (final Iterator<IdleConnection> it = m_idle.iterator(); it.hasNext();) {
+                if (it.next().m_conn == conn) {
+                    it.remove();
+                    m_size--;
+                    m_invalidated++;
+                    wasIdle = true;
+                    break;
+                }
+            }
+        } finally {
+            m_lock.unlock();
+        }
+        if (wasIdle) {
+            closeSafely(conn);
+        }
+    }
+
+    /** Takes the shared connection if it is idle, otherwise the most recently released connection. Must hold the
+     * lock. */
+    private IdleConnection pollIdle() {
+        if (m_shared != null) {
+            for (final Iterator<IdleConnection> it = m_idle.iterator(); it.hasNext();) {
+                final IdleConnection idle = it.next();
+                if (idle.m_conn == m_shared) {
+                    it.remove();
+                    return idle;
+                }
+            }
+        }
+        return m_idle.pollFirst();
+    }
+
+    /** Waits until an idle connection is available or a new one may be opened. Must hold the lock.
+     * @return an idle connection or <code>null</code> if a new connection has to be opened */
+    private IdleConnection awaitIdleOrCapacity() throws SQLException {
+        long waitStart = 0;
+        boolean waited = false;
+        long remaining = m_waitTimeoutNanos;
+        try {
+            while (true) {
+                final IdleConnection idle = pollIdle();
+                if (idle != null) {
+                    return idle;
+                }
+                if (m_size < m_maxSize) {
+                    m_size++;
+                    return null;
+                }
+                if (!waited) {
+                    waited = true;
+                    waitStart = System.nanoTime();
+                    m_waits++;
+                }
+                m_waiting++;
+                try {
+                    if (m_waitTimeoutNanos <= 0) {
+                        m_released.await();
+                    } else if (remaining > 0) {
+                        remaining = m_released.awaitNanos(remaining);
+                    } else {
+                        m_timeouts++;
+                        throw new SQLException("Timeout waiting for a free database connection after "
+                            + TimeUnit.NANOSECONDS.toSeconds(m_waitTimeoutNanos) + " seconds (maximum pool size "
+                            + m_maxSize + ") for " + m_key);
+                    }
+                } finally {
+                    m_waiting--;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Thread was interrupted while waiting for a free database connection");
+        } finally {
+            if (waited) {
+                final long waitNanos = System.nanoTime() - waitStart;
+                m_totalWaitNanos += waitNanos;
+                m_maxWaitNanos = Math.max(m_maxWaitNanos, waitNanos);
+            }
+        }
+    }
+
+    /** Closes idle connections that exceeded the idle timeout. Must hold the lock. */
+    private void evictIdle(final long now, final List<Connection> toClose) {
+        if (m_idleTimeoutNanos <= 0) {
+            return;
+        }
+        for (final Iterator<IdleConnection> it = m_idle.descendingIterator(); m_size > m_minSize && it.hasNext();) {
+            final IdleConnection idle = it.next();
+            if (now - idle.m_idleSince <= m_idleTimeoutNanos) {
+                break;
+            }
+            if (idle.m_conn != m_shared) {
+                it.remove();
+                toClose.add(idle.m_conn);
+                m_size--;
+                m_evicted++;
+            }
+        }
+    }
+
+    /** Gives up a reserved pool slot, e.g. if opening a connection failed or an idle connection was invalid. */
+    private void discard(final Connection conn, final boolean invalid) {
+        m_lock.lock();
+        try {
+            m_size--;
+            if (invalid) {
+                m_invalidated++;
+            }
+            if (conn != null && conn == m_shared) {
+                m_shared = null;
+            }
+            m_released.signal();
+        } finally {
+            m_lock.unlock();
+        }
+        if (conn != null) {
+            LOGGER.debug("Removing invalid connection from pool with key: " + m_key);
+            closeSafely(conn);
+        }
+    }
+
+    private void closeAll(final List<Connection> conns) {
+        for (final Connection conn : conns) {
+            closeSafely(conn);
+        }
+    }
+
+    private void closeSafely(final Connection conn) {
+        try {
+            if (!conn.isClosed()) {
+                LOGGER.debug("Closing pooled connection with key: " + m_key);
+                conn.close();
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Error closing connection:" + ex.getMessage(), ex);
+        }
+    }
+
+    private static boolean isClosed(final Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+}
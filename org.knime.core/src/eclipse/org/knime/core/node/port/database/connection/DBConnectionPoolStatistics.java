@@ -0,0 +1,229 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.connection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the usage statistics of a database connection pool, e.g. to check whether parallel branches
+ * have to wait for free connections.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ * @see CachedConnectionFactory#getPoolStatistics()
+ */
+public final class DBConnectionPoolStatistics {
+
+    private final String m_key;
+
+    private final int m_minSize;
+
+    private final int m_maxSize;
+
+    private final int m_size;
+
+    private final int m_active;
+
+    private final int m_idle;
+
+    private final int m_waiting;
+
+    private final long m_borrowed;
+
+    private final long m_created;
+
+    private final long m_invalidated;
+
+    private final long m_evicted;
+
+    private final long m_waits;
+
+    private final long m_timeouts;
+
+    private final long m_totalWaitNanos;
+
+    private final long m_maxWaitNanos;
+
+    DBConnectionPoolStatistics(final String key, final int minSize, final int maxSize, final int size,
+        final int active, final int idle, final int waiting, final long borrowed, final long created,
+        final long invalidated, final long evicted, final long waits, final long timeouts, final long totalWaitNanos,
+        final long maxWaitNanos) {
+        m_key = key;
+        m_minSize = minSize;
+        m_maxSize = maxSize;
+        m_size = size;
+        m_active = active;
+        m_idle = idle;
+        m_waiting = waiting;
+        m_borrowed = borrowed;
+        m_created = created;
+        m_invalidated = invalidated;
+        m_evicted = evicted;
+        m_waits = waits;
+        m_timeouts = timeouts;
+        m_totalWaitNanos = totalWaitNanos;
+        m_maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * @return description of the connection key of the pool (database URL, database user and workflow user)
+     */
+    public String getConnectionKey() {
+        return m_key;
+    }
+
+    /**
+     * @return the number of connections that are kept open even if they are idle
+     */
+    public int getMinSize() {
+        return m_minSize;
+    }
+
+    /**
+     * @return the maximum number of connections of the pool
+     */
+    public int getMaxSize() {
+        return m_maxSize;
+    }
+
+    /**
+     * @return the current number of connections including the ones that are currently opened
+     */
+    public int getSize() {
+        return m_size;
+    }
+
+    /**
+     * @return the number of connections that are currently borrowed
+     */
+    public int getActive() {
+        return m_active;
+    }
+
+    /**
+     * @return the number of idle connections
+     */
+    public int getIdle() {
+        return m_idle;
+    }
+
+    /**
+     * @return the number of threads that currently wait for a free connection
+     */
+    public int getWaiting() {
+        return m_waiting;
+    }
+
+    /**
+     * @return the total number of borrow requests including nested requests of the same thread
+     */
+    public long getBorrowed() {
+        return m_borrowed;
+    }
+
+    /**
+     * @return the total number of connections opened by the pool
+     */
+    public long getCreated() {
+        return m_created;
+    }
+
+    /**
+     * @return the total number of idle connections that failed the validation on borrow
+     */
+    public long getInvalidated() {
+        return m_invalidated;
+    }
+
+    /**
+     * @return the total number of idle connections closed because of the idle timeout
+     */
+    public long getEvicted() {
+        return m_evicted;
+    }
+
+    /**
+     * @return the total number of borrow requests that had to wait for a free connection
+     */
+    public long getWaits() {
+        return m_waits;
+    }
+
+    /**
+     * @return the total number of borrow requests that failed because no connection became available in time
+     */
+    public long getTimeouts() {
+        return m_timeouts;
+    }
+
+    /**
+     * @param unit the desired unit
+     * @return the accumulated time borrow requests waited for a free connection
+     */
+    public long getTotalWaitTime(final TimeUnit unit) {
+        return unit.convert(m_totalWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit the desired unit
+     * @return the longest time a single borrow request waited for a free connection
+     */
+    public long getMaxWaitTime(final TimeUnit unit) {
+        return unit.convert(m_maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "DBConnectionPoolStatistics [" + m_key + ", size=" + m_size + " (min=" + m_minSize + ", max="
+            + m_maxSize + "), active=" + m_active + ", idle=" + m_idle + ", waiting=" + m_waiting + ", borrowed="
+            + m_borrowed + ", created=" + m_created + ", invalidated=" + m_invalidated + ", evicted=" + m_evicted
+            + ", waits=" + m_waits + ", timeouts=" + m_timeouts + ", total wait="
+            + getTotalWaitTime(TimeUnit.MILLISECONDS) + "ms, max wait=" + getMaxWaitTime(TimeUnit.MILLISECONDS)
+            + "ms]";
+    }
+}
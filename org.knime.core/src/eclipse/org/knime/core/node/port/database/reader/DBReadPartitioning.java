@@ -0,0 +1,183 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * Describes how {@link DBReader#createTable(org.knime.core.node.ExecutionContext,
+ * org.knime.core.node.workflow.CredentialsProvider, boolean, DBReadPartitioning)} splits the query into several
+ * queries that are read in parallel over separate connections.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class DBReadPartitioning {
+
+    /** The ways the rows of a query can be split up. */
+    public enum Mode {
+        /** Value ranges of a numeric or date column, computed from its minimum and maximum. */
+        COLUMN_RANGE,
+        /** Consecutive row windows of equal size, the query should define a deterministic order. */
+        ROW_COUNT;
+    }
+
+    private static final String CFG_MODE = "partitioning_mode";
+
+    private static final String CFG_COLUMN = "partitioning_column";
+
+    private static final String CFG_NR_PARTITIONS = "partitioning_count";
+
+    private final Mode m_mode;
+
+    private final String m_column;
+
+    private final int m_nrPartitions;
+
+    private DBReadPartitioning(final Mode mode, final String column, final int nrPartitions) {
+        CheckUtils.checkArgument(nrPartitions > 0, "Number of partitions must be > 0: %d", nrPartitions);
+        m_mode = mode;
+        m_column = column;
+        m_nrPartitions = nrPartitions;
+    }
+
+    /**
+     * Splits the value range of a numeric or date column into equally wide intervals. Missing values are read with
+     * the first partition.
+     *
+     * @param column the name of the partition column in the result of the query
+     * @param nrPartitions the number of partitions (and connections)
+     * @return a new partitioning
+     */
+    public static DBReadPartitioning byColumn(final String column, final int nrPartitions) {
+        CheckUtils.checkArgumentNotNull(column, "Partition column must not be null");
+        return new DBReadPartitioning(Mode.COLUMN_RANGE, column, nrPartitions);
+    }
+
+    /**
+     * Splits the result of the query into windows with the same number of rows. The query needs to return the rows
+     * in a deterministic order (e.g. by means of an ORDER BY clause).
+     *
+     * @param nrPartitions the number of partitions (and connections)
+     * @return a new partitioning
+     */
+    public static DBReadPartitioning byRowCount(final int nrPartitions) {
+        return new DBReadPartitioning(Mode.ROW_COUNT, null, nrPartitions);
+    }
+
+    /**
+     * @return the way the rows are split up
+     */
+    public Mode getMode() {
+        return m_mode;
+    }
+
+    /**
+     * @return the partition column or <code>null</code> if the rows are split by count
+     */
+    public String getColumn() {
+        return m_column;
+    }
+
+    /**
+     * @return the maximum number of partitions that are read in parallel
+     */
+    public int getNrPartitions() {
+        return m_nrPartitions;
+    }
+
+    /**
+     * Saves the given partitioning into the settings.
+     *
+     * @param partitioning the partitioning or <code>null</code> if the query is read without partitioning
+     * @param settings the settings to write to
+     */
+    public static void save(final DBReadPartitioning partitioning, final NodeSettingsWO settings) {
+        settings.addString(CFG_MODE, partitioning == null ? null : partitioning.m_mode.name());
+        settings.addString(CFG_COLUMN, partitioning == null ? null : partitioning.m_column);
+        settings.addInt(CFG_NR_PARTITIONS, partitioning == null ? 1 : partitioning.m_nrPartitions);
+    }
+
+    /**
+     * Loads a partitioning that has been saved with {@link #save(DBReadPartitioning, NodeSettingsWO)}. Settings
+     * without a partitioning, e.g. of older workflows, result in <code>null</code>.
+     *
+     * @param settings the settings to read from
+     * @return the partitioning or <code>null</code> if the query is read without partitioning
+     * @throws InvalidSettingsException if the settings contain an invalid partitioning
+     */
+    public static DBReadPartitioning load(final NodeSettingsRO settings) throws InvalidSettingsException {
+        final String mode = settings.getString(CFG_MODE, null);
+        if (mode == null) {
+            return null;
+        }
+        final int nrPartitions = settings.getInt(CFG_NR_PARTITIONS, 1);
+        CheckUtils.checkSetting(nrPartitions > 0, "Number of partitions must be > 0: %d", nrPartitions);
+        final Mode m;
+        try {
+            m = Mode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSettingsException("Unknown partitioning mode: " + mode, e);
+        }
+        if (m == Mode.ROW_COUNT) {
+            return byRowCount(nrPartitions);
+        }
+        final String column = settings.getString(CFG_COLUMN, null);
+        CheckUtils.checkSetting(column != null && !column.trim().isEmpty(), "No partition column specified");
+        return byColumn(column, nrPartitions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return m_mode == Mode.COLUMN_RANGE ? m_nrPartitions + " ranges of column \"" + m_column + "\""
+            : m_nrPartitions + " row windows";
+    }
+}
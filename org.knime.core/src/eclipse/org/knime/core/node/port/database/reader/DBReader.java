@@ -155,6 +155,27 @@ default BufferedDataTable createTable(final ExecutionContext exec, final Credent
         return exec.createBufferedDataTable(table, exec);
     }
 
+    /**
+     * Read data from database by splitting the query into several queries that are executed in parallel on separate
+     * connections. The rows of the partitions are appended in partition order. Row windows get consecutive row ids,
+     * the row keys of column value ranges are prefixed with the partition index. The default implementation reads the
+     * data with a single query.
+     * @param exec used for progress info
+     * @param cp {@link CredentialsProvider} providing user/password
+     * @param useDbRowId <code>true</code> if the row id returned by the database should be used to generate the
+     * KNIME row id, only used if the data is read with a single query
+     * @param partitioning the {@link DBReadPartitioning} that defines the partition queries
+     * @return buffered data table read from database
+     * @throws CanceledExecutionException if canceled in between
+     * @throws SQLException if the connection could not be opened
+     * @since 3.7
+     */
+    default BufferedDataTable createTable(final ExecutionContext exec, final CredentialsProvider cp,
+        final boolean useDbRowId, final DBReadPartitioning partitioning)
+        throws CanceledExecutionException, SQLException {
+        return createTable(exec, cp, useDbRowId);
+    }
+
     /**
      * Read data from database.
      * @param exec used for progress info
@@ -44,14 +44,24 @@
  */
 package org.knime.core.node.port.database.reader;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.knime.core.data.DataCell;
@@ -73,13 +83,16 @@
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 import org.knime.core.node.port.database.DatabaseHelper;
 import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.StatementManipulator;
 import org.knime.core.node.streamable.BufferedDataTableRowOutput;
 import org.knime.core.node.streamable.RowInput;
 import org.knime.core.node.workflow.CredentialsProvider;
+import org.knime.core.util.ThreadPool;
 import org.knime.core.util.UniqueNameGenerator;
 
 /**
@@ -258,6 +271,296 @@ public RowIterator iterator() {
 
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Queries that consist of several statements are read with a single query because the preceding statements
+     * would have to be executed on every connection. Partitioned reads number the rows consecutively across all
+     * partitions, the row ids returned by the database restart in every partition and are not used.
+     * @since 3.7
+     */
+    @Override
+    public BufferedDataTable createTable(final ExecutionContext exec, final CredentialsProvider cp,
+        final boolean useDbRowId, final DBReadPartitioning partitioning)
+        throws CanceledExecutionException, SQLException {
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final String[] oQueries = dbConn.getQuery().split(SQL_QUERY_SEPARATOR);
+        if ((partitioning == null) || (partitioning.getNrPartitions() < 2)) {
+            return createTable(exec, cp, useDbRowId);
+        }
+        if (oQueries.length > 1) {
+            LOGGER.debug("Query consists of several statements, reading it without partitioning.");
+            return createTable(exec, cp, useDbRowId);
+        }
+        String query = oQueries[0].trim();
+        if (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1);
+        }
+        final String selectQuery = query;
+        exec.setMessage("Computing partitions (" + partitioning + ")...");
+        final List<PartitionQuery> partitions =
+            dbConn.execute(cp, conn -> createPartitionQueries(conn, selectQuery, partitioning));
+        if (partitions.size() < 2) {
+            LOGGER.debug("Query result can't be split, reading it without partitioning.");
+            return createTable(exec, cp, useDbRowId);
+        }
+        if (useDbRowId) {
+            LOGGER.warn("Row ids returned by the database are not used when reading in partitions, "
+                + "rows are numbered consecutively instead.");
+        }
+        final DataTableSpec spec = getDataTableSpec(cp);
+
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(partitions.size());
+        final List<Future<BufferedDataTable>> futures = new ArrayList<>(partitions.size());
+        final AtomicLong rowCounter = new AtomicLong();
+        final Callable<BufferedDataTable> reader = () -> {
+            for (final PartitionQuery partition : partitions) {
+                futures.add(pool.enqueue(() -> readPartition(exec, cp, spec, partition, rowCounter)));
+            }
+            final BufferedDataTable[] tables = new BufferedDataTable[partitions.size()];
+            for (int i = 0; i < tables.length; i++) {
+                tables[i] = futures.get(i).get();
+            }
+            return exec.createConcatenateTable(exec, Optional.empty(), false, tables);
+        };
+        try {
+            if (ThreadPool.currentPool() != null) {
+                // the calling thread only waits for the partitions
+                return pool.runInvisible(reader);
+            } else {
+                return reader.call();
+            }
+        } catch (Exception e) {
+            Throwable cause = e;
+            while ((cause instanceof ExecutionException) && (cause.getCause() != null)) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CanceledExecutionException) {
+                throw (CanceledExecutionException)cause;
+            } else if (cause instanceof InterruptedException) {
+                throw new CanceledExecutionException("Reading canceled");
+            } else if (cause instanceof SQLException) {
+                throw (SQLException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+            for (final Future<BufferedDataTable> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A query that reads one partition with its parameters. The row keys of all partitions are unique, either because
+     * the partition starts at a known row or because its keys get a partition specific prefix.
+     */
+    private static final class PartitionQuery {
+        private final String m_sql;
+
+        private final Object[] m_params;
+
+        /** The first row id of the partition. */
+        private final long m_startRow;
+
+        /** The prefix of the row keys or <code>null</code> if the row ids are consecutive over all partitions. */
+        private final String m_keyPrefix;
+
+        PartitionQuery(final String sql, final long startRow, final Object... params) {
+            m_sql = sql;
+            m_startRow = startRow;
+            m_keyPrefix = null;
+            m_params = params;
+        }
+
+        PartitionQuery(final String sql, final String keyPrefix, final Object... params) {
+            m_sql = sql;
+            m_startRow = 0;
+            m_keyPrefix = keyPrefix;
+            m_params = params;
+        }
+    }
+
+    private List<PartitionQuery> createPartitionQueries(final Connection conn, final String query,
+        final DBReadPartitioning partitioning) throws SQLException {
+        final StatementManipulator manipulator = getQueryConnection().getUtility().getStatementManipulator();
+        final String tableAlias = "table_" + System.identityHashCode(this);
+        final List<PartitionQuery> partitions = new ArrayList<>();
+        try (final Statement stmt = conn.createStatement()) {
+            if (partitioning.getMode() == DBReadPartitioning.Mode.ROW_COUNT) {
+                final String countQuery = "SELECT COUNT(*) FROM (" + query + ") " + tableAlias;
+                LOGGER.debug("Executing SQL statement as executeQuery: " + countQuery);
+                final long rowCount;
+                try (final ResultSet result = stmt.executeQuery(countQuery)) {
+                    result.next();
+                    rowCount = result.getLong(1);
+                }
+                final int nrPartitions = (int)Math.max(1, Math.min(partitioning.getNrPartitions(), rowCount));
+                final long partitionSize = (rowCount + nrPartitions - 1) / nrPartitions;
+                for (int i = 0; i < nrPartitions; i++) {
+                    final long offset = i * partitionSize;
+                    // the last window is open so that no row is lost if the table grows meanwhile
+                    final long count = (i == nrPartitions - 1) ? Long.MAX_VALUE : partitionSize;
+                    partitions.add(new PartitionQuery(manipulator.limitRows(query, count, offset), offset));
+                }
+            } else {
+                final String col = manipulator.quoteIdentifier(partitioning.getColumn());
+                final String boundsQuery = "SELECT MIN(" + col + "), MAX(" + col + ") FROM (" + query + ") "
+                    + tableAlias;
+                LOGGER.debug("Executing SQL statement as executeQuery: " + boundsQuery);
+                final Object[] splits;
+                try (final ResultSet result = stmt.executeQuery(boundsQuery)) {
+                    result.next();
+                    splits = computeSplitPoints(result.getObject(1), result.getObject(2),
+                        partitioning.getNrPartitions());
+                }
+                final String select = "SELECT * FROM (" + query + ") " + tableAlias + " WHERE ";
+                for (int i = 0; i <= splits.length; i++) {
+                    if (splits.length == 0) {
+                        // no values or a single value
+                        partitions.add(new PartitionQuery(query, 0));
+                    } else if (i == 0) {
+                        // missing values are read with the first partition
+                        partitions.add(new PartitionQuery(select + col + " < ? OR " + col + " IS NULL",
+                            partitionKeyPrefix(i), splits[0]));
+                    } else if (i == splits.length) {
+                        partitions.add(new PartitionQuery(select + col + " >= ?", partitionKeyPrefix(i),
+                            splits[i - 1]));
+                    } else {
+                        partitions.add(new PartitionQuery(select + col + " >= ? AND " + col + " < ?",
+                            partitionKeyPrefix(i), splits[i - 1], splits[i]));
+                    }
+                }
+            }
+        } finally {
+            if (!conn.getAutoCommit()) {
+                conn.commit();
+            }
+        }
+        return partitions;
+    }
+
+    /** The size of a value range partition is not known in advance, its row keys are prefixed instead. */
+    private static String partitionKeyPrefix(final int partition) {
+        return "Part" + partition + "_";
+    }
+
+    /**
+     * Computes the inner boundaries of the partitions between the minimum and maximum value of the partition column.
+     *
+     * @param min the minimum value, may be <code>null</code>
+     * @param max the maximum value, may be <code>null</code>
+     * @param nrPartitions the maximum number of partitions
+     * @return the ascending split points, empty if the range can't be split
+     * @throws SQLException if the values are neither numbers nor dates
+     */
+    static Object[] computeSplitPoints(final Object min, final Object max, final int nrPartitions)
+        throws SQLException {
+        if ((min == null) || (max == null)) {
+            return new Object[0];
+        }
+        if ((min instanceof java.util.Date) && (max instanceof java.util.Date)) {
+            final long[] splits =
+                computeSplitPoints(((java.util.Date)min).getTime(), ((java.util.Date)max).getTime(), nrPartitions);
+            final Object[] result = new Object[splits.length];
+            for (int i = 0; i < splits.length; i++) {
+                result[i] = new Timestamp(splits[i]);
+            }
+            return result;
+        }
+        if (!(min instanceof Number) || !(max instanceof Number)) {
+            throw new SQLException("Partition column must be numeric or a date, found values of type "
+                + min.getClass().getSimpleName());
+        }
+        if (isIntegral((Number)min) && isIntegral((Number)max)) {
+            return Arrays.stream(computeSplitPoints(((Number)min).longValue(), ((Number)max).longValue(),
+                nrPartitions)).boxed().toArray();
+        }
+        final double lower = ((Number)min).doubleValue();
+        final double upper = ((Number)max).doubleValue();
+        final List<Object> splits = new ArrayList<>();
+        if (upper > lower) {
+            for (int i = 1; i < nrPartitions; i++) {
+                final double split = lower + (upper - lower) * i / nrPartitions;
+                if ((split > lower) && (splits.isEmpty() || (split > (Double)splits.get(splits.size() - 1)))) {
+                    splits.add(split);
+                }
+            }
+        }
+        return splits.toArray();
+    }
+
+    private static long[] computeSplitPoints(final long min, final long max, final int nrPartitions) {
+        if (max <= min) {
+            return new long[0];
+        }
+        final double width = ((double)max - min + 1) / nrPartitions;
+        final long[] splits = new long[nrPartitions - 1];
+        int count = 0;
+        for (int i = 1; i < nrPartitions; i++) {
+            final long split = min + (long)(i * width);
+            if ((split > min) && (split <= max) && ((count == 0) || (split > splits[count - 1]))) {
+                splits[count++] = split;
+            }
+        }
+        return Arrays.copyOf(splits, count);
+    }
+
+    private static boolean isIntegral(final Number n) {
+        if ((n instanceof Long) || (n instanceof Integer) || (n instanceof Short) || (n instanceof Byte)) {
+            return true;
+        } else if (n instanceof BigInteger) {
+            return ((BigInteger)n).bitLength() < 64;
+        } else if (n instanceof BigDecimal) {
+            final BigDecimal d = (BigDecimal)n;
+            return (d.scale() <= 0) && (d.toBigInteger().bitLength() < 64);
+        }
+        return false;
+    }
+
+    /** Reads one partition over a dedicated connection into a new table. */
+    private BufferedDataTable readPartition(final ExecutionContext exec, final CredentialsProvider cp,
+        final DataTableSpec spec, final PartitionQuery partition, final AtomicLong rowCounter) throws Exception {
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final BufferedDataContainer container = exec.createDataContainer(spec);
+        try (final Connection conn = dbConn.getUtility().getConnectionFactory().createDedicatedConnection(cp, dbConn);
+                final PreparedStatement stmt = conn.prepareStatement(partition.m_sql)) {
+            final int fetchsize =
+                (DatabaseConnectionSettings.FETCH_SIZE != null) ? DatabaseConnectionSettings.FETCH_SIZE : -1;
+            dbConn.getUtility().getStatementManipulator().setFetchSize(stmt, fetchsize);
+            for (int i = 0; i < partition.m_params.length; i++) {
+                stmt.setObject(i + 1, partition.m_params[i]);
+            }
+            LOGGER.debug("Executing SQL statement as executeQuery: " + partition.m_sql);
+            try (final ResultSet result = stmt.executeQuery()) {
+                final RowIterator it = createDBRowIterator(spec, dbConn, new BinaryObjectCellFactory(exec), false,
+                    result, partition.m_startRow);
+                while (it.hasNext()) {
+                    exec.checkCanceled();
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CanceledExecutionException("Reading canceled");
+                    }
+                    final DataRow row = it.next();
+                    container.addRowToTable(partition.m_keyPrefix == null ? row
+                        : new DefaultRow(new RowKey(partition.m_keyPrefix + row.getKey().getString()), row));
+                    final long count = rowCounter.incrementAndGet();
+                    if (count % 1000 == 0) {
+                        exec.setMessage("Row " + count);
+                    }
+                }
+            }
+            if (!conn.getAutoCommit()) {
+                conn.commit();
+            }
+        } finally {
+            container.close();
+        }
+        return container.getTable();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -44,6 +44,7 @@
  */
 package org.knime.core.node.port.database.writer;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -52,8 +53,16 @@
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.knime.core.data.BooleanValue;
 import org.knime.core.data.DataCell;
@@ -69,11 +78,13 @@
 import org.knime.core.data.date.DateAndTimeValue;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 import org.knime.core.node.port.database.DatabaseHelper;
 import org.knime.core.node.streamable.RowInput;
 import org.knime.core.node.workflow.CredentialsProvider;
+import org.knime.core.util.ThreadPool;
 
 /**
  * Creates a connection to write to database.
@@ -103,6 +114,19 @@ public DBWriterImpl(final DatabaseConnectionSettings conn) {
     public String writeData(final String table, final RowInput input, final long rowCount, final boolean appendData,
         final ExecutionMonitor exec, final Map<String, String> sqlTypes, final CredentialsProvider cp,
         final int batchSize, final boolean insertNullForMissingCols, final boolean failOnError) throws Exception {
+        return writeData(table, input, rowCount, appendData, exec, sqlTypes, cp, batchSize, insertNullForMissingCols,
+            failOnError, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 3.7
+     */
+    @Override
+    public String writeData(final String table, final RowInput input, final long rowCount, final boolean appendData,
+        final ExecutionMonitor exec, final Map<String, String> sqlTypes, final CredentialsProvider cp,
+        final int batchSize, final boolean insertNullForMissingCols, final boolean failOnError,
+        final int nrConnections) throws Exception {
         final DatabaseConnectionSettings conSettings = getDatabaseConnectionSettings();
 //        final Connection conn = conSettings.createConnection(cp);
         return conSettings.execute(cp, conn -> {
@@ -311,6 +335,11 @@ public String writeData(final String table, final RowInput input, final long row
             final String insertStamtement =
                     createInsertStatment(table, columnNamesForInsertStatement.toString(), mapping, insertNullForMissingCols);
 
+            if (batchSize > 1) {
+                return writeBatches(conn, insertStamtement, input, rowCount, exec, mapping, columnTypes, cp,
+                    batchSize, insertNullForMissingCols, failOnError, Math.max(1, nrConnections));
+            }
+
             // problems writing more than 13 columns. the prepare statement
             // ensures that we can set the columns directly row-by-row, the
             // database will handle the commit
@@ -439,6 +468,225 @@ public String writeData(final String table, final RowInput input, final long row
         });
     }
 
+    /** A chunk of consecutive input rows that is written with one batch. */
+    private static final class RowBatch {
+        /** Marks the end of the input. */
+        static final RowBatch END = new RowBatch(-1, new ArrayList<>(0));
+
+        /** The number of the first row in the input, starting with 1. */
+        private final long m_firstRow;
+
+        private final List<DataRow> m_rows;
+
+        RowBatch(final long firstRow, final List<DataRow> rows) {
+            m_firstRow = firstRow;
+            m_rows = rows;
+        }
+
+        long getLastRow() {
+            return m_firstRow + m_rows.size() - 1;
+        }
+    }
+
+    /**
+     * Writes the input in batches. The calling thread reads the input rows and groups them into batches while one or
+     * more connections fill their prepared statements with previous batches and execute them. The number of batches
+     * waiting for a connection is bounded. With <b>failOnError</b> the first failing batch rolls back the
+     * transactions of all connections, otherwise failing batches are reported and the remaining batches are written.
+     * Additional connections are only opened if <b>nrConnections</b> is greater than one.
+     */
+    private String writeBatches(final Connection conn, final String insertStatement, final RowInput input,
+        final long rowCount, final ExecutionMonitor exec, final int[] mapping,
+        final Map<Integer, Integer> columnTypes, final CredentialsProvider cp, final int batchSize,
+        final boolean insertNullForMissingCols, final boolean failOnError, final int nrConnections) throws Exception {
+        final DatabaseConnectionSettings conSettings = getDatabaseConnectionSettings();
+        final DataTableSpec spec = input.getDataTableSpec();
+        final TimeZone timezone = conSettings.getTimeZone();
+        final BlockingQueue<RowBatch> queue = new ArrayBlockingQueue<>(2 * nrConnections);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicLong allErrors = new AtomicLong();
+        final AtomicLong errorCnt = new AtomicLong();
+
+        final List<Connection> connections = new ArrayList<>(nrConnections);
+        final List<PreparedStatement> statements = new ArrayList<>(nrConnections);
+        // remember auto-commit flag
+        final boolean autoCommit = conn.getAutoCommit();
+        boolean success = false;
+        try {
+            connections.add(conn);
+            for (int i = 1; i < nrConnections; i++) {
+                connections.add(conSettings.getUtility().getConnectionFactory().createDedicatedConnection(cp,
+                    conSettings));
+            }
+            for (final Connection c : connections) {
+                DatabaseConnectionSettings.setAutoCommit(c, false);
+                LOGGER.debug("Executing SQL statement as prepareStatement: " + insertStatement);
+                statements.add(c.prepareStatement(insertStatement));
+            }
+
+            final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(nrConnections);
+            final List<Future<?>> writers = new ArrayList<>(nrConnections);
+            final Callable<Long> reader = () -> {
+                for (int i = 0; i < nrConnections; i++) {
+                    final Connection c = connections.get(i);
+                    final PreparedStatement stmt = statements.get(i);
+                    writers.add(pool.enqueue(() -> {
+                        try {
+                            RowBatch batch;
+                            while ((failure.get() == null)
+                                && ((batch = queue.poll(100, TimeUnit.MILLISECONDS)) != RowBatch.END)) {
+                                if (batch != null) {
+                                    writeBatch(c, stmt, batch, spec, mapping, columnTypes, timezone,
+                                        insertNullForMissingCols, failOnError, allErrors, errorCnt, exec);
+                                }
+                            }
+                        } catch (Exception ex) {
+                            failure.compareAndSet(null, ex);
+                        }
+                        return null;
+                    }));
+                }
+                long cnt = 0;
+                try {
+                    List<DataRow> rows = new ArrayList<>(batchSize);
+                    DataRow row;
+                    while ((failure.get() == null) && ((row = input.poll()) != null)) {
+                        cnt++;
+                        exec.checkCanceled();
+                        if (rowCount > 0) {
+                            exec.setProgress(1.0 * cnt / rowCount, "Row " + "#" + cnt);
+                        } else {
+                            exec.setProgress("Writing Row#" + cnt);
+                        }
+                        rows.add(row);
+                        if (rows.size() == batchSize) {
+                            offer(queue, new RowBatch(cnt - rows.size() + 1, rows), failure);
+                            rows = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (!rows.isEmpty()) {
+                        offer(queue, new RowBatch(cnt - rows.size() + 1, rows), failure);
+                    }
+                    for (int i = 0; i < nrConnections; i++) {
+                        offer(queue, RowBatch.END, failure);
+                    }
+                } catch (Exception ex) {
+                    failure.compareAndSet(null, ex);
+                }
+                for (final Future<?> writer : writers) {
+                    writer.get();
+                }
+                return cnt;
+            };
+            final long cnt;
+            if (ThreadPool.currentPool() != null) {
+                // the calling thread must not block a thread that a writer is waiting for
+                cnt = pool.runInvisible(reader);
+            } else {
+                cnt = reader.call();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            for (final Connection c : connections) {
+                if (!c.getAutoCommit()) {
+                    c.commit();
+                }
+            }
+            success = true;
+            if (allErrors.get() == 0) {
+                return null;
+            } else {
+                return "Errors \"" + allErrors.get() + "\" writing " + cnt + " rows.";
+            }
+        } finally {
+            if (!success) {
+                for (final Connection c : connections) {
+                    try {
+                        if (failOnError) {
+                            //rollback all changes
+                            c.rollback();
+                            LOGGER.debug("Rollback complete transaction with auto commit=" + autoCommit);
+                        } else if (!c.getAutoCommit()) {
+                            // keep the rows that were written so far as a single connection would do
+                            c.commit();
+                        }
+                    } catch (Throwable ex) {
+                        LOGGER.info("Failed to finish transaction after db exception with auto commit=" + autoCommit
+                            + ". Error: " + ex.getMessage(), ex);
+                    }
+                }
+            }
+            for (final PreparedStatement stmt : statements) {
+                stmt.close();
+            }
+            DatabaseConnectionSettings.setAutoCommit(conn, autoCommit);
+            for (int i = 1; i < connections.size(); i++) {
+                connections.get(i).close();
+            }
+        }
+    }
+
+    /** Puts the batch into the queue unless a writer failed in the meantime. */
+    private static void offer(final BlockingQueue<RowBatch> queue, final RowBatch batch,
+        final AtomicReference<Exception> failure) throws InterruptedException {
+        while ((failure.get() == null) && !queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            // wait for a free slot
+        }
+    }
+
+    private void writeBatch(final Connection conn, final PreparedStatement stmt, final RowBatch batch,
+        final DataTableSpec spec, final int[] mapping, final Map<Integer, Integer> columnTypes,
+        final TimeZone timezone, final boolean insertNullForMissingCols, final boolean failOnError,
+        final AtomicLong allErrors, final AtomicLong errorCnt, final ExecutionMonitor exec) throws Exception {
+        try {
+            for (final DataRow row : batch.m_rows) {
+                int dbIdx = 1;
+                for (int i = 0; i < mapping.length; i++) {
+                    if (mapping[i] < 0) {
+                        if (insertNullForMissingCols) {
+                            //insert only null if the insert null for missing col option is enabled
+                            stmt.setNull(dbIdx++, Types.NULL);
+                        }
+                    } else {
+                        final DataColumnSpec cspec = spec.getColumnSpec(mapping[i]);
+                        final DataCell cell = row.getCell(mapping[i]);
+                        fillStatement(stmt, dbIdx++, cspec, cell, timezone, columnTypes);
+                    }
+                }
+                stmt.addBatch();
+            }
+            try {
+                stmt.executeBatch();
+            } catch (Throwable t) {
+                final String errorMsg = "Error while adding rows #" + batch.m_firstRow + " - #" + batch.getLastRow()
+                    + ", reason: " + t.getMessage();
+                if (failOnError) {
+                    throw new Exception(errorMsg, t);
+                }
+
+                // Postgres will refuse any more commands in this transaction after errors
+                // Therefore we commit the changes that were possible. We commit everything at the end
+                // anyway.
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+
+                allErrors.incrementAndGet();
+                final long errors = errorCnt.getAndIncrement();
+                if (errors < 10) {
+                    exec.setMessage(errorMsg);
+                    LOGGER.warn(errorMsg);
+                } else if (errors == 10) {
+                    exec.setMessage(errorMsg);
+                    LOGGER.warn(errorMsg + " - more errors...", t);
+                }
+            }
+        } finally {
+            stmt.clearBatch();
+        }
+    }
+
     /** Create connection to update table in database.
      * @param data The data to write.
      * @param setColumns columns part of the SET clause
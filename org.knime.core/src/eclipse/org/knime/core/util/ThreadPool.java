@@ -48,21 +48,26 @@
  */
 package org.knime.core.util;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.NodeLogger;
@@ -70,6 +75,14 @@
 /**
  * Implements a sophisticated thread pool.
  *
+ * <p>
+ * A pool and all its sub pools share the worker threads of the root pool. A task is started immediately if its pool
+ * and all ancestor pools have a free thread slot, otherwise it is queued. Tasks enqueued from a worker thread are put
+ * into the (lock-free) deque of that worker, tasks enqueued from other threads into a shared queue of the root pool.
+ * Whenever a worker has finished its task it takes the next startable task from its own deque, then from the shared
+ * queue and finally steals one from the deque of another worker. There is no global lock, tasks of saturated (sub)
+ * pools are simply skipped.
+ *
  * @author Thorsten Meinl, University of Konstanz
  */
 public class ThreadPool {
@@ -78,6 +91,12 @@ public class ThreadPool {
         private final CountDownLatch m_startWaiter = new CountDownLatch(1);
         private final ClassLoader m_contextClassloader = Thread.currentThread().getContextClassLoader();
 
+        /** Set once the future is taken for execution (or dropped), queues may still hold a reference to it. */
+        private final AtomicBoolean m_claimed = new AtomicBoolean();
+
+        /** {@link System#nanoTime()} when the future was queued. */
+        private long m_queuedAt;
+
         /**
          * @see FutureTask#FutureTask(Callable)
          */
@@ -110,6 +129,17 @@ public ThreadPool getPool() {
             return ThreadPool.this;
         }
 
+        /**
+         * @return <code>true</code> if the caller is the one to take this future for execution
+         */
+        boolean claim() {
+            return m_claimed.compareAndSet(false, true);
+        }
+
+        boolean isClaimed() {
+            return m_claimed.get();
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -201,22 +231,31 @@ private static class Worker extends Thread {
 
         private MyFuture<?> m_runnable;
 
-        private ThreadPool m_startedFrom;
+        private volatile ThreadPool m_startedFrom;
 
         private boolean m_stopped;
 
+        /** The root pool this worker belongs to. */
+        private final ThreadPool m_root;
+
+        /** Tasks enqueued by this worker that could not be started immediately, other workers may steal them. */
+        private final Deque<MyFuture<?>> m_deque = new ConcurrentLinkedDeque<MyFuture<?>>();
+
         // set context class loader after each runnable#run -- we had problems with some cxf web service client that
         // hijacked the current thread and subsequent runnables were using some URL class loader set by cxf
         private final ClassLoader m_contextClassLoaderAtInit;
 
         /**
          * Creates a new worker.
+         *
+         * @param root the root pool the worker belongs to
          */
-        public Worker() {
+        public Worker(final ThreadPool root) {
             super("KNIME-Worker-" + workerCounter++);
             setPriority(Thread.MIN_PRIORITY + 2);
             setDaemon(true);
             m_contextClassLoaderAtInit = getContextClassLoader();
+            m_root = root;
         }
 
         /**
@@ -224,54 +263,72 @@ public Worker() {
          */
         @Override
         public void run() {
-            while (!isInterrupted()) {
-                ThreadPool startedFrom;
-                synchronized (m_lock) {
-                    if (m_runnable == null) {
-                        try {
-                            m_lock.wait(90 * 1000);
+            try {
+                while (true) {
+                    MyFuture<?> task;
+                    synchronized (m_lock) {
+                        if (m_runnable == null) {
+                            try {
+                                m_lock.wait(90 * 1000);
+                            } catch (InterruptedException ex) {
+                                // a task might have been handed over just before, it's run below
+                            }
                             if (m_runnable == null) {
-                                // then the timeout has occurred
-                                // and we end the thread
+                                // then the timeout has occurred (or the worker was interrupted
+                                // while idle) and we end the thread
                                 m_stopped = true;
                                 return;
                             }
-                        } catch (InterruptedException ex) {
-                            return;
                         }
+                        task = m_runnable;
                     }
-                    startedFrom = m_startedFrom;
-
-                    try {
-                        m_runnable.run();
-                        m_runnable.checkException();
-                    } catch (InterruptedException ex) {
-                        NodeLogger.getLogger(ThreadPool.class).debug("Thread was interrupted");
-                    } catch (CancellationException ex) {
-                        NodeLogger.getLogger(ThreadPool.class).debug("Future was canceled");
-                    } catch (ExecutionException ex) {
-                        if (!(ex.getCause() instanceof CanceledExecutionException)) {
-                            // canceled execution exception is fine and will not be reported
-                            NodeLogger.getLogger(ThreadPool.class).error(
-                                "An exception occurred while executing a runnable.", ex.getCause());
+
+                    runTask(task);
+                    // an interrupt was meant for the task (see ThreadPool#interruptAll)
+                    Thread.interrupted();
+                    m_startedFrom.workerFinished(this);
+
+                    // take the next task right away instead of going to sleep
+                    final MyFuture<?> next = m_root.pollQueued(this);
+                    synchronized (m_lock) {
+                        m_runnable = next;
+                        if (next != null) {
+                            m_startedFrom = next.getPool();
+                        } else {
+                            m_root.m_availableWorkers.add(this);
                         }
-                    } catch (Exception ex) {
-                        // prevent the worker from being terminated
-                        NodeLogger.getLogger(ThreadPool.class).error("An exception occurred while executing "
-                                + "a runnable.", ex);
-                    } finally {
-                        setContextClassLoader(m_contextClassLoaderAtInit);
                     }
-                    m_runnable = null;
                 }
-                startedFrom.workerFinished(this);
+            } finally {
+                m_root.workerTerminated(this);
+            }
+        }
+
+        private void runTask(final MyFuture<?> task) {
+            try {
+                task.run();
+                task.checkException();
+            } catch (InterruptedException ex) {
+                NodeLogger.getLogger(ThreadPool.class).debug("Thread was interrupted");
+            } catch (CancellationException ex) {
+                NodeLogger.getLogger(ThreadPool.class).debug("Future was canceled");
+            } catch (ExecutionException ex) {
+                if (!(ex.getCause() instanceof CanceledExecutionException)) {
+                    // canceled execution exception is fine and will not be reported
+                    NodeLogger.getLogger(ThreadPool.class).error(
+                            "An exception occurred while executing a runnable.", ex.getCause());
+                }
+            } catch (Exception ex) {
+                // prevent the worker from being terminated
+                NodeLogger.getLogger(ThreadPool.class).error("An exception occurred while executing "
+                        + "a runnable.", ex);
+            } finally {
+                setContextClassLoader(m_contextClassLoaderAtInit);
             }
         }
 
         /**
-         * Sets the runnable for this (sleeping) worker and awakes it. This
-         * method waits until the worker has finished the previous task if it is
-         * currently executing one.
+         * Sets the runnable for this (sleeping) worker and awakes it.
          *
          * @param r the Runnable to run
          * @param pool the pool from which the worker is taken from
@@ -280,7 +337,7 @@ public void run() {
          */
         public boolean wakeup(final MyFuture<?> r, final ThreadPool pool) {
             synchronized (m_lock) {
-                if (m_stopped || !isAlive()) {
+                if (m_stopped || !isAlive() || (m_runnable != null)) {
                     return false;
                 }
                 m_runnable = r;
@@ -289,21 +346,47 @@ public boolean wakeup(final MyFuture<?> r, final ThreadPool pool) {
             }
             return true;
         }
+
+        /**
+         * @return the pool of the task that is currently executed or <code>null</code> if the worker is idle
+         */
+        ThreadPool getRunningPool() {
+            synchronized (m_lock) {
+                return m_runnable == null ? null : m_startedFrom;
+            }
+        }
     }
 
+    private final ThreadPool m_parent;
+
+    private final ThreadPool m_root;
+
+    /** Idle workers, only used in the root pool. */
     private final Queue<Worker> m_availableWorkers;
 
+    /** All live workers, only used in the root pool. */
+    private final List<Worker> m_workers;
+
+    /** Queued tasks enqueued by threads other than workers, only used in the root pool. */
+    private final Queue<MyFuture<?>> m_sharedQueue;
+
     private final AtomicInteger m_maxThreads = new AtomicInteger();
 
     private final AtomicInteger m_invisibleThreads = new AtomicInteger();
 
     private final AtomicInteger m_pendingJobs = new AtomicInteger();
 
-    private final ThreadPool m_parent;
+    /** Number of running tasks in this pool and its sub pools. */
+    private final AtomicInteger m_runningThreads = new AtomicInteger();
+
+    /** Number of queued tasks in this pool and its sub pools. */
+    private final AtomicInteger m_queuedTasks = new AtomicInteger();
 
-    private final Queue<MyFuture<?>> m_queuedFutures;
+    private final AtomicLong m_dequeuedTasks = new AtomicLong();
 
-    private final Set<Worker> m_runningWorkers = new HashSet<Worker>();
+    private final AtomicLong m_totalWaitNanos = new AtomicLong();
+
+    private final AtomicLong m_stolenTasks = new AtomicLong();
 
     /**
      * Creates a new ThreadPool with a maximum number of threads.
@@ -316,8 +399,10 @@ public ThreadPool(final int maxThreads) {
         }
         m_maxThreads.set(maxThreads);
         m_parent = null;
-        m_queuedFutures = new LinkedList<MyFuture<?>>();
+        m_root = this;
         m_availableWorkers = new ConcurrentLinkedQueue<Worker>();
+        m_workers = new CopyOnWriteArrayList<Worker>();
+        m_sharedQueue = new ConcurrentLinkedQueue<MyFuture<?>>();
     }
 
     /**
@@ -331,28 +416,229 @@ protected ThreadPool(final int maxThreads, final ThreadPool parent) {
             throw new IllegalArgumentException("Thread count must be > 0");
         }
         m_parent = parent;
+        m_root = parent.m_root;
         m_maxThreads.set(maxThreads);
-        m_queuedFutures = m_parent.m_queuedFutures;
         m_availableWorkers = null;
+        m_workers = null;
+        m_sharedQueue = null;
     }
 
+    /**
+     * Starts one queued task if possible, called when an additional thread slot may have become available.
+     *
+     * @return <code>true</code> if a task has been started
+     */
     private boolean checkQueue() {
-        synchronized (m_queuedFutures) {
-            for (Iterator<MyFuture<?>> it = m_queuedFutures.iterator(); it
-                    .hasNext();) {
-                MyFuture<?> f = it.next();
-                if (f.isCancelled()) {
+        return m_root.dispatchQueued(1) > 0;
+    }
+
+    /**
+     * Starts up to <b>maxTasks</b> queued tasks that fit into their pools. Only called on the root pool.
+     *
+     * @param maxTasks the maximum number of tasks to start
+     * @return the number of started tasks
+     */
+    private int dispatchQueued(final int maxTasks) {
+        final Thread currentThread = Thread.currentThread();
+        final Worker self = (currentThread instanceof Worker) && (((Worker)currentThread).m_root == this)
+            ? (Worker)currentThread : null;
+        int started = 0;
+        while (started < maxTasks) {
+            final MyFuture<?> task = pollQueued(self);
+            if (task == null) {
+                break;
+            }
+            startOnWorker(task);
+            started++;
+        }
+        return started;
+    }
+
+    /**
+     * Takes the next startable task out of the queues, looking at the deque of <b>self</b> first, then at the shared
+     * queue and finally at the deques of the other workers. A thread slot is already acquired for the returned task.
+     * Only called on the root pool.
+     *
+     * @param self the worker looking for work, may be <code>null</code>
+     * @return a task or <code>null</code> if there is no startable task
+     */
+    private MyFuture<?> pollQueued(final Worker self) {
+        MyFuture<?> task;
+        if (self != null) {
+            task = pollQueued(self.m_deque, false);
+            if (task != null) {
+                return task;
+            }
+        }
+        task = pollQueued(m_sharedQueue, false);
+        if (task != null) {
+            return task;
+        }
+        final Object[] workers = m_workers.toArray();
+        if (workers.length == 0) {
+            return null;
+        }
+        // start at a random worker so that thieves don't all compete for the same deque
+        final int offset = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            final Worker victim = (Worker)workers[(offset + i) % workers.length];
+            if (victim != self) {
+                task = pollQueued(victim.m_deque, true);
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static MyFuture<?> pollQueued(final Queue<MyFuture<?>> queue, final boolean isSteal) {
+        ThreadPool saturatedPool = null;
+        for (Iterator<MyFuture<?>> it = queue.iterator(); it.hasNext();) {
+            final MyFuture<?> task = it.next();
+            final ThreadPool pool = task.getPool();
+            if (task.isClaimed()) {
+                // already started by someone else
+                it.remove();
+            } else if (task.isCancelled()) {
+                if (task.claim()) {
                     it.remove();
-                } else {
-                    ThreadPool pool = f.getPool();
-                    if (pool.wakeupWorker(f, pool) != null) {
-                        it.remove();
-                        return true;
-                    }
+                    pool.updateQueuedTasks(-1);
+                    pool.decrementPendingJobs();
+                }
+            } else if ((pool != saturatedPool) && pool.tryAcquireSlot()) {
+                if (task.claim()) {
+                    it.remove();
+                    pool.dequeued(task, isSteal);
+                    return task;
                 }
+                pool.releaseSlot();
+            } else {
+                // consecutive tasks usually belong to the same pool
+                saturatedPool = pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands the task, for which a slot has already been acquired, to an idle or a new worker. Only called on the root
+     * pool.
+     *
+     * @param task the task to run
+     */
+    private void startOnWorker(final MyFuture<?> task) {
+        Worker w = m_availableWorkers.poll();
+        while ((w == null) || !w.wakeup(task, task.getPool())) {
+            w = new Worker(this);
+            m_workers.add(w);
+            w.start();
+        }
+    }
+
+    /**
+     * Called by a worker (of this root pool) that ends. Moves tasks left in its deque to the shared queue.
+     *
+     * @param w the worker
+     */
+    private void workerTerminated(final Worker w) {
+        m_workers.remove(w);
+        m_availableWorkers.remove(w);
+        int moved = 0;
+        MyFuture<?> task;
+        while ((task = w.m_deque.pollFirst()) != null) {
+            if (!task.isClaimed()) {
+                m_sharedQueue.add(task);
+                moved++;
+            }
+        }
+        if (moved > 0) {
+            // a slot might have been released while the tasks were moved
+            dispatchQueued(moved);
+        }
+    }
+
+    /**
+     * Tries to acquire a thread slot in this pool and all its ancestors.
+     *
+     * @return <code>true</code> if the slot has been acquired
+     */
+    private boolean tryAcquireSlot() {
+        for (ThreadPool pool = this; pool != null; pool = pool.m_parent) {
+            if (!pool.tryIncrementRunningThreads()) {
+                for (ThreadPool p = this; p != pool; p = p.m_parent) {
+                    p.m_runningThreads.decrementAndGet();
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tryIncrementRunningThreads() {
+        while (true) {
+            final int running = m_runningThreads.get();
+            if (running - m_invisibleThreads.get() >= m_maxThreads.get()) {
+                return false;
+            }
+            if (m_runningThreads.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseSlot() {
+        for (ThreadPool pool = this; pool != null; pool = pool.m_parent) {
+            pool.m_runningThreads.decrementAndGet();
+        }
+    }
+
+    private void updateQueuedTasks(final int delta) {
+        for (ThreadPool pool = this; pool != null; pool = pool.m_parent) {
+            pool.m_queuedTasks.addAndGet(delta);
+        }
+    }
+
+    private void dequeued(final MyFuture<?> task, final boolean isSteal) {
+        final long waitNanos = System.nanoTime() - task.m_queuedAt;
+        for (ThreadPool pool = this; pool != null; pool = pool.m_parent) {
+            pool.m_queuedTasks.decrementAndGet();
+            pool.m_dequeuedTasks.incrementAndGet();
+            pool.m_totalWaitNanos.addAndGet(waitNanos);
+            if (isSteal) {
+                pool.m_stolenTasks.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Starts the task if a thread slot is available, queues it otherwise.
+     *
+     * @param task a new task (pending jobs already incremented)
+     */
+    private void startOrQueue(final MyFuture<?> task) {
+        if (tryAcquireSlot()) {
+            task.claim();
+            m_root.startOnWorker(task);
+            return;
+        }
+        task.m_queuedAt = System.nanoTime();
+        updateQueuedTasks(1);
+        final Thread currentThread = Thread.currentThread();
+        if ((currentThread instanceof Worker) && (((Worker)currentThread).m_root == m_root)) {
+            ((Worker)currentThread).m_deque.addLast(task);
+        } else {
+            m_root.m_sharedQueue.add(task);
+        }
+        // a slot might have been released after the failed attempt but before the task was visible in the queue
+        if (tryAcquireSlot()) {
+            if (task.claim()) {
+                dequeued(task, false);
+                m_root.startOnWorker(task);
+            } else {
+                releaseSlot();
             }
         }
-        return false;
     }
 
     /**
@@ -405,14 +691,8 @@ public <T> Future<T> enqueue(final Callable<T> task) {
         }
 
         MyFuture<T> ftask = new MyFuture<T>(task);
-
-        synchronized (m_queuedFutures) {
-            incrementPendingJobs();
-            if (wakeupWorker(ftask, this) == null) {
-                m_queuedFutures.add(ftask);
-            }
-        }
-
+        incrementPendingJobs();
+        startOrQueue(ftask);
         return ftask;
     }
 
@@ -447,14 +727,8 @@ private void decrementPendingJobs() {
      */
     public Future<?> enqueue(final Runnable r) {
         MyFuture<?> ftask = new MyFuture<Object>(r, null);
-
-        synchronized (m_queuedFutures) {
-            incrementPendingJobs();
-            if (wakeupWorker(ftask, this) == null) {
-                m_queuedFutures.add(ftask);
-            }
-        }
-
+        incrementPendingJobs();
+        startOrQueue(ftask);
         return ftask;
     }
 
@@ -484,16 +758,7 @@ public Future<?> enqueue(final Runnable r) {
      */
     public <T> Future<T> trySubmit(final Callable<T> t) {
         MyFuture<T> ftask = new MyFuture<T>(t);
-
-        synchronized (m_queuedFutures) {
-            incrementPendingJobs();
-            if (wakeupWorker(ftask, this) == null) {
-                decrementPendingJobs();
-                return null;
-            }
-        }
-
-        return ftask;
+        return tryStart(ftask) ? ftask : null;
     }
 
     /**
@@ -510,41 +775,17 @@ public <T> Future<T> trySubmit(final Callable<T> t) {
      */
     public Future<?> trySubmit(final Runnable r) {
         MyFuture<?> ftask = new MyFuture<Object>(r, null);
-
-        synchronized (m_queuedFutures) {
-            incrementPendingJobs();
-            if (wakeupWorker(ftask, this) == null) {
-                decrementPendingJobs();
-                return null;
-            }
-        }
-
-        return ftask;
+        return tryStart(ftask) ? ftask : null;
     }
 
-    private Worker wakeupWorker(final MyFuture<?> task, final ThreadPool pool) {
-        synchronized (m_runningWorkers) {
-            if (m_runningWorkers.size() - m_invisibleThreads.get() < m_maxThreads
-                    .get()) {
-                Worker w;
-                if (m_parent == null) {
-                    w = m_availableWorkers.poll();
-                    while ((w == null) || !w.wakeup(task, pool)) {
-                        w = new Worker();
-                        w.start();
-                    }
-                } else {
-                    w = m_parent.wakeupWorker(task, pool);
-                }
-
-                if (w != null) {
-                    m_runningWorkers.add(w);
-                }
-                return w;
-            } else {
-                return null;
-            }
+    private boolean tryStart(final MyFuture<?> task) {
+        if (!tryAcquireSlot()) {
+            return false;
         }
+        task.claim();
+        incrementPendingJobs();
+        m_root.startOnWorker(task);
+        return true;
     }
 
     /**
@@ -563,7 +804,51 @@ public int getMaxThreads() {
      * @return the number of running threads
      */
     public int getRunningThreads() {
-        return m_runningWorkers.size() - m_invisibleThreads.get();
+        return m_runningThreads.get() - m_invisibleThreads.get();
+    }
+
+    /**
+     * Returns the number of tasks of this pool and its sub pools that are waiting for a free thread.
+     *
+     * @return the number of queued tasks
+     * @since 3.7
+     */
+    public int getQueuedTasks() {
+        return m_queuedTasks.get();
+    }
+
+    /**
+     * Returns the number of tasks of this pool and its sub pools that had to wait for a free thread and have been
+     * started since the pool was created.
+     *
+     * @return the number of started tasks that were queued before
+     * @since 3.7
+     */
+    public long getDequeuedTasks() {
+        return m_dequeuedTasks.get();
+    }
+
+    /**
+     * Returns the summed up time that the tasks counted by {@link #getDequeuedTasks()} have been waiting in the
+     * queue.
+     *
+     * @param unit the time unit of the result
+     * @return the total wait time
+     * @since 3.7
+     */
+    public long getTotalWaitTime(final TimeUnit unit) {
+        return unit.convert(m_totalWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of queued tasks of this pool and its sub pools that have been started by a worker other than
+     * the one that enqueued them (work stealing).
+     *
+     * @return the number of stolen tasks
+     * @since 3.7
+     */
+    public long getStolenTasks() {
+        return m_stolenTasks.get();
     }
 
     /**
@@ -590,19 +875,8 @@ public <T> T runInvisible(final Callable<T> r) throws ExecutionException {
 
         Worker thisWorker = (Worker)Thread.currentThread();
 
-        boolean b;
-        synchronized (m_runningWorkers) {
-            b = m_runningWorkers.contains(thisWorker);
-        }
-
-        if (!b) {
-            synchronized (thisWorker.m_startedFrom.m_runningWorkers) {
-                b =
-                        thisWorker.m_startedFrom.m_runningWorkers
-                                .contains(thisWorker);
-            }
-
-            if (!b) {
+        if (!isSelfOrAncestorOf(thisWorker.m_startedFrom)) {
+            if (thisWorker.m_root != m_root) {
                 throw new IllegalThreadStateException("The current thread is "
                         + "not taken out of this thread pool");
             }
@@ -622,6 +896,15 @@ public <T> T runInvisible(final Callable<T> r) throws ExecutionException {
 
     }
 
+    private boolean isSelfOrAncestorOf(final ThreadPool pool) {
+        for (ThreadPool p = pool; p != null; p = p.m_parent) {
+            if (p == this) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Sets the maximum number of threads in the pool. If the new value is
      * smaller than the old value running surplus threads will not be
@@ -643,21 +926,27 @@ public void setMaxThreads(final int newValue) {
             }
         }
         m_maxThreads.set(newValue);
-        checkQueue();
+        m_root.dispatchQueued(Integer.MAX_VALUE);
     }
 
     /**
      * Shuts the pool down, still running threads are not interrupted.
      */
     public void shutdown() {
-        synchronized (m_queuedFutures) {
-            Iterator<MyFuture<?>> it = m_queuedFutures.iterator();
+        final List<Queue<MyFuture<?>>> queues = new ArrayList<Queue<MyFuture<?>>>();
+        queues.add(m_root.m_sharedQueue);
+        for (Worker w : m_root.m_workers) {
+            queues.add(w.m_deque);
+        }
+        for (Queue<MyFuture<?>> queue : queues) {
+            Iterator<MyFuture<?>> it = queue.iterator();
             while (it.hasNext()) {
                 MyFuture<?> future = it.next();
-                if (future.getPool() == this) {
+                if ((future.getPool() == this) && future.claim()) {
+                    it.remove();
+                    updateQueuedTasks(-1);
                     decrementPendingJobs();
                     future.cancel(true);
-                    it.remove();
                 }
             }
         }
@@ -669,8 +958,10 @@ public void shutdown() {
      * Interrupts all running jobs.
      */
     public void interruptAll() {
-        for (Worker w : m_runningWorkers) {
-            w.interrupt();
+        for (Worker w : m_root.m_workers) {
+            if (isSelfOrAncestorOf(w.getRunningPool())) {
+                w.interrupt();
+            }
         }
     }
 
@@ -749,26 +1040,8 @@ public void waitForTermination() throws InterruptedException {
      * @param w the finished worker
      */
     protected void workerFinished(final Worker w) {
-        if (m_pendingJobs.decrementAndGet() == 0) {
-            synchronized (m_pendingJobs) {
-                m_pendingJobs.notifyAll();
-            }
-        }
-
-        if (m_parent != null) {
-            synchronized (m_runningWorkers) {
-                m_runningWorkers.remove(w);
-            }
-            m_parent.workerFinished(w);
-        } else { // this is the root pool
-            synchronized (m_runningWorkers) {
-                m_runningWorkers.remove(w);
-                m_availableWorkers.add(w);
-            }
-            if (checkQueue()) {
-                return;
-            }
-        }
+        releaseSlot();
+        decrementPendingJobs();
     }
 
     /**
@@ -808,6 +1081,6 @@ public static ThreadPool currentPool() {
      * @return the queue size
      */
     int getQueueSize() {
-        return m_queuedFutures.size();
+        return m_root.m_queuedTasks.get();
     }
 }
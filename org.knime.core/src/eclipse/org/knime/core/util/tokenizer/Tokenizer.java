@@ -46,6 +46,7 @@
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Vector;
 
 /**
@@ -76,6 +77,11 @@
  * inside a token or quoted string.
  * <p>
  * You can push back one (the last) token.
+ * <p>
+ * The stream is read in blocks of characters. Sequences of ordinary
+ * characters are copied from the block into the token at once, and single
+ * character delimiters, quotes and comments are recognized without reading
+ * ahead.
  *
  * @author Peter Ohl, University of Konstanz
  */
@@ -155,6 +161,20 @@ public class Tokenizer {
      */
     private static final int BUFFER_LENGTH = 31;
 
+    /*
+     * the number of characters read from the source at once
+     */
+    private static final int BLOCK_LENGTH = 1 << 16;
+
+    /* the block of characters read from the source, not yet returned */
+    private final char[] m_block;
+
+    /* the index of the next character in the block */
+    private int m_blockIdx;
+
+    /* the number of valid characters in the block */
+    private int m_blockLength;
+
     /* our read buffer, realized as ring buffer with the following pointers */
     private int[] m_readBuffer;
 
@@ -165,7 +185,28 @@ public class Tokenizer {
     private int m_eobIdx;
 
     /* we build the token in here */
-    private StringBuffer m_newToken;
+    private final StringBuilder m_newToken;
+
+    /* the characters read while matching a pattern, reused for each match */
+    private final StringBuilder m_matchBuffer;
+
+    /*
+     * the single character delimiter, quote and comment patterns by their
+     * character. These are matched without reading ahead, since no longer
+     * pattern can be preferred over them.
+     */
+    private final Delimiter[] m_charDelimiters;
+
+    private final Quote[] m_charQuotes;
+
+    private final Comment[] m_charComments;
+
+    /* the begin patterns of all delimiters, quotes and comments */
+    private String[] m_delimBegins;
+
+    private String[] m_quoteBegins;
+
+    private String[] m_commentBegins;
 
     /* the token returned by the last call to next() */
     private String m_lastToken;
@@ -216,6 +257,9 @@ public class Tokenizer {
     public Tokenizer(final Reader source) {
 
         m_source = source;
+        m_block = new char[BLOCK_LENGTH];
+        m_blockIdx = 0;
+        m_blockLength = 0;
         m_readBuffer = new int[BUFFER_LENGTH];
         m_currIdx = 0;
         m_eobIdx = 0;
@@ -224,6 +268,9 @@ public Tokenizer(final Reader source) {
         m_readBytes = 0;
 
         m_charType = new int[MAX_CHAR + 1];
+        m_charDelimiters = new Delimiter[MAX_CHAR + 1];
+        m_charQuotes = new Quote[MAX_CHAR + 1];
+        m_charComments = new Comment[MAX_CHAR + 1];
 
         m_delimPatterns = new Vector<Delimiter>();
         m_quotePatterns = new Vector<Quote>();
@@ -235,7 +282,8 @@ public Tokenizer(final Reader source) {
         m_linesSkipped = 0;
         m_allowLFinQuotes = false;
 
-        m_newToken = new StringBuffer();
+        m_newToken = new StringBuilder();
+        m_matchBuffer = new StringBuilder();
         m_lastToken = null;
         m_pushedBack = false;
         m_lastQuotes = null;
@@ -271,6 +319,7 @@ public void resetToDefault() {
         m_quotePatterns.clear();
         m_commentPatterns.clear();
         m_whiteSpaces.clear();
+        initPatternLookup();
 
         m_combineMultipleDelimiters = false;
         m_linesToSkip = 0;
@@ -344,8 +393,10 @@ public String nextToken() throws TokenizerException {
                 ctype = m_charType[c & MAX_CHAR];
             }
             if (ctype == 0) {
-                // it's an ordinary character - just add it to the result
+                // it's an ordinary character - just add it to the result,
+                // together with all ordinary characters following it
                 m_newToken.append((char)c);
+                appendOrdinaryChars();
                 c = getNextChar();
                 continue;
             }
@@ -484,7 +535,7 @@ private int getNextChar() {
             // m_currIdx points to the last char read from the buffer
             if (m_eobIdx == m_currIdx) {
                 // we need to read a new character from the stream
-                if ((m_readBuffer[m_currIdx] = m_source.read()) == -1) {
+                if ((m_readBuffer[m_currIdx] = readFromSource()) == -1) {
                     // seen the EOF. Any further read will cause IOException.
                     m_source.close();
                 }
@@ -492,7 +543,7 @@ private int getNextChar() {
                 if (m_readBuffer[m_currIdx] == CR) {
                     // read the next char to see if we need to swallow the CR
                     m_eobIdx = (m_eobIdx + 1) % BUFFER_LENGTH;
-                    if ((m_readBuffer[m_eobIdx] = m_source.read()) == LF) {
+                    if ((m_readBuffer[m_eobIdx] = readFromSource()) == LF) {
                         m_currIdx = m_eobIdx;
                         // incr currIdx as well, which makes them equal again...
                     }
@@ -511,6 +562,52 @@ private int getNextChar() {
         }
     }
 
+    /*
+     * Returns the next character of the block and reads the next block from
+     * the stream if all characters of the block were returned. @return The
+     * next character of the stream, or -1 if EOF was seen.
+     */
+    private int readFromSource() throws IOException {
+        while (m_blockIdx >= m_blockLength) {
+            int length = m_source.read(m_block, 0, m_block.length);
+            if (length < 0) {
+                return EOF;
+            }
+            m_blockIdx = 0;
+            m_blockLength = length;
+        }
+        return m_block[m_blockIdx++];
+    }
+
+    /*
+     * Appends all ordinary characters (that are no CR or LF and don't have any
+     * special type) that follow in the current block to the token, scanning
+     * the block directly. Characters in the read buffer must be read with
+     * getNextChar() first, in which case nothing is appended.
+     */
+    private void appendOrdinaryChars() {
+        if (m_eobIdx != m_currIdx) {
+            return;
+        }
+        final char[] block = m_block;
+        final int[] charType = m_charType;
+        final int start = m_blockIdx;
+        final int end = m_blockLength;
+        int idx = start;
+        while (idx < end) {
+            char c = block[idx];
+            if (c == CR || c == LF || charType[c & MAX_CHAR] != 0) {
+                break;
+            }
+            idx++;
+        }
+        if (idx > start) {
+            m_newToken.append(block, start, idx - start);
+            m_readBytes += idx - start;
+            m_blockIdx = idx;
+        }
+    }
+
     /*
      * Stores the character in c in the read buffer. The next call to <code>
      * getNextChar() </code> will return it then. Can be called several times -
@@ -569,12 +666,8 @@ private int readWhiteSpaces() {
      *         of whitespaces.
      */
     public boolean isWhiteSpace(final char c) {
-        for (int w = 0; w < m_whiteSpaces.size(); w++) {
-            if (m_whiteSpaces.get(w).charAt(0) == c) {
-                return true;
-            }
-        }
-        return false;
+        // all whitespaces are flagged in the character type lookup
+        return (c <= MAX_CHAR) && ((m_charType[c] & WSCHAR) != 0);
     }
 
     /**
@@ -582,10 +675,10 @@ public boolean isWhiteSpace(final char c) {
      * beginning!). It will not change anything in the string before or at the
      * specified index (this is for leaving quoted parts untouched).
      *
-     * @param str the stringbuffer to modify
+     * @param str the stringbuilder to modify
      * @param index the lowest index we may modify
      */
-    private void cutOffWhiteSpaces(final StringBuffer str, final int index) {
+    private void cutOffWhiteSpaces(final StringBuilder str, final int index) {
 
         if (str.length() == 0) {
             return;
@@ -619,12 +712,12 @@ private void cutOffWhiteSpaces(final StringBuffer str, final int index) {
      * </code> if no matching pattern exists.
      */
     private Comment isCommentPattern() {
-        String[] patterns = new String[m_commentPatterns.size()];
-        for (int i = 0; i < patterns.length; i++) {
-            patterns[i] = m_commentPatterns.get(i).getBegin();
+        int c = peekChar();
+        if ((c >= 0) && (c <= MAX_CHAR) && (m_charComments[c] != null)) {
+            return m_charComments[c];
         }
 
-        int index = matchPattern(patterns);
+        int index = matchPattern(m_commentBegins.clone());
         if (index >= 0) {
             return m_commentPatterns.get(index);
         } else {
@@ -636,12 +729,12 @@ private Comment isCommentPattern() {
      * @see #isCommentPattern
      */
     private Delimiter isDelimiterPattern() {
-        String[] patterns = new String[m_delimPatterns.size()];
-        for (int i = 0; i < patterns.length; i++) {
-            patterns[i] = m_delimPatterns.get(i).getDelimiter();
+        int c = peekChar();
+        if ((c >= 0) && (c <= MAX_CHAR) && (m_charDelimiters[c] != null)) {
+            return m_charDelimiters[c];
         }
 
-        int index = matchPattern(patterns);
+        int index = matchPattern(m_delimBegins.clone());
         if (index >= 0) {
             return m_delimPatterns.get(index);
         } else {
@@ -654,12 +747,12 @@ private Delimiter isDelimiterPattern() {
      * @see #isCommentPattern
      */
     private Quote isQuotePattern() {
-        String[] patterns = new String[m_quotePatterns.size()];
-        for (int i = 0; i < patterns.length; i++) {
-            patterns[i] = m_quotePatterns.get(i).getLeft();
+        int c = peekChar();
+        if ((c >= 0) && (c <= MAX_CHAR) && (m_charQuotes[c] != null)) {
+            return m_charQuotes[c];
         }
 
-        int index = matchPattern(patterns);
+        int index = matchPattern(m_quoteBegins.clone());
         if (index >= 0) {
             return m_quotePatterns.get(index);
         } else {
@@ -667,6 +760,61 @@ private Quote isQuotePattern() {
         }
     }
 
+    /*
+     * Returns the next character without removing it from the stream (or
+     * buffer). @return The next character, or -1 if EOF was seen (which is
+     * not pushed back, like in matchPattern).
+     */
+    private int peekChar() {
+        int c = getNextChar();
+        if (c != EOF) {
+            putBackChar(c);
+        }
+        return c;
+    }
+
+    /*
+     * Fills the lookups for the single character patterns and the arrays with
+     * the begin patterns from the current delimiter, quote and comment
+     * patterns. A single character pattern is the first pattern of its kind
+     * matchPattern would return for that character.
+     */
+    private void initPatternLookup() {
+        Arrays.fill(m_charDelimiters, null);
+        Arrays.fill(m_charQuotes, null);
+        Arrays.fill(m_charComments, null);
+        m_delimBegins = new String[m_delimPatterns.size()];
+        for (int i = 0; i < m_delimBegins.length; i++) {
+            Delimiter delim = m_delimPatterns.get(i);
+            m_delimBegins[i] = delim.getDelimiter();
+            char c = delim.getFirstChar();
+            if ((m_delimBegins[i].length() == 1) && (c <= MAX_CHAR)
+                    && (m_charDelimiters[c] == null)) {
+                m_charDelimiters[c] = delim;
+            }
+        }
+        m_quoteBegins = new String[m_quotePatterns.size()];
+        for (int i = 0; i < m_quoteBegins.length; i++) {
+            Quote quote = m_quotePatterns.get(i);
+            m_quoteBegins[i] = quote.getLeft();
+            char c = quote.getFirstCharOfLeft();
+            if ((m_quoteBegins[i].length() == 1) && (c <= MAX_CHAR)
+                    && (m_charQuotes[c] == null)) {
+                m_charQuotes[c] = quote;
+            }
+        }
+        m_commentBegins = new String[m_commentPatterns.size()];
+        for (int i = 0; i < m_commentBegins.length; i++) {
+            Comment comment = m_commentPatterns.get(i);
+            m_commentBegins[i] = comment.getBegin();
+            char c = comment.getFirstCharOfBegin();
+            if ((m_commentBegins[i].length() == 1) && (c <= MAX_CHAR)
+                    && (m_charComments[c] == null)) {
+                m_charComments[c] = comment;
+            }
+        }
+    }
+
     /*
      * Given an array of Strings it trys to read from the stream until it can
      * match one of the patterns in the array. It returns the index of the match
@@ -681,7 +829,8 @@ private int matchPattern(final String[] patterns) {
         int possibleMatches = patterns.length;
         int charPos;
         int nextChar;
-        StringBuffer buffer = new StringBuffer();
+        StringBuilder buffer = m_matchBuffer;
+        buffer.setLength(0);
         int result;
         /*
          * Here is what we do: We read one char after each other. With each new
@@ -1132,8 +1281,9 @@ public long getReadBytes() {
      * <code>null</code> (indicating the end of the file).
      */
     public void closeSourceStream() {
-        // discard any characters pushed back.
+        // discard any characters pushed back or read ahead.
         clearReadBuffer();
+        m_blockIdx = m_blockLength;
         try {
             m_source.close();
         } catch (IOException ioe) {
@@ -1201,6 +1351,7 @@ public void setSettings(final TokenizerSettings ftSettings) {
             // set the new one
             m_charType[lcc.charAt(0)] |= LINECONT;
         }
+        initPatternLookup();
 
         // not to forget the flag to combine multiple (different) delimiters
         m_combineMultipleDelimiters = ftSettings.getCombineMultipleDelimiters();
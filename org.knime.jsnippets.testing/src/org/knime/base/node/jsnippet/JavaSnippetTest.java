@@ -2,9 +2,12 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
 
 import javax.swing.text.Document;
 
@@ -14,10 +17,17 @@
 import org.knime.base.node.jsnippet.expression.Abort;
 import org.knime.base.node.jsnippet.expression.AbstractJSnippet;
 import org.knime.base.node.jsnippet.type.ConverterUtil;
+import org.knime.base.node.jsnippet.util.FlowVariableRepository;
 import org.knime.base.node.jsnippet.util.JavaSnippetFields;
 import org.knime.base.node.jsnippet.util.JavaSnippetSettings;
 import org.knime.base.node.jsnippet.util.field.InCol;
 import org.knime.base.node.jsnippet.util.field.OutCol;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.StringCell;
 
@@ -138,6 +148,82 @@ public void testEncoding() throws Exception {
         assertEquals(string, "");
     }
 
+    /**
+     * Test the generated binding of the system fields.
+     * @throws Exception
+     */
+    @Test
+    public void testFieldBinding() throws Exception {
+        snippet.setSettings(createIncrementSettings());
+
+        final AbstractJSnippet s = snippet.createSnippetInstance();
+        s.setSystemInputFields(new Object[]{41});
+        s.snippet();
+
+        final Object[] out = new Object[1];
+        s.getSystemOutputFields(out);
+        assertEquals("42", out[0]);
+
+        // output fields are reset with the input fields
+        s.setSystemInputFields(new Object[]{null});
+        s.getSystemOutputFields(out);
+        assertNull(out[0]);
+    }
+
+    /**
+     * Test evaluating the rows with several snippet instances.
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentCellFactory() throws Exception {
+        final JavaSnippetSettings settings = createIncrementSettings();
+        settings.setSideEffectFree(true);
+        snippet.setSettings(settings);
+
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("inCol", IntCell.TYPE).createSpec());
+        final JavaSnippetCellFactory factory = new JavaSnippetCellFactory(snippet, spec,
+            new FlowVariableRepository(Collections.emptyMap()), 3, null, true);
+        assertTrue(factory.isParallelProcessing());
+
+        final DataCell[] cells = new DataCell[]{new IntCell(1), DataType.getMissingCell(), new IntCell(3)};
+        final Thread[] threads = new Thread[cells.length];
+        final DataCell[][] results = new DataCell[cells.length][];
+        for (int i = 0; i < cells.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> results[index] =
+                factory.getCells(new DefaultRow(RowKey.createRowKey((long)index), cells[index])));
+            threads[i].start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+        factory.afterProcessing();
+
+        assertEquals(new StringCell("2"), results[0][0]);
+        assertEquals(DataType.getMissingCell(), results[1][0]);
+        assertEquals(new StringCell("4"), results[2][0]);
+    }
+
+    /** Settings for a snippet which outputs its integer input incremented by one as string. */
+    private static JavaSnippetSettings createIncrementSettings() {
+        final JavaSnippetSettings settings =
+            new JavaSnippetSettings("m_outCol = m_inCol == null ? null : String.valueOf(m_inCol + 1);");
+
+        final InCol inCol = new InCol();
+        inCol.setJavaName("m_inCol");
+        inCol.setKnimeName("inCol");
+        inCol.setConverterFactory(IntCell.TYPE,
+            ConverterUtil.getConverterFactory(IntCell.TYPE, Integer.class).get());
+        settings.getJavaSnippetFields().getInColFields().add(inCol);
+
+        final OutCol outCol = new OutCol();
+        outCol.setJavaName("m_outCol");
+        outCol.setKnimeName("outCol");
+        outCol.setConverterFactory(ConverterUtil.getConverterFactory(String.class, StringCell.TYPE).get());
+        settings.getJavaSnippetFields().getOutColFields().add(outCol);
+        return settings;
+    }
+
     /**
      * Test compiling with additional eclipse/osgi bundles.
      * @throws Exception
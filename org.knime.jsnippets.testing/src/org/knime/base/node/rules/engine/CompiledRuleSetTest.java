@@ -0,0 +1,243 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.rules.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.base.node.rules.engine.Condition.MatchOutcome.MatchState;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.workflow.FlowVariable;
+
+/**
+ * Tests {@link CompiledRuleSet} by comparing its results to the interpreted {@link Rule}s.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompiledRuleSetTest {
+    private static final DataCell MISSING = DataType.getMissingCell();
+
+    private DataTableSpec m_spec;
+
+    private List<DataRow> m_rows;
+
+    /**
+     * Creates the input table.
+     */
+    @Before
+    public void setUp() {
+        m_spec = new DataTableSpec(new DataColumnSpecCreator("Dbl", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Str", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Integer", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Boolean", BooleanCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Pattern", StringCell.TYPE).createSpec());
+        m_rows = new ArrayList<>();
+        m_rows.add(row(1.5, "abc", 1, BooleanCell.TRUE, "a.*"));
+        m_rows.add(row(2.0, "xyz", 2, BooleanCell.FALSE, "x.z"));
+        m_rows.add(row(Double.NaN, "b", 3, MISSING, "[a-c]"));
+        m_rows.add(new DefaultRow(new RowKey("Row13"), MISSING, MISSING, MISSING, MISSING, MISSING));
+        m_rows.add(row(-4.0, "y", -4, BooleanCell.TRUE, "a.*"));
+        m_rows.add(row(0.0, "A\nb", 0, BooleanCell.FALSE, "b"));
+        m_rows.add(row(7.0, "v3", 7, BooleanCell.TRUE, "v."));
+    }
+
+    private DataRow row(final double dbl, final String str, final int integer, final DataCell bool,
+        final String pattern) {
+        return new DefaultRow(new RowKey("Row" + m_rows.size()), new DoubleCell(dbl), new StringCell(str),
+            new IntCell(integer), bool, new StringCell(pattern));
+    }
+
+    /**
+     * Tests that each rule on its own gives the same outcome for each row.
+     *
+     * @throws ParseException Should not happen.
+     */
+    @Test
+    public void testSingleRules() throws ParseException {
+        for (String rule : Arrays.asList("$Dbl$ > 1.5 => \"a\"", "$Dbl$ <= 1.5 => \"a\"", "$Dbl$ = $Integer$ => 1",
+            "$Integer$ >= 2 => $Str$", "$Integer$ < $Dbl$ => $Integer$", "$Str$ > \"b\" => $Dbl$",
+            "$Str$ = \"b\" => TRUE", "$Str$ LIKE \"a*\" => 1", "$Str$ LIKE \"A?b\" => 1",
+            "$Str$ MATCHES $Pattern$ => 2", "$Str$ MATCHES \"[xy].*\" => 2", "$Str$ LIKE $Pattern$ => 2",
+            "$Str$ IN (\"xyz\", \"b\") => 3", "$Integer$ IN (1, 2.0) => 4", "$Integer$ IN ($Dbl$, 3) => 4",
+            "MISSING $Dbl$ => 5", "NOT MISSING $Boolean$ => 5", "NOT $Boolean$ XOR $Dbl$ < 0 => 6",
+            "$Boolean$ OR $Integer$ > 2 => 6", "$Boolean$ AND $Integer$ > 0 => 6",
+            "$$ROWINDEX$$ < 2 AND $Str$ > \"b\" => $$ROWINDEX$$", "$$ROWINDEX$$ >= $Dbl$ => $$ROWCOUNT$$",
+            "$$ROWID$$ LIKE \"Row1*\" => $$ROWID$$", "$$ROWID$$ > \"Row2\" => 7", "$Dbl$ = $Dbl$ => 7",
+            "TRUE => 9", "FALSE => 9", "1 < 2 => $Str$")) {
+            assertSameOutcomes(Collections.singletonList(rule));
+        }
+    }
+
+    /**
+     * Tests that the first matching rule determines the outcome.
+     *
+     * @throws ParseException Should not happen.
+     */
+    @Test
+    public void testRuleOrder() throws ParseException {
+        assertSameOutcomes(Arrays.asList("// comment", "$Str$ LIKE \"*y*\" => \"y\"", "$Dbl$ > 1 => \"large\"",
+            "MISSING $Integer$ => \"missing\"", "$Integer$ IN (0, -4) => \"small\"", "TRUE => \"other\""));
+    }
+
+    /**
+     * Tests that runs of equality rules on a column give the same first match as evaluating them one by one.
+     *
+     * @throws ParseException Should not happen.
+     */
+    @Test
+    public void testEqualityRuns() throws ParseException {
+        final List<String> rules = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rules.add("$Str$ = \"v" + i + "\" => " + i);
+        }
+        rules.add("$Str$ IN (\"abc\", \"b\", \"v5\") => \"in\"");
+        rules.add("\"xyz\" = $Str$ => \"reversed\"");
+        rules.add("$Str$ = \"v3\" => \"duplicate\"");
+        for (int i = -5; i < 5; i++) {
+            rules.add("$Integer$ = " + i + " => \"int\"");
+        }
+        rules.add("$Integer$ IN (7, 3) => \"int in\"");
+        for (int i = -5; i < 5; i++) {
+            rules.add("$Dbl$ = " + i + ".0 => \"double\"");
+        }
+        rules.add("$Dbl$ > 5 => \"large\"");
+        rules.add("TRUE => \"other\"");
+        assertSameOutcomes(rules);
+        assertSameOutcomes(rules.subList(20, rules.size()));
+    }
+
+    /** Compares the outcomes with missing values and NaNs matching in comparisons (default) and not matching. */
+    private void assertSameOutcomes(final List<String> ruleTexts) throws ParseException {
+        final RuleFactory defaultFactory = RuleFactory.getInstance(RuleNodeSettings.RuleEngine);
+        assertSameOutcomes(defaultFactory, ruleTexts);
+        final RuleFactory factory = defaultFactory.cloned();
+        factory.disableMissingComparisons();
+        factory.disableNaNComparisons();
+        assertSameOutcomes(factory, ruleTexts);
+    }
+
+    private void assertSameOutcomes(final RuleFactory factory, final List<String> ruleTexts)
+        throws ParseException {
+        final List<Rule> rules = new ArrayList<>();
+        for (String text : ruleTexts) {
+            final Rule rule = factory.parse(text, m_spec, Collections.<String, FlowVariable> emptyMap());
+            if (rule.getCondition().isEnabled()) {
+                rules.add(rule);
+            }
+        }
+        final CompiledRuleSet compiled = CompiledRuleSet.compile(rules);
+        assertEquals(rules.size(), compiled.size());
+        for (int i = 0; i < m_rows.size(); i++) {
+            final DataRow row = m_rows.get(i);
+            final VariableProvider provider = new Provider(i, m_rows.size());
+            int expectedMatch = -1;
+            for (int r = 0; r < rules.size() && expectedMatch < 0; r++) {
+                if (rules.get(r).getCondition().matches(row, provider).getOutcome() == MatchState.matchedAndStop) {
+                    expectedMatch = r;
+                }
+            }
+            final String message = ruleTexts + " on " + row;
+            final int match = compiled.firstMatch(row, provider);
+            assertEquals(message, expectedMatch, match);
+            if (match >= 0) {
+                assertEquals(message, rules.get(match).getOutcome().getComputedResult(row, provider),
+                    compiled.getOutcome(match, row, provider));
+            }
+        }
+    }
+
+    private static final class Provider implements VariableProvider {
+        private final long m_rowIndex, m_rowCount;
+
+        Provider(final long rowIndex, final long rowCount) {
+            m_rowIndex = rowIndex;
+            m_rowCount = rowCount;
+        }
+
+        @Override
+        public Object readVariable(final String name, final Class<?> type) {
+            throw new IllegalStateException("No flow variables: " + name);
+        }
+
+        @Deprecated
+        @Override
+        public int getRowCount() {
+            return (int)m_rowCount;
+        }
+
+        @Override
+        public long getRowCountLong() {
+            return m_rowCount;
+        }
+
+        @Deprecated
+        @Override
+        public int getRowIndex() {
+            return (int)m_rowIndex;
+        }
+
+        @Override
+        public long getRowIndexLong() {
+            return m_rowIndex;
+        }
+    }
+}
@@ -215,7 +215,8 @@ void update(final Document snippetDoc, final Class<? extends AbstractJSnippet> s
 
                 m_hasCustomFields = false;
                 JavaSnippetFields systemFields = settings.getJavaSnippetFields();
-                for (Field f : snippetClass.getDeclaredFields()) {
+                // the fields are declared by JSnippet, the generated binding class declares none
+                for (Field f : snippetClass.getSuperclass().getDeclaredFields()) {
                     if (!isSystemField(systemFields.getInColFields(), f.getName())
                         && !isSystemField(systemFields.getOutColFields(), f.getName())
                         && !isSystemField(systemFields.getInVarFields(), f.getName())
@@ -258,6 +259,9 @@ Class<? extends AbstractJSnippet> getSnippetClass() {
     /** The version 1.x of the java snippet. */
     public static final String VERSION_1_X = "version 1.x";
 
+    /** Name of the generated class which binds the system fields of the snippet. */
+    private static final String BINDING_CLASS = "JSnippetBinding";
+
     private static File jSnippetJar;
 
     private String[] m_jarFiles = new String[0];
@@ -266,6 +270,13 @@ Class<? extends AbstractJSnippet> getSnippetClass() {
 
     private File m_snippetFile;
 
+    private JavaFileObject m_binding;
+
+    private File m_bindingFile;
+
+    // the source m_binding was written with
+    private String m_bindingSource;
+
     private GuardedDocument m_document;
 
     // true when the document has changed and the m_snippet is not up to date.
@@ -440,6 +451,82 @@ public Iterable<? extends JavaFileObject> getCompilationUnits() throws IOExcepti
         return Collections.singletonList(m_snippet);
     }
 
+    @Override
+    public Iterable<? extends JavaFileObject> getGeneratedCompilationUnits() throws IOException {
+        final String source = createBindingSource();
+        if (m_binding == null || m_bindingFile == null || !m_bindingFile.exists()
+            || !source.equals(m_bindingSource)) {
+            m_bindingFile = new File(m_tempClassPathDir, BINDING_CLASS + ".java");
+            m_binding =
+                new EclipseFileObject(BINDING_CLASS, m_bindingFile.toURI(), Kind.SOURCE, StandardCharsets.UTF_8);
+            try (final Writer out = new BufferedWriter(
+                new OutputStreamWriter(m_binding.openOutputStream(), StandardCharsets.UTF_8))) {
+                out.write(source);
+            }
+            m_bindingSource = source;
+        }
+        return Collections.singletonList(m_binding);
+    }
+
+    /**
+     * Create the source of the class binding the system fields of the snippet. The class extends JSnippet and
+     * implements {@link AbstractJSnippet#setSystemInputFields(Object[])} and
+     * {@link AbstractJSnippet#getSystemOutputFields(Object[])} with typed field access, so that no reflection is needed
+     * to pass the values in and out of the snippet.
+     */
+    private String createBindingSource() {
+        final StringBuilder out = new StringBuilder();
+        out.append("// generated field binding of the java snippet\n");
+        out.append("public final class " + BINDING_CLASS + " extends JSnippet {\n");
+        out.append("  @Override\n");
+        out.append("  public void setSystemInputFields(final Object[] values) {\n");
+        int index = 0;
+        for (InCol field : m_fields.getInColFields()) {
+            appendFieldAssignment(out, field, "(" + getCastType(field) + ")values[" + index++ + "]");
+        }
+        for (InVar field : m_fields.getInVarFields()) {
+            appendFieldAssignment(out, field, "(" + getCastType(field) + ")values[" + index++ + "]");
+        }
+        // reset the output fields (see also bug 3781)
+        for (OutCol field : m_fields.getOutColFields()) {
+            appendFieldAssignment(out, field, "null");
+        }
+        for (OutVar field : m_fields.getOutVarFields()) {
+            appendFieldAssignment(out, field, "null");
+        }
+        out.append("  }\n\n");
+        out.append("  @Override\n");
+        out.append("  public void getSystemOutputFields(final Object[] values) {\n");
+        index = 0;
+        for (OutCol field : m_fields.getOutColFields()) {
+            out.append("    values[" + index++ + "] = " + field.getJavaName() + ";\n");
+        }
+        for (OutVar field : m_fields.getOutVarFields()) {
+            out.append("    values[" + index++ + "] = " + field.getJavaName() + ";\n");
+        }
+        out.append("  }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /** Append the assignment of the given field to the binding source. */
+    private static void appendFieldAssignment(final StringBuilder out, final JavaField f, final String value) {
+        if (null == f.getJavaType()) {
+            // the field is declared with an invalid type, JSnippet fails to compile anyway
+            return;
+        }
+        out.append("    ");
+        out.append(f.getJavaName());
+        out.append(" = ");
+        out.append(value);
+        out.append(";\n");
+    }
+
+    /** The fully qualified type to cast the value of the given field to in the binding source. */
+    private static String getCastType(final JavaField f) {
+        return null == f.getJavaType() ? "Object" : f.getJavaType().getCanonicalName();
+    }
+
     @Override
     public boolean isSnippetSource(final JavaFileObject source) {
         return null != m_snippet ? source.equals(m_snippet) : false;
@@ -1039,7 +1126,8 @@ public void execute(final FlowVariableRepository flowVariableRepository, final E
     ColumnRearranger createRearranger(final DataTableSpec spec, final FlowVariableRepository flowVariableRepository,
         final int rowCount, final ExecutionContext context) throws InvalidSettingsException {
         int offset = spec.getNumColumns();
-        CellFactory factory = new JavaSnippetCellFactory(this, spec, flowVariableRepository, rowCount, context);
+        CellFactory factory = new JavaSnippetCellFactory(this, spec, flowVariableRepository, rowCount, context,
+            canProcessConcurrently());
         ColumnRearranger c = new ColumnRearranger(spec);
         // add factory to the column rearranger
         c.append(factory);
@@ -1063,6 +1151,23 @@ ColumnRearranger createRearranger(final DataTableSpec spec, final FlowVariableRe
         return c;
     }
 
+    /**
+     * Whether the rows can be evaluated concurrently by several instances of the snippet. This requires the snippet to
+     * be declared free of side effects, to define no output flow variables and to not depend on the row order.
+     */
+    private boolean canProcessConcurrently() {
+        if (null == m_settings || !m_settings.isSideEffectFree() || !m_fields.getOutVarFields().isEmpty()) {
+            return false;
+        }
+        try {
+            // ROWINDEX is only maintained when the rows are processed in order
+            return !getDocument().getTextBetween(GUARDED_FIELDS, GUARDED_BODY_END).contains(ROWINDEX);
+        } catch (BadLocationException e) {
+            // this should never happen
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     @SuppressWarnings("rawtypes")
     public JavaSnippetTemplate createTemplate(final Class metaCategory) {
@@ -1192,7 +1297,7 @@ private synchronized Class<? extends AbstractJSnippet> createSnippetClass() {
             // TODO (Next version bump) change return value of createClassLoader instead of cast
             m_classLoader = (URLClassLoader)compiler.createClassLoader(customTypeLoader);
             Class<? extends AbstractJSnippet> snippetClass =
-                (Class<? extends AbstractJSnippet>)m_classLoader.loadClass("JSnippet");
+                (Class<? extends AbstractJSnippet>)m_classLoader.loadClass(BINDING_CLASS);
             m_snippetCache.update(getDocument(), snippetClass, m_settings);
             return snippetClass;
         } catch (ClassNotFoundException e) {
@@ -1208,7 +1313,21 @@ private synchronized Class<? extends AbstractJSnippet> createSnippetClass() {
      * @return a snippet instance
      */
     public AbstractJSnippet createSnippetInstance() {
-        Class<? extends AbstractJSnippet> jsnippetClass = createSnippetClass();
+        return createSnippetInstance(createSnippetClass());
+    }
+
+    /**
+     * Create another instance of the snippet of the given instance, without compiling or loading the snippet again.
+     * Used to evaluate the snippet on several threads.
+     *
+     * @param prototype an instance created by {@link #createSnippetInstance()}
+     * @return a new snippet instance
+     */
+    AbstractJSnippet createSnippetInstance(final AbstractJSnippet prototype) {
+        return createSnippetInstance(prototype.getClass());
+    }
+
+    private AbstractJSnippet createSnippetInstance(final Class<? extends AbstractJSnippet> jsnippetClass) {
         AbstractJSnippet instance;
         try {
             instance = jsnippetClass.newInstance();
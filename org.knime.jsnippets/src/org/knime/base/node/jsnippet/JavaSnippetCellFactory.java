@@ -47,13 +47,12 @@
  */
 package org.knime.base.node.jsnippet;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.knime.base.node.jsnippet.expression.Abort;
 import org.knime.base.node.jsnippet.expression.AbstractJSnippet;
@@ -62,6 +61,7 @@
 import org.knime.base.node.jsnippet.type.ConverterUtil;
 import org.knime.base.node.jsnippet.util.FlowVariableRepository;
 import org.knime.base.node.jsnippet.util.JavaFieldList.InColList;
+import org.knime.base.node.jsnippet.util.JavaFieldList.InVarList;
 import org.knime.base.node.jsnippet.util.JavaFieldList.OutColList;
 import org.knime.base.node.jsnippet.util.JavaFieldList.OutVarList;
 import org.knime.base.node.jsnippet.util.field.InCol;
@@ -98,7 +98,12 @@ public class JavaSnippetCellFactory extends AbstractCellFactory {
 
     private DataTableSpec m_spec;
 
-    private AbstractJSnippet m_jsnippet;
+    /* The instance created on construction, further instances are created from it when rows are processed
+     * concurrently. */
+    private final AbstractJSnippet m_jsnippet;
+
+    /* The instances which are currently not evaluating a row. */
+    private final Queue<SnippetInstance> m_idleInstances = new ConcurrentLinkedQueue<>();
 
     private FlowVariableRepository m_flowVars;
 
@@ -106,43 +111,30 @@ public class JavaSnippetCellFactory extends AbstractCellFactory {
 
     private int m_rowCount;
 
-    private List<String> m_columns;
-
     private ExecutionContext m_context;
 
-    private final LinkedHashMap<String, Cell> m_cellsMap;
-
-    private final ArrayList<DataCellToJavaConverter<?, ?>> m_inConverters = new ArrayList<>();
+    private final ArrayList<DataCellToJavaConverterFactory<?, ?>> m_inConverterFactories = new ArrayList<>();
 
-    private final ArrayList<JavaToDataCellConverter<?>> m_outConverters = new ArrayList<>();
+    private final ArrayList<JavaToDataCellConverterFactory<?>> m_outConverterFactories = new ArrayList<>();
 
-    private final ArrayList<Field> m_inJavaFields = new ArrayList<>();
-    private final ArrayList<Field> m_outJavaFields = new ArrayList<>();
-    private final ArrayList<Integer> m_inColIndices = new ArrayList<>();
+    private final int[] m_inColIndices;
+    private final InVarList m_inVars;
+    private final OutVarList m_outVars;
     private final int m_numInFields;
     private final int m_numOutFields;
 
-    private static final Field FIELD_CELLS;
-    private static final Field FIELD_ROWID;
-    private static final Field FIELD_ROWINDEX;
-
-    static {
-        try {
-            FIELD_CELLS = AbstractJSnippet.class.getDeclaredField("m_cells");
-            FIELD_CELLS.setAccessible(true);
-
-            FIELD_ROWID = AbstractJSnippet.class.getDeclaredField(JavaSnippet.ROWID);
-            FIELD_ROWID.setAccessible(true);
-
-            FIELD_ROWINDEX = AbstractJSnippet.class.getDeclaredField(JavaSnippet.ROWINDEX);
-            FIELD_ROWINDEX.setAccessible(true);
-        } catch (NoSuchFieldException e) {
-            // Will never happen.
-            throw new IllegalStateException(e);
-        } catch (SecurityException e) {
-            // Will never happen.
-            throw new IllegalStateException(e);
-        }
+    /**
+     * Create a new cell factory.
+     *
+     * @param snippet the snippet
+     * @param spec the spec of the data table at the input
+     * @param flowVariableRepository the flow variables at the input
+     * @param rowCount the number of rows of the table at the input
+     * @param context the execution context
+     */
+    public JavaSnippetCellFactory(final JavaSnippet snippet, final DataTableSpec spec,
+        final FlowVariableRepository flowVariableRepository, final int rowCount, final ExecutionContext context) {
+        this(snippet, spec, flowVariableRepository, rowCount, context, false);
     }
 
     /**
@@ -153,9 +145,15 @@ public class JavaSnippetCellFactory extends AbstractCellFactory {
      * @param flowVariableRepository the flow variables at the input
      * @param rowCount the number of rows of the table at the input
      * @param context the execution context
+     * @param processConcurrently whether to evaluate the rows concurrently with one snippet instance per worker
+     *            thread, must only be <code>true</code> if the snippet has no side effects and no output flow
+     *            variables
+     * @since 3.7
      */
     public JavaSnippetCellFactory(final JavaSnippet snippet, final DataTableSpec spec,
-        final FlowVariableRepository flowVariableRepository, final int rowCount, final ExecutionContext context) {
+        final FlowVariableRepository flowVariableRepository, final int rowCount, final ExecutionContext context,
+        final boolean processConcurrently) {
+        super(processConcurrently);
         m_snippet = snippet;
         m_spec = spec;
         m_flowVars = flowVariableRepository;
@@ -164,73 +162,25 @@ public JavaSnippetCellFactory(final JavaSnippet snippet, final DataTableSpec spe
         m_context = context;
 
         /* One time snippet instance preparation */
-        try {
-            if (null == m_jsnippet) {
-                m_jsnippet = m_snippet.createSnippetInstance();
-                // populate the fields in the m_jsnippet that are constant
-                // across the rows.
-                Field[] fs = m_jsnippet.getClass().getSuperclass().getDeclaredFields();
-                for (Field field : fs) {
-                    if (field.getName().equals("m_flowVars")) {
-                        field.setAccessible(true);
-                        field.set(m_jsnippet, m_flowVars);
-                    }
-                    if (field.getName().equals(JavaSnippet.ROWCOUNT)) {
-                        field.setAccessible(true);
-                        field.set(m_jsnippet, m_rowCount);
-                    }
-                }
-            }
-            // populate data structure with the input cells
-            m_cellsMap = new LinkedHashMap<>(spec.getNumColumns());
-            m_columns = new ArrayList<>(m_cellsMap.keySet());
-
-            Field field = m_jsnippet.getClass().getSuperclass().getDeclaredField("m_cellsMap");
-            field.setAccessible(true);
-            /* The map is private and never modified by AbstractJSnippet,
-             * Making it unmodifiable ensures that stays that way. */
-            field.set(m_jsnippet, Collections.unmodifiableMap(m_cellsMap));
-
-            field = m_jsnippet.getClass().getSuperclass().getDeclaredField("m_columns");
-            field.setAccessible(true);
-            field.set(m_jsnippet, m_columns);
-
-            field = m_jsnippet.getClass().getSuperclass().getDeclaredField("m_inSpec");
-            field.setAccessible(true);
-            field.set(m_jsnippet, m_spec);
-
-        } catch (Exception e) {
-            // all reflection exceptions which will never happen, but in case
-            // re-throw exception
-            throw new RuntimeException(e);
-        }
+        m_jsnippet = m_snippet.createSnippetInstance();
 
         final InColList inFields = m_snippet.getSystemFields().getInColFields();
         m_numInFields = inFields.size();
-        for (final InCol inCol : inFields) {
+        m_inColIndices = new int[m_numInFields];
+        for (int i = 0; i < m_numInFields; i++) {
+            final InCol inCol = inFields.get(i);
             // Cache the column index
-            int columnIndex = m_spec.findColumnIndex(inCol.getKnimeName());
-            m_inColIndices.add(columnIndex);
+            m_inColIndices[i] = m_spec.findColumnIndex(inCol.getKnimeName());
 
-            // Get the converter factory for this column, create and cache the converter
+            // Get the converter factory for this column and cache it, the converters are created per instance
             final Optional<DataCellToJavaConverterFactory<?, ?>> factory =
                 ConverterUtil.getDataCellToJavaConverterFactory(inCol.getConverterFactoryId());
             if (!factory.isPresent()) {
                 throw new RuntimeException("Missing converter factory with ID: " + inCol.getConverterFactoryId());
             }
-            m_inConverters.add(factory.get().create());
-
-            // Get the java field for this column and cache it
-            try {
-                m_inJavaFields.add(m_jsnippet.getClass().getField(inCol.getJavaName()));
-            } catch (NoSuchFieldException e) {
-                // Field was generated from inCol, this should never happen.
-                throw new IllegalStateException(e);
-            } catch (SecurityException e) {
-                // Field was generated as public, this should never happen.
-                throw new IllegalStateException(e);
-            }
+            m_inConverterFactories.add(factory.get());
         }
+        m_inVars = m_snippet.getSystemFields().getInVarFields();
 
         final OutColList outFields = m_snippet.getSystemFields().getOutColFields();
         m_numOutFields = outFields.size();
@@ -242,144 +192,31 @@ public JavaSnippetCellFactory(final JavaSnippet snippet, final DataTableSpec spe
             if (!factory.isPresent()) {
                 throw new RuntimeException("Missing converter factory with ID: " + id);
             }
-            m_outConverters.add(((JavaToDataCellConverterFactory<?>)factory.get()).create(m_context));
-            try {
-                m_outJavaFields.add(m_jsnippet.getClass().getField(outField.getJavaName()));
-            } catch (NoSuchFieldException e) {
-                // Field was generated from inCol, this should never happen.
-                throw new IllegalStateException(e);
-            } catch (SecurityException e) {
-                // Field was generated as public, this should never happen.
-                throw new IllegalStateException(e);
-            }
+            m_outConverterFactories.add(factory.get());
         }
+        m_outVars = m_snippet.getSystemFields().getOutVarFields();
+        if (processConcurrently && !m_outVars.isEmpty()) {
+            throw new IllegalArgumentException("Snippets with output flow variables cannot be evaluated concurrently.");
+        }
+
+        m_idleInstances.add(new SnippetInstance(m_jsnippet));
     }
 
     @Override
     public DataCell[] getCells(final DataRow row) {
-        try {
-            fillCellsMap(row);
-            FIELD_CELLS.set(m_jsnippet, new ArrayList<>(m_cellsMap.values()));
-            FIELD_ROWID.set(m_jsnippet, row.getKey().getString());
-            FIELD_ROWINDEX.set(m_jsnippet, m_rowIndex);
-
-            // populate the system input column fields with data
-            for (int i = 0; i < m_numInFields; ++i) {
-                final Field field = m_inJavaFields.get(i);
-
-                final DataCell cell = row.getCell(m_inColIndices.get(i));
-                if (cell.isMissing()) {
-                    field.set(m_jsnippet, null);
-                    continue;
-                }
+        // the row index is only meaningful when the rows are processed in order
+        final int rowIndex = isParallelProcessing() ? -1 : m_rowIndex++;
 
-                // Get the converter factory for this column
-                final Object converted = m_inConverters.get(i).convertUnsafe(cell);
-                field.set(m_jsnippet, converted);
-            }
-
-            // reset the system output fields to null (see also bug 3781)
-            for (final Field field : m_outJavaFields) {
-                field.set(m_jsnippet, null);
-            }
-
-            // populate the system input flow variable fields with data
-            for (final InVar inCol : m_snippet.getSystemFields().getInVarFields()) {
-                final Field field = m_jsnippet.getClass().getField(inCol.getJavaName());
-                final Object v = m_flowVars.getValueOfType(inCol.getKnimeName(), inCol.getJavaType());
-                field.set(m_jsnippet, v);
-            }
-        } catch (Exception e) {
-            // all reflection exceptions which will never happen, but in case
-            // re-throw exception
-            throw new RuntimeException(e);
-        }
-
-        try {
-            // evaluate user script
-            m_jsnippet.snippet();
-        } catch (final Throwable thr) {
-            if (thr instanceof Abort) {
-                final String message = thr.getMessage();
-                throw new RuntimeException(
-                    String.format("Calculation aborted: %s", message == null ? "<no details>" : message), thr);
-            } else {
-                final StringBuilder msg = new StringBuilder();
-                msg.append(String.format("Evaluation of java snippet failed for row \"%s\".", row.getKey()));
-
-                final Integer lineNumber = findLineNumberInStackTrace(thr);
-                if (lineNumber != null) {
-                    msg.append(String.format("The exception is caused by line %d of the snippet. ", lineNumber));
-                }
-
-                if (thr.getMessage() != null) {
-                    msg.append(String.format("Exception message (%s): %s", thr.getClass().getSimpleName(), thr.getMessage()));
-                }
-
-                LOGGER.warn(msg.toString(), thr);
-                final OutVarList outVars = m_snippet.getSystemFields().getOutVarFields();
-                if (outVars.size() > 0) {
-                    // Abort if flow variables are defined
-                    throw new RuntimeException("An error occured in an expression with output flow variables.", thr);
-                }
-
-                final DataCell[] out = new DataCell[m_numOutFields];
-                // Return missing values for output fields
-                Arrays.fill(out, DataType.getMissingCell());
-
-                if(m_snippet.getWarningMessage() == null) {
-                   m_snippet.setWarningMessage("Exceptions in the code caused missing rows to be output.\nCheck log for details.");
-                }
-
-                m_rowIndex++;
-                return out;
-            }
+        SnippetInstance instance = m_idleInstances.poll();
+        if (instance == null) {
+            // all instances are busy with other rows, only happens when the rows are processed concurrently
+            instance = new SnippetInstance(m_snippet.createSnippetInstance(m_jsnippet));
         }
-
         try {
-            // update m_flowVars with output flow variable fields.
-            for (final OutVar var : m_snippet.getSystemFields().getOutVarFields()) {
-                final Field field = m_jsnippet.getClass().getField(var.getJavaName());
-                final Object value = field.get(m_jsnippet);
-                if (null != value) {
-                    Type type = var.getFlowVarType();
-                    FlowVariable flowVar = null;
-                    if (type.equals(Type.INTEGER)) {
-                        flowVar = new FlowVariable(var.getKnimeName(), (Integer)value);
-                    } else if (type.equals(Type.DOUBLE)) {
-                        flowVar = new FlowVariable(var.getKnimeName(), (Double)value);
-                    } else { // case type.equals(Type.String)
-                        flowVar = new FlowVariable(var.getKnimeName(), (String)value);
-                    }
-                    m_flowVars.put(flowVar);
-                } else {
-                    throw new RuntimeException("Flow variable \"" + var.getKnimeName() + "\" has no value.");
-                }
-            }
-
-            // get output column fields
-            final DataCell[] out = new DataCell[m_numOutFields];
-            for (int i = 0; i < out.length; i++) {
-                final Field field = m_outJavaFields.get(i);
-
-                final Object value = field.get(m_jsnippet);
-                out[i] = (null == value) ? DataType.getMissingCell() : m_outConverters.get(i).convertUnsafe(value);
-
-                // Cleanup Closeable and AutoCloseable inputs
-                if (value instanceof AutoCloseable) {
-                    // From the doc: Calling close more than once *can* have visible side effects!
-                    ((AutoCloseable)value).close();
-                }
-            }
-
-            m_rowIndex++;
-            return out;
-        } catch (Exception e) {
-            // all but one are reflection exceptions which will never happen,
-            // but in case re-throw exception
-            throw new RuntimeException(e);
+            return instance.getCells(row, rowIndex);
+        } finally {
+            m_idleInstances.add(instance);
         }
-
     }
 
     /**
@@ -404,19 +241,6 @@ public void afterProcessing() {
         m_snippet.close();
     }
 
-    /**
-     * Fill m_cellsMap with {@link DataCellProxy} of the given rows.
-     *
-     * @param row Example row to create the map for.
-     */
-    private void fillCellsMap(final DataRow row) {
-        m_cellsMap.clear();
-        for (int i = 0; i < row.getNumCells(); i++) {
-            String name = m_spec.getColumnSpec(i).getName();
-            m_cellsMap.put(name, new DataCellProxy(row, i));
-        }
-    }
-
     @Override
     public DataColumnSpec[] getColumnSpecs() {
         OutColList outFields = m_snippet.getSystemFields().getOutColFields();
@@ -434,32 +258,196 @@ public void setProgress(final long curRowNr, final long rowCount, final RowKey l
         exec.setProgress(curRowNr / (double)rowCount, () -> "Processed row " + curRowNr + " (\"" + lastKey + "\")");
     }
 
+    /**
+     * A snippet instance together with the state needed to evaluate it, used by one thread at a time.
+     *
+     * The system fields of the snippet are accessed through the field binding which is generated when the snippet is
+     * compiled, see {@link AbstractJSnippet#setSystemInputFields(Object[])}.
+     */
+    private final class SnippetInstance {
+        private final AbstractJSnippet m_instance;
+
+        private final DataCellProxy[] m_cells;
+
+        private final DataCellToJavaConverter<?, ?>[] m_inConverters;
+
+        private final JavaToDataCellConverter<?>[] m_outConverters;
+
+        /* The values of the input columns followed by the values of the input flow variables. */
+        private final Object[] m_inValues;
+
+        /* The values of the output columns followed by the values of the output flow variables. */
+        private final Object[] m_outValues;
+
+        SnippetInstance(final AbstractJSnippet instance) {
+            m_instance = instance;
+
+            // the proxies are updated to point to the current row
+            m_cells = new DataCellProxy[m_spec.getNumColumns()];
+            for (int i = 0; i < m_cells.length; i++) {
+                m_cells[i] = new DataCellProxy(i);
+            }
+            /* The cells are never modified by AbstractJSnippet,
+             * Making them unmodifiable ensures that stays that way. */
+            m_instance.attachInput(m_spec, Collections.unmodifiableList(Arrays.asList(m_cells)), m_flowVars,
+                m_rowCount);
+
+            m_inConverters = new DataCellToJavaConverter<?, ?>[m_numInFields];
+            for (int i = 0; i < m_numInFields; i++) {
+                m_inConverters[i] = m_inConverterFactories.get(i).create();
+            }
+            m_outConverters = new JavaToDataCellConverter<?>[m_numOutFields];
+            for (int i = 0; i < m_numOutFields; i++) {
+                m_outConverters[i] = m_outConverterFactories.get(i).create(m_context);
+            }
+
+            m_inValues = new Object[m_numInFields + m_inVars.size()];
+            m_outValues = new Object[m_numOutFields + m_outVars.size()];
+        }
+
+        DataCell[] getCells(final DataRow row, final int rowIndex) {
+            for (final DataCellProxy cell : m_cells) {
+                cell.setRow(row);
+            }
+            m_instance.ROWID = row.getKey().getString();
+            m_instance.ROWINDEX = rowIndex;
+
+            try {
+                // the values of the system input column fields
+                for (int i = 0; i < m_numInFields; ++i) {
+                    final DataCell cell = row.getCell(m_inColIndices[i]);
+                    m_inValues[i] = cell.isMissing() ? null : m_inConverters[i].convertUnsafe(cell);
+                }
+
+                // the values of the system input flow variable fields
+                for (int i = 0; i < m_inVars.size(); i++) {
+                    final InVar inVar = m_inVars.get(i);
+                    m_inValues[m_numInFields + i] =
+                        m_flowVars.getValueOfType(inVar.getKnimeName(), inVar.getJavaType());
+                }
+            } catch (Exception e) {
+                // re-throw exceptions of the converters and flow variables
+                throw new RuntimeException(e);
+            }
+
+            // populate the system input fields and reset the system output fields to null (see also bug 3781)
+            m_instance.setSystemInputFields(m_inValues);
+
+            try {
+                // evaluate user script
+                m_instance.snippet();
+            } catch (final Throwable thr) {
+                if (thr instanceof Abort) {
+                    final String message = thr.getMessage();
+                    throw new RuntimeException(
+                        String.format("Calculation aborted: %s", message == null ? "<no details>" : message), thr);
+                } else {
+                    final StringBuilder msg = new StringBuilder();
+                    msg.append(String.format("Evaluation of java snippet failed for row \"%s\".", row.getKey()));
+
+                    final Integer lineNumber = findLineNumberInStackTrace(thr);
+                    if (lineNumber != null) {
+                        msg.append(String.format("The exception is caused by line %d of the snippet. ", lineNumber));
+                    }
+
+                    if (thr.getMessage() != null) {
+                        msg.append(String.format("Exception message (%s): %s", thr.getClass().getSimpleName(),
+                            thr.getMessage()));
+                    }
+
+                    LOGGER.warn(msg.toString(), thr);
+                    if (m_outVars.size() > 0) {
+                        // Abort if flow variables are defined
+                        throw new RuntimeException("An error occured in an expression with output flow variables.",
+                            thr);
+                    }
+
+                    final DataCell[] out = new DataCell[m_numOutFields];
+                    // Return missing values for output fields
+                    Arrays.fill(out, DataType.getMissingCell());
+
+                    if (m_snippet.getWarningMessage() == null) {
+                        m_snippet.setWarningMessage(
+                            "Exceptions in the code caused missing rows to be output.\nCheck log for details.");
+                    }
+
+                    return out;
+                }
+            }
+
+            m_instance.getSystemOutputFields(m_outValues);
+            try {
+                // update m_flowVars with output flow variable fields.
+                for (int i = 0; i < m_outVars.size(); i++) {
+                    final OutVar var = m_outVars.get(i);
+                    final Object value = m_outValues[m_numOutFields + i];
+                    if (null != value) {
+                        Type type = var.getFlowVarType();
+                        FlowVariable flowVar = null;
+                        if (type.equals(Type.INTEGER)) {
+                            flowVar = new FlowVariable(var.getKnimeName(), (Integer)value);
+                        } else if (type.equals(Type.DOUBLE)) {
+                            flowVar = new FlowVariable(var.getKnimeName(), (Double)value);
+                        } else { // case type.equals(Type.String)
+                            flowVar = new FlowVariable(var.getKnimeName(), (String)value);
+                        }
+                        m_flowVars.put(flowVar);
+                    } else {
+                        throw new RuntimeException("Flow variable \"" + var.getKnimeName() + "\" has no value.");
+                    }
+                }
+
+                // convert the output column fields
+                final DataCell[] out = new DataCell[m_numOutFields];
+                for (int i = 0; i < out.length; i++) {
+                    final Object value = m_outValues[i];
+                    out[i] = (null == value) ? DataType.getMissingCell() : m_outConverters[i].convertUnsafe(value);
+
+                    // Cleanup Closeable and AutoCloseable inputs
+                    if (value instanceof AutoCloseable) {
+                        // From the doc: Calling close more than once *can* have visible side effects!
+                        ((AutoCloseable)value).close();
+                    }
+                }
+                return out;
+            } catch (Exception e) {
+                // re-throw exceptions of the converters and of closing the values
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     /**
      * Class that wraps a DataRow for access from inside the Java Snippet.
      *
      * This allows cell access while keeping the DataCell API safe from having to provide workflow level backwards
      * compatibility.
      *
-     * DataCellProxy stores a reference to a row and a column index and can be updated to point to a new row. Accessing
-     * the value stored inside the cell happens on demand.
+     * DataCellProxy stores a reference to a row and a column index and is updated to point to the current row.
+     * Accessing the value stored inside the cell happens on demand.
      */
     private static class DataCellProxy implements Cell {
         private DataRow m_row;
 
-        private int m_index;
+        private final int m_index;
 
         /**
-         * Represents a cell in the given row as a java snippet cell.
+         * Represents the cell at the given index of the current row as a java snippet cell.
          *
-         * @param row the underlying row
          * @param i the index of the cell to represent
          */
-        public DataCellProxy(final DataRow row, final int i) {
+        public DataCellProxy(final int i) {
             super();
-            this.m_row = row;
             this.m_index = i;
         }
 
+        /**
+         * @param row the row to represent the cell of
+         */
+        void setRow(final DataRow row) {
+            m_row = row;
+        }
+
         @SuppressWarnings("rawtypes")
         @Override
         public Object getValueAs(final Class t) throws TypeException {
@@ -50,6 +50,7 @@
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.awt.GridLayout;
 import java.io.ByteArrayInputStream;
@@ -64,6 +65,7 @@
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -160,6 +162,9 @@ public class JavaSnippetNodeDialog extends NodeDialogPane implements TemplateNod
 
     private BundleListPanel m_bundleListPanel;
 
+    /* null if a subclass provides its own options panel */
+    private JCheckBox m_sideEffectFreeChecker;
+
     private DefaultTemplateController<JavaSnippetTemplate> m_templatesController;
 
     private boolean m_isEnabled;
@@ -479,7 +484,13 @@ protected JComponent createColsAndVarsPanel() {
      * @return options panel or null if there are no additional options.
      */
     protected JPanel createOptionsPanel() {
-        return null;
+        final JPanel p = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        m_sideEffectFreeChecker = new JCheckBox("Snippet has no side effects (evaluate rows in parallel)");
+        m_sideEffectFreeChecker.setToolTipText("If selected, the rows are evaluated concurrently by several "
+            + "instances of the snippet. Only applies if no output flow variables are defined and ROWINDEX is not "
+            + "used.");
+        p.add(m_sideEffectFreeChecker);
+        return p;
     }
 
     private void updateAutocompletion() {
@@ -544,6 +555,9 @@ protected void setEnabled(final boolean enabled) {
             m_jarPanel.setEnabled(enabled);
             m_bundleListPanel.setEnabled(enabled);
             m_snippetTextArea.setEnabled(enabled);
+            if (m_sideEffectFreeChecker != null) {
+                m_sideEffectFreeChecker.setEnabled(enabled);
+            }
 
             m_isEnabled = enabled;
         }
@@ -570,6 +584,9 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSp
      */
     protected void loadSettingsFromInternal(final NodeSettingsRO settings, final DataTableSpec[] specs) {
         m_settings.loadSettingsForDialog(settings);
+        if (m_sideEffectFreeChecker != null) {
+            m_sideEffectFreeChecker.setSelected(m_settings.isSideEffectFree());
+        }
 
         m_colList.setSpec(specs[0]);
         m_flowVarsList.setFlowVariables(getAvailableFlowVariables().values());
@@ -634,6 +651,9 @@ public void applyTemplate(final JavaSnippetTemplate template, final DataTableSpe
         updateCustomTypesBundles();
 
         m_fieldsController.updateData(m_settings, spec, flowVariables);
+        if (m_sideEffectFreeChecker != null) {
+            m_sideEffectFreeChecker.setSelected(m_settings.isSideEffectFree());
+        }
         // update template info panel
         m_templateLocation.setText(createTemplateLocationText(template));
 
@@ -727,6 +747,9 @@ protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSetti
 
         s.setBundles(m_bundleListPanel.getBundles());
         validateBundlesSetting();
+        if (m_sideEffectFreeChecker != null) {
+            s.setSideEffectFree(m_sideEffectFreeChecker.isSelected());
+        }
 
         // give subclasses the chance to modify settings
         preSaveSettings(s);
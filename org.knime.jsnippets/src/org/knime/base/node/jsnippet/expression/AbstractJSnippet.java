@@ -47,6 +47,7 @@
  */
 package org.knime.base.node.jsnippet.expression;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -326,6 +327,54 @@ public void attachLogger(final NodeLogger logger) {
         m_logger = logger;
     }
 
+    /**
+     * Attach the input of the node which is constant across the rows. Called by the node before the snippet is
+     * evaluated for the first time, not meant to be used in the snippet.
+     *
+     * @param inSpec the spec of the table at the input
+     * @param cells the cells of the current row, one per column of the input spec, updated by the node for every row
+     * @param flowVars the flow variables at the input
+     * @param rowCount the number of rows of the table at the input
+     * @since 3.7
+     */
+    public final void attachInput(final DataTableSpec inSpec, final List<Cell> cells,
+        final FlowVariableRepository flowVars, final int rowCount) {
+        m_inSpec = inSpec;
+        m_cells = cells;
+        m_cellsMap = new LinkedHashMap<>(inSpec.getNumColumns());
+        m_columns = new ArrayList<>(inSpec.getNumColumns());
+        for (int i = 0; i < inSpec.getNumColumns(); i++) {
+            final String name = inSpec.getColumnSpec(i).getName();
+            m_cellsMap.put(name, cells.get(i));
+            m_columns.add(name);
+        }
+        m_flowVars = flowVars;
+        ROWCOUNT = rowCount;
+    }
+
+    /**
+     * Set the system fields of the input columns and the input flow variables and reset the system fields of the
+     * output columns and the output flow variables to <code>null</code>. Implemented by the field binding which is
+     * generated when the snippet is compiled, not meant to be used in the snippet.
+     *
+     * @param values the values of the input columns followed by the values of the input flow variables
+     * @since 3.7
+     */
+    public void setSystemInputFields(final Object[] values) {
+        throw new UnsupportedOperationException("The snippet was compiled without field binding.");
+    }
+
+    /**
+     * Get the system fields of the output columns and the output flow variables. Implemented by the field binding
+     * which is generated when the snippet is compiled, not meant to be used in the snippet.
+     *
+     * @param values filled with the values of the output columns followed by the values of the output flow variables
+     * @since 3.7
+     */
+    public void getSystemOutputFields(final Object[] values) {
+        throw new UnsupportedOperationException("The snippet was compiled without field binding.");
+    }
+
     /**
      * Write warning message to the logger.
      *
@@ -50,6 +50,7 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import javax.swing.text.Document;
 import javax.tools.JavaFileObject;
@@ -131,6 +132,17 @@ default public File[] getCompiletimeClassPath() throws IOException {
      */
      Iterable<? extends JavaFileObject> getCompilationUnits() throws IOException;
 
+    /**
+     * Get compilation units which are generated from the snippet and compiled together with the
+     * {@link #getCompilationUnits() compilation units}, e.g. glue code for accessing the snippet's fields.
+     * @return the generated files to compile (default implementation returns an empty list)
+     * @throws IOException When files cannot be created.
+     * @since 3.7
+     */
+    default Iterable<? extends JavaFileObject> getGeneratedCompilationUnits() throws IOException {
+        return Collections.emptyList();
+    }
+
      /** Get the path to the temporary directory of this java snippet.
       * @return the path to the temporary directory
       */
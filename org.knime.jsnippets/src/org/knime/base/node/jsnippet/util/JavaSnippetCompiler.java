@@ -131,8 +131,11 @@ public CompilationTask getTask(final Writer out, final DiagnosticCollector<JavaF
         try (final StandardJavaFileManager stdFileMgr =
             m_compiler.getStandardFileManager(digsCollector, null, Charset.forName("UTF-8"))) {
 
+            final ArrayList<JavaFileObject> compilationUnits = new ArrayList<>();
+            m_snippet.getCompilationUnits().forEach(compilationUnits::add);
+            m_snippet.getGeneratedCompilationUnits().forEach(compilationUnits::add);
             final CompilationTask compileTask = m_compiler.getTask(out, stdFileMgr, digsCollector, m_compileArgs, null,
-                m_snippet.getCompilationUnits());
+                compilationUnits);
             return compileTask;
         }
     }
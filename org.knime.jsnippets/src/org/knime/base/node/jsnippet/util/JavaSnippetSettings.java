@@ -79,6 +79,7 @@ public class JavaSnippetSettings {
     private static final String TEMPLATE_UUID = "templateUUID";
     private static final String VERSION = "version";
     private static final String RUN_ON_EXECUTE = "runOnExecute";
+    private static final String SIDE_EFFECT_FREE = "sideEffectFree";
 
     /** Custom imports. */
     private String m_scriptImports;
@@ -111,6 +112,9 @@ public class JavaSnippetSettings {
     /** If Java Edit Variable should be run during execute, not configure. */
     private boolean m_runOnExecute;
 
+    /** If the snippet has no side effects, so that the rows may be evaluated concurrently. */
+    private boolean m_sideEffectFree;
+
     /**
      * Create a new instance.
      */
@@ -135,6 +139,7 @@ public JavaSnippetSettings(final String defaultContent) {
         m_version = JavaSnippet.VERSION_1_X;
         m_templateUUID = null;
         m_runOnExecute = false;
+        m_sideEffectFree = false;
     }
 
 
@@ -270,6 +275,24 @@ public void setRunOnExecute(final boolean runOnExecute) {
         m_runOnExecute = runOnExecute;
     }
 
+    /**
+     * @return whether the snippet is declared free of side effects, i.e. whether the rows may be evaluated
+     *         concurrently by several instances of the snippet
+     * @since 3.7
+     */
+    public boolean isSideEffectFree() {
+        return m_sideEffectFree;
+    }
+
+    /**
+     * @param sideEffectFree whether the snippet is declared free of side effects, i.e. whether the rows may be
+     *            evaluated concurrently by several instances of the snippet
+     * @since 3.7
+     */
+    public void setSideEffectFree(final boolean sideEffectFree) {
+        m_sideEffectFree = sideEffectFree;
+    }
+
     /**
      * Set the system fields definitions of the java snippet.
      * @param fields the system fields definitions of the java snippet
@@ -300,6 +323,9 @@ public void saveSettings(final NodeSettingsWO settings) {
 
         // added in 3.6
         settings.addStringArray(BUNDLES, m_bundles);
+
+        // added in 3.7
+        settings.addBoolean(SIDE_EFFECT_FREE, m_sideEffectFree);
     }
 
     /** Loads parameters in NodeModel.
@@ -325,6 +351,9 @@ public void loadSettings(final NodeSettingsRO settings)
 
         // added in 3.6
         m_bundles = settings.getStringArray(BUNDLES, new String[0]);
+
+        // added in 3.7
+        m_sideEffectFree = settings.getBoolean(SIDE_EFFECT_FREE, false);
     }
 
 
@@ -360,5 +389,8 @@ public void loadSettingsForDialog(final NodeSettingsRO settings) {
 
         // added in 3.6
         m_bundles = settings.getStringArray(BUNDLES, new String[0]);
+
+        // added in 3.7
+        m_sideEffectFree = settings.getBoolean(SIDE_EFFECT_FREE, false);
     }
 }
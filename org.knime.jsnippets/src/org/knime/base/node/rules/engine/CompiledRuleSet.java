@@ -0,0 +1,1155 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * -------------------------------------------------------------------
+ */
+package org.knime.base.node.rules.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.knime.base.node.rules.engine.Condition.GenericCondition;
+import org.knime.base.node.rules.engine.Condition.MatchOutcome.MatchState;
+import org.knime.base.node.rules.engine.Expression.ASTType;
+import org.knime.base.node.rules.engine.Rule.Outcome;
+import org.knime.base.node.rules.engine.Rule.Outcome.GenericOutcome;
+import org.knime.base.node.rules.engine.Rule.Outcome.NoOutcome;
+import org.knime.base.node.rules.engine.Rule.TableReference;
+import org.knime.core.data.BooleanValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValueComparator;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.DoubleValueComparator;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.IntValueComparator;
+import org.knime.core.data.LongValue;
+import org.knime.core.data.LongValueComparator;
+import org.knime.core.data.MissingValue;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.StringValueComparator;
+import org.knime.core.data.collection.CollectionDataValue;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * A list of {@link Rule}s compiled for repeated evaluation. The conditions and outcomes are translated once to a tree
+ * of specialized evaluators instead of walking the {@link Expression}s for each row: constant subexpressions are
+ * folded, numeric and string comparisons work on primitive values, regular expressions are compiled only once (or
+ * cached when the pattern is not constant) and no {@link ExpressionValue} is created while evaluating a condition.
+ * <br/>
+ * Consecutive rules that compare the same column for equality with constants (using {@code =} or {@code IN}) are
+ * dispatched by a single hash lookup of the column's value, the first matching rule still wins.
+ * <br/>
+ * The bound objects of {@link Condition.MatchOutcome#getMatchedObjects()} are not computed. Expressions that are not
+ * created by {@link ExpressionFactory} and conditions other than {@link GenericCondition} are interpreted as before.
+ * <br/>
+ * Instances are not thread-safe, rows have to be evaluated one after the other.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.7
+ */
+public final class CompiledRuleSet {
+    /** Number of patterns kept for regular expressions that are not constant. */
+    private static final int PATTERN_CACHE_SIZE = 128;
+
+    /** Minimal number of consecutive equality rules on a column to dispatch them by a hash lookup. */
+    private static final int MIN_INDEXED_RUN = 4;
+
+    private final Evaluator[] m_conditions;
+
+    private final Evaluator[] m_outcomes;
+
+    /** The {@link IndexedRun} starting at a rule's index, or {@code null}. */
+    private final IndexedRun[] m_runs;
+
+    private CompiledRuleSet(final List<Rule> rules) {
+        m_conditions = new Evaluator[rules.size()];
+        m_outcomes = new Evaluator[rules.size()];
+        for (int i = 0; i < m_conditions.length; i++) {
+            final Rule rule = rules.get(i);
+            m_conditions[i] = compileCondition(rule.getCondition());
+            m_outcomes[i] = compileOutcome(rule.getOutcome());
+        }
+        m_runs = new IndexedRun[m_conditions.length];
+        int start = 0;
+        while (start < m_conditions.length) {
+            final Equality first = Equality.of(m_conditions[start]);
+            if (first == null) {
+                start++;
+                continue;
+            }
+            final List<Equality> run = new ArrayList<>();
+            run.add(first);
+            Equality next;
+            while (start + run.size() < m_conditions.length
+                && (next = Equality.of(m_conditions[start + run.size()])) != null && first.isSameColumn(next)) {
+                run.add(next);
+            }
+            if (run.size() >= MIN_INDEXED_RUN) {
+                m_runs[start] = new IndexedRun(start, run);
+            }
+            start += run.size();
+        }
+    }
+
+    /**
+     * Compiles the {@code rules}.
+     *
+     * @param rules The parsed {@link Rule}s in order of their priority.
+     * @return The compiled rule set.
+     */
+    public static CompiledRuleSet compile(final List<Rule> rules) {
+        return new CompiledRuleSet(rules);
+    }
+
+    /**
+     * @return The number of rules.
+     */
+    public int size() {
+        return m_conditions.length;
+    }
+
+    /**
+     * Finds the first rule whose condition matches.
+     *
+     * @param row The current {@link DataRow}, can be {@code null} when there is no table.
+     * @param provider The {@link VariableProvider}.
+     * @return The index of the first matching rule, or {@code -1} if no rule matches.
+     */
+    public int firstMatch(final DataRow row, final VariableProvider provider) {
+        int i = 0;
+        while (i < m_conditions.length) {
+            final IndexedRun run = m_runs[i];
+            if (run != null) {
+                final int match = run.firstMatch(row);
+                if (match >= 0) {
+                    return match;
+                }
+                if (match == IndexedRun.NO_MATCH) {
+                    i = run.m_end;
+                    continue;
+                }
+                // not decidable by the index, evaluate the rules of the run one by one
+            }
+            if (m_conditions[i].test(row, provider) == Evaluator.TRUE) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the outcome of a rule.
+     *
+     * @param ruleIndex The index of the rule, usually the result of {@link #firstMatch(DataRow, VariableProvider)}.
+     * @param row The current {@link DataRow}, can be {@code null} when there is no table.
+     * @param provider The {@link VariableProvider}.
+     * @return The computed outcome, same as {@link Outcome#getComputedResult(DataRow, VariableProvider)}.
+     */
+    public DataCell getOutcome(final int ruleIndex, final DataRow row, final VariableProvider provider) {
+        return m_outcomes[ruleIndex].evaluate(row, provider);
+    }
+
+    private static Evaluator compileCondition(final Condition condition) {
+        if (condition instanceof GenericCondition) {
+            return new ConditionMatch(compile(((GenericCondition)condition).getExpression()));
+        }
+        return new InterpretedCondition(condition);
+    }
+
+    private static Evaluator compileOutcome(final Outcome outcome) {
+        if (outcome instanceof NoOutcome) {
+            return new Constant(DataType.getMissingCell());
+        }
+        if (outcome instanceof GenericOutcome) {
+            return compile(((GenericOutcome)outcome).getExpression());
+        }
+        return new InterpretedOutcome(outcome);
+    }
+
+    /**
+     * Compiles an {@link Expression}.
+     *
+     * @param expression An {@link Expression}.
+     * @return The {@link Evaluator} computing the same values.
+     */
+    static Evaluator compile(final Expression expression) {
+        if (expression.isConstant()) {
+            try {
+                return new Constant(expression.evaluate(null, null).getValue());
+            } catch (RuntimeException e) {
+                // fails for each row, like the interpreted expression
+            }
+        }
+        if (expression instanceof CompilableExpression) {
+            return ((CompilableExpression)expression).compile();
+        }
+        if (!isFromFactory(expression)) {
+            return new Interpreted(expression);
+        }
+        final ASTType type;
+        try {
+            type = expression.getTreeType();
+        } catch (UnsupportedOperationException e) {
+            return new Interpreted(expression);
+        }
+        final List<Expression> children = expression.getChildren();
+        switch (type) {
+            case Not:
+                return new Not(compile(children.get(0)));
+            case And:
+                return new And(compileAll(children));
+            case Or:
+                return new Or(compileAll(children));
+            case Xor:
+                return new Xor(compileAll(children));
+            case Missing:
+                return new IsMissing(compile(children.get(0)));
+            case In:
+                return compileIn(children.get(0), children.get(1));
+            default:
+                return new Interpreted(expression);
+        }
+    }
+
+    /** The tree types are only meaningful for the expressions of {@link ExpressionFactory}. */
+    private static boolean isFromFactory(final Expression expression) {
+        return expression.getClass().getEnclosingClass() == ExpressionFactory.class;
+    }
+
+    private static Evaluator[] compileAll(final List<Expression> expressions) {
+        final Evaluator[] ret = new Evaluator[expressions.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = compile(expressions.get(i));
+        }
+        return ret;
+    }
+
+    private static Evaluator compileIn(final Expression left, final Expression right) {
+        final Evaluator leftEvaluator = compile(left);
+        final Evaluator rightEvaluator = compile(right);
+        if (rightEvaluator instanceof Constant) {
+            final DataCell cell = rightEvaluator.evaluate(null, null);
+            if (cell instanceof CollectionDataValue) {
+                final CollectionDataValue collection = (CollectionDataValue)cell;
+                final Evaluator[] elements = new Evaluator[collection.size()];
+                int i = 0;
+                for (DataCell element : collection) {
+                    elements[i++] = new Constant(element);
+                }
+                return new In(leftEvaluator, elements, null);
+            }
+        } else if (isFromFactory(right) && right.getTreeType() == ASTType.List) {
+            return new In(leftEvaluator, compileAll(right.getChildren()), null);
+        }
+        return new In(leftEvaluator, null, rightEvaluator);
+    }
+
+    /**
+     * Compiles a column reference.
+     *
+     * @param index The index of the column.
+     * @param type The type of the column.
+     * @param missingAsFalse Whether missing values should be returned as {@link BooleanCell#FALSE}.
+     * @return The {@link Evaluator} reading the cell.
+     */
+    static Evaluator columnRef(final int index, final DataType type, final boolean missingAsFalse) {
+        return new ColumnRef(index, type, missingAsFalse);
+    }
+
+    /**
+     * Compiles a table property reference.
+     *
+     * @param reference The {@link TableReference}.
+     * @return The {@link Evaluator} reading the property.
+     */
+    static Evaluator tableRef(final TableReference reference) {
+        return new TableRef(reference);
+    }
+
+    /**
+     * Compiles a comparison of {@link ExpressionFactory#compare(Expression, Expression, DataValueComparator, int...)}.
+     *
+     * @param left The left operand.
+     * @param right The right operand.
+     * @param cmp The comparator of the common super type of the operands.
+     * @param possibleValues The results of the comparison that result in a match.
+     * @param missingMatch Whether missing values are compared using {@code cmp}.
+     * @param nanMatch Whether {@link Double#NaN} values are compared using {@code cmp}.
+     * @return The {@link Evaluator} of the comparison.
+     */
+    static Evaluator compare(final Expression left, final Expression right, final DataValueComparator cmp,
+        final int[] possibleValues, final boolean missingMatch, final boolean nanMatch) {
+        int mask = 0;
+        for (int possibleValue : possibleValues) {
+            mask |= 1 << (possibleValue + 1);
+        }
+        return new Compare(compile(left), compile(right), cmp, mask, missingMatch, nanMatch);
+    }
+
+    /**
+     * Compiles a regular expression match.
+     *
+     * @param left The expression of the text to match.
+     * @param right The expression of the pattern.
+     * @param constantPattern The compiled pattern if {@code right} is constant, else {@code null}.
+     * @param match {@code true} to match the whole text, {@code false} to find the pattern in it.
+     * @param patternFactory Creates the {@link Pattern} of a non-constant pattern text.
+     * @return The {@link Evaluator} of the match.
+     */
+    static Evaluator regex(final Expression left, final Expression right, final Pattern constantPattern,
+        final boolean match, final Function<String, Pattern> patternFactory) {
+        return new RegEx(compile(left), compile(right), constantPattern, match, patternFactory);
+    }
+
+    /**
+     * Base class for {@link Expression}s whose evaluation depends on more than their children and tree type. These
+     * create their {@link Evaluator} themselves.
+     */
+    abstract static class CompilableExpression extends Expression.Base {
+        /**
+         * @param children The contained subexpressions.
+         */
+        CompilableExpression(final Expression... children) {
+            super(children);
+        }
+
+        /**
+         * @return The {@link Evaluator} computing the same values as this {@link Expression}.
+         */
+        abstract Evaluator compile();
+    }
+
+    /**
+     * A compiled {@link Expression}. Subclasses have to override at least one of
+     * {@link #evaluate(DataRow, VariableProvider)} and {@link #test(DataRow, VariableProvider)}.
+     */
+    abstract static class Evaluator {
+        /** {@link #test(DataRow, VariableProvider)} result for {@code false}. */
+        static final int FALSE = 0;
+
+        /** {@link #test(DataRow, VariableProvider)} result for {@code true}. */
+        static final int TRUE = 1;
+
+        /** {@link #test(DataRow, VariableProvider)} result for a missing value. */
+        static final int MISSING = 2;
+
+        /**
+         * @param row The current {@link DataRow}.
+         * @param provider The {@link VariableProvider}.
+         * @return The value.
+         */
+        DataCell evaluate(final DataRow row, final VariableProvider provider) {
+            switch (test(row, provider)) {
+                case TRUE:
+                    return BooleanCell.TRUE;
+                case FALSE:
+                    return BooleanCell.FALSE;
+                default:
+                    return DataType.getMissingCell();
+            }
+        }
+
+        /**
+         * @param row The current {@link DataRow}.
+         * @param provider The {@link VariableProvider}.
+         * @return The boolean value as {@link #TRUE}, {@link #FALSE} or {@link #MISSING}.
+         * @throws IllegalStateException If the value is not boolean.
+         */
+        int test(final DataRow row, final VariableProvider provider) {
+            return toTest(evaluate(row, provider));
+        }
+
+        /**
+         * @return Whether {@link #evaluateLong(DataRow, VariableProvider)} returns the never missing value without
+         *         creating a cell.
+         */
+        boolean isLong() {
+            return false;
+        }
+
+        /**
+         * @param row The current {@link DataRow}.
+         * @param provider The {@link VariableProvider}.
+         * @return The value when {@link #isLong()}.
+         */
+        long evaluateLong(final DataRow row, final VariableProvider provider) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @return Whether {@link #evaluateString(DataRow, VariableProvider)} returns the never missing value without
+         *         creating a cell.
+         */
+        boolean isString() {
+            return false;
+        }
+
+        /**
+         * @param row The current {@link DataRow}.
+         * @param provider The {@link VariableProvider}.
+         * @return The value when {@link #isString()}.
+         */
+        String evaluateString(final DataRow row, final VariableProvider provider) {
+            throw new UnsupportedOperationException();
+        }
+
+        static int toTest(final DataCell cell) {
+            if (cell.isMissing()) {
+                return MISSING;
+            }
+            if (cell instanceof BooleanValue) {
+                return ((BooleanValue)cell).getBooleanValue() ? TRUE : FALSE;
+            }
+            throw new IllegalStateException("Not boolean: " + cell);
+        }
+    }
+
+    /** Matches when the expression of a {@link GenericCondition} is {@code true}. */
+    private static final class ConditionMatch extends Evaluator {
+        private final Evaluator m_expression;
+
+        ConditionMatch(final Evaluator expression) {
+            m_expression = expression;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            final DataCell cell = m_expression.evaluate(row, provider);
+            return !cell.isMissing() && cell instanceof BooleanValue && ((BooleanValue)cell).getBooleanValue() ? TRUE
+                : FALSE;
+        }
+    }
+
+    /** Matches when any other {@link Condition} signals {@link MatchState#matchedAndStop}. */
+    private static final class InterpretedCondition extends Evaluator {
+        private final Condition m_condition;
+
+        InterpretedCondition(final Condition condition) {
+            m_condition = condition;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            return m_condition.matches(row, provider).getOutcome() == MatchState.matchedAndStop ? TRUE : FALSE;
+        }
+    }
+
+    private static final class InterpretedOutcome extends Evaluator {
+        private final Outcome m_outcome;
+
+        InterpretedOutcome(final Outcome outcome) {
+            m_outcome = outcome;
+        }
+
+        @Override
+        DataCell evaluate(final DataRow row, final VariableProvider provider) {
+            return (DataCell)m_outcome.getComputedResult(row, provider);
+        }
+    }
+
+    private static final class Interpreted extends Evaluator {
+        private final Expression m_expression;
+
+        Interpreted(final Expression expression) {
+            m_expression = expression;
+        }
+
+        @Override
+        DataCell evaluate(final DataRow row, final VariableProvider provider) {
+            return m_expression.evaluate(row, provider).getValue();
+        }
+    }
+
+    private static final class Constant extends Evaluator {
+        private final DataCell m_value;
+
+        private final int m_test;
+
+        Constant(final DataCell value) {
+            m_value = value;
+            m_test = value.isMissing() || value instanceof BooleanValue ? toTest(value) : -1;
+        }
+
+        @Override
+        DataCell evaluate(final DataRow row, final VariableProvider provider) {
+            return m_value;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            return m_test < 0 ? toTest(m_value) : m_test;
+        }
+    }
+
+    private static final class ColumnRef extends Evaluator {
+        private final int m_index;
+
+        private final DataType m_type;
+
+        private final boolean m_missingAsFalse;
+
+        ColumnRef(final int index, final DataType type, final boolean missingAsFalse) {
+            m_index = index;
+            m_type = type;
+            m_missingAsFalse = missingAsFalse;
+        }
+
+        @Override
+        DataCell evaluate(final DataRow row, final VariableProvider provider) {
+            final DataCell cell = row.getCell(m_index);
+            return m_missingAsFalse && cell.isMissing() ? BooleanCell.FALSE : cell;
+        }
+    }
+
+    private static final class TableRef extends Evaluator {
+        private final TableReference m_reference;
+
+        TableRef(final TableReference reference) {
+            m_reference = reference;
+        }
+
+        @Override
+        DataCell evaluate(final DataRow row, final VariableProvider provider) {
+            if (m_reference == TableReference.RowId) {
+                return new StringCell(evaluateString(row, provider));
+            }
+            return new LongCell(evaluateLong(row, provider));
+        }
+
+        @Override
+        boolean isLong() {
+            return m_reference != TableReference.RowId;
+        }
+
+        @Override
+        long evaluateLong(final DataRow row, final VariableProvider provider) {
+            switch (m_reference) {
+                case RowCount:
+                    return provider.getRowCountLong();
+                case RowIndex:
+                    return provider.getRowIndexLong();
+                default:
+                    throw new IllegalStateException("Not supported table reference: " + m_reference);
+            }
+        }
+
+        @Override
+        boolean isString() {
+            return m_reference == TableReference.RowId;
+        }
+
+        @Override
+        String evaluateString(final DataRow row, final VariableProvider provider) {
+            return row.getKey().getString();
+        }
+    }
+
+    private static final class Not extends Evaluator {
+        private final Evaluator m_operand;
+
+        Not(final Evaluator operand) {
+            m_operand = operand;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            switch (m_operand.test(row, provider)) {
+                case TRUE:
+                    return FALSE;
+                case FALSE:
+                    return TRUE;
+                default:
+                    return MISSING;
+            }
+        }
+    }
+
+    private static final class And extends Evaluator {
+        private final Evaluator[] m_operands;
+
+        And(final Evaluator[] operands) {
+            m_operands = operands;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            int ret = TRUE;
+            for (Evaluator operand : m_operands) {
+                final int value = operand.test(row, provider);
+                if (value == FALSE) {
+                    return FALSE;
+                }
+                if (value == MISSING) {
+                    ret = MISSING;
+                }
+            }
+            return ret;
+        }
+    }
+
+    private static final class Or extends Evaluator {
+        private final Evaluator[] m_operands;
+
+        Or(final Evaluator[] operands) {
+            m_operands = operands;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            int ret = FALSE;
+            for (Evaluator operand : m_operands) {
+                final int value = operand.test(row, provider);
+                if (value == TRUE) {
+                    return TRUE;
+                }
+                if (value == MISSING) {
+                    ret = MISSING;
+                }
+            }
+            return ret;
+        }
+    }
+
+    private static final class Xor extends Evaluator {
+        private final Evaluator[] m_operands;
+
+        Xor(final Evaluator[] operands) {
+            m_operands = operands;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            int ret = FALSE;
+            for (Evaluator operand : m_operands) {
+                final int value = operand.test(row, provider);
+                if (value == MISSING) {
+                    return MISSING;
+                }
+                ret ^= value;
+            }
+            return ret;
+        }
+    }
+
+    private static final class IsMissing extends Evaluator {
+        private final Evaluator m_operand;
+
+        IsMissing(final Evaluator operand) {
+            m_operand = operand;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            return m_operand.evaluate(row, provider).isMissing() ? TRUE : FALSE;
+        }
+    }
+
+    private static final class In extends Evaluator {
+        private final Evaluator m_left;
+
+        /** The elements of the list, or {@code null} if {@link #m_collection} computes it. */
+        private final Evaluator[] m_elements;
+
+        private final Evaluator m_collection;
+
+        /** The types and comparator of the last comparison for each element. */
+        private final DataType[] m_leftTypes, m_elementTypes;
+
+        private final DataValueComparator[] m_comparators;
+
+        In(final Evaluator left, final Evaluator[] elements, final Evaluator collection) {
+            m_left = left;
+            m_elements = elements;
+            m_collection = collection;
+            final int size = elements == null ? 1 : elements.length;
+            m_leftTypes = new DataType[size];
+            m_elementTypes = new DataType[size];
+            m_comparators = new DataValueComparator[size];
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            final DataCell left = m_left.evaluate(row, provider);
+            if (m_elements != null) {
+                for (int i = 0; i < m_elements.length; i++) {
+                    if (compare(i, left, m_elements[i].evaluate(row, provider)) == 0) {
+                        return TRUE;
+                    }
+                }
+                return FALSE;
+            }
+            final DataCell right = m_collection.evaluate(row, provider);
+            if (right.isMissing()) {
+                return MISSING;
+            }
+            if (right instanceof CollectionDataValue) {
+                for (DataCell element : (CollectionDataValue)right) {
+                    if (compare(0, left, element) == 0) {
+                        return TRUE;
+                    }
+                }
+                return FALSE;
+            }
+            throw new IllegalStateException("Right operand of the 'IN' operator is not a collection.");
+        }
+
+        /** Compares using the comparator of the common super type, cached in slot {@code i}. */
+        private int compare(final int i, final DataCell left, final DataCell element) {
+            final DataType leftType = left.getType(), elementType = element.getType();
+            if (!leftType.equals(m_leftTypes[i]) || !elementType.equals(m_elementTypes[i])) {
+                m_leftTypes[i] = leftType;
+                m_elementTypes[i] = elementType;
+                m_comparators[i] = DataType.getCommonSuperType(leftType, elementType).getComparator();
+            }
+            return m_comparators[i].compare(left, element);
+        }
+    }
+
+    private static final class Compare extends Evaluator {
+        private static final int GENERIC = 0, DOUBLE = 1, LONG = 2, INT = 3, STRING = 4;
+
+        /** The bit of the {@code 0} comparison result in {@link #m_mask}. */
+        private static final int EQUALS = 1 << 1;
+
+        private final Evaluator m_left, m_right;
+
+        private final DataValueComparator m_cmp;
+
+        /** Bit {@code c + 1} is set when the comparison result {@code c} matches. */
+        private final int m_mask;
+
+        private final boolean m_missingMatch, m_nanMatch;
+
+        private final int m_kind;
+
+        /** Whether the operand is read by {@link Evaluator#evaluateLong} or {@link Evaluator#evaluateString}. */
+        private final boolean m_leftPrimitive, m_rightPrimitive;
+
+        Compare(final Evaluator left, final Evaluator right, final DataValueComparator cmp, final int mask,
+            final boolean missingMatch, final boolean nanMatch) {
+            m_left = left;
+            m_right = right;
+            m_cmp = cmp;
+            m_mask = mask;
+            m_missingMatch = missingMatch;
+            m_nanMatch = nanMatch;
+            m_kind = kindOf(cmp);
+            m_leftPrimitive = isPrimitive(left);
+            m_rightPrimitive = isPrimitive(right);
+        }
+
+        /** @return The kind of primitive comparison {@code cmp} does. */
+        static int kindOf(final DataValueComparator cmp) {
+            // only the built-in comparators are known to compare the primitive values
+            final Class<?> cmpClass = cmp.getClass();
+            if (cmpClass == DoubleValueComparator.class) {
+                return DOUBLE;
+            } else if (cmpClass == LongValueComparator.class) {
+                return LONG;
+            } else if (cmpClass == IntValueComparator.class) {
+                return INT;
+            } else if (cmpClass == StringValueComparator.class) {
+                return STRING;
+            }
+            return GENERIC;
+        }
+
+        /**
+         * @param kind The kind of comparison.
+         * @param cell A cell.
+         * @return The value of {@code cell} compared by the {@code kind} of comparison, equal keys are equal in the
+         *         comparison. {@code null} if the cell is missing or the value cannot be read.
+         */
+        static Object key(final int kind, final DataCell cell) {
+            if (cell.isMissing()) {
+                return null;
+            }
+            switch (kind) {
+                case DOUBLE:
+                    return cell instanceof DoubleValue ? Double.valueOf(((DoubleValue)cell).getDoubleValue()) : null;
+                case LONG:
+                    return cell instanceof LongValue ? Long.valueOf(((LongValue)cell).getLongValue()) : null;
+                case INT:
+                    return cell instanceof IntValue ? Integer.valueOf(((IntValue)cell).getIntValue()) : null;
+                case STRING:
+                    return cell instanceof StringValue ? ((StringValue)cell).getStringValue() : null;
+                default:
+                    return null;
+            }
+        }
+
+        private boolean isPrimitive(final Evaluator operand) {
+            return ((m_kind == DOUBLE || m_kind == LONG) && operand.isLong())
+                || (m_kind == STRING && operand.isString());
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            final DataCell left = m_leftPrimitive ? null : m_left.evaluate(row, provider);
+            final DataCell right = m_rightPrimitive ? null : m_right.evaluate(row, provider);
+            switch (m_kind) {
+                case DOUBLE:
+                    if (is(left, DoubleValue.class) && is(right, DoubleValue.class)) {
+                        final double l =
+                            left == null ? m_left.evaluateLong(row, provider) : ((DoubleValue)left).getDoubleValue();
+                        final double r = right == null ? m_right.evaluateLong(row, provider)
+                            : ((DoubleValue)right).getDoubleValue();
+                        final boolean leftNaN = Double.isNaN(l), rightNaN = Double.isNaN(r);
+                        if (!m_nanMatch && (leftNaN || rightNaN)) {
+                            return leftNaN && rightNaN && (m_mask & EQUALS) != 0 ? TRUE : FALSE;
+                        }
+                        return result(Double.compare(l, r));
+                    }
+                    break;
+                case LONG:
+                    if (is(left, LongValue.class) && is(right, LongValue.class) && noNaN(left, right)) {
+                        final long l =
+                            left == null ? m_left.evaluateLong(row, provider) : ((LongValue)left).getLongValue();
+                        final long r =
+                            right == null ? m_right.evaluateLong(row, provider) : ((LongValue)right).getLongValue();
+                        return result(Long.compare(l, r));
+                    }
+                    break;
+                case INT:
+                    if (is(left, IntValue.class) && is(right, IntValue.class) && noNaN(left, right)) {
+                        return result(
+                            Integer.compare(((IntValue)left).getIntValue(), ((IntValue)right).getIntValue()));
+                    }
+                    break;
+                case STRING:
+                    if (is(left, StringValue.class) && is(right, StringValue.class) && noNaN(left, right)) {
+                        final String l = left == null ? m_left.evaluateString(row, provider)
+                            : ((StringValue)left).getStringValue();
+                        final String r = right == null ? m_right.evaluateString(row, provider)
+                            : ((StringValue)right).getStringValue();
+                        return result(l.compareTo(r));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return compareCells(left == null ? m_left.evaluate(row, provider) : left,
+                right == null ? m_right.evaluate(row, provider) : right);
+        }
+
+        /** @return Whether the operand is primitive or a non-missing cell of the value class. */
+        private static boolean is(final DataCell cell, final Class<?> valueClass) {
+            return cell == null || (!cell.isMissing() && valueClass.isInstance(cell));
+        }
+
+        /** @return Whether the NaN handling does not apply to the operands. */
+        private boolean noNaN(final DataCell left, final DataCell right) {
+            return m_nanMatch || !(isNaN(left) || isNaN(right));
+        }
+
+        private static boolean isNaN(final DataCell cell) {
+            return cell instanceof DoubleValue && Double.isNaN(((DoubleValue)cell).getDoubleValue());
+        }
+
+        /** Same as the interpreted comparison, also handles missing values. */
+        private int compareCells(final DataCell left, final DataCell right) {
+            final boolean leftMissing = left.isMissing(), rightMissing = right.isMissing();
+            if (!m_missingMatch && (leftMissing || rightMissing)) {
+                boolean bothMissingAndAllowEquals = leftMissing && rightMissing && (m_mask & EQUALS) != 0;
+                if (bothMissingAndAllowEquals && left instanceof MissingValue && right instanceof MissingValue) {
+                    //If the errors differ we do not consider them equal
+                    bothMissingAndAllowEquals = left.equals(right);
+                }
+                return bothMissingAndAllowEquals ? TRUE : FALSE;
+            }
+            final boolean leftNaN = isNaN(left), rightNaN = isNaN(right);
+            if (!m_nanMatch && (leftNaN || rightNaN)) {
+                return leftNaN && rightNaN && (m_mask & EQUALS) != 0 ? TRUE : FALSE;
+            }
+            return result(m_cmp.compare(left, right));
+        }
+
+        private int result(final int compareResult) {
+            return (m_mask & (1 << (Integer.signum(compareResult) + 1))) != 0 ? TRUE : FALSE;
+        }
+    }
+
+    private static final class RegEx extends Evaluator {
+        private final Evaluator m_left, m_right;
+
+        /** Whether the text is read by {@link Evaluator#evaluateString}. */
+        private final boolean m_leftString;
+
+        /** The matcher of the constant pattern, or {@code null}. */
+        private final Matcher m_constant;
+
+        private final boolean m_match;
+
+        private final Function<String, Pattern> m_patternFactory;
+
+        private final MatcherCache m_matchers;
+
+        RegEx(final Evaluator left, final Evaluator right, final Pattern constantPattern, final boolean match,
+            final Function<String, Pattern> patternFactory) {
+            m_left = left;
+            m_right = right;
+            m_leftString = left.isString();
+            m_constant = constantPattern == null ? null : constantPattern.matcher("");
+            m_match = match;
+            m_patternFactory = patternFactory;
+            m_matchers = constantPattern == null ? new MatcherCache() : null;
+        }
+
+        @Override
+        int test(final DataRow row, final VariableProvider provider) {
+            final DataCell left = m_leftString ? null : m_left.evaluate(row, provider);
+            if (m_constant != null) {
+                if (left != null && left.isMissing()) {
+                    return FALSE;
+                }
+                if (left == null || left instanceof StringValue) {
+                    return find(m_constant, text(left, row, provider));
+                }
+                throw new IllegalStateException("Both the m_value and the pattern have to be strings: " + left + " ["
+                    + left.getType() + "], " + m_constant.pattern().pattern());
+            }
+            final DataCell right = m_right.evaluate(row, provider);
+            if ((left != null && left.isMissing()) || right.isMissing()) {
+                return FALSE;
+            }
+            if (right instanceof StringValue && (left == null || left instanceof StringValue)) {
+                return find(matcher(((StringValue)right).getStringValue()), text(left, row, provider));
+            }
+            final DataCell leftCell = left == null ? m_left.evaluate(row, provider) : left;
+            throw new IllegalStateException("Both the m_value and the pattern have to be strings: " + leftCell + " ["
+                + leftCell.getType() + "], " + right + " [" + right.getType() + "]");
+        }
+
+        private String text(final DataCell left, final DataRow row, final VariableProvider provider) {
+            return left == null ? m_left.evaluateString(row, provider) : ((StringValue)left).getStringValue();
+        }
+
+        private int find(final Matcher matcher, final String text) {
+            matcher.reset(text);
+            final boolean found = m_match ? matcher.matches() : matcher.find();
+            // do not keep the text of the row
+            matcher.reset("");
+            return found ? TRUE : FALSE;
+        }
+
+        private Matcher matcher(final String pattern) {
+            Matcher matcher = m_matchers.get(pattern);
+            if (matcher == null) {
+                matcher = m_patternFactory.apply(pattern).matcher("");
+                m_matchers.put(pattern, matcher);
+            }
+            return matcher;
+        }
+    }
+
+    /** A condition that compares a column for equality with constants. */
+    private static final class Equality {
+        private final ColumnRef m_column;
+
+        private final int m_kind;
+
+        private final List<Object> m_keys;
+
+        /** Whether the comparators depend on the type of the column's cells, like for {@code IN}. */
+        private final boolean m_typeDependent;
+
+        private Equality(final ColumnRef column, final int kind, final List<Object> keys,
+            final boolean typeDependent) {
+            m_column = column;
+            m_kind = kind;
+            m_keys = keys;
+            m_typeDependent = typeDependent;
+        }
+
+        /**
+         * @param condition A compiled condition.
+         * @return The {@link Equality} if the condition is {@code $col$ = constant}, {@code constant = $col$} or
+         *         {@code $col$ IN (constants)}, else {@code null}.
+         */
+        static Equality of(final Evaluator condition) {
+            if (!(condition instanceof ConditionMatch)) {
+                return null;
+            }
+            final Evaluator expression = ((ConditionMatch)condition).m_expression;
+            if (expression instanceof Compare) {
+                final Compare compare = (Compare)expression;
+                if (compare.m_mask != Compare.EQUALS || compare.m_kind == Compare.GENERIC) {
+                    return null;
+                }
+                if (isColumn(compare.m_left) && compare.m_right instanceof Constant) {
+                    return of((ColumnRef)compare.m_left, compare.m_kind, (Constant)compare.m_right);
+                }
+                if (isColumn(compare.m_right) && compare.m_left instanceof Constant) {
+                    return of((ColumnRef)compare.m_right, compare.m_kind, (Constant)compare.m_left);
+                }
+            } else if (expression instanceof In) {
+                final In in = (In)expression;
+                if (!isColumn(in.m_left) || in.m_elements == null || in.m_elements.length == 0) {
+                    return null;
+                }
+                final ColumnRef column = (ColumnRef)in.m_left;
+                int kind = -1;
+                final List<Object> keys = new ArrayList<>(in.m_elements.length);
+                for (Evaluator element : in.m_elements) {
+                    if (!(element instanceof Constant)) {
+                        return null;
+                    }
+                    final DataCell cell = ((Constant)element).m_value;
+                    final int elementKind =
+                        Compare.kindOf(DataType.getCommonSuperType(column.m_type, cell.getType()).getComparator());
+                    final Object key = Compare.key(elementKind, cell);
+                    if (key == null || (kind >= 0 && kind != elementKind)) {
+                        return null;
+                    }
+                    kind = elementKind;
+                    keys.add(key);
+                }
+                return new Equality(column, kind, keys, true);
+            }
+            return null;
+        }
+
+        private static Equality of(final ColumnRef column, final int kind, final Constant constant) {
+            final Object key = Compare.key(kind, constant.m_value);
+            return key == null ? null : new Equality(column, kind, Collections.singletonList(key), false);
+        }
+
+        private static boolean isColumn(final Evaluator evaluator) {
+            return evaluator instanceof ColumnRef && !((ColumnRef)evaluator).m_missingAsFalse;
+        }
+
+        /**
+         * @param other Another {@link Equality}.
+         * @return Whether both compare the same column the same way.
+         */
+        boolean isSameColumn(final Equality other) {
+            return m_column.m_index == other.m_column.m_index && m_kind == other.m_kind
+                && m_column.m_type.equals(other.m_column.m_type);
+        }
+    }
+
+    /** Consecutive {@link Equality} rules on the same column, dispatched by a hash lookup. */
+    private static final class IndexedRun {
+        /** {@link #firstMatch(DataRow)} result when none of the rules match. */
+        static final int NO_MATCH = -1;
+
+        /** {@link #firstMatch(DataRow)} result when the rules have to be evaluated one by one. */
+        static final int UNDECIDED = -2;
+
+        private final int m_end;
+
+        private final int m_column;
+
+        private final DataType m_type;
+
+        private final int m_kind;
+
+        private final boolean m_typeDependent;
+
+        /** Maps the key of the compared value to the index of the first rule matching it. */
+        private final Map<Object, Integer> m_index = new HashMap<>();
+
+        IndexedRun(final int start, final List<Equality> rules) {
+            m_end = start + rules.size();
+            final Equality first = rules.get(0);
+            m_column = first.m_column.m_index;
+            m_type = first.m_column.m_type;
+            m_kind = first.m_kind;
+            boolean typeDependent = false;
+            for (int i = 0; i < rules.size(); i++) {
+                final Equality rule = rules.get(i);
+                typeDependent |= rule.m_typeDependent;
+                for (Object key : rule.m_keys) {
+                    m_index.putIfAbsent(key, start + i);
+                }
+            }
+            m_typeDependent = typeDependent;
+        }
+
+        /**
+         * @param row The current {@link DataRow}.
+         * @return The index of the first matching rule, {@link #NO_MATCH} or {@link #UNDECIDED}.
+         */
+        int firstMatch(final DataRow row) {
+            final DataCell cell = row.getCell(m_column);
+            if (cell.isMissing()) {
+                // missing values are never equal to the constants
+                return NO_MATCH;
+            }
+            if (m_typeDependent && !m_type.equals(cell.getType())) {
+                return UNDECIDED;
+            }
+            final Object key = Compare.key(m_kind, cell);
+            if (key == null) {
+                return UNDECIDED;
+            }
+            final Integer match = m_index.get(key);
+            return match == null ? NO_MATCH : match.intValue();
+        }
+    }
+
+    /** Least recently used {@link Matcher}s of the non-constant patterns. */
+    private static final class MatcherCache extends LinkedHashMap<String, Matcher> {
+        private static final long serialVersionUID = 2736160442411876321L;
+
+        MatcherCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Matcher> eldest) {
+            return size() > PATTERN_CACHE_SIZE;
+        }
+    }
+}
@@ -57,6 +57,8 @@
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.knime.base.node.rules.engine.CompiledRuleSet.CompilableExpression;
+import org.knime.base.node.rules.engine.CompiledRuleSet.Evaluator;
 import org.knime.base.node.rules.engine.Rule.TableReference;
 import org.knime.base.util.WildcardMatcher;
 import org.knime.core.data.BooleanValue;
@@ -163,7 +165,7 @@ public ASTType getTreeType() {
      * @author Gabor Bakos
      * @since 2.8
      */
-    private abstract class RegExExpression extends Expression.Base {
+    private abstract class RegExExpression extends CompilableExpression {
         private final Expression m_right;
 
         private final Expression m_left;
@@ -316,6 +318,14 @@ public boolean isConstant() {
             return m_left.isConstant() && m_right.isConstant();
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Evaluator compile() {
+            return CompiledRuleSet.regex(m_left, m_right, m_pattern, m_match, p -> Pattern.compile(transform(p)));
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -856,7 +866,7 @@ private Expression columnRefImpl(final DataTableSpec spec, final String columnRe
         final DataType type = spec.getColumnSpec(position).getType();
         final boolean isBoolean = type.isCompatible(BooleanValue.class);
         assert (!booleanArgumentOfMissing || isBoolean) : type;
-        return new Expression.Base() {
+        return new CompilableExpression() {
 
             /**
              * {@inheritDoc}
@@ -897,6 +907,14 @@ public boolean isConstant() {
                 return false;
             }
 
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            Evaluator compile() {
+                return CompiledRuleSet.columnRef(position, type, isBoolean && !booleanArgumentOfMissing);
+            }
+
             /**
              * {@inheritDoc}
              */
@@ -1257,7 +1275,7 @@ public ASTType getTreeType() {
     @Override
     public Expression compare(final Expression left, final Expression right, final DataValueComparator cmp,
         final int... possibleValues) {
-        return new Expression.Base(left, right) {
+        return new CompilableExpression(left, right) {
 
             /**
              * {@inheritDoc}
@@ -1325,6 +1343,14 @@ public boolean isConstant() {
                 return left.isConstant() && right.isConstant();
             }
 
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            Evaluator compile() {
+                return CompiledRuleSet.compare(left, right, cmp, possibleValues, m_missingMatch, m_nanMatch);
+            }
+
             /**
              * {@inheritDoc}
              */
@@ -1470,7 +1496,7 @@ public ASTType getTreeType() {
      */
     @Override
     public Expression tableRef(final TableReference reference) {
-        return new Expression.Base() {
+        return new CompilableExpression() {
 
             /**
              * {@inheritDoc}
@@ -1515,6 +1541,14 @@ public boolean isConstant() {
                 return false;
             }
 
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            Evaluator compile() {
+                return CompiledRuleSet.tableRef(reference);
+            }
+
             /**
              * {@inheritDoc}
              */
@@ -192,12 +192,13 @@ private ColumnRearranger createRearranger(final DataTableSpec inSpec, final List
         DataColumnSpec cs = colSpecCreator.createSpec();
 
         final boolean disallowLongOutputForCompatibility = m_settings.isDisallowLongOutputForCompatibility();
+        final CompiledRuleSet compiledRules = CompiledRuleSet.compile(rules);
         VariableProvider.SingleCellFactoryProto cellFactory = new VariableProvider.SingleCellFactoryProto(cs) {
             private long m_rowIndex = -1L;
             @Override
             public DataCell getCell(final DataRow row) {
                 m_rowIndex++;
-                return getRulesOutcome(outType, row, rules, disallowLongOutputForCompatibility, this);
+                return getRulesOutcome(outType, row, compiledRules, disallowLongOutputForCompatibility, this);
             }
 
             @Override
@@ -430,29 +431,58 @@ public static final DataCell getRulesOutcome(final DataType outType, final DataR
                 Outcome outcome2 = r.getOutcome();
                 //                        r.getSideEffect().perform(row, this);
                 DataCell cell = (DataCell)outcome2.getComputedResult(row, variableProvider);
-                // in versions < 3.2 the output was never long ... so casting to int
-                // (instanceof check for LongCELL as this is what our code generates
-                // ... don't want Booleans (also implementing Long), for instance)
-                if (cell instanceof LongCell && isDisallowLongOutputForCompatibility) {
-                    long l = ((LongValue)cell).getLongValue();
-                    if (l > Integer.MAX_VALUE) {
-                        throw new RuntimeException("Values larger than " + Integer.MAX_VALUE
-                            + " not supported in old instances of the node -- recreate the node "
-                            + "(node was created using an KNIME version < 3.2");
-                    }
-                    cell = new IntCell((int)l);
-                }
-                if (outType.equals(StringCell.TYPE) && !cell.isMissing()
-                        && !cell.getType().equals(StringCell.TYPE)) {
-                    return new StringCell(cell.toString());
-                } else {
-                    return cell;
-                }
+                return toOutputCell(outType, cell, isDisallowLongOutputForCompatibility);
             }
         }
         return DataType.getMissingCell();
     }
 
+    /**
+     * Computes the outcome of the first matching rule of a {@link CompiledRuleSet}.
+     *
+     * @param outType The output type.
+     * @param row The current row.
+     * @param rules The compiled rules.
+     * @param isDisallowLongOutputForCompatibility see {@link RuleEngineSettings#isDisallowLongOutputForCompatibility()}
+     * @param variableProvider The {@link VariableProvider}.
+     * @return The outcome of the first matching rule, or a missing cell if no rule matches.
+     * @since 3.7
+     * @noreference This method is not intended to be referenced by clients.
+     */
+    public static final DataCell getRulesOutcome(final DataType outType, final DataRow row,
+        final CompiledRuleSet rules, final boolean isDisallowLongOutputForCompatibility,
+        final VariableProvider variableProvider) {
+        final int match = rules.firstMatch(row, variableProvider);
+        if (match < 0) {
+            return DataType.getMissingCell();
+        }
+        return toOutputCell(outType, rules.getOutcome(match, row, variableProvider),
+            isDisallowLongOutputForCompatibility);
+    }
+
+    private static DataCell toOutputCell(final DataType outType, final DataCell outcome,
+        final boolean isDisallowLongOutputForCompatibility) {
+        DataCell cell = outcome;
+        // in versions < 3.2 the output was never long ... so casting to int
+        // (instanceof check for LongCELL as this is what our code generates
+        // ... don't want Booleans (also implementing Long), for instance)
+        if (cell instanceof LongCell && isDisallowLongOutputForCompatibility) {
+            long l = ((LongValue)cell).getLongValue();
+            if (l > Integer.MAX_VALUE) {
+                throw new RuntimeException("Values larger than " + Integer.MAX_VALUE
+                    + " not supported in old instances of the node -- recreate the node "
+                    + "(node was created using an KNIME version < 3.2");
+            }
+            cell = new IntCell((int)l);
+        }
+        if (outType.equals(StringCell.TYPE) && !cell.isMissing()
+                && !cell.getType().equals(StringCell.TYPE)) {
+            return new StringCell(cell.toString());
+        } else {
+            return cell;
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public Object readVariable(final String name, final Class<?> type) {
@@ -54,8 +54,6 @@
 import java.util.List;
 import java.util.Map;
 
-import org.knime.base.node.rules.engine.Condition.MatchOutcome.MatchState;
-import org.knime.base.node.rules.engine.Rule.Outcome;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
@@ -167,37 +165,28 @@ public long getRowIndexLong() {
                 throw new IllegalStateException("Row index is not available.");
             }
         };
-        boolean wasMatch = false;
-        for (Rule r : rules) {
-            if (r.getCondition().matches(null, provider).getOutcome() == MatchState.matchedAndStop) {
-                Outcome outcome2 = r.getOutcome();
-                //                        r.getSideEffect().perform(row, this);
-                final DataCell cell = (DataCell)outcome2.getComputedResult(null, provider);
-                wasMatch = true;
-                if (outType.equals(StringCell.TYPE) && !cell.isMissing() && !cell.getType().equals(StringCell.TYPE)) {
-                    pushFlowVariableString(newFlowVar, cell.toString());
-                    break;
+        final CompiledRuleSet compiledRules = CompiledRuleSet.compile(rules);
+        final int match = compiledRules.firstMatch(null, provider);
+        if (match >= 0) {
+            final DataCell cell = compiledRules.getOutcome(match, null, provider);
+            if (outType.equals(StringCell.TYPE) && !cell.isMissing() && !cell.getType().equals(StringCell.TYPE)) {
+                pushFlowVariableString(newFlowVar, cell.toString());
+            } else {
+                if (cell.isMissing()) {
+                    throw new UnsupportedOperationException("Missing result, TODO");
+                }
+                if (outType.equals(IntCell.TYPE)) {
+                    pushFlowVariableInt(newFlowVar, ((IntValue)cell).getIntValue());
+                } else if (outType.equals(DoubleCell.TYPE)) {
+                    pushFlowVariableDouble(newFlowVar, ((DoubleValue)cell).getDoubleValue());
+                } else if (outType.equals(StringCell.TYPE)) {
+                    pushFlowVariableString(newFlowVar, ((StringValue)cell).getStringValue());
                 } else {
-                    if (cell.isMissing()) {
-                        throw new UnsupportedOperationException("Missing result, TODO");
-                    }
-                    if (outType.equals(IntCell.TYPE)) {
-                        pushFlowVariableInt(newFlowVar, ((IntValue)cell).getIntValue());
-                        break;
-                    } else if (outType.equals(DoubleCell.TYPE)) {
-                        pushFlowVariableDouble(newFlowVar, ((DoubleValue)cell).getDoubleValue());
-                        break;
-                    } else if (outType.equals(StringCell.TYPE)) {
-                        pushFlowVariableString(newFlowVar, ((StringValue)cell).getStringValue());
-                        break;
-                    } else {
-                        //TODO
-                        throw new UnsupportedOperationException("Wrong type: " + cell.getClass());
-                    }
+                    //TODO
+                    throw new UnsupportedOperationException("Wrong type: " + cell.getClass());
                 }
             }
-        }
-        if (!wasMatch) {
+        } else {
             if (outType.equals(StringCell.TYPE)) {
                 pushFlowVariableString(newFlowVar, "");
             } else if (outType.equals(IntCell.TYPE)) {